@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.util.FastFormat;
+
+/**
+ * Generates the data used by the benchmarks. All data is generated from a fixed seed so that runs against different releases measure the same work.
+ */
+class BenchmarkData {
+
+  static final long SEED = 42;
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+  private static final byte CQ_PREFIX[] = new byte[] {'q'};
+
+  static byte[] row(int r) {
+    return FastFormat.toZeroPaddedString(r, 9, 16, ROW_PREFIX);
+  }
+
+  static byte[] qualifier(int q) {
+    return FastFormat.toZeroPaddedString(q, 4, 16, CQ_PREFIX);
+  }
+
+  /**
+   * Creates sorted keys with a few column families and qualifiers per row, which is a typical shape for data in an RFile.
+   */
+  static Key[] sortedKeys(int numKeys, int colsPerRow) {
+    Random rand = new Random(SEED);
+    byte[][] families = new byte[][] {"attr".getBytes(UTF_8), "data".getBytes(UTF_8), "meta".getBytes(UTF_8)};
+    byte[] vis = "A&B".getBytes(UTF_8);
+
+    int[] rows = new int[numKeys / colsPerRow + 1];
+    for (int i = 0; i < rows.length; i++)
+      rows[i] = rand.nextInt(Integer.MAX_VALUE);
+    Arrays.sort(rows);
+
+    Key[] keys = new Key[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      int col = i % colsPerRow;
+      keys[i] = new Key(row(rows[i / colsPerRow]), families[col * families.length / colsPerRow], qualifier(col), vis, 1000000L + rand.nextInt(1000));
+    }
+
+    Arrays.sort(keys);
+    return keys;
+  }
+}
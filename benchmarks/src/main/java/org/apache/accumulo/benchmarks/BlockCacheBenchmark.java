@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
+import org.apache.accumulo.core.file.blockfile.cache.CacheType;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures concurrent gets and puts against the block cache implementations. The cache holds about half of the blocks requested, so the gets are a mix of hits
+ * and misses and the puts cause evictions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class BlockCacheBenchmark {
+
+  private static final int BLOCK_SIZE = 16 * 1024;
+  private static final int NUM_BLOCKS = 8192;
+
+  @State(Scope.Benchmark)
+  public static class Cache {
+
+    @Param({"lru", "tinylfu"})
+    public String cacheType;
+
+    BlockCacheManager manager;
+    BlockCache cache;
+    String[] names;
+    byte[] block;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+      conf.set(Property.TSERV_CACHE_MANAGER_IMPL, cacheType.equals("lru") ? LruBlockCacheManager.class.getName() : TinyLfuBlockCacheManager.class.getName());
+      conf.set(Property.TSERV_DEFAULT_BLOCKSIZE, Integer.toString(BLOCK_SIZE));
+      conf.set(Property.TSERV_DATACACHE_SIZE, Long.toString((long) BLOCK_SIZE * NUM_BLOCKS / 2));
+
+      manager = BlockCacheManagerFactory.getClientInstance(conf);
+      manager.start(new BlockCacheConfiguration(conf));
+      cache = manager.getBlockCache(CacheType.DATA);
+
+      names = new String[NUM_BLOCKS];
+      for (int i = 0; i < NUM_BLOCKS; i++)
+        names[i] = "hdfs://nn/accumulo/tables/1/t-0001/F" + i + ".rf:" + (i * BLOCK_SIZE);
+      block = new byte[BLOCK_SIZE];
+
+      for (String name : names)
+        cache.cacheBlock(name, block);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+      manager.stop();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadRandom {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    // skew requests toward a subset of blocks, the way hot index and data blocks are requested
+    Random random = new Random(BenchmarkData.SEED + threadCount.getAndIncrement());
+
+    int nextBlock() {
+      int r = random.nextInt(NUM_BLOCKS);
+      return random.nextBoolean() ? r / 8 : r;
+    }
+  }
+
+  @Benchmark
+  public CacheEntry get(Cache cache, ThreadRandom random) {
+    return cache.cache.getBlock(cache.names[random.nextBlock()]);
+  }
+
+  @Benchmark
+  public CacheEntry getOrPut(Cache cache, ThreadRandom random) {
+    String name = cache.names[random.nextBlock()];
+    CacheEntry entry = cache.cache.getBlock(name);
+    if (entry == null)
+      entry = cache.cache.cacheBlock(name, cache.block);
+    return entry;
+  }
+}
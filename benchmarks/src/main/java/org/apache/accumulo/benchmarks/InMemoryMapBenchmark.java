@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.tserver.InMemoryMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing batches of mutations into a tablet's {@link InMemoryMap} from several threads. A new map is created for each iteration so that the map does
+ * not grow without bound.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-XX:MaxDirectMemorySize=4g"})
+@Threads(4)
+public class InMemoryMapBenchmark {
+
+  private static final int BATCH_SIZE = 10;
+
+  @State(Scope.Benchmark)
+  public static class MemoryMap {
+
+    @Param({"default", "offheap"})
+    public String mapType;
+
+    @Param({"true", "false"})
+    public boolean concurrentWrites;
+
+    InMemoryMap map;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+      ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+      conf.set(Property.TSERV_NATIVEMAP_ENABLED, "false");
+      conf.set(Property.TSERV_OFFHEAPMAP_ENABLED, "" + mapType.equals("offheap"));
+      conf.set(Property.TSERV_MEMORY_MAPS_CONCURRENT_WRITES, "" + concurrentWrites);
+      conf.set(Property.TSERV_MEMDUMP_DIR, System.getProperty("java.io.tmpdir"));
+      map = new InMemoryMap(conf);
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() {
+      map.delete(0);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Mutations {
+    private static final int NUM_BATCHES = 1024;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    List<List<Mutation>> batches = new ArrayList<>();
+    int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      Random rand = new Random(BenchmarkData.SEED + threadCount.getAndIncrement());
+      byte[] value = new byte[32];
+      for (int i = 0; i < NUM_BATCHES; i++) {
+        List<Mutation> batch = new ArrayList<>();
+        for (int j = 0; j < BATCH_SIZE; j++) {
+          Mutation m = new Mutation(BenchmarkData.row(rand.nextInt(Integer.MAX_VALUE)));
+          m.put(BenchmarkData.qualifier(0), BenchmarkData.qualifier(1), value);
+          m.put(BenchmarkData.qualifier(0), BenchmarkData.qualifier(2), value);
+          batch.add(m);
+        }
+        batches.add(batch);
+      }
+    }
+
+    List<Mutation> nextBatch() {
+      List<Mutation> batch = batches.get(next);
+      next = (next + 1) % NUM_BATCHES;
+      return batch;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void mutate(MemoryMap map, Mutations mutations) {
+    map.map.mutate(mutations.nextBatch());
+  }
+}
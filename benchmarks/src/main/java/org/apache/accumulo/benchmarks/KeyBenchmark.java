@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.rfile.RelativeKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Key#compareTo(Key)} and the prefix compressed key encoding done by {@link RelativeKey} when writing and reading RFile data blocks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyBenchmark {
+
+  private static final int NUM_KEYS = 4096;
+
+  private Key[] keys;
+  private byte[] encoded;
+  private ByteArrayOutputStream baos;
+
+  @Setup
+  public void setup() throws IOException {
+    keys = BenchmarkData.sortedKeys(NUM_KEYS, 4);
+
+    baos = new ByteArrayOutputStream();
+    writeRelativeKeys(new DataOutputStream(baos));
+    encoded = baos.toByteArray();
+  }
+
+  private void writeRelativeKeys(DataOutputStream out) throws IOException {
+    Key prev = null;
+    for (Key key : keys) {
+      new RelativeKey(prev, key).write(out);
+      prev = key;
+    }
+    out.flush();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS - 1)
+  public void compareTo(Blackhole bh) {
+    for (int i = 1; i < keys.length; i++) {
+      bh.consume(keys[i - 1].compareTo(keys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public int relativeKeyWrite() throws IOException {
+    baos.reset();
+    writeRelativeKeys(new DataOutputStream(baos));
+    return baos.size();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void relativeKeyRead(Blackhole bh) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(null);
+    for (int i = 0; i < NUM_KEYS; i++) {
+      rk.readFields(in);
+      bh.consume(rk.getKey());
+    }
+  }
+}
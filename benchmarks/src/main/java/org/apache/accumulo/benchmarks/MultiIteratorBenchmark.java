@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.CacheType;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.file.rfile.RFileOperations;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.HeapIterator;
+import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator;
+import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.server.problems.ProblemReportingIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures merging sorted sources with {@link MultiIterator}, which is the {@link HeapIterator} used to merge a tablet's files at scan time.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiIteratorBenchmark {
+
+  private static final int NUM_KEYS = 100000;
+
+  @Param({"2", "10", "30"})
+  public int numSources;
+
+  /**
+   * interleaved spreads keys evenly over all sources. skewed puts most keys in one source, like a tablet with one large file and a few small ones.
+   */
+  @Param({"interleaved", "skewed"})
+  public String distribution;
+
+  private MultiIterator iterator;
+  private SortedKeyValueIterator<Key,Value> systemIterator;
+  private SortedKeyValueIterator<Key,Value> fileIterator;
+
+  private final List<File> files = new ArrayList<>();
+  private final List<FileSKVIterator> readers = new ArrayList<>();
+  private BlockCacheManager cacheManager;
+
+  /**
+   * Hands the scan one open file reader, the way the tablet server's file manager does for a file that may be closed while the scan is idle.
+   */
+  private static class ReaderDataSource implements DataSource {
+    private final SortedKeyValueIterator<Key,Value> reader;
+
+    ReaderDataSource(SortedKeyValueIterator<Key,Value> reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean isCurrent() {
+      return true;
+    }
+
+    @Override
+    public DataSource getNewDataSource() {
+      return this;
+    }
+
+    @Override
+    public DataSource getDeepCopyDataSource(IteratorEnvironment env) {
+      return new ReaderDataSource(reader.deepCopy(env));
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> iterator() {
+      return reader;
+    }
+
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {}
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Key[] keys = BenchmarkData.sortedKeys(NUM_KEYS, 4);
+    Random rand = new Random(BenchmarkData.SEED);
+
+    List<TreeMap<Key,Value>> maps = new ArrayList<>();
+    for (int i = 0; i < numSources; i++)
+      maps.add(new TreeMap<Key,Value>());
+
+    Value value = new Value(new byte[16]);
+    for (Key key : keys) {
+      int source;
+      if (distribution.equals("skewed"))
+        source = rand.nextInt(100) < 90 ? 0 : rand.nextInt(numSources);
+      else
+        source = rand.nextInt(numSources);
+      maps.get(source).put(key, value);
+    }
+
+    List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<>();
+    for (TreeMap<Key,Value> map : maps)
+      sources.add(new SortedMapIterator(map));
+
+    iterator = new MultiIterator(sources, false);
+
+    List<SortedKeyValueIterator<Key,Value>> systemSources = new ArrayList<>();
+    for (TreeMap<Key,Value> map : maps)
+      systemSources.add(new SortedMapIterator(map));
+    systemIterator = IteratorUtil.setupSystemScanIterators(new MultiIterator(systemSources, false), Collections.<Column> emptySet(), Authorizations.EMPTY,
+        new byte[0]);
+
+    setupFiles(maps);
+  }
+
+  /**
+   * Writes each source to an RFile whose blocks are kept in the block cache, and wraps the readers the way the tablet server's file manager does for a scan.
+   */
+  private void setupFiles(List<TreeMap<Key,Value>> maps) throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+
+    ConfigurationCopy acuConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    acuConf.set(Property.TSERV_CACHE_MANAGER_IMPL, LruBlockCacheManager.class.getName());
+    acuConf.set(Property.TSERV_DATACACHE_SIZE, Long.toString(256 * 1024 * 1024));
+    acuConf.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(64 * 1024 * 1024));
+
+    cacheManager = new LruBlockCacheManager();
+    cacheManager.start(new BlockCacheConfiguration(acuConf));
+
+    List<SortedKeyValueIterator<Key,Value>> fileSources = new ArrayList<>();
+    for (TreeMap<Key,Value> map : maps) {
+      File file = File.createTempFile("benchmark", "." + RFile.EXTENSION);
+      files.add(file);
+
+      FileSKVWriter writer = new RFileOperations().newWriterBuilder().forFile(file.getAbsolutePath(), fs, conf).withTableConfiguration(acuConf).build();
+      writer.startDefaultLocalityGroup();
+      for (Entry<Key,Value> entry : map.entrySet()) {
+        writer.append(entry.getKey(), entry.getValue());
+      }
+      writer.close();
+
+      FileSKVIterator reader = new RFileOperations().newReaderBuilder().forFile(file.getAbsolutePath(), fs, conf).withTableConfiguration(acuConf)
+          .withBlockCache(cacheManager.getBlockCache(CacheType.DATA), cacheManager.getBlockCache(CacheType.INDEX)).build();
+      readers.add(reader);
+
+      // the context is only used to report read errors, which the benchmark does not expect
+      fileSources.add(new ProblemReportingIterator(null, new Table.ID("1"), file.getAbsolutePath(), false,
+          new SourceSwitchingIterator(new ReaderDataSource(reader))));
+    }
+
+    fileIterator = IteratorUtil.setupSystemScanIterators(new MultiIterator(fileSources, false), Collections.<Column> emptySet(), Authorizations.EMPTY,
+        new byte[0]);
+
+    // load all blocks into the cache
+    fileIterator.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    while (fileIterator.hasTop()) {
+      fileIterator.next();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() throws IOException {
+    for (FileSKVIterator reader : readers)
+      reader.close();
+    cacheManager.stop();
+    for (File file : files)
+      file.delete();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void merge(Blackhole bh) throws IOException {
+    iterator.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    while (iterator.hasTop()) {
+      bh.consume(iterator.getTopKey());
+      iterator.next();
+    }
+  }
+
+  /**
+   * Reads the merged sources through the system scan iterators, which pass batches of key/values to each other.
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void systemIterators(Blackhole bh) throws IOException {
+    systemIterator.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    while (systemIterator.hasTop()) {
+      bh.consume(systemIterator.getTopKey());
+      systemIterator.next();
+    }
+  }
+
+  /**
+   * Reads the sources from cached RFiles through the wrappers the tablet server puts around each file and the system scan iterators, as a scan does.
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void fileIterators(Blackhole bh) throws IOException {
+    fileIterator.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    while (fileIterator.hasTop()) {
+      bh.consume(fileIterator.getTopKey());
+      bh.consume(fileIterator.getTopValue());
+      fileIterator.next();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.thrift.TMutation;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building mutations and converting them to and from the forms used by the write ahead log and by thrift.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MutationBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int numColumns;
+
+  private Mutation mutation;
+  private byte[] serialized;
+  private TMutation thrift;
+  private ByteArrayOutputStream baos;
+  private byte[] value;
+  private ColumnVisibility visibility;
+
+  @Setup
+  public void setup() throws IOException {
+    value = new byte[64];
+    visibility = new ColumnVisibility("A&B");
+    mutation = build();
+
+    baos = new ByteArrayOutputStream();
+    mutation.write(new DataOutputStream(baos));
+    serialized = baos.toByteArray();
+    thrift = mutation.toThrift();
+  }
+
+  private Mutation build() {
+    Mutation m = new Mutation(BenchmarkData.row(12345));
+    for (int i = 0; i < numColumns; i++) {
+      m.put("data".getBytes(UTF_8), BenchmarkData.qualifier(i), visibility, 1000000L, value);
+    }
+    return m;
+  }
+
+  @Benchmark
+  public Mutation put() {
+    return build();
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    baos.reset();
+    mutation.write(new DataOutputStream(baos));
+    return baos.size();
+  }
+
+  @Benchmark
+  public Mutation readFields() throws IOException {
+    Mutation m = new Mutation();
+    m.readFields(new DataInputStream(new ByteArrayInputStream(serialized)));
+    return m;
+  }
+
+  @Benchmark
+  public TMutation toThrift() {
+    return mutation.toThrift();
+  }
+
+  @Benchmark
+  public int fromThrift() {
+    return new Mutation(thrift).getUpdates().size();
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.CacheType;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.file.rfile.RFileOperations;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures seeking and iterating through an {@link RFile.Reader} whose blocks are in the block cache, so that the numbers reflect decoding and not disk I/O.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RFileBenchmark {
+
+  @Param({"100000"})
+  public int numKeys;
+
+  @Param({"none", "gz"})
+  public String compression;
+
+  private File file;
+  private BlockCacheManager cacheManager;
+  private FileSKVIterator reader;
+  private Key[] keys;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    keys = BenchmarkData.sortedKeys(numKeys, 4);
+    random = new Random(BenchmarkData.SEED);
+
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    file = File.createTempFile("benchmark", "." + RFile.EXTENSION);
+
+    ConfigurationCopy acuConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    acuConf.set(Property.TABLE_FILE_COMPRESSION_TYPE, compression);
+    acuConf.set(Property.TSERV_CACHE_MANAGER_IMPL, LruBlockCacheManager.class.getName());
+    acuConf.set(Property.TSERV_DATACACHE_SIZE, Long.toString(256 * 1024 * 1024));
+    acuConf.set(Property.TSERV_INDEXCACHE_SIZE, Long.toString(64 * 1024 * 1024));
+
+    FileSKVWriter writer = new RFileOperations().newWriterBuilder().forFile(file.getAbsolutePath(), fs, conf).withTableConfiguration(acuConf).build();
+    writer.startDefaultLocalityGroup();
+    Value value = new Value(new byte[64]);
+    for (Key key : keys) {
+      writer.append(key, value);
+    }
+    writer.close();
+
+    cacheManager = new LruBlockCacheManager();
+    cacheManager.start(new BlockCacheConfiguration(acuConf));
+
+    reader = new RFileOperations().newReaderBuilder().forFile(file.getAbsolutePath(), fs, conf).withTableConfiguration(acuConf)
+        .withBlockCache(cacheManager.getBlockCache(CacheType.DATA), cacheManager.getBlockCache(CacheType.INDEX)).build();
+
+    // load all blocks into the cache
+    reader.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    while (reader.hasTop()) {
+      reader.next();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() throws IOException {
+    reader.close();
+    cacheManager.stop();
+    file.delete();
+  }
+
+  @Benchmark
+  public void seek(Blackhole bh) throws IOException {
+    Key key = keys[random.nextInt(keys.length)];
+    reader.seek(new Range(key, true, key, true), LocalityGroupUtil.EMPTY_CF_SET, false);
+    bh.consume(reader.getTopKey());
+  }
+
+  @Benchmark
+  public long scan(Blackhole bh) throws IOException {
+    long count = 0;
+    reader.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    while (reader.hasTop()) {
+      bh.consume(reader.getTopKey());
+      bh.consume(reader.getTopValue());
+      reader.next();
+      count++;
+    }
+    return count;
+  }
+}
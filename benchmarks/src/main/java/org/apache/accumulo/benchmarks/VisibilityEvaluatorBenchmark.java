@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures parsing and evaluating column visibility expressions of varying complexity.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VisibilityEvaluatorBenchmark {
+
+  private static final String[] EXPRESSIONS = new String[] {"A", "A&B", "A|Z", "(A&B)|(C&D)", "(A|Z)&(B|Y)&(C|X)", "\"a:b\"&(\"c d\"|E)",
+      "((A&B)|(C&Z))&(D|(E&F&G))", "Z|Y|X|W|V|A"};
+
+  private VisibilityEvaluator evaluator;
+  private byte[][] expressions;
+  private ColumnVisibility[] visibilities;
+
+  @Setup
+  public void setup() {
+    evaluator = new VisibilityEvaluator(new Authorizations("A", "B", "C", "D", "E", "F", "G", "a:b", "c d"));
+
+    expressions = new byte[EXPRESSIONS.length][];
+    visibilities = new ColumnVisibility[EXPRESSIONS.length];
+    for (int i = 0; i < EXPRESSIONS.length; i++) {
+      visibilities[i] = new ColumnVisibility(EXPRESSIONS[i]);
+      expressions[i] = visibilities[i].getExpression();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(8)
+  public void evaluate(Blackhole bh) throws VisibilityParseException {
+    for (ColumnVisibility cv : visibilities) {
+      bh.consume(evaluator.evaluate(cv));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(8)
+  public void parseAndEvaluate(Blackhole bh) throws VisibilityParseException {
+    for (byte[] expression : expressions) {
+      bh.consume(evaluator.evaluate(new ColumnVisibility(expression)));
+    }
+  }
+}
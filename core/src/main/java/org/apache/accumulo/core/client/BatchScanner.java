@@ -36,8 +36,8 @@ import org.apache.accumulo.core.data.Range;
  * <li>Running server-side iterators that perform computation, even if few entries are returned from the scan itself</li>
  * </ul>
  *
- * To re-emphasize, only use a BatchScanner when you do not care whether returned data is in sorted order. Use a {@link Scanner} instead when sorted order is
- * important.
+ * To re-emphasize, only use a BatchScanner when you do not care whether returned data is in sorted order, or enable {@link #setOrdered(boolean)}. Use a
+ * {@link Scanner} instead when sorted order over a single range is important.
  *
  * <p>
  * A BatchScanner instance will use no more threads than provided in the construction of the BatchScanner implementation. Multiple invocations of
@@ -53,6 +53,26 @@ public interface BatchScanner extends ScannerBase {
    */
   void setRanges(Collection<Range> ranges);
 
+  /**
+   * When set, iterators created by this batch scanner return entries in sorted order. The ranges are still split at tablet boundaries and read in parallel, but
+   * the pieces are returned in key order, so only a bounded number of pieces ahead of the one being consumed are read at a time. By default a batch scanner
+   * returns entries in whatever order they arrive.
+   *
+   * <p>
+   * Batch scanners that do not override this method, such as ones written before it was added, only support the default unordered mode. Asking them for sorted
+   * order throws an exception rather than silently returning unsorted entries, so callers that rely on sorted order fail fast.
+   *
+   * @param ordered
+   *          true to return entries in sorted order
+   * @throws UnsupportedOperationException
+   *           if ordered is true and this batch scanner can not return sorted entries
+   * @since 2.0.0
+   */
+  default void setOrdered(boolean ordered) {
+    if (ordered)
+      throw new UnsupportedOperationException(getClass().getName() + " can not return entries in sorted order");
+  }
+
   @Override
   void close();
 
@@ -16,6 +16,8 @@
  */
 package org.apache.accumulo.core.client;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.accumulo.core.data.Mutation;
 
 /**
@@ -60,6 +62,29 @@ public interface BatchWriter extends AutoCloseable {
    */
   void flush() throws MutationsRejectedException;
 
+  /**
+   * Send any buffered mutations to Accumulo immediately, without waiting for them to be written. As with {@link #flush()}, mutations added before the flush
+   * finishes are held until it does. The returned future is completed by the batch writer's internal threads.
+   *
+   * <p>
+   * Batch writers that do not override this method, such as ones written before it was added, call {@link #flush()} in the calling thread and return a future
+   * that is already complete.
+   *
+   * @return a future that completes once all buffered mutations are written, or completes exceptionally with a {@link MutationsRejectedException} if current
+   *         or previous mutations failed
+   * @since 2.0.0
+   */
+  default CompletableFuture<Void> flushAsync() {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      flush();
+      future.complete(null);
+    } catch (MutationsRejectedException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * Flush and release any resources.
    *
@@ -18,6 +18,7 @@
 package org.apache.accumulo.core.client;
 
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.accumulo.core.client.impl.thrift.SecurityErrorCode;
 import org.apache.accumulo.core.data.ConditionalMutation;
@@ -128,6 +129,25 @@ public interface ConditionalWriter extends AutoCloseable {
 
   Result write(ConditionalMutation mutation);
 
+  /**
+   * Submits a mutation without waiting for its result. No thread is held while the mutation is outstanding, so a caller can keep many mutations in flight.
+   * Mutations submitted this way are batched with all other mutations sent through this conditional writer. This method has the same thread safety guarantees
+   * as {@link #write(Iterator)}.
+   *
+   * <p>
+   * The returned future is completed by the writer's internal threads. Dependent actions that may block should use one of the future's async methods.
+   *
+   * <p>
+   * Conditional writers that do not override this method, such as ones written before it was added, call {@link #write(ConditionalMutation)} in the calling
+   * thread and return a future that is already complete.
+   *
+   * @return a future that completes with the result for the submitted mutation
+   * @since 2.0.0
+   */
+  default CompletableFuture<Result> writeAsync(ConditionalMutation mutation) {
+    return CompletableFuture.completedFuture(write(mutation));
+  }
+
   /**
    * release any resources (like threads pools) used by conditional writer
    */
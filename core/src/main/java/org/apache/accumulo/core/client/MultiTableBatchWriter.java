@@ -16,6 +16,8 @@
  */
 package org.apache.accumulo.core.client;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This class enables efficient batch writing to multiple tables. When creating a batch writer for each table, each has its own memory and network resources.
  * Using this class these resources may be shared among multiple tables.
@@ -46,6 +48,28 @@ public interface MultiTableBatchWriter {
    */
   void flush() throws MutationsRejectedException;
 
+  /**
+   * Send mutations for all tables to accumulo, without waiting for them to be written.
+   *
+   * <p>
+   * Writers that do not override this method call {@link #flush()} in the calling thread and return a future that is already complete.
+   *
+   * @return a future that completes once the mutations for all tables are written, or completes exceptionally with a {@link MutationsRejectedException} if
+   *         queued mutations are unable to be inserted
+   * @see BatchWriter#flushAsync()
+   * @since 2.0.0
+   */
+  default CompletableFuture<Void> flushAsync() {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    try {
+      flush();
+      future.complete(null);
+    } catch (MutationsRejectedException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * Flush and release all resources.
    *
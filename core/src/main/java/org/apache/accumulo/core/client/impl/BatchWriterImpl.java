@@ -18,6 +18,8 @@ package org.apache.accumulo.core.client.impl;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.MutationsRejectedException;
@@ -59,4 +61,9 @@ public class BatchWriterImpl implements BatchWriter {
     bw.flush();
   }
 
+  @Override
+  public CompletableFuture<Void> flushAsync() {
+    return bw.flushAsync();
+  }
+
 }
@@ -33,12 +33,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.AccumuloException;
@@ -172,14 +174,14 @@ class ConditionalWriterImpl implements ConditionalWriter {
   }
 
   private static class QCMutation extends ConditionalMutation implements Delayed {
-    private BlockingQueue<Result> resultQueue;
+    private Consumer<Result> resultReceiver;
     private long resetTime;
     private long delay = 50;
     private long entryTime;
 
-    QCMutation(ConditionalMutation cm, BlockingQueue<Result> resultQueue, long entryTime) {
+    QCMutation(ConditionalMutation cm, Consumer<Result> resultReceiver, long entryTime) {
       super(cm);
-      this.resultQueue = resultQueue;
+      this.resultReceiver = resultReceiver;
       this.entryTime = entryTime;
     }
 
@@ -212,7 +214,7 @@ class ConditionalWriterImpl implements ConditionalWriter {
     }
 
     void queueResult(Result result) {
-      resultQueue.add(result);
+      resultReceiver.accept(result);
     }
   }
 
@@ -416,6 +418,18 @@ class ConditionalWriterImpl implements ConditionalWriter {
 
     BlockingQueue<Result> resultQueue = new LinkedBlockingQueue<>();
 
+    int count = write(mutations, resultQueue::add);
+
+    return new RQIterator(resultQueue, count);
+  }
+
+  /**
+   * Queues the mutations to be sent to tablet servers. Each result is passed to the receiver as soon as it is known, from whichever thread learned it.
+   *
+   * @return the number of mutations queued
+   */
+  private int write(Iterator<ConditionalMutation> mutations, Consumer<Result> resultReceiver) {
+
     List<QCMutation> mutationList = new ArrayList<>();
 
     int count = 0;
@@ -431,19 +445,18 @@ class ConditionalWriterImpl implements ConditionalWriter {
 
       for (Condition cond : mut.getConditions()) {
         if (!isVisible(cond.getVisibility())) {
-          resultQueue.add(new Result(Status.INVISIBLE_VISIBILITY, mut, null));
+          resultReceiver.accept(new Result(Status.INVISIBLE_VISIBILITY, mut, null));
           continue mloop;
         }
       }
 
       // copy the mutations so that even if caller changes it, it will not matter
-      mutationList.add(new QCMutation(mut, resultQueue, entryTime));
+      mutationList.add(new QCMutation(mut, resultReceiver, entryTime));
     }
 
     queue(mutationList);
 
-    return new RQIterator(resultQueue, count);
-
+    return count;
   }
 
   private class SendTask implements Runnable {
@@ -843,6 +856,13 @@ class ConditionalWriterImpl implements ConditionalWriter {
     return write(Collections.singleton(mutation).iterator()).next();
   }
 
+  @Override
+  public CompletableFuture<Result> writeAsync(ConditionalMutation mutation) {
+    CompletableFuture<Result> future = new CompletableFuture<>();
+    write(Collections.singleton(mutation).iterator(), future::complete);
+    return future;
+  }
+
   @Override
   public void close() {
     threadPool.shutdownNow();
@@ -18,6 +18,7 @@ package org.apache.accumulo.core.client.impl;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -80,6 +81,11 @@ public class MultiTableBatchWriterImpl implements MultiTableBatchWriter {
       throw new UnsupportedOperationException("Must flush all tables, can not flush an individual table");
     }
 
+    @Override
+    public CompletableFuture<Void> flushAsync() {
+      throw new UnsupportedOperationException("Must flush all tables, can not flush an individual table");
+    }
+
   }
 
   /**
@@ -232,4 +238,9 @@ public class MultiTableBatchWriterImpl implements MultiTableBatchWriter {
     bw.flush();
   }
 
+  @Override
+  public CompletableFuture<Void> flushAsync() {
+    return bw.flushAsync();
+  }
+
 }
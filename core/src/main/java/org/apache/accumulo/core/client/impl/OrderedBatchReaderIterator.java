@@ -0,0 +1,487 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.SampleNotPresentException;
+import org.apache.accumulo.core.client.TableDeletedException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.TableOfflineException;
+import org.apache.accumulo.core.client.TimedOutException;
+import org.apache.accumulo.core.client.impl.ThriftScanner.ScanState;
+import org.apache.accumulo.core.client.impl.ThriftScanner.ScanTimedOutException;
+import org.apache.accumulo.core.client.impl.thrift.ThriftSecurityException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.data.thrift.InitialMultiScan;
+import org.apache.accumulo.core.data.thrift.MultiScanResult;
+import org.apache.accumulo.core.data.thrift.TKeyValue;
+import org.apache.accumulo.core.rpc.ThriftUtil;
+import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.tabletserver.thrift.TSampleNotPresentException;
+import org.apache.accumulo.core.tabletserver.thrift.TabletClientService;
+import org.apache.accumulo.core.trace.Tracer;
+import org.apache.accumulo.core.util.ByteBufferUtil;
+import org.apache.htrace.wrappers.TraceRunnable;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.net.HostAndPort;
+
+/**
+ * Batch scanner iterator that returns entries in sorted order. The ranges are split at tablet boundaries, and the ranges of each tablet form a piece read by one
+ * multi-scan session on the query thread pool, which returns a tablet's ranges in order. Several pieces ahead of the one being consumed are read concurrently,
+ * while the consumer drains the pieces in key order. Because the pieces do not overlap, draining them in order is the same as merging the per-tablet streams.
+ */
+class OrderedBatchReaderIterator implements Iterator<Entry<Key,Value>> {
+
+  private static final Logger log = LoggerFactory.getLogger(OrderedBatchReaderIterator.class);
+
+  private static final List<KeyValue> LAST_BATCH = new ArrayList<>();
+
+  // batches buffered per piece before its reader stops and waits for the consumer
+  private static final int MAX_BUFFERED_BATCHES = 2;
+
+  /**
+   * The sorted ranges of one tablet, or a single range that could not be located and has no tablet.
+   */
+  static class Piece {
+    final String location;
+    final KeyExtent extent;
+    final List<Range> ranges = new ArrayList<>();
+
+    Piece(String location, KeyExtent extent) {
+      this.location = location;
+      this.extent = extent;
+    }
+  }
+
+  /**
+   * Reads one piece a batch at a time, the way a scan session does.
+   */
+  interface PieceScanner {
+    /**
+     * @return the next batch, which is not empty, or null when the whole piece has been read
+     */
+    List<KeyValue> nextBatch() throws Exception;
+  }
+
+  private final ClientContext context;
+  private final ExecutorService queryThreadPool;
+  private final Function<Piece,PieceScanner> pieceScanners;
+  private final int maxActivePieces;
+
+  private final ArrayDeque<Piece> pendingPieces;
+  private final ArrayDeque<PieceReader> activePieces = new ArrayDeque<>();
+
+  private Iterator<KeyValue> batchIterator = Collections.emptyIterator();
+  private boolean finished = false;
+
+  OrderedBatchReaderIterator(ClientContext context, Table.ID tableId, Authorizations authorizations, List<Range> ranges, int numThreads,
+      ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout) {
+    this(context, new TimeoutTabletLocator(timeout, context, tableId), bound(ranges, scannerOptions), numThreads, queryThreadPool,
+        thriftScanners(context, tableId, authorizations, new ScannerOptions(scannerOptions), timeout));
+  }
+
+  OrderedBatchReaderIterator(ClientContext context, TabletLocator locator, List<Range> ranges, int numThreads, ExecutorService queryThreadPool,
+      Function<Piece,PieceScanner> pieceScanners) {
+    this.context = context;
+    this.queryThreadPool = queryThreadPool;
+    this.pieceScanners = pieceScanners;
+    this.maxActivePieces = Math.max(1, numThreads * 2);
+
+    try {
+      pendingPieces = new ArrayDeque<>(splitRanges(locator, Range.mergeOverlapping(ranges)));
+    } catch (RuntimeException re) {
+      throw re;
+    } catch (Exception e) {
+      throw new RuntimeException("Failed to create iterator", e);
+    }
+
+    startPieces();
+  }
+
+  private static List<Range> bound(List<Range> ranges, ScannerOptions options) {
+    if (options.fetchedColumns.size() == 0)
+      return ranges;
+
+    ArrayList<Range> ranges2 = new ArrayList<>(ranges.size());
+    for (Range range : ranges) {
+      ranges2.add(range.bound(options.fetchedColumns.first(), options.fetchedColumns.last()));
+    }
+    return ranges2;
+  }
+
+  /**
+   * Reads the ranges of each tablet with one multi-scan session, and each range that could not be located with its own scan session.
+   */
+  private static Function<Piece,PieceScanner> thriftScanners(final ClientContext context, final Table.ID tableId, final Authorizations authorizations,
+      final ScannerOptions options, final long timeout) {
+    final Function<Range,PieceScanner> rangeScanners = rangeScanners(context, tableId, authorizations, options, timeout);
+    return piece -> {
+      if (piece.extent == null)
+        return rangeScanners.apply(piece.ranges.get(0));
+      return new MultiScanPieceScanner(context, piece, authorizations, options, timeout, rangeScanners);
+    };
+  }
+
+  /**
+   * Reads a range with its own scan session, which locates the tablets of the range as it goes.
+   */
+  private static Function<Range,PieceScanner> rangeScanners(final ClientContext context, final Table.ID tableId, final Authorizations authorizations,
+      final ScannerOptions options, long timeout) {
+    final int timeOut = (int) Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(timeout));
+    return range -> {
+      final ScanState scanState = new ScanState(context, tableId, authorizations, range, options.fetchedColumns, Constants.SCAN_BATCH_SIZE,
+          options.serverSideIteratorList, options.serverSideIteratorOptions, false, Constants.SCANNER_DEFAULT_READAHEAD_THRESHOLD,
+          options.getSamplerConfiguration(), options.batchTimeOut, options.classLoaderContext);
+      return () -> {
+        List<KeyValue> batch;
+        do {
+          batch = ThriftScanner.scan(context, scanState, timeOut);
+        } while (batch != null && batch.isEmpty());
+        return batch;
+      };
+    };
+  }
+
+  /**
+   * Reads the ranges of one tablet through one multi-scan session, which returns them in range order. If the session fails, for example because the tablet
+   * moved, the ranges it had not finished are read one at a time by scan sessions that locate the tablet again.
+   */
+  private static class MultiScanPieceScanner implements PieceScanner {
+
+    private final ClientContext context;
+    private final Piece piece;
+    private final Authorizations authorizations;
+    private final ScannerOptions options;
+    private final long timeout;
+    private final Function<Range,PieceScanner> rangeScanners;
+
+    private final Map<KeyExtent,List<Range>> failures = new HashMap<>();
+    private final Map<KeyExtent,List<Range>> unscanned = new HashMap<>();
+    private Long scanID = null;
+    private boolean more = true;
+    private PieceScanner remaining = null;
+
+    MultiScanPieceScanner(ClientContext context, Piece piece, Authorizations authorizations, ScannerOptions options, long timeout,
+        Function<Range,PieceScanner> rangeScanners) {
+      this.context = context;
+      this.piece = piece;
+      this.authorizations = authorizations;
+      this.options = options;
+      this.timeout = timeout;
+      this.rangeScanners = rangeScanners;
+      unscanned.put(piece.extent, new ArrayList<>(piece.ranges));
+    }
+
+    @Override
+    public List<KeyValue> nextBatch() throws Exception {
+      while (remaining == null) {
+        if (!more)
+          return null;
+
+        MultiScanResult scanResult;
+        try {
+          scanResult = scan();
+        } catch (IOException e) {
+          log.debug("Multi scan of {} failed, reading its remaining ranges one at a time", piece.extent, e);
+          readRemaining();
+          break;
+        }
+
+        TabletServerBatchReaderIterator.trackScanning(failures, unscanned, scanResult);
+        more = scanResult.more;
+        if (!failures.isEmpty())
+          readRemaining();
+
+        if (scanResult.results.size() > 0) {
+          List<KeyValue> batch = new ArrayList<>(scanResult.results.size());
+          for (TKeyValue kv : scanResult.results)
+            batch.add(new KeyValue(new Key(kv.key), kv.value));
+          return batch;
+        }
+      }
+
+      return remaining.nextBatch();
+    }
+
+    private MultiScanResult scan() throws IOException, AccumuloSecurityException, AccumuloServerException {
+      try {
+        final HostAndPort server = HostAndPort.fromString(piece.location);
+        final TabletClientService.Client client;
+        if (timeout < context.getClientTimeoutInMillis())
+          client = ThriftUtil.getTServerClient(server, context, timeout);
+        else
+          client = ThriftUtil.getTServerClient(server, context);
+
+        try {
+          MultiScanResult scanResult;
+          if (scanID == null) {
+            TabletType ttype = TabletType.type(piece.extent);
+            boolean waitForWrites = !ThriftScanner.serversWaitedForWrites.get(ttype).contains(piece.location);
+            InitialMultiScan imsr = client.startMultiScan(Tracer.traceInfo(), context.rpcCreds(),
+                Collections.singletonMap(piece.extent.toThrift(), Translator.translate(piece.ranges, Translators.RT)),
+                Translator.translate(new ArrayList<>(options.fetchedColumns), Translators.CT), options.serverSideIteratorList,
+                options.serverSideIteratorOptions, ByteBufferUtil.toByteBuffers(authorizations.getAuthorizations()), waitForWrites,
+                SamplerConfigurationImpl.toThrift(options.getSamplerConfiguration()), options.batchTimeOut, options.classLoaderContext);
+            if (waitForWrites)
+              ThriftScanner.serversWaitedForWrites.get(ttype).add(piece.location);
+            scanID = imsr.scanID;
+            scanResult = imsr.result;
+          } else {
+            scanResult = client.continueMultiScan(Tracer.traceInfo(), scanID);
+          }
+
+          if (!scanResult.more)
+            client.closeMultiScan(Tracer.traceInfo(), scanID);
+          return scanResult;
+        } finally {
+          ThriftUtil.returnClient(client);
+        }
+      } catch (ThriftSecurityException e) {
+        throw new AccumuloSecurityException(e.user, e.code, e);
+      } catch (TApplicationException e) {
+        throw new AccumuloServerException(piece.location, e);
+      } catch (TSampleNotPresentException e) {
+        String tableInfo = Tables.getPrintableTableInfoFromId(context.getInstance(), piece.extent.getTableId());
+        throw new SampleNotPresentException("Table " + tableInfo + " does not have sampling configured or built", e);
+      } catch (TException e) {
+        throw new IOException(e);
+      }
+    }
+
+    /**
+     * Reads what the session did not, in order. Everything before it has already been returned, since the session returns the ranges in order.
+     */
+    private void readRemaining() {
+      List<Range> ranges = new ArrayList<>();
+      for (List<Range> tabletRanges : failures.values())
+        ranges.addAll(tabletRanges);
+      for (List<Range> tabletRanges : unscanned.values())
+        ranges.addAll(tabletRanges);
+      Collections.sort(ranges);
+
+      more = false;
+      final Iterator<Range> rangeIter = ranges.iterator();
+      remaining = new PieceScanner() {
+        private PieceScanner current = null;
+
+        @Override
+        public List<KeyValue> nextBatch() throws Exception {
+          while (true) {
+            if (current == null) {
+              if (!rangeIter.hasNext())
+                return null;
+              current = rangeScanners.apply(rangeIter.next());
+            }
+            List<KeyValue> batch = current.nextBatch();
+            if (batch != null)
+              return batch;
+            current = null;
+          }
+        }
+      };
+    }
+  }
+
+  /**
+   * Splits the sorted, non-overlapping ranges at the tablet boundaries currently known to the locator, and groups the ranges of each tablet into a piece.
+   * Ranges that can not be located yet are kept whole in pieces of their own; the scan session reading them will locate them as it goes.
+   */
+  private List<Piece> splitRanges(TabletLocator locator, List<Range> ranges) throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
+    TreeMap<Range,Piece> rangePieces = new TreeMap<>();
+    for (Range range : locator.binRanges(context, ranges, binnedRanges))
+      rangePieces.put(range, new Piece(null, null));
+
+    for (Entry<String,Map<KeyExtent,List<Range>>> serverRanges : binnedRanges.entrySet()) {
+      for (Entry<KeyExtent,List<Range>> tabletRanges : serverRanges.getValue().entrySet()) {
+        Piece piece = new Piece(serverRanges.getKey(), tabletRanges.getKey());
+        Range tabletRange = piece.extent.toDataRange();
+        for (Range range : tabletRanges.getValue())
+          rangePieces.put(tabletRange.clip(range), piece);
+      }
+    }
+
+    // A tablet's ranges are read in one session, unless a range that could not be located falls between them. Then the tablet is read in more than one
+    // piece, so the pieces stay in order.
+    List<Piece> pieces = new ArrayList<>();
+    Piece last = null;
+    for (Entry<Range,Piece> entry : rangePieces.entrySet()) {
+      Piece piece = entry.getValue();
+      if (last == null || piece.extent == null || !piece.extent.equals(last.extent)) {
+        last = new Piece(piece.location, piece.extent);
+        pieces.add(last);
+      }
+      last.ranges.add(entry.getKey());
+    }
+    return pieces;
+  }
+
+  private void startPieces() {
+    while (activePieces.size() < maxActivePieces && !pendingPieces.isEmpty()) {
+      PieceReader reader = new PieceReader(pendingPieces.removeFirst());
+      activePieces.addLast(reader);
+      reader.schedule();
+    }
+  }
+
+  /**
+   * Reads one piece a batch at a time. At most one read is running for a piece, and a read is only started when there is room to queue its result, so the
+   * reader never blocks a pool thread waiting on the consumer.
+   */
+  private class PieceReader implements Runnable {
+
+    private final Piece piece;
+    private final PieceScanner scanner;
+    private final ArrayBlockingQueue<Object> results = new ArrayBlockingQueue<>(MAX_BUFFERED_BATCHES);
+    private boolean running = false;
+    private boolean done = false;
+
+    PieceReader(Piece piece) {
+      this.piece = piece;
+      this.scanner = pieceScanners.apply(piece);
+    }
+
+    synchronized void schedule() {
+      if (!running && !done && results.remainingCapacity() > 0) {
+        running = true;
+        queryThreadPool.execute(new TraceRunnable(this));
+      }
+    }
+
+    @Override
+    public void run() {
+      Object result;
+      try {
+        List<KeyValue> batch = scanner.nextBatch();
+        result = batch == null ? LAST_BATCH : batch;
+      } catch (ScanTimedOutException e) {
+        log.trace("{}", e.getMessage(), e);
+        result = new TimedOutException("Timed out reading " + piece.ranges);
+      } catch (AccumuloException | AccumuloSecurityException | TableDeletedException | TableOfflineException | SampleNotPresentException e) {
+        log.trace("{}", e.getMessage(), e);
+        result = e;
+      } catch (TableNotFoundException e) {
+        log.warn("{}", e.getMessage(), e);
+        result = e;
+      } catch (Exception e) {
+        log.error("{}", e.getMessage(), e);
+        result = e;
+      }
+
+      synchronized (this) {
+        running = false;
+        done = !(result instanceof List) || result == LAST_BATCH;
+        results.add(result);
+      }
+
+      schedule();
+    }
+
+    @SuppressWarnings("unchecked")
+    List<KeyValue> take() throws InterruptedException {
+      Object result = null;
+      while (result == null && !queryThreadPool.isShutdown())
+        result = results.poll(1, TimeUnit.SECONDS);
+
+      if (result == null) {
+        String shortMsg = "The BatchScanner was unexpectedly closed while this Iterator was still in use.";
+        log.error(shortMsg + " Ensure that a reference to the BatchScanner is retained so that it can be closed when this Iterator is exhausted."
+            + " Not retaining a reference to the BatchScanner guarantees that you are leaking threads in your client JVM.");
+        throw new RuntimeException(shortMsg + " Ensure proper handling of the BatchScanner.");
+      }
+
+      if (result instanceof RuntimeException)
+        throw (RuntimeException) result;
+      if (result instanceof Exception)
+        throw new RuntimeException((Exception) result);
+
+      schedule();
+      return (List<KeyValue>) result;
+    }
+  }
+
+  @Override
+  public synchronized boolean hasNext() {
+    while (!batchIterator.hasNext()) {
+      if (finished)
+        return false;
+
+      if (activePieces.isEmpty()) {
+        finished = true;
+        return false;
+      }
+
+      List<KeyValue> batch;
+      try {
+        batch = activePieces.getFirst().take();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } catch (RuntimeException e) {
+        finished = true;
+        throw e;
+      }
+
+      if (batch == LAST_BATCH) {
+        activePieces.removeFirst();
+        startPieces();
+      } else {
+        batchIterator = batch.iterator();
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public synchronized Entry<Key,Value> next() {
+    if (hasNext())
+      return batchIterator.next();
+    throw new NoSuchElementException();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -42,6 +42,7 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
 
   private final ClientContext context;
   private ArrayList<Range> ranges;
+  private boolean ordered = false;
 
   private Authorizations authorizations = Authorizations.EMPTY;
   private Throwable ex = null;
@@ -102,6 +103,11 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
 
   }
 
+  @Override
+  public void setOrdered(boolean ordered) {
+    this.ordered = ordered;
+  }
+
   @Override
   public Iterator<Entry<Key,Value>> iterator() {
     if (ranges == null) {
@@ -112,6 +118,10 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
       throw new IllegalStateException("batch reader closed");
     }
 
+    if (ordered) {
+      return new OrderedBatchReaderIterator(context, tableId, authorizations, ranges, numThreads, queryThreadPool, this, timeOut);
+    }
+
     return new TabletServerBatchReaderIterator(context, tableId, authorizations, ranges, numThreads, queryThreadPool, this, timeOut);
   }
 }
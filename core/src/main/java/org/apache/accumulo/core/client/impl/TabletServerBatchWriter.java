@@ -32,6 +32,7 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -118,6 +119,7 @@ public class TabletServerBatchWriter {
   private boolean flushing;
   private boolean closed;
   private MutationSet mutations;
+  private List<CompletableFuture<Void>> pendingFlushes = new ArrayList<>();
 
   // background writer
   private final MutationWriter writer;
@@ -236,9 +238,12 @@ public class TabletServerBatchWriter {
     mutations = new MutationSet();
   }
 
-  private synchronized void decrementMemUsed(long amount) {
-    totalMemUsed -= amount;
-    this.notifyAll();
+  private void decrementMemUsed(long amount) {
+    synchronized (this) {
+      totalMemUsed -= amount;
+      this.notifyAll();
+    }
+    completeFlushes();
   }
 
   public synchronized void addMutation(Table.ID table, Mutation m) throws MutationsRejectedException {
@@ -347,6 +352,58 @@ public class TabletServerBatchWriter {
     }
   }
 
+  /**
+   * Starts flushing buffered mutations without waiting. As with {@link #flush()}, mutations added while the flush is in progress wait for it to finish.
+   *
+   * @return a future that completes once all buffered mutations are written, or completes exceptionally with a {@link MutationsRejectedException}
+   */
+  public CompletableFuture<Void> flushAsync() {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    synchronized (this) {
+      if (closed)
+        throw new IllegalStateException("Closed");
+
+      flushing = true;
+      pendingFlushes.add(future);
+      startProcessing();
+    }
+
+    completeFlushes();
+    return future;
+  }
+
+  /**
+   * Completes pending asynchronous flushes once nothing is buffered or in flight, or once something has failed. The futures are completed outside of this
+   * object's lock so that dependent actions can use the batch writer.
+   */
+  private void completeFlushes() {
+    List<CompletableFuture<Void>> flushed;
+    MutationsRejectedException failure = null;
+
+    synchronized (this) {
+      if (pendingFlushes.isEmpty() || (totalMemUsed > 0 && !somethingFailed))
+        return;
+
+      flushed = pendingFlushes;
+      pendingFlushes = new ArrayList<>();
+      flushing = false;
+      this.notifyAll();
+
+      try {
+        checkForFailures();
+      } catch (MutationsRejectedException e) {
+        failure = e;
+      }
+    }
+
+    for (CompletableFuture<Void> future : flushed) {
+      if (failure == null)
+        future.complete(null);
+      else
+        future.completeExceptionally(failure);
+    }
+  }
+
   public synchronized void close() throws MutationsRejectedException {
 
     if (closed)
@@ -499,6 +556,7 @@ public class TabletServerBatchWriter {
         violations.add(cvsList);
         this.notifyAll();
       }
+      completeFlushes();
     }
   }
 
@@ -528,6 +586,7 @@ public class TabletServerBatchWriter {
         mergeAuthorizationFailures(this.authorizationFailures, authorizationFailures);
         this.notifyAll();
       }
+      completeFlushes();
     }
   }
 
@@ -542,22 +601,28 @@ public class TabletServerBatchWriter {
     }
   }
 
-  private synchronized void updateServerErrors(String server, Exception e) {
-    somethingFailed = true;
-    this.serverSideErrors.add(server);
-    this.notifyAll();
-    log.error("Server side error on " + server + ": " + e);
+  private void updateServerErrors(String server, Exception e) {
+    synchronized (this) {
+      somethingFailed = true;
+      this.serverSideErrors.add(server);
+      this.notifyAll();
+      log.error("Server side error on " + server + ": " + e);
+    }
+    completeFlushes();
   }
 
-  private synchronized void updateUnknownErrors(String msg, Throwable t) {
-    somethingFailed = true;
-    unknownErrors++;
-    this.lastUnknownError = t;
-    this.notifyAll();
-    if (t instanceof TableDeletedException || t instanceof TableOfflineException || t instanceof TimedOutException)
-      log.debug("{}", msg, t); // this is not unknown
-    else
-      log.error("{}", msg, t);
+  private void updateUnknownErrors(String msg, Throwable t) {
+    synchronized (this) {
+      somethingFailed = true;
+      unknownErrors++;
+      this.lastUnknownError = t;
+      this.notifyAll();
+      if (t instanceof TableDeletedException || t instanceof TableOfflineException || t instanceof TimedOutException)
+        log.debug("{}", msg, t); // this is not unknown
+      else
+        log.error("{}", msg, t);
+    }
+    completeFlushes();
   }
 
   private void checkForFailures() throws MutationsRejectedException {
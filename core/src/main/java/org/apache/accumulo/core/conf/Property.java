@@ -248,11 +248,14 @@ public enum Property {
   TSERV_CLIENT_TIMEOUT("tserver.client.timeout", "3s", PropertyType.TIMEDURATION, "Time to wait for clients to continue scans before closing a session."),
   TSERV_DEFAULT_BLOCKSIZE("tserver.default.blocksize", "1M", PropertyType.BYTES, "Specifies a default blocksize for the tserver caches"),
   TSERV_CACHE_MANAGER_IMPL("tserver.cache.manager.class", "org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager", PropertyType.STRING,
-      "Specifies the class name of the block cache factory implementation. Alternative implementation is "
-          + "org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager"),
+      "Specifies the class name of the block cache factory implementation. Alternative implementations are "
+          + "org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager and "
+          + "org.apache.accumulo.core.file.blockfile.cache.tiered.TieredBlockCacheManager, which adds a second level cache in direct memory or on local disk"),
   TSERV_DATACACHE_SIZE("tserver.cache.data.size", "10%", PropertyType.MEMORY, "Specifies the size of the cache for file data blocks."),
   TSERV_INDEXCACHE_SIZE("tserver.cache.index.size", "25%", PropertyType.MEMORY, "Specifies the size of the cache for file indices."),
   TSERV_SUMMARYCACHE_SIZE("tserver.cache.summary.size", "10%", PropertyType.MEMORY, "Specifies the size of the cache for summary data on each tablet server."),
+  TSERV_VISIBILITYCACHE_SIZE("tserver.cache.visibility.size", "16M", PropertyType.BYTES,
+      "Specifies the size of the cache of column visibilities evaluated with the authorizations of scans, which is shared by all scans on a tablet server."),
   TSERV_PORTSEARCH("tserver.port.search", "false", PropertyType.BOOLEAN, "if the ports above are in use, search higher ports until one is available"),
   TSERV_CLIENTPORT("tserver.port.client", "9997", PropertyType.PORT, "The port used for handling client connections on the tablet servers"),
   @Deprecated
@@ -288,6 +291,12 @@ public enum Property {
       + "This setting determines how much time an unused file should be kept open until it is closed."),
   TSERV_NATIVEMAP_ENABLED("tserver.memory.maps.native.enabled", "true", PropertyType.BOOLEAN,
       "An in-memory data store for accumulo implemented in c++ that increases the amount of data accumulo can hold in memory and avoids Java GC pauses."),
+  TSERV_OFFHEAPMAP_ENABLED("tserver.memory.maps.offheap.enabled", "false", PropertyType.BOOLEAN,
+      "When native maps are disabled or can not be loaded, store the in-memory data of tablets in direct memory outside the Java heap using a pure Java map"
+          + " instead of on the heap. The JVM option -XX:MaxDirectMemorySize must allow for tserver.memory.maps.max."),
+  TSERV_MEMORY_MAPS_CONCURRENT_WRITES("tserver.memory.maps.concurrent.writes", "true", PropertyType.BOOLEAN,
+      "When true, multiple threads may insert into a tablet's in-memory map at the same time, each with its own range of mutation counts. When false, all"
+          + " writes to a tablet's in-memory map are serialized."),
   TSERV_MAXMEM("tserver.memory.maps.max", "33%", PropertyType.MEMORY,
       "Maximum amount of memory that can be used to buffer data written to a tablet server. There are two other properties that can effectively limit memory"
           + " usage table.compaction.minor.logs.threshold and tserver.walog.max.size. Ensure that table.compaction.minor.logs.threshold *"
@@ -304,10 +313,27 @@ public enum Property {
           + " limits the number of long running scans that can run concurrently per tserver."),
   TSERV_METADATA_READ_AHEAD_MAXCONCURRENT("tserver.metadata.readahead.concurrent.max", "8", PropertyType.COUNT,
       "The maximum number of concurrent metadata read ahead that will execute."),
+  TSERV_FILE_PREFETCH_THREADS("tserver.file.prefetch.threads", "8", PropertyType.COUNT,
+      "The number of threads fetching file data blocks ahead of sequential scans, for tables that set table.file.prefetch.blocks. When all threads are busy"
+          + " and their queue is full, blocks are read when scans reach them."),
+  TSERV_SCAN_EXECUTORS_PREFIX("tserver.scan.executors.", null, PropertyType.PREFIX,
+      "Prefix for defining named scan executors. Set tserver.scan.executors.<name>.threads=<count> to create an executor. Optionally set "
+          + "tserver.scan.executors.<name>.prioritizer to a ScanPrioritizer class to order the executor's queue, and pass it options with "
+          + "tserver.scan.executors.<name>.prioritizer.opts.<key>=<value>. Without a prioritizer scans run in the order queued. The executor named default "
+          + "always exists and takes its thread count from " + TSERV_READ_AHEAD_MAXCONCURRENT.getKey()
+          + ". Tables choose an executor with table.scan.dispatcher."),
   TSERV_MIGRATE_MAXCONCURRENT("tserver.migrations.concurrent.max", "1", PropertyType.COUNT,
       "The maximum number of concurrent tablet migrations for a tablet server"),
   TSERV_MAJC_MAXCONCURRENT("tserver.compaction.major.concurrent.max", "3", PropertyType.COUNT,
       "The maximum number of concurrent major compactions for a tablet server"),
+  TSERV_MAJC_LARGE_SIZE("tserver.compaction.major.large.size", "0B", PropertyType.BYTES,
+      "Major compactions planned to read at least this many bytes of files run in a separate lane, so a few large compactions can not occupy all of the "
+          + "threads that small compactions need to keep file counts low. The large lane's threads are set by tserver.compaction.major.large.concurrent.max. "
+          + "0B runs all major compactions in one lane."),
+  TSERV_MAJC_LARGE_MAXCONCURRENT("tserver.compaction.major.large.concurrent.max", "1", PropertyType.COUNT,
+      "The maximum number of concurrent large major compactions for a tablet server, see tserver.compaction.major.large.size"),
+  TSERV_MAJC_SUBRANGE_THREADS("tserver.compaction.major.subrange.threads", "4", PropertyType.COUNT,
+      "The number of threads shared by all major compactions that compact sub-ranges of a tablet in parallel, see table.compaction.major.subranges"),
   TSERV_MAJC_THROUGHPUT("tserver.compaction.major.throughput", "0B", PropertyType.BYTES,
       "Maximum number of bytes to read or write per second over all major compactions on a TabletServer, or 0B for unlimited."),
   TSERV_MINC_MAXCONCURRENT("tserver.compaction.minor.concurrent.max", "4", PropertyType.COUNT,
@@ -348,6 +374,8 @@ public enum Property {
       "The replication to use when writing the Write-Ahead log to HDFS. If zero, it will use the HDFS default replication setting."),
   TSERV_RECOVERY_MAX_CONCURRENT("tserver.recovery.concurrent.max", "2", PropertyType.COUNT, "The maximum number of threads to use to sort logs during"
       + " recovery"),
+  TSERV_RECOVERY_SORT_THREADS("tserver.recovery.sort.threads", "4", PropertyType.COUNT,
+      "The number of threads shared by all log sorts on a tablet server to sort buffered log entries and write them out, while the log is still being read."),
   TSERV_SORT_BUFFER_SIZE("tserver.sort.buffer.size", "10%", PropertyType.MEMORY, "The amount of memory to use when sorting logs during recovery."),
   TSERV_ARCHIVE_WALOGS("tserver.archive.walogs", "false", PropertyType.BOOLEAN, "Keep copies of the WALOGs for debugging purposes"),
   TSERV_WORKQ_THREADS("tserver.workq.threads", "2", PropertyType.COUNT,
@@ -368,6 +396,17 @@ public enum Property {
       "The number of threads available to load tablets. Recoveries are still performed serially."),
   TSERV_SLOW_FLUSH_MILLIS("tserver.slow.flush.time", "100ms", PropertyType.TIMEDURATION,
       "If a flush to the write-ahead log takes longer than this period of time, debugging information will written, and may result in a log rollover."),
+  TSERV_WAL_STREAMS("tserver.wal.streams", "1", PropertyType.COUNT,
+      "The number of write-ahead logs a tablet server writes to at once. Each tablet is assigned to one of them, so writes to different tablets can use"
+          + " separate HDFS pipelines. Each log rolls over independently at tserver.walog.max.size."),
+  TSERV_WAL_GROUP_COMMIT_DELAY("tserver.wal.group.commit.delay", "0ms", PropertyType.TIMEDURATION,
+      "The maximum amount of time the write-ahead log sync thread will wait to gather more writes before it syncs or flushes the log. The thread only waits"
+          + " when concurrent writers are present and never waits longer than the previous sync took. Waiting trades a little latency for fewer syncs"
+          + " under many small durable writes. A value of zero disables waiting."),
+  TSERV_WAL_GROUP_COMMIT_BYTES("tserver.wal.group.commit.bytes", "1M", PropertyType.BYTES,
+      "When waiting to group write-ahead log syncs, stop waiting once this many bytes of mutations are pending. See tserver.wal.group.commit.delay"),
+  TSERV_WAL_GROUP_COMMIT_MUTATIONS("tserver.wal.group.commit.mutations", "1000", PropertyType.COUNT,
+      "When waiting to group write-ahead log syncs, stop waiting once this many mutations are pending. See tserver.wal.group.commit.delay"),
   TSERV_SUMMARY_PARTITION_THREADS("tserver.summary.partition.threads", "10", PropertyType.COUNT,
       "Summary data must be retrieved from files.  For a large number of files, the files are broken into partitions of 100K files.  This setting determines "
           + "how many of these groups of 100K files will be processed concurrently."),
@@ -446,6 +485,13 @@ public enum Property {
   TABLE_MAJC_RATIO("table.compaction.major.ratio", "3", PropertyType.FRACTION,
       "minimum ratio of total input size to maximum input file size for running a major compactionWhen adjusting this property you may want to also "
           + "adjust table.file.max. Want to avoid the situation where only merging minor compactions occur."),
+  TABLE_MAJC_SUBRANGES("table.compaction.major.subranges", "1", PropertyType.COUNT,
+      "The number of sub-ranges to split a tablet into when major compacting at least table.compaction.major.subranges.size of files. Sub-ranges are found "
+          + "using the files' indexes and are compacted in parallel, using the threads set by tserver.compaction.major.subrange.threads, then their "
+          + "compressed blocks are copied in order into the one output file. Tables with bloom filters, summarizers or encryption are always compacted as "
+          + "one range. One compacts the whole tablet on one thread."),
+  TABLE_MAJC_SUBRANGES_SIZE("table.compaction.major.subranges.size", "1G", PropertyType.BYTES,
+      "The total size of the files in a major compaction before it is split into sub-ranges, see table.compaction.major.subranges"),
   TABLE_MAJC_COMPACTALL_IDLETIME("table.compaction.major.everything.idle", "1h", PropertyType.TIMEDURATION,
       "After a tablet has been idle (no mutations) for this time period it may have all "
           + "of its files compacted into one. There is no guarantee an idle tablet will be compacted. "
@@ -463,6 +509,10 @@ public enum Property {
   TABLE_SCAN_MAXMEM("table.scan.max.memory", "512K", PropertyType.BYTES,
       "The maximum amount of memory that will be used to cache results of a client query/scan. "
           + "Once this limit is reached, the buffered data is sent to the client."),
+  TABLE_SCAN_MAXMEM_ADAPTIVE("table.scan.max.memory.adaptive", "0", PropertyType.BYTES,
+      "When set, the tablet server sizes each scan's batches from how quickly the client consumes them. Batches for clients that ask for more as fast as the"
+          + " tablet server reads grow from table.scan.max.memory up to this size, and batches shrink below table.scan.max.memory when the heap is nearly"
+          + " full. Zero disables adaptive sizing."),
   TABLE_FILE_TYPE("table.file.type", RFile.EXTENSION, PropertyType.STRING, "Change the type of file a table writes"),
   TABLE_LOAD_BALANCER("table.balancer", "org.apache.accumulo.server.master.balancer.DefaultLoadBalancer", PropertyType.STRING,
       "This property can be set to allow the LoadBalanceByTable load balancer to change the called Load Balancer for this table"),
@@ -475,6 +525,14 @@ public enum Property {
           + " (This setting is the size threshold prior to compression, and applies even compression is disabled.)"),
   TABLE_FILE_BLOCK_SIZE("table.file.blocksize", "0B", PropertyType.BYTES,
       "Overrides the hadoop dfs.block.size setting so that files have better query performance. The maximum value for this is " + Integer.MAX_VALUE),
+  TABLE_FILE_BLOCK_ENCODING("table.file.rfile.encoding", "relative", PropertyType.BLOCK_ENCODING,
+      "How RFile lays out keys and values in data blocks, one of relative,columnar. With relative, each key is encoded against the previous key. With columnar,"
+          + " each key field and the values are stored separately, and column families, qualifiers and visibilities are dictionary encoded. Columnar blocks are"
+          + " usually smaller for tables with few distinct columns and many rows."),
+  TABLE_FILE_PREFETCH_BLOCKS("table.file.prefetch.blocks", "0", PropertyType.COUNT,
+      "The most data blocks to fetch ahead of a scan once it is reading a file's blocks in order. Scans start by fetching one block ahead and fetch further"
+          + " ahead the longer they keep reading in order, up to this many blocks. Blocks are fetched into the data cache, using the threads set by"
+          + " tserver.file.prefetch.threads. Zero disables fetching ahead."),
   TABLE_FILE_REPLICATION("table.file.replication", "0", PropertyType.COUNT, "Determines how many replicas to keep of a tables' files in HDFS. "
       + "When this value is LTE 0, HDFS defaults are used."),
   TABLE_FILE_MAX("table.file.max", "15", PropertyType.COUNT,
@@ -546,6 +604,18 @@ public enum Property {
   TABLE_INTERPRETER_CLASS("table.interepreter", DefaultScanInterpreter.class.getName(), PropertyType.STRING,
       "The ScanInterpreter class to apply on scan arguments in the shell"),
   TABLE_CLASSPATH("table.classpath.context", "", PropertyType.STRING, "Per table classpath context"),
+  TABLE_SCAN_DISPATCHER("table.scan.dispatcher", "org.apache.accumulo.tserver.scan.SimpleScanDispatcher", PropertyType.CLASSNAME,
+      "A ScanDispatcher that chooses which of the executors defined with " + TSERV_SCAN_EXECUTORS_PREFIX.getKey() + " runs this table's scans."),
+  TABLE_SCAN_DISPATCHER_OPTS("table.scan.dispatcher.opts.", null, PropertyType.PREFIX,
+      "Options for the table's scan dispatcher. For example table.scan.dispatcher.opts.executor=<name> sends all scans of the table to the executor "
+          + "<name> when using the default dispatcher."),
+  TABLE_SCAN_STREAM_BATCHES("table.scan.stream.batches", "0", PropertyType.COUNT,
+      "Once a scan of this table reads ahead of the client, the most batches the tablet server keeps read and waiting for the client. Each batch the client"
+          + " takes lets the tablet server read another, and batches that are ready are returned together while they fit in the memory one batch of the scan"
+          + " may use. Values below 2 read one batch ahead."),
+  TABLE_SCAN_PRIORITY("table.scan.priority", "0", PropertyType.COUNT,
+      "The priority of this table's scans relative to scans of other tables queued on the same scan executor. Only used by executors with a prioritizer "
+          + "that considers table priority, higher values run first."),
   TABLE_COMPACTION_STRATEGY("table.majc.compaction.strategy", "org.apache.accumulo.tserver.compaction.DefaultCompactionStrategy", PropertyType.CLASSNAME,
       "A customizable major compaction strategy."),
   TABLE_COMPACTION_STRATEGY_PREFIX("table.majc.compaction.strategy.opts.", null, PropertyType.PREFIX,
@@ -847,7 +917,7 @@ public enum Property {
         || key.startsWith(Property.TABLE_ITERATOR_PREFIX.getKey()) || key.startsWith(Property.TABLE_LOCALITY_GROUP_PREFIX.getKey())
         || key.startsWith(Property.TABLE_COMPACTION_STRATEGY_PREFIX.getKey()) || key.startsWith(Property.TABLE_REPLICATION_TARGET.getKey())
         || key.startsWith(Property.TABLE_ARBITRARY_PROP_PREFIX.getKey()) || key.startsWith(TABLE_SAMPLER_OPTS.getKey())
-        || key.startsWith(TABLE_SUMMARIZER_PREFIX.getKey());
+        || key.startsWith(TABLE_SUMMARIZER_PREFIX.getKey()) || key.startsWith(TABLE_SCAN_DISPATCHER_OPTS.getKey());
   }
 
   /**
@@ -92,6 +92,8 @@ public enum PropertyType {
 
   DURABILITY("durability", in(true, null, "none", "log", "flush", "sync"), "One of 'none', 'log', 'flush' or 'sync'."),
 
+  BLOCK_ENCODING("block encoding", in(false, null, "relative", "columnar"), "One of 'relative' or 'columnar' (case-insensitive)."),
+
   STRING("string", x -> true,
       "An arbitrary string of characters whose format is unspecified and interpreted based on the context of the property to which it applies."),
 
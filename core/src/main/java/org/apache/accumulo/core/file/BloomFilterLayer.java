@@ -37,6 +37,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.apache.accumulo.core.bloomfilter.DynamicBloomFilter;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -433,6 +434,14 @@ public class BloomFilterLayer {
       return new BloomFilterLayer.Reader(reader.getSample(sampleConfig), bfl);
     }
 
+    @Override
+    public FileSKVIterator skipInvisibleBlocks(Predicate<ByteSequence> visible) {
+      FileSKVIterator view = reader.skipInvisibleBlocks(visible);
+      if (view == reader)
+        return this;
+      return new BloomFilterLayer.Reader(view, bfl);
+    }
+
   }
 
   public static void main(String[] args) throws IOException {
@@ -21,6 +21,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -28,6 +29,7 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.PrefetchStats;
 import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
 import org.apache.hadoop.conf.Configuration;
@@ -365,6 +367,8 @@ public abstract class FileOperations {
   protected static class FileReaderOperation<SubclassType extends FileReaderOperation<SubclassType>> extends FileIOOperation<SubclassType> {
     private BlockCache dataCache;
     private BlockCache indexCache;
+    private ExecutorService prefetchExecutor;
+    private PrefetchStats prefetchStats;
 
     /** (Optional) Set the block cache pair to be used to optimize reads within the constructed reader. */
     @SuppressWarnings("unchecked")
@@ -392,9 +396,25 @@ public abstract class FileOperations {
       return dataCache;
     }
 
+    /** (Optional) set the executor used to fetch data blocks ahead of sequential reads, for tables that enable it, and where to count the fetches. */
+    @SuppressWarnings("unchecked")
+    public SubclassType withPrefetchExecutor(ExecutorService prefetchExecutor, PrefetchStats prefetchStats) {
+      this.prefetchExecutor = prefetchExecutor;
+      this.prefetchStats = prefetchStats;
+      return (SubclassType) this;
+    }
+
     public BlockCache getIndexCache() {
       return indexCache;
     }
+
+    public ExecutorService getPrefetchExecutor() {
+      return prefetchExecutor;
+    }
+
+    public PrefetchStats getPrefetchStats() {
+      return prefetchStats;
+    }
   }
 
   /** Builder interface parallel to {@link FileReaderOperation}. */
@@ -407,6 +427,9 @@ public abstract class FileOperations {
 
     /** (Optional) set the index cache to be used to optimize reads within the constructed reader. */
     public SubbuilderType withIndexCache(BlockCache indexCache);
+
+    /** (Optional) set the executor used to fetch data blocks ahead of sequential reads, for tables that enable it, and where to count the fetches. */
+    public SubbuilderType withPrefetchExecutor(ExecutorService prefetchExecutor, PrefetchStats prefetchStats);
   }
 
   /**
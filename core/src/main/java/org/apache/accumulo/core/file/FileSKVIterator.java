@@ -18,7 +18,9 @@ package org.apache.accumulo.core.file;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.function.Predicate;
 
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
 import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
@@ -32,6 +34,16 @@ public interface FileSKVIterator extends InterruptibleIterator, AutoCloseable {
 
   FileSKVIterator getSample(SamplerConfigurationImpl sampleConfig);
 
+  /**
+   * Returns a view of this file that may pass over data which only contains keys whose column visibility does not satisfy the given predicate. This only saves
+   * work, the view can still return keys that are not visible and callers must continue to filter them.
+   *
+   * @return the view, or this iterator if the file can not skip anything
+   */
+  default FileSKVIterator skipInvisibleBlocks(Predicate<ByteSequence> visible) {
+    return this;
+  }
+
   void closeDeepCopies() throws IOException;
 
   @Override
@@ -38,4 +38,17 @@ public interface BlockFileReader {
 
   ABlockReader getDataBlock(long offset, long compressedSize, long rawSize) throws IOException;
 
+  /**
+   * @return how many data blocks readers may ask to have fetched ahead of their sequential reads, zero when this reader does not fetch ahead
+   */
+  default int getMaxPrefetchBlocks() {
+    return 0;
+  }
+
+  /**
+   * Starts fetching a data block in the background, so that a later {@link #getDataBlock(long, long, long)} for it does not wait on the file system. Does
+   * nothing when this reader does not fetch ahead.
+   */
+  default void prefetchDataBlock(long offset, long compressedSize, long rawSize) {}
+
 }
@@ -32,6 +32,15 @@ public interface BlockFileWriter {
 
   ABlockWriter prepareDataBlock() throws IOException;
 
+  /**
+   * Copies a data block of another file into this file as it is stored, without decompressing it.
+   *
+   * @return the position of the copied block in this file
+   * @throws IllegalArgumentException
+   *           if the block can not be copied as it is, because the files use different compression or are encrypted
+   */
+  long copyDataBlock(BlockFileReader source, long offset, long compressedSize, long rawSize) throws IOException;
+
   void close() throws IOException;
 
   long getLength() throws IOException;
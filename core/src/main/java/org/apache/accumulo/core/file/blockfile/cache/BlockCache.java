@@ -53,6 +53,17 @@ public interface BlockCache {
    */
   CacheEntry getBlock(String blockName);
 
+  /**
+   * Checks if a block is cached without counting a request and without affecting when the block is evicted. The default implementation always returns false.
+   *
+   * @param blockName
+   *          Block number to check.
+   * @return true if the block is in the cache.
+   */
+  default boolean containsBlock(String blockName) {
+    return false;
+  }
+
   /**
    * Get the maximum amount of on heap memory this cache will use.
    */
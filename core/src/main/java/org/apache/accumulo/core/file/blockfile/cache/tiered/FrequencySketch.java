@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+/**
+ * An approximate count of how often each block was requested recently, used to decide which blocks are worth moving to the second level cache. This is a
+ * count-min sketch with four rows of saturating counters. All counters are halved after two increments per expected entry, roughly one turnover of the
+ * cache, so the counts track recent popularity and stay low enough that collisions rarely make a block requested once look like one requested twice.
+ * <p>
+ * Updates are not synchronized, concurrent increments of the same counter may be lost, which only makes the estimate slightly low.
+ */
+final class FrequencySketch {
+
+  private static final int[] SEEDS = {0x97cb3127, 0xb3a9f3a1, 0xc2b2ae35, 0x85ebca6b};
+  private static final int MAX_COUNT = 15;
+
+  private final byte[] table;
+  private final int width;
+  private final int shift;
+  private final int sampleSize;
+  private int size;
+
+  /**
+   * @param expectedEntries
+   *          the number of distinct blocks expected to be tracked
+   */
+  FrequencySketch(long expectedEntries) {
+    int entries = 1 << 10;
+    while (entries < expectedEntries && entries < (1 << 21))
+      entries <<= 1;
+    this.width = entries * 4;
+    this.shift = 32 - Integer.numberOfTrailingZeros(width);
+    this.table = new byte[SEEDS.length * width];
+    this.sampleSize = 2 * entries;
+  }
+
+  private int index(int hash, int row) {
+    int h = (hash + row) * SEEDS[row];
+    return row * width + (h >>> shift);
+  }
+
+  private static int spread(Object o) {
+    int h = o.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  int frequency(Object o) {
+    int hash = spread(o);
+    int min = MAX_COUNT;
+    for (int row = 0; row < SEEDS.length; row++) {
+      min = Math.min(min, table[index(hash, row)]);
+    }
+    return min;
+  }
+
+  void increment(Object o) {
+    int hash = spread(o);
+    boolean added = false;
+    for (int row = 0; row < SEEDS.length; row++) {
+      int i = index(hash, row);
+      if (table[i] < MAX_COUNT) {
+        table[i]++;
+        added = true;
+      }
+    }
+
+    if (added && ++size >= sampleSize)
+      reset();
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++)
+      table[i] = (byte) (table[i] >>> 1);
+    size = size / 2;
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hands out fixed size slots of a large address range. The range is split into equal buckets, and each bucket is carved into slots of one size class the
+ * first time it is needed. A bucket whose slots are all freed goes back to the free pool and can be used for another size class, so the mix of size classes
+ * follows the mix of block sizes being cached.
+ * <p>
+ * Size classes grow in steps of 1.5x and 2x from the minimum slot size, so at most a third of a slot is wasted.
+ */
+final class SlabAllocator {
+
+  private static final class Bucket {
+    final long base;
+    int sizeClass = -1;
+    int[] freeSlots;
+    int freeCount;
+
+    Bucket(long base) {
+      this.base = base;
+    }
+  }
+
+  private final int[] slotSizes;
+  private final int bucketSize;
+  private final Bucket[] buckets;
+  private final ArrayDeque<Bucket> freeBuckets = new ArrayDeque<>();
+  private final List<LinkedHashSet<Bucket>> partialBuckets = new ArrayList<>();
+  private long usedBytes = 0;
+
+  /**
+   * @param capacity
+   *          the size of the address range, rounded down to a multiple of the bucket size
+   * @param minSlotSize
+   *          size of the smallest slot, must be a power of two
+   * @param maxSlotSize
+   *          the largest allocation that will be accepted
+   */
+  SlabAllocator(long capacity, int minSlotSize, int maxSlotSize) {
+    Preconditions.checkArgument(Integer.bitCount(minSlotSize) == 1, "minimum slot size must be a power of two");
+    Preconditions.checkArgument(minSlotSize <= maxSlotSize, "minimum slot size larger than maximum");
+
+    List<Integer> sizes = new ArrayList<>();
+    for (long size = minSlotSize; size < maxSlotSize; size *= 2) {
+      sizes.add((int) size);
+      if (size + size / 2 < maxSlotSize)
+        sizes.add((int) (size + size / 2));
+    }
+    sizes.add(maxSlotSize);
+
+    slotSizes = new int[sizes.size()];
+    for (int i = 0; i < slotSizes.length; i++) {
+      slotSizes[i] = sizes.get(i);
+      partialBuckets.add(new LinkedHashSet<Bucket>());
+    }
+
+    bucketSize = maxSlotSize * 4;
+    long numBuckets = capacity / bucketSize;
+    Preconditions.checkArgument(numBuckets > 0 && numBuckets <= Integer.MAX_VALUE, "capacity %s not valid for bucket size %s", capacity, bucketSize);
+    buckets = new Bucket[(int) numBuckets];
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new Bucket(i * (long) bucketSize);
+      freeBuckets.add(buckets[i]);
+    }
+  }
+
+  int getBucketSize() {
+    return bucketSize;
+  }
+
+  long getCapacity() {
+    return buckets.length * (long) bucketSize;
+  }
+
+  int getMaxSlotSize() {
+    return slotSizes[slotSizes.length - 1];
+  }
+
+  synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  /**
+   * @return the size of the slot an allocation of the given length uses, or -1 if it is too large
+   */
+  int getSlotSize(int length) {
+    int sizeClass = sizeClass(length);
+    return sizeClass < 0 ? -1 : slotSizes[sizeClass];
+  }
+
+  private int sizeClass(int length) {
+    for (int i = 0; i < slotSizes.length; i++) {
+      if (length <= slotSizes[i])
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * @return the offset of a slot of at least length bytes, or -1 if no slot is available
+   */
+  synchronized long allocate(int length) {
+    int sizeClass = sizeClass(length);
+    if (sizeClass < 0)
+      return -1;
+
+    LinkedHashSet<Bucket> partial = partialBuckets.get(sizeClass);
+    Bucket bucket;
+    if (partial.isEmpty()) {
+      bucket = freeBuckets.poll();
+      if (bucket == null)
+        return -1;
+      int numSlots = bucketSize / slotSizes[sizeClass];
+      bucket.sizeClass = sizeClass;
+      bucket.freeSlots = new int[numSlots];
+      for (int i = 0; i < numSlots; i++)
+        bucket.freeSlots[i] = numSlots - 1 - i;
+      bucket.freeCount = numSlots;
+      partial.add(bucket);
+    } else {
+      Iterator<Bucket> iter = partial.iterator();
+      bucket = iter.next();
+    }
+
+    int slot = bucket.freeSlots[--bucket.freeCount];
+    if (bucket.freeCount == 0)
+      partial.remove(bucket);
+
+    usedBytes += slotSizes[sizeClass];
+    return bucket.base + slot * (long) slotSizes[sizeClass];
+  }
+
+  synchronized void free(long offset) {
+    Bucket bucket = buckets[(int) (offset / bucketSize)];
+    Preconditions.checkState(bucket.sizeClass >= 0, "free of offset %s in unused bucket", offset);
+
+    int slotSize = slotSizes[bucket.sizeClass];
+    int numSlots = bucket.freeSlots.length;
+    Preconditions.checkState(bucket.freeCount < numSlots, "free of offset %s in empty bucket", offset);
+
+    bucket.freeSlots[bucket.freeCount++] = (int) ((offset - bucket.base) / slotSize);
+    usedBytes -= slotSize;
+
+    LinkedHashSet<Bucket> partial = partialBuckets.get(bucket.sizeClass);
+    if (bucket.freeCount == numSlots) {
+      partial.remove(bucket);
+      bucket.sizeClass = -1;
+      bucket.freeSlots = null;
+      freeBuckets.add(bucket);
+    } else if (bucket.freeCount == 1) {
+      partial.add(bucket);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy.Eviction;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * The second level of a {@link TieredBlockCache}. Blocks are copied into slots of large direct buffers, or of a memory mapped file on local disk, so they do
+ * not count against the Java heap. Only the index, which maps block names to slots, lives on the heap. The index is a Caffeine cache weighted by slot size,
+ * so it evicts using W-TinyLFU and frees a block's slot when the block is evicted.
+ * <p>
+ * A reader pins a slot while copying out of it, so a slot is only reused after both the index and all readers are done with it.
+ * <p>
+ * When there is no free slot for a new block, it only replaces the coldest stored block of its slot size if the admission test says the new block is more
+ * popular, as in TinyLFU.
+ */
+final class SlabBlockStore {
+
+  private static final int MAX_REGION_SIZE = 1 << 30;
+
+  private static final class Slot {
+    final long offset;
+    final int length;
+    // one reference is held by the index, one by each reader
+    final AtomicInteger refs = new AtomicInteger(1);
+
+    Slot(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+
+    boolean retain() {
+      while (true) {
+        int r = refs.get();
+        if (r == 0)
+          return false;
+        if (refs.compareAndSet(r, r + 1))
+          return true;
+      }
+    }
+  }
+
+  private final SlabAllocator allocator;
+  private final ByteBuffer[] regions;
+  private final int regionSize;
+  private final Cache<String,Slot> index;
+  private final BiPredicate<String,String> admission;
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * @param capacity
+   *          bytes of direct memory or file to use
+   * @param maxBlockSize
+   *          blocks larger than this are not stored
+   * @param file
+   *          file to memory map, or null to use direct memory. The file is deleted once mapped, so nothing is left behind if the process dies.
+   * @param admission
+   *          given the name of a new block and of a stored block it would replace, returns true if the new block should be stored
+   */
+  SlabBlockStore(long capacity, int minBlockSize, int maxBlockSize, File file, BiPredicate<String,String> admission) throws IOException {
+    allocator = new SlabAllocator(capacity, minBlockSize, maxBlockSize);
+    this.admission = admission;
+
+    int bucketSize = allocator.getBucketSize();
+    regionSize = Math.max(1, MAX_REGION_SIZE / bucketSize) * bucketSize;
+    long totalSize = allocator.getCapacity();
+    regions = new ByteBuffer[(int) ((totalSize + regionSize - 1) / regionSize)];
+
+    if (file == null) {
+      for (int i = 0; i < regions.length; i++) {
+        regions[i] = ByteBuffer.allocateDirect((int) Math.min(regionSize, totalSize - i * (long) regionSize));
+      }
+    } else {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(totalSize);
+        FileChannel channel = raf.getChannel();
+        for (int i = 0; i < regions.length; i++) {
+          long start = i * (long) regionSize;
+          regions[i] = channel.map(MapMode.READ_WRITE, start, Math.min(regionSize, totalSize - start));
+        }
+      } finally {
+        file.delete();
+      }
+    }
+
+    // run removals on the evicting thread, so slots are free before the next allocation
+    index = Caffeine.newBuilder().executor(Runnable::run).maximumWeight(totalSize)
+        .weigher((String blockName, Slot slot) -> allocator.getSlotSize(slot.length)).removalListener((String blockName, Slot slot, RemovalCause cause) -> {
+          release(slot);
+        }).recordStats().build();
+  }
+
+  private void release(Slot slot) {
+    if (slot.refs.decrementAndGet() == 0)
+      allocator.free(slot.offset);
+  }
+
+  private ByteBuffer bufferFor(long offset, int length) {
+    ByteBuffer bb = regions[(int) (offset / regionSize)].duplicate();
+    int pos = (int) (offset % regionSize);
+    bb.limit(pos + length);
+    bb.position(pos);
+    return bb;
+  }
+
+  boolean contains(String blockName) {
+    return index.asMap().containsKey(blockName);
+  }
+
+  /**
+   * Frees the block's slot, once no reader has it pinned.
+   */
+  void remove(String blockName) {
+    index.invalidate(blockName);
+  }
+
+  /**
+   * @return a copy of the block, or null if it is not stored
+   */
+  byte[] get(String blockName) {
+    Slot slot = index.getIfPresent(blockName);
+    if (slot == null || !slot.retain())
+      return null;
+
+    try {
+      byte[] block = new byte[slot.length];
+      bufferFor(slot.offset, slot.length).get(block);
+      return block;
+    } finally {
+      release(slot);
+    }
+  }
+
+  /**
+   * Stores a copy of the block if there is a free slot for it, or if it is admitted in place of a colder block.
+   *
+   * @return true if the block was stored
+   */
+  boolean put(String blockName, byte[] block) {
+    if (block.length > allocator.getMaxSlotSize() || contains(blockName))
+      return false;
+
+    long offset = allocator.allocate(block.length);
+    if (offset < 0) {
+      offset = evictAndAllocate(blockName, block.length);
+      if (offset < 0) {
+        rejected.increment();
+        return false;
+      }
+    }
+
+    bufferFor(offset, block.length).put(block);
+
+    Slot slot = new Slot(offset, block.length);
+    if (index.asMap().putIfAbsent(blockName, slot) != null) {
+      release(slot);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Makes room for a block when the allocator has no free slot for it. The index is weighted by slot size, but buckets taken by slots of other sizes and the
+   * unused slots of partly filled buckets fill the allocator before the index reaches its weight limit, so the index alone would stop evicting. This evicts
+   * the coldest blocks that use the same slot size, or the coldest blocks of any size when none of the candidates do, until the allocation succeeds. Slots
+   * pinned by a reader are freed when the reader is done, so more may be evicted than strictly needed. Each block is only evicted if the admission test
+   * prefers the new block to it.
+   *
+   * @return the offset of the allocated slot, or -1 if the new block was not admitted or evicting every block did not free one
+   */
+  private long evictAndAllocate(String blockName, int length) {
+    int slotSize = allocator.getSlotSize(length);
+    Eviction<String,Slot> eviction = index.policy().eviction().get();
+    for (int limit = 16;; limit = (int) Math.min(Integer.MAX_VALUE, limit * 4L)) {
+      Map<String,Slot> coldest = eviction.coldest(limit);
+
+      boolean sameSize = false;
+      for (Slot slot : coldest.values()) {
+        if (allocator.getSlotSize(slot.length) == slotSize) {
+          sameSize = true;
+          break;
+        }
+      }
+
+      for (Entry<String,Slot> entry : coldest.entrySet()) {
+        if (sameSize && allocator.getSlotSize(entry.getValue().length) != slotSize)
+          continue;
+        if (!admission.test(blockName, entry.getKey()))
+          return -1;
+        // the removal listener runs on this thread, so the slot is free when this returns unless a reader has it pinned
+        index.asMap().remove(entry.getKey(), entry.getValue());
+        long offset = allocator.allocate(length);
+        if (offset >= 0)
+          return offset;
+      }
+
+      if (coldest.size() < limit || limit == Integer.MAX_VALUE) {
+        // every block was a candidate
+        return allocator.allocate(length);
+      }
+    }
+  }
+
+  long getCapacity() {
+    return allocator.getCapacity();
+  }
+
+  long getUsedBytes() {
+    return allocator.getUsedBytes();
+  }
+
+  long getBlockCount() {
+    return index.estimatedSize();
+  }
+
+  long getHitCount() {
+    return index.stats().hitCount();
+  }
+
+  long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  void close() {
+    index.invalidateAll();
+    index.cleanUp();
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.impl.SizeConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A two level block cache. The first level is a small on heap W-TinyLFU cache, like {@code TinyLfuBlockCache}. Blocks evicted from it are copied into a much
+ * larger second level kept in direct memory or in a memory mapped file on local SSD, see {@link SlabBlockStore}. A lookup that misses the first level checks
+ * the second, and a hit there is moved back into the first level. A block is only in one level at a time, so the second level does not spend space on
+ * copies of blocks the first level already holds.
+ * <p>
+ * Only blocks that were requested at least {@code l2.admission.frequency} times recently are moved to the second level, so large one time scans do not flush
+ * it. Once the second level is full, a block evicted from the first level replaces the second level's coldest block only if it was requested more often
+ * recently, as in TinyLFU.
+ * <p>
+ * Only the first level counts against the heap, so {@link #getMaxHeapSize()} excludes the second level.
+ */
+public final class TieredBlockCache implements BlockCache {
+  private static final Logger log = LoggerFactory.getLogger(TieredBlockCache.class);
+  private static final int STATS_PERIOD_SEC = 60;
+
+  private final Cache<String,Block> l1;
+  private final SlabBlockStore l2;
+  private final FrequencySketch sketch;
+  private final int admissionFrequency;
+  private final long maxL1Size;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder l1Hits = new LongAdder();
+  private final LongAdder l2Hits = new LongAdder();
+
+  private final ScheduledExecutorService statsExecutor;
+
+  public TieredBlockCache(TieredBlockCacheConfiguration conf) {
+    this(conf, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param demotionExecutor
+   *          runs the copies of blocks evicted from the first level into the second
+   */
+  TieredBlockCache(TieredBlockCacheConfiguration conf, Executor demotionExecutor) {
+    maxL1Size = conf.getMaxSize();
+    admissionFrequency = conf.getL2AdmissionFrequency();
+
+    if (conf.getL2Size() > 0) {
+      File file = null;
+      if (conf.getL2Path().isPresent()) {
+        File dir = new File(conf.getL2Path().get());
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+          throw new IllegalArgumentException("Unable to create directory for second level cache " + dir);
+        }
+        try {
+          file = File.createTempFile("accumulo-" + conf.getType().name().toLowerCase() + "-", ".l2cache", dir);
+          l2 = new SlabBlockStore(conf.getL2Size(), TieredBlockCacheConfiguration.L2_MIN_BLOCK_SIZE, conf.getL2MaxBlockSize(), file, this::admit);
+        } catch (IOException e) {
+          throw new UncheckedIOException("Unable to create second level cache file in " + dir, e);
+        }
+      } else {
+        try {
+          l2 = new SlabBlockStore(conf.getL2Size(), TieredBlockCacheConfiguration.L2_MIN_BLOCK_SIZE, conf.getL2MaxBlockSize(), null, this::admit);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    } else {
+      l2 = null;
+    }
+
+    long blockSize = Math.max(conf.getBlockSize(), TieredBlockCacheConfiguration.L2_MIN_BLOCK_SIZE);
+    sketch = new FrequencySketch((maxL1Size + conf.getL2Size()) / blockSize);
+
+    l1 = Caffeine.newBuilder().initialCapacity((int) Math.ceil(1.2 * maxL1Size / blockSize)).weigher((String blockName, Block block) -> {
+      int keyWeight = ClassSize.align(blockName.length()) + ClassSize.STRING;
+      return keyWeight + block.weight();
+    }).maximumWeight(maxL1Size).executor(demotionExecutor).removalListener((String blockName, Block block, RemovalCause cause) -> {
+      if (cause == RemovalCause.SIZE)
+        demote(blockName, block);
+    }).build();
+
+    statsExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("TieredBlockCacheStatsExecutor").setDaemon(true)
+        .build());
+    statsExecutor.scheduleAtFixedRate(this::logStats, STATS_PERIOD_SEC, STATS_PERIOD_SEC, TimeUnit.SECONDS);
+  }
+
+  private void demote(String blockName, Block block) {
+    if (l2 != null && sketch.frequency(blockName) >= admissionFrequency) {
+      l2.put(blockName, block.buffer);
+    }
+  }
+
+  private boolean admit(String candidate, String victim) {
+    return sketch.frequency(candidate) > sketch.frequency(victim);
+  }
+
+  @Override
+  public long getMaxHeapSize() {
+    return maxL1Size;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxL1Size + (l2 == null ? 0 : l2.getCapacity());
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    requests.increment();
+    sketch.increment(blockName);
+
+    Block block = l1.getIfPresent(blockName);
+    if (block != null) {
+      l1Hits.increment();
+      return block;
+    }
+
+    if (l2 != null) {
+      byte[] buffer = l2.get(blockName);
+      if (buffer != null) {
+        l2Hits.increment();
+        // removed before caching in the first level, so a demotion of the promoted block is not undone
+        l2.remove(blockName);
+        return cacheBlock(blockName, buffer);
+      }
+    }
+
+    return null;
+  }
+
+  @Override
+  public boolean containsBlock(String blockName) {
+    return l1.asMap().containsKey(blockName) || (l2 != null && l2.contains(blockName));
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buffer) {
+    return l1.asMap().compute(blockName, (key, block) -> {
+      if (block == null) {
+        return new Block(buffer);
+      }
+      block.buffer = buffer;
+      return block;
+    });
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buffer, /* ignored */boolean inMemory) {
+    return cacheBlock(blockName, buffer);
+  }
+
+  @Override
+  public BlockCache.Stats getStats() {
+    final long hits = l1Hits.sum() + l2Hits.sum();
+    final long requestCount = requests.sum();
+    return new BlockCache.Stats() {
+      @Override
+      public long hitCount() {
+        return hits;
+      }
+
+      @Override
+      public long requestCount() {
+        return requestCount;
+      }
+    };
+  }
+
+  /**
+   * Runs pending first level evictions, so tests can observe demotions.
+   */
+  void cleanUp() {
+    l1.cleanUp();
+  }
+
+  SlabBlockStore getL2() {
+    return l2;
+  }
+
+  void shutdown() {
+    statsExecutor.shutdownNow();
+    l1.invalidateAll();
+    if (l2 != null)
+      l2.close();
+  }
+
+  private void logStats() {
+    double mb = 1024 * 1024;
+    log.debug("L1 Size={}MB, Max={}MB, Blocks={}, Requests={}, L1 Hits={}, L2 Hits={}", l1.policy().eviction().get().weightedSize().getAsLong() / mb,
+        maxL1Size / mb, l1.estimatedSize(), requests.sum(), l1Hits.sum(), l2Hits.sum());
+    if (l2 != null) {
+      log.debug("L2 Used={}MB, Max={}MB, Blocks={}, Rejected={}", l2.getUsedBytes() / mb, l2.getCapacity() / mb, l2.getBlockCount(), l2.getRejectedCount());
+    }
+  }
+
+  private static final class Block implements CacheEntry {
+    private volatile byte[] buffer;
+    private volatile Object index;
+
+    Block(byte[] buffer) {
+      this.buffer = requireNonNull(buffer);
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public Object getIndex() {
+      return index;
+    }
+
+    @Override
+    public void setIndex(Object index) {
+      this.index = index;
+    }
+
+    int weight() {
+      return ClassSize.align(buffer.length) + SizeConstants.SIZEOF_LONG + ClassSize.REFERENCE + ClassSize.OBJECT + ClassSize.ARRAY;
+    }
+  }
+}
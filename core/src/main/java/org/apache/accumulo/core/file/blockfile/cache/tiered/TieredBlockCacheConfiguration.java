@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager.Configuration;
+import org.apache.accumulo.core.file.blockfile.cache.CacheType;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Settings for a {@link TieredBlockCache}. The first level cache is sized by the usual tserver.cache.*.size properties. The second level is configured per
+ * cache type with properties of the form {@code general.custom.cache.tiered.<type>.<property>}, for example
+ *
+ * <pre>
+ * general.custom.cache.tiered.data.l2.size=200G
+ * general.custom.cache.tiered.data.l2.path=/mnt/nvme0/accumulo
+ * </pre>
+ */
+public final class TieredBlockCacheConfiguration {
+
+  public static final String PROPERTY_PREFIX = "tiered";
+
+  public static final String L2_SIZE_PROPERTY = "l2.size";
+  public static final String L2_PATH_PROPERTY = "l2.path";
+  public static final String L2_MAX_BLOCK_SIZE_PROPERTY = "l2.block.size.max";
+  public static final String L2_ADMISSION_FREQUENCY_PROPERTY = "l2.admission.frequency";
+
+  /** Second level disabled unless sized */
+  public static final long DEFAULT_L2_SIZE = 0;
+  public static final int DEFAULT_L2_MAX_BLOCK_SIZE = 1 << 20;
+  public static final int L2_MIN_BLOCK_SIZE = 1 << 12;
+  /** Blocks requested fewer times than this recently are never moved to the second level when evicted from the first */
+  public static final int DEFAULT_L2_ADMISSION_FREQUENCY = 2;
+
+  private final Configuration conf;
+  private final CacheType type;
+  private final Map<String,String> props;
+
+  private final long l2Size;
+  private final Optional<String> l2Path;
+  private final int l2MaxBlockSize;
+  private final int l2AdmissionFrequency;
+
+  private Optional<String> get(String k) {
+    return Optional.ofNullable(props.get(k));
+  }
+
+  public TieredBlockCacheConfiguration(Configuration conf, CacheType type) {
+    this.conf = conf;
+    this.type = type;
+    this.props = conf.getProperties(PROPERTY_PREFIX, type);
+
+    this.l2Size = get(L2_SIZE_PROPERTY).map(ConfigurationTypeHelper::getFixedMemoryAsBytes).orElse(DEFAULT_L2_SIZE);
+    this.l2Path = get(L2_PATH_PROPERTY).filter(p -> !p.isEmpty());
+    this.l2MaxBlockSize = get(L2_MAX_BLOCK_SIZE_PROPERTY).map(ConfigurationTypeHelper::getFixedMemoryAsBytes).map(Long::intValue)
+        .orElse(DEFAULT_L2_MAX_BLOCK_SIZE);
+    this.l2AdmissionFrequency = get(L2_ADMISSION_FREQUENCY_PROPERTY).map(Integer::valueOf).orElse(DEFAULT_L2_ADMISSION_FREQUENCY);
+
+    if (l2Size < 0) {
+      throw new IllegalArgumentException(L2_SIZE_PROPERTY + " must not be negative");
+    }
+    if (l2MaxBlockSize < L2_MIN_BLOCK_SIZE) {
+      throw new IllegalArgumentException(L2_MAX_BLOCK_SIZE_PROPERTY + " must be at least " + L2_MIN_BLOCK_SIZE);
+    }
+    if (l2Size > 0 && l2Size < 4L * l2MaxBlockSize) {
+      throw new IllegalArgumentException(L2_SIZE_PROPERTY + " must be at least four times " + L2_MAX_BLOCK_SIZE_PROPERTY);
+    }
+  }
+
+  public long getMaxSize() {
+    return conf.getMaxSize(type);
+  }
+
+  public long getBlockSize() {
+    return conf.getBlockSize();
+  }
+
+  public CacheType getType() {
+    return type;
+  }
+
+  public long getL2Size() {
+    return l2Size;
+  }
+
+  /**
+   * @return the directory for the memory mapped second level cache file, or empty if the second level uses direct memory
+   */
+  public Optional<String> getL2Path() {
+    return l2Path;
+  }
+
+  public int getL2MaxBlockSize() {
+    return l2MaxBlockSize;
+  }
+
+  public int getL2AdmissionFrequency() {
+    return l2AdmissionFrequency;
+  }
+
+  public static class Builder {
+    private Map<String,String> props = new HashMap<>();
+    private String prefix;
+
+    private Builder(String prefix) {
+      this.prefix = prefix;
+    }
+
+    public Builder l2Size(long size) {
+      Preconditions.checkArgument(size >= 0);
+      props.put(prefix + L2_SIZE_PROPERTY, Long.toString(size));
+      return this;
+    }
+
+    public Builder l2Path(String path) {
+      props.put(prefix + L2_PATH_PROPERTY, path);
+      return this;
+    }
+
+    public Builder l2MaxBlockSize(int size) {
+      Preconditions.checkArgument(size >= L2_MIN_BLOCK_SIZE);
+      props.put(prefix + L2_MAX_BLOCK_SIZE_PROPERTY, Integer.toString(size));
+      return this;
+    }
+
+    public Builder l2AdmissionFrequency(int frequency) {
+      props.put(prefix + L2_ADMISSION_FREQUENCY_PROPERTY, Integer.toString(frequency));
+      return this;
+    }
+
+    public Map<String,String> buildMap() {
+      return ImmutableMap.copyOf(props);
+    }
+  }
+
+  public static Builder builder(CacheType ct) {
+    return new Builder(BlockCacheManager.getFullyQualifiedPropertyPrefix(PROPERTY_PREFIX, ct));
+  }
+
+  @Override
+  public String toString() {
+    return "maxSize: " + getMaxSize() + ", blockSize: " + getBlockSize() + ", l2Size: " + l2Size + ", l2Path: " + l2Path.orElse("<direct>")
+        + ", l2MaxBlockSize: " + l2MaxBlockSize + ", l2AdmissionFrequency: " + l2AdmissionFrequency;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.CacheType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TieredBlockCacheManager extends BlockCacheManager {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TieredBlockCacheManager.class);
+
+  @Override
+  protected TieredBlockCache createCache(Configuration conf, CacheType type) {
+    TieredBlockCacheConfiguration tc = new TieredBlockCacheConfiguration(conf, type);
+    LOG.info("Creating {} cache with configuration {}", type, tc);
+    return new TieredBlockCache(tc);
+  }
+
+  @Override
+  public void stop() {
+    for (CacheType type : CacheType.values()) {
+      TieredBlockCache cache = ((TieredBlockCache) this.getBlockCache(type));
+      if (null != cache) {
+        cache.shutdown();
+      }
+    }
+    super.stop();
+  }
+
+}
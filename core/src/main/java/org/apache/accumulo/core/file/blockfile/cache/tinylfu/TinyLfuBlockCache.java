@@ -83,6 +83,11 @@ public final class TinyLfuBlockCache implements BlockCache {
     return cache.getIfPresent(blockName);
   }
 
+  @Override
+  public boolean containsBlock(String blockName) {
+    return cache.asMap().containsKey(blockName);
+  }
+
   @Override
   public CacheEntry cacheBlock(String blockName, byte[] buffer) {
     return cache.asMap().compute(blockName, (key, block) -> {
@@ -23,6 +23,17 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.file.blockfile.ABlockReader;
@@ -56,6 +67,28 @@ public class CachableBlockFile {
 
   private static final Logger log = LoggerFactory.getLogger(CachableBlockFile.class);
 
+  /**
+   * Counts the data blocks fetched ahead of reads by the readers that share it, for example all the readers of one tablet server.
+   */
+  public static class PrefetchStats {
+    private final LongAdder prefetchedBlocks = new LongAdder();
+    private final LongAdder prefetchHits = new LongAdder();
+
+    /**
+     * @return the number of data blocks that readers started fetching ahead of reads
+     */
+    public long getPrefetchedBlocks() {
+      return prefetchedBlocks.sum();
+    }
+
+    /**
+     * @return the number of data block reads that found the block already fetched, or being fetched, ahead of time
+     */
+    public long getPrefetchHits() {
+      return prefetchHits.sum();
+    }
+  }
+
   public static class Writer implements BlockFileWriter {
     private BCFile.Writer _bc;
     private BlockWrite _bw;
@@ -90,6 +123,14 @@ public class CachableBlockFile {
       return _bw;
     }
 
+    @Override
+    public long copyDataBlock(BlockFileReader source, long offset, long compressedSize, long rawSize) throws IOException {
+      if (!(source instanceof Reader))
+        throw new IllegalArgumentException("Can not copy blocks of " + source.getClass().getName());
+      Reader reader = (Reader) source;
+      return _bc.copyDataBlock(reader.getBCFile(reader.accumuloConfiguration), offset, compressedSize, rawSize);
+    }
+
     @Override
     public void close() throws IOException {
 
@@ -153,9 +194,58 @@ public class CachableBlockFile {
     private InputStream fin = null;
     private FileSystem fs;
     private Configuration conf;
-    private boolean closed = false;
+    private volatile boolean closed = false;
     private AccumuloConfiguration accumuloConfiguration = null;
 
+    private ExecutorService prefetchExecutor = null;
+    private PrefetchStats prefetchStats = null;
+    private int maxPrefetchBlocks = 0;
+    // the number of fetches reading from the file, guarded by prefetches
+    private int activePrefetches = 0;
+    // Data blocks fetched ahead of reads, by cache key. Kept in the order they were requested so that when there are too many, the oldest are dropped first,
+    // since readers that moved on will never ask for them.
+    private final Map<String,Prefetch> prefetches = new LinkedHashMap<String,Prefetch>() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String,Prefetch> eldest) {
+        if (size() > 2 * maxPrefetchBlocks) {
+          eldest.getValue().cancel(false);
+          return true;
+        }
+        return false;
+      }
+    };
+
+    /**
+     * A block fetched ahead of reads. Either the fetch starts reading the block, or a reader that needs the block while the fetch is still queued claims it and
+     * reads the block itself, but not both.
+     */
+    private static class Prefetch extends FutureTask<byte[]> {
+      private final AtomicBoolean started = new AtomicBoolean(false);
+
+      Prefetch(Callable<byte[]> fetch) {
+        super(fetch);
+      }
+
+      @Override
+      public void run() {
+        if (started.compareAndSet(false, true))
+          super.run();
+      }
+
+      /**
+       * @return true if the fetch had not started, in which case it is cancelled and never will
+       */
+      boolean cancelIfNotStarted() {
+        if (started.compareAndSet(false, true)) {
+          cancel(false);
+          return true;
+        }
+        return false;
+      }
+    }
+
     private interface BlockLoader {
       BlockReader get() throws IOException;
 
@@ -266,6 +356,128 @@ public class CachableBlockFile {
       this._bc = new BCFile.Reader(this, fsin, len, conf, accumuloConfiguration);
     }
 
+    /**
+     * Lets readers of this file have up to the given number of data blocks fetched ahead of their sequential reads, using the given executor. Fetched blocks go
+     * into the data cache when they fit, and are otherwise held by this reader until read. Fetches and hits are counted in the given stats.
+     */
+    public void enablePrefetch(ExecutorService executor, int maxBlocks, PrefetchStats stats) {
+      if (maxBlocks < 0)
+        throw new IllegalArgumentException("maxBlocks < 0 : " + maxBlocks);
+      synchronized (prefetches) {
+        this.prefetchExecutor = Objects.requireNonNull(executor);
+        this.prefetchStats = Objects.requireNonNull(stats);
+        this.maxPrefetchBlocks = maxBlocks;
+      }
+    }
+
+    @Override
+    public int getMaxPrefetchBlocks() {
+      return prefetchExecutor == null ? 0 : maxPrefetchBlocks;
+    }
+
+    @Override
+    public void prefetchDataBlock(long offset, long compressedSize, long rawSize) {
+      if (prefetchExecutor == null || maxPrefetchBlocks == 0 || closed)
+        return;
+
+      String _lookup = this.fileName + "R" + offset;
+      // a cache lookup would count as a request and as an access to the block, though no scan asked for it yet
+      if (_dCache != null && _dCache.containsBlock(_lookup))
+        return;
+
+      BlockLoader loader = new RawBlockLoader(offset, compressedSize, rawSize);
+      Prefetch task = new Prefetch(() -> prefetch(_lookup, loader));
+      synchronized (prefetches) {
+        if (prefetches.containsKey(_lookup))
+          return;
+        prefetches.put(_lookup, task);
+      }
+
+      try {
+        prefetchExecutor.execute(task);
+        prefetchStats.prefetchedBlocks.increment();
+      } catch (RejectedExecutionException e) {
+        // the executor is busy, the block will be read when it is needed
+        synchronized (prefetches) {
+          prefetches.remove(_lookup, task);
+        }
+      }
+    }
+
+    /**
+     * @return the data in the block, or null if it was put in the data cache
+     */
+    private byte[] prefetch(String _lookup, BlockLoader loader) throws IOException {
+      synchronized (prefetches) {
+        if (closed)
+          throw new CancellationException("File " + fileName + " is closed");
+        activePrefetches++;
+      }
+
+      byte b[];
+      try {
+        BlockReader _currBlock = loader.get();
+        try {
+          b = new byte[(int) _currBlock.getRawSize()];
+          _currBlock.readFully(b);
+        } finally {
+          _currBlock.close();
+        }
+      } finally {
+        synchronized (prefetches) {
+          if (--activePrefetches == 0)
+            prefetches.notifyAll();
+        }
+      }
+
+      if (_dCache != null && b.length <= _dCache.getMaxSize()) {
+        try {
+          if (_dCache.cacheBlock(_lookup, b) != null)
+            return null;
+        } catch (Exception e) {
+          log.warn("Already cached block: " + _lookup, e);
+        }
+      }
+
+      return b;
+    }
+
+    /**
+     * @return the block if it was fetched ahead and is not in the data cache, otherwise null
+     */
+    private BlockRead getPrefetchedBlock(String _lookup) {
+      Prefetch prefetch;
+      synchronized (prefetches) {
+        if (prefetches.isEmpty())
+          return null;
+        prefetch = prefetches.remove(_lookup);
+      }
+
+      if (prefetch == null)
+        return null;
+
+      // a fetch still queued behind other work could take longer than reading the block now, so only wait for one that is already reading
+      if (prefetch.cancelIfNotStarted())
+        return null;
+
+      byte b[];
+      try {
+        b = prefetch.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException | CancellationException e) {
+        log.debug("Failed to fetch block {} of {} ahead of time, reading it again", _lookup, fileName, e);
+        return null;
+      }
+
+      prefetchStats.prefetchHits.increment();
+
+      if (b == null)
+        return null;
+      return new BlockRead(new DataInputStream(new ByteArrayInputStream(b)), b.length);
+    }
+
     private synchronized BCFile.Reader getBCFile(AccumuloConfiguration accumuloConfiguration) throws IOException {
       if (closed)
         throw new IllegalStateException("File " + fileName + " is closed");
@@ -413,23 +625,51 @@ public class CachableBlockFile {
     @Override
     public ABlockReader getDataBlock(long offset, long compressedSize, long rawSize) throws IOException {
       String _lookup = this.fileName + "R" + offset;
+
+      BlockRead prefetched = getPrefetchedBlock(_lookup);
+      if (prefetched != null)
+        return prefetched;
+
       return getBlock(_lookup, _dCache, new RawBlockLoader(offset, compressedSize, rawSize));
     }
 
     @Override
-    public synchronized void close() throws IOException {
-      if (closed)
-        return;
+    public void close() throws IOException {
+      synchronized (this) {
+        if (closed)
+          return;
+
+        closed = true;
+      }
 
-      closed = true;
+      // Fetches that have not started will not run. Wait for the ones reading from the file before closing it. This must not hold this reader's lock,
+      // which a fetch takes to open the file.
+      boolean interrupted = false;
+      synchronized (prefetches) {
+        for (Prefetch prefetch : prefetches.values())
+          prefetch.cancel(false);
+        prefetches.clear();
 
-      if (_bc != null)
-        _bc.close();
+        while (activePrefetches > 0) {
+          try {
+            prefetches.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      }
+      if (interrupted)
+        Thread.currentThread().interrupt();
+
+      synchronized (this) {
+        if (_bc != null)
+          _bc.close();
 
-      if (fin != null) {
-        // synchronize on the FSDataInputStream to ensure thread safety with the BoundedRangeFileInputStream
-        synchronized (fin) {
-          fin.close();
+        if (fin != null) {
+          // synchronize on the FSDataInputStream to ensure thread safety with the BoundedRangeFileInputStream
+          synchronized (fin) {
+            fin.close();
+          }
         }
       }
     }
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The distinct values of one key field in a locality group, and for each data block the ids of the values used by the keys in that block. When writing, the
+ * dictionary stops tracking once the field has more than a maximum number of distinct values, and is then not stored.
+ */
+class ColumnDictionary {
+
+  private final int maxSize;
+  private Map<ByteSequence,Integer> ids;
+  private List<ByteSequence> values;
+  private List<BitSet> blocks;
+
+  // ids used in the block being written
+  private BitSet currentBlock;
+  private ByteSequence lastValue;
+  private int lastId;
+
+  ColumnDictionary(int maxSize) {
+    this.maxSize = maxSize;
+    this.ids = new HashMap<>();
+    this.values = new ArrayList<>();
+    this.blocks = new ArrayList<>();
+    this.currentBlock = new BitSet();
+  }
+
+  private ColumnDictionary(List<ByteSequence> values, List<BitSet> blocks) {
+    this.maxSize = values.size();
+    this.values = values;
+    this.blocks = blocks;
+  }
+
+  /**
+   * Records that the block being written contains the given value.
+   */
+  void add(ByteSequence value) {
+    if (values == null)
+      return;
+
+    // consecutive keys usually have the same value, so avoid hashing it
+    if (lastValue != null && lastValue.equals(value)) {
+      currentBlock.set(lastId);
+      return;
+    }
+
+    Integer id = ids.get(value);
+    if (id == null) {
+      if (ids.size() >= maxSize) {
+        // stop keeping track, there are too many
+        stopTracking();
+        return;
+      }
+
+      id = values.size();
+      ByteSequence copy = new ArrayByteSequence(value);
+      values.add(copy);
+      ids.put(copy, id);
+    }
+
+    lastValue = values.get(id);
+    lastId = id;
+    currentBlock.set(id);
+  }
+
+  private void stopTracking() {
+    ids = null;
+    values = null;
+    blocks = null;
+    currentBlock = null;
+    lastValue = null;
+  }
+
+  /**
+   * Records the blocks of another dictionary as blocks written to this one. Stops tracking when there is no other dictionary, since the values used in its
+   * blocks are not known.
+   */
+  void addBlocks(ColumnDictionary other) {
+    if (values == null)
+      return;
+
+    if (other == null) {
+      stopTracking();
+      return;
+    }
+
+    for (BitSet block : other.blocks) {
+      for (int id = block.nextSetBit(0); id >= 0; id = block.nextSetBit(id + 1)) {
+        add(other.values.get(id));
+        if (values == null)
+          return;
+      }
+      closeBlock();
+    }
+  }
+
+  /**
+   * Ends the block being written, the values added since the last call are recorded for it.
+   */
+  void closeBlock() {
+    if (values == null)
+      return;
+
+    blocks.add(currentBlock);
+    currentBlock = new BitSet();
+  }
+
+  List<ByteSequence> getValues() {
+    return Collections.unmodifiableList(values);
+  }
+
+  int getNumBlocks() {
+    return blocks.size();
+  }
+
+  /**
+   * @return the ids of the values used in the given block
+   */
+  BitSet getBlock(int block) {
+    return blocks.get(block);
+  }
+
+  /**
+   * @return the ids of the values that pass the given test
+   */
+  BitSet select(Predicate<ByteSequence> test) {
+    BitSet selected = new BitSet(values.size());
+    for (int i = 0; i < values.size(); i++) {
+      if (test.test(values.get(i)))
+        selected.set(i);
+    }
+    return selected;
+  }
+
+  /**
+   * Writes the dictionary, or a marker saying there is none when it stopped tracking.
+   */
+  static void write(ColumnDictionary dictionary, DataOutput out) throws IOException {
+    if (dictionary == null || dictionary.values == null) {
+      out.writeInt(-1);
+      return;
+    }
+
+    out.writeInt(dictionary.values.size());
+    for (ByteSequence value : dictionary.values) {
+      out.writeInt(value.length());
+      out.write(value.getBackingArray(), value.offset(), value.length());
+    }
+
+    out.writeInt(dictionary.blocks.size());
+    for (BitSet ids : dictionary.blocks) {
+      long words[] = ids.toLongArray();
+      WritableUtils.writeVInt(out, words.length);
+      for (long word : words) {
+        WritableUtils.writeVLong(out, word);
+      }
+    }
+  }
+
+  /**
+   * @return the dictionary, or null if none was stored
+   */
+  static ColumnDictionary read(DataInput in) throws IOException {
+    int numValues = in.readInt();
+    if (numValues == -1)
+      return null;
+
+    List<ByteSequence> values = new ArrayList<>(numValues);
+    for (int i = 0; i < numValues; i++) {
+      byte value[] = new byte[in.readInt()];
+      in.readFully(value);
+      values.add(new ArrayByteSequence(value));
+    }
+
+    int numBlocks = in.readInt();
+    List<BitSet> blocks = new ArrayList<>(numBlocks);
+    for (int i = 0; i < numBlocks; i++) {
+      long words[] = new long[WritableUtils.readVInt(in)];
+      for (int j = 0; j < words.length; j++) {
+        words[j] = WritableUtils.readVLong(in);
+      }
+      blocks.add(BitSet.valueOf(words));
+    }
+
+    return new ColumnDictionary(values, blocks);
+  }
+}
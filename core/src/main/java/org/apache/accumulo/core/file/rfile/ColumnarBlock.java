@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A data block where each field of the keys, and the values, are stored in separate streams instead of one key after another. Rows are prefix encoded against
+ * the previous row, column families, qualifiers and visibilities are dictionary encoded, and timestamps are stored as differences from the previous
+ * timestamp. Every stream is prefixed with its length.
+ *
+ * <p>
+ * A block is decoded all at once into arrays of fields, where keys with the same row or dictionary entry share one array. Values are kept in one array and
+ * only copied out when asked for. For blocks in the block cache, the decoded form is kept with the cached block so it is only decoded once. Since the decoded
+ * form is shared by every reader of the block, and iterators may modify the keys they are given, each call to {@link #getKey(int)} creates a new key over the
+ * shared field arrays.
+ */
+public class ColumnarBlock {
+
+  /**
+   * Collects the entries of a block and writes them out in columnar form.
+   */
+  static class Encoder {
+
+    private int count = 0;
+
+    private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+    private final DataOutputStream rows = new DataOutputStream(rowBytes);
+    private final Dictionary families = new Dictionary();
+    private final Dictionary qualifiers = new Dictionary();
+    private final Dictionary visibilities = new Dictionary();
+    private final ByteArrayOutputStream timestampBytes = new ByteArrayOutputStream();
+    private final DataOutputStream timestamps = new DataOutputStream(timestampBytes);
+    private final BitSet deleted = new BitSet();
+    private final ByteArrayOutputStream valueLengthBytes = new ByteArrayOutputStream();
+    private final DataOutputStream valueLengths = new DataOutputStream(valueLengthBytes);
+    private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+
+    private ByteSequence prevRow = null;
+    private long prevTimestamp = 0;
+
+    void add(Key key, Value value) throws IOException {
+      ByteSequence row = key.getRowData();
+      int common = prevRow == null ? 0 : commonPrefix(prevRow, row);
+      WritableUtils.writeVInt(rows, common);
+      WritableUtils.writeVInt(rows, row.length() - common);
+      rows.write(row.getBackingArray(), row.offset() + common, row.length() - common);
+      prevRow = new ArrayByteSequence(row);
+
+      families.add(key.getColumnFamilyData());
+      qualifiers.add(key.getColumnQualifierData());
+      visibilities.add(key.getColumnVisibilityData());
+
+      WritableUtils.writeVLong(timestamps, key.getTimestamp() - prevTimestamp);
+      prevTimestamp = key.getTimestamp();
+
+      if (key.isDeleted())
+        deleted.set(count);
+
+      WritableUtils.writeVInt(valueLengths, value.getSize());
+      values.write(value.get(), 0, value.getSize());
+
+      count++;
+    }
+
+    int getCount() {
+      return count;
+    }
+
+    /**
+     * @return approximately the number of bytes {@link #write(DataOutput)} will write
+     */
+    long getSize() {
+      return rowBytes.size() + families.getSize() + qualifiers.getSize() + visibilities.getSize() + timestampBytes.size() + deleted.length() / 8 + 4
+          + valueLengthBytes.size() + values.size();
+    }
+
+    void write(DataOutput out) throws IOException {
+      WritableUtils.writeVInt(out, count);
+      writeStream(out, rowBytes);
+      families.write(out);
+      qualifiers.write(out);
+      visibilities.write(out);
+      writeStream(out, timestampBytes);
+      byte[] deletedBytes = deleted.toByteArray();
+      out.writeInt(deletedBytes.length);
+      out.write(deletedBytes);
+      writeStream(out, valueLengthBytes);
+      writeStream(out, values);
+    }
+
+    private static void writeStream(DataOutput out, ByteArrayOutputStream stream) throws IOException {
+      out.writeInt(stream.size());
+      out.write(stream.toByteArray());
+    }
+
+    private static int commonPrefix(ByteSequence prev, ByteSequence cur) {
+      int max = Math.min(prev.length(), cur.length());
+      int common = 0;
+      while (common < max && prev.byteAt(common) == cur.byteAt(common))
+        common++;
+      return common;
+    }
+  }
+
+  private static class Dictionary {
+    private final Map<ByteSequence,Integer> ids = new HashMap<>();
+    private final List<ByteSequence> entries = new ArrayList<>();
+    private long entryBytes = 0;
+    private final ByteArrayOutputStream idBytes = new ByteArrayOutputStream();
+    private final DataOutputStream idStream = new DataOutputStream(idBytes);
+
+    // consecutive keys usually have the same column, so avoid hashing it
+    private ByteSequence last = null;
+    private int lastId;
+
+    void add(ByteSequence field) throws IOException {
+      if (last == null || !last.equals(field)) {
+        Integer id = ids.get(field);
+        if (id == null) {
+          id = entries.size();
+          ByteSequence copy = new ArrayByteSequence(field);
+          entries.add(copy);
+          ids.put(copy, id);
+          entryBytes += copy.length() + 1;
+        }
+        last = entries.get(id);
+        lastId = id;
+      }
+
+      WritableUtils.writeVInt(idStream, lastId);
+    }
+
+    long getSize() {
+      return entryBytes + idBytes.size() + 8;
+    }
+
+    void write(DataOutput out) throws IOException {
+      WritableUtils.writeVInt(out, entries.size());
+      for (ByteSequence entry : entries) {
+        WritableUtils.writeVInt(out, entry.length());
+        out.write(entry.getBackingArray(), entry.offset(), entry.length());
+      }
+      Encoder.writeStream(out, idBytes);
+    }
+
+    static byte[][] readEntries(DataInput in) throws IOException {
+      byte[][] entries = new byte[WritableUtils.readVInt(in)][];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = new byte[WritableUtils.readVInt(in)];
+        in.readFully(entries[i]);
+      }
+      return entries;
+    }
+  }
+
+  private volatile boolean loaded = false;
+  private int count;
+  private byte[][] rows;
+  private byte[][] families;
+  private int[] familyIds;
+  private byte[][] qualifiers;
+  private int[] qualifierIds;
+  private byte[][] visibilities;
+  private int[] visibilityIds;
+  private long[] timestamps;
+  private BitSet deleted;
+  private byte[] values;
+  private int[] valueOffsets;
+
+  /**
+   * Only used by the block cache to create the object holding a decoded block, see {@link #read(ABlockReader)}.
+   */
+  public ColumnarBlock() {}
+
+  /**
+   * Decodes a data block. If the block is from the block cache, the decoded form is kept with the cached block and reused.
+   */
+  static ColumnarBlock read(ABlockReader block) throws IOException {
+    ColumnarBlock cb = block.isIndexable() ? block.getIndex(ColumnarBlock.class) : new ColumnarBlock();
+    if (!cb.loaded) {
+      synchronized (cb) {
+        if (!cb.loaded) {
+          cb.load(block);
+          cb.loaded = true;
+        }
+      }
+    }
+    return cb;
+  }
+
+  private void load(DataInput in) throws IOException {
+    count = WritableUtils.readVInt(in);
+
+    rows = new byte[count][];
+    in.readInt();
+    byte[] prevRow = null;
+    for (int i = 0; i < count; i++) {
+      int common = WritableUtils.readVInt(in);
+      int suffix = WritableUtils.readVInt(in);
+      if (suffix == 0 && prevRow != null && common == prevRow.length) {
+        // same row as the previous key, share the array
+        rows[i] = prevRow;
+      } else {
+        rows[i] = new byte[common + suffix];
+        if (common > 0)
+          System.arraycopy(prevRow, 0, rows[i], 0, common);
+        in.readFully(rows[i], common, suffix);
+      }
+      prevRow = rows[i];
+    }
+
+    families = Dictionary.readEntries(in);
+    familyIds = readIds(in, count);
+    qualifiers = Dictionary.readEntries(in);
+    qualifierIds = readIds(in, count);
+    visibilities = Dictionary.readEntries(in);
+    visibilityIds = readIds(in, count);
+
+    timestamps = new long[count];
+    in.readInt();
+    long ts = 0;
+    for (int i = 0; i < count; i++) {
+      ts += WritableUtils.readVLong(in);
+      timestamps[i] = ts;
+    }
+
+    byte[] deletedBytes = new byte[in.readInt()];
+    in.readFully(deletedBytes);
+    deleted = BitSet.valueOf(deletedBytes);
+
+    valueOffsets = new int[count + 1];
+    in.readInt();
+    for (int i = 0; i < count; i++) {
+      valueOffsets[i + 1] = valueOffsets[i] + WritableUtils.readVInt(in);
+    }
+    values = new byte[in.readInt()];
+    in.readFully(values);
+  }
+
+  private static int[] readIds(DataInput in, int count) throws IOException {
+    int[] ids = new int[count];
+    in.readInt();
+    for (int i = 0; i < count; i++) {
+      ids[i] = WritableUtils.readVInt(in);
+    }
+    return ids;
+  }
+
+  int size() {
+    return count;
+  }
+
+  /**
+   * @return a new key for the entry at position i, sharing the decoded field arrays
+   */
+  Key getKey(int i) {
+    return new Key(rows[i], families[familyIds[i]], qualifiers[qualifierIds[i]], visibilities[visibilityIds[i]], timestamps[i], deleted.get(i), false);
+  }
+
+  /**
+   * Compares the entry at position i to a key in the same order as {@link Key#compareTo(Key)}, without creating a key for the entry.
+   */
+  private int compare(int i, Key key) {
+    int result = compareBytes(rows[i], key.getRowData());
+    if (result != 0)
+      return result;
+    result = compareBytes(families[familyIds[i]], key.getColumnFamilyData());
+    if (result != 0)
+      return result;
+    result = compareBytes(qualifiers[qualifierIds[i]], key.getColumnQualifierData());
+    if (result != 0)
+      return result;
+    result = compareBytes(visibilities[visibilityIds[i]], key.getColumnVisibilityData());
+    if (result != 0)
+      return result;
+
+    // newer timestamps and deletes sort first
+    if (timestamps[i] != key.getTimestamp())
+      return timestamps[i] < key.getTimestamp() ? 1 : -1;
+    boolean isDeleted = deleted.get(i);
+    if (isDeleted != key.isDeleted())
+      return isDeleted ? -1 : 1;
+    return 0;
+  }
+
+  private static int compareBytes(byte[] field, ByteSequence other) {
+    return WritableComparator.compareBytes(field, 0, field.length, other.getBackingArray(), other.offset(), other.length());
+  }
+
+  Value getValue(int i) {
+    return new Value(values, valueOffsets[i], valueOffsets[i + 1] - valueOffsets[i]);
+  }
+
+  /**
+   * @return the position of the first key at or after from that is greater than or equal to the given key, or {@link #size()} if there is none
+   */
+  int seek(Key key, int from) {
+    int low = from;
+    int high = count;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(mid, key) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+}
@@ -310,7 +310,8 @@ public class MultiLevelIndex {
 
     public void readFields(DataInput in, int version) throws IOException {
 
-      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8) {
+      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9
+          || version == RFile.RINDEX_VER_10 || version == RFile.RINDEX_VER_11) {
         level = in.readInt();
         offset = in.readInt();
         hasNext = in.readBoolean();
@@ -811,7 +812,8 @@ public class MultiLevelIndex {
 
       size = 0;
 
-      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8) {
+      if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7 || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9
+          || version == RFile.RINDEX_VER_10 || version == RFile.RINDEX_VER_11) {
         size = in.readInt();
       }
 
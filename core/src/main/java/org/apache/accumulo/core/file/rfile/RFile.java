@@ -25,6 +25,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -34,9 +35,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
 import org.apache.accumulo.core.client.sample.Sampler;
@@ -63,8 +66,10 @@ import org.apache.accumulo.core.file.rfile.bcfile.MetaBlockDoesNotExist;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.BatchedIterator;
 import org.apache.accumulo.core.iterators.system.HeapIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 import org.apache.accumulo.core.iterators.system.LocalityGroupIterator;
 import org.apache.accumulo.core.iterators.system.LocalityGroupIterator.LocalityGroup;
 import org.apache.accumulo.core.iterators.system.LocalityGroupIterator.LocalityGroupContext;
@@ -75,6 +80,7 @@ import org.apache.accumulo.core.util.MutableByteSequence;
 import org.apache.commons.lang.mutable.MutableLong;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +97,14 @@ public class RFile {
 
   private static final int RINDEX_MAGIC = 0x20637474;
 
+  static final int RINDEX_VER_11 = 11; // Added a dictionary of the column families in each locality group, and for each data block the set of dictionary
+                                       // entries used by the keys in the block. Like the visibility dictionary of version 9, readers use it to pass over
+                                       // blocks that can not contain the column families a scan wants.
+  static final int RINDEX_VER_10 = 10; // Added a choice of data block encodings for each locality group. Blocks can be encoded relative to the previous key as
+                                       // before, or in columns with each key field and the values in their own stream.
+  static final int RINDEX_VER_9 = 9; // Added a dictionary of the column visibilities in each locality group, and for each data block the set of dictionary
+                                     // entries used by the keys in the block. Readers that know what a scan can see use this to skip blocks that only contain
+                                     // keys the scan would filter out. The dictionary is not stored for locality groups with too many distinct visibilities.
   static final int RINDEX_VER_8 = 8; // Added sample storage. There is a sample locality group for each locality group. Sample are built using a Sampler and
                                      // sampler configuration. The Sampler and its configuration are stored in RFile. Persisting the method of producing the
                                      // sample allows a user of RFile to determine if the sample is useful.
@@ -115,6 +129,20 @@ public class RFile {
                                      // This version supports locality groups. Each locality group has an index pointing to set of data blocks. Each data block
                                      // contains relatively encoded keys and values.
 
+  /**
+   * How keys and values are laid out in data blocks.
+   */
+  public enum BlockEncoding {
+    /**
+     * Each key is followed by its value, and keys are encoded relative to the previous key. See {@link RelativeKey}.
+     */
+    RELATIVE,
+    /**
+     * Each key field and the values are stored in separate streams. See {@link ColumnarBlock}.
+     */
+    COLUMNAR
+  }
+
   // Buffer sample data so that many sample data blocks are stored contiguously.
   private static int sampleBufferSize = 10000000;
 
@@ -137,6 +165,13 @@ public class RFile {
     private MultiLevelIndex.Reader indexReader;
     private int version;
 
+    // Dictionaries of the column visibilities and families, with the values used in each data block. Null when the file does not have a dictionary for this
+    // locality group.
+    private ColumnDictionary visibilities;
+    private ColumnDictionary families;
+
+    private BlockEncoding blockEncoding = BlockEncoding.RELATIVE;
+
     public LocalityGroupMetadata(int version, BlockFileReader br) {
       columnFamilies = new HashMap<>();
       indexReader = new MultiLevelIndex.Reader(br, version);
@@ -149,6 +184,7 @@ public class RFile {
       previousColumnFamilies = pcf;
 
       indexWriter = new MultiLevelIndex.BufferedWriter(new MultiLevelIndex.Writer(bfw, indexBlockSize));
+      initBlockStats();
     }
 
     public LocalityGroupMetadata(String name, Set<ByteSequence> cfset, int indexBlockSize, BlockFileWriter bfw) {
@@ -160,6 +196,12 @@ public class RFile {
       }
 
       indexWriter = new MultiLevelIndex.BufferedWriter(new MultiLevelIndex.Writer(bfw, indexBlockSize));
+      initBlockStats();
+    }
+
+    private void initBlockStats() {
+      visibilities = new ColumnDictionary(Writer.MAX_VIS_IN_LG);
+      families = new ColumnDictionary(Writer.MAX_CF_IN_DLG);
     }
 
     private Key getFirstKey() {
@@ -213,6 +255,62 @@ public class RFile {
 
     }
 
+    /**
+     * Adds the column family counts of a locality group whose data blocks were copied into this one.
+     */
+    public void addColumnCounts(LocalityGroupMetadata other) {
+      if (isDefaultLG && columnFamilies == null) {
+        return;
+      }
+
+      if (other.columnFamilies == null) {
+        if (!isDefaultLG) {
+          throw new IllegalArgumentException("Locality group " + name + " can not take blocks of a default locality group");
+        }
+        // the other locality group stopped keeping track, so do the same
+        columnFamilies = null;
+        return;
+      }
+
+      for (Entry<ByteSequence,MutableLong> entry : other.columnFamilies.entrySet()) {
+        ByteSequence cf = entry.getKey();
+        MutableLong count = columnFamilies.get(cf);
+
+        if (count == null) {
+          if (!isDefaultLG) {
+            throw new IllegalArgumentException("invalid column family : " + cf);
+          }
+
+          if (previousColumnFamilies.contains(cf)) {
+            throw new IllegalArgumentException("Added column family \"" + cf + "\" to default locality group that was in previous locality group");
+          }
+
+          if (columnFamilies.size() > Writer.MAX_CF_IN_DLG) {
+            // stop keeping track, there are too many
+            columnFamilies = null;
+            return;
+          }
+          count = new MutableLong(0);
+          columnFamilies.put(cf, count);
+        }
+
+        count.add(entry.getValue().longValue());
+      }
+    }
+
+    /**
+     * Adds a key to the statistics of the data block being written.
+     */
+    public void updateBlockStats(Key key) {
+      visibilities.add(key.getColumnVisibilityData());
+      families.add(key.getColumnFamilyData());
+    }
+
+    public void closeBlockStats() {
+      visibilities.closeBlock();
+      families.closeBlock();
+    }
+
     @Override
     public void readFields(DataInput in) throws IOException {
 
@@ -255,6 +353,25 @@ public class RFile {
         firstKey = null;
       }
 
+      visibilities = null;
+      families = null;
+
+      if (version == RINDEX_VER_9 || version == RINDEX_VER_10 || version == RINDEX_VER_11) {
+        visibilities = ColumnDictionary.read(in);
+      }
+
+      blockEncoding = BlockEncoding.RELATIVE;
+      if (version == RINDEX_VER_10 || version == RINDEX_VER_11) {
+        int encoding = in.readByte();
+        if (encoding < 0 || encoding >= BlockEncoding.values().length)
+          throw new IOException("Unknown block encoding " + encoding);
+        blockEncoding = BlockEncoding.values()[encoding];
+      }
+
+      if (version == RINDEX_VER_11) {
+        families = ColumnDictionary.read(in);
+      }
+
       indexReader.readFields(in);
     }
 
@@ -283,6 +400,12 @@ public class RFile {
       if (firstKey != null)
         firstKey.write(out);
 
+      ColumnDictionary.write(visibilities, out);
+
+      out.writeByte(blockEncoding.ordinal());
+
+      ColumnDictionary.write(families, out);
+
       indexWriter.close(out);
     }
 
@@ -317,6 +440,12 @@ public class RFile {
 
       out.printf("\t%-22s : %,d\n", "Num entries", numKeys);
       out.printf("\t%-22s : %s\n", "Column families", (isDefaultLG && columnFamilies == null ? "<UNKNOWN>" : columnFamilies.keySet()));
+      if (version == RINDEX_VER_9 || version == RINDEX_VER_10 || version == RINDEX_VER_11) {
+        out.printf("\t%-22s : %s\n", "Column visibilities", (visibilities == null ? "<UNKNOWN>" : visibilities.getValues().size()));
+      }
+      if (version == RINDEX_VER_10 || version == RINDEX_VER_11) {
+        out.printf("\t%-22s : %s\n", "Block encoding", blockEncoding);
+      }
 
       if (includeIndexDetails) {
         out.printf("\t%-22s :\nIndex Entries", lastKey);
@@ -358,6 +487,13 @@ public class RFile {
       }
     }
 
+    public void copyBlocks(BlockFileReader source, LocalityGroupMetadata lgm) throws IOException {
+      if (!entries.isEmpty()) {
+        throw new IllegalStateException("Can not copy blocks into a locality group that keys were appended to");
+      }
+      lgr.copyBlocks(source, lgm);
+    }
+
     public void close() throws IOException {
       for (SampleEntry se : entries) {
         lgr.append(se.key, se.val);
@@ -406,13 +542,26 @@ public class RFile {
     private SummaryStatistics keyLenStats = new SummaryStatistics();
     private double avergageKeySize = 0;
 
+    // collects the entries of the current block when blocks are columnar, entries are written straight to the block otherwise
+    private ColumnarBlock.Encoder columnarBlock = null;
+
+    // the index entry of the last block copied from another file, held back until it is known whether the block is the last one of the locality group
+    private IndexEntry lastCopiedBlock = null;
+
     LocalityGroupWriter(BlockFileWriter fileWriter, long blockSize, long maxBlockSize, LocalityGroupMetadata currentLocalityGroup,
-        SampleLocalityGroupWriter sample) {
+        SampleLocalityGroupWriter sample, BlockEncoding blockEncoding) {
       this.fileWriter = fileWriter;
       this.blockSize = blockSize;
       this.maxBlockSize = maxBlockSize;
       this.currentLocalityGroup = currentLocalityGroup;
       this.sample = sample;
+      currentLocalityGroup.blockEncoding = blockEncoding;
+    }
+
+    private long getBlockSize() throws IOException {
+      if (columnarBlock != null)
+        return columnarBlock.getSize();
+      return blockWriter.getRawSize();
     }
 
     private boolean isGiantKey(Key k) {
@@ -422,6 +571,10 @@ public class RFile {
 
     public void append(Key key, Value value) throws IOException {
 
+      if (lastCopiedBlock != null) {
+        throw new IllegalStateException("Can not append keys to a locality group that blocks were copied into");
+      }
+
       if (key.compareTo(prevKey) < 0) {
         throw new IllegalArgumentException("Keys appended out-of-order.  New key " + key + ", previous key " + prevKey);
       }
@@ -437,8 +590,8 @@ public class RFile {
       }
 
       if (blockWriter == null) {
-        blockWriter = fileWriter.prepareDataBlock();
-      } else if (blockWriter.getRawSize() > blockSize) {
+        prepareBlock();
+      } else if (getBlockSize() > blockSize) {
 
         // Look for a key thats short to put in the index, defining short as average or below.
         if (avergageKeySize == 0) {
@@ -449,18 +602,24 @@ public class RFile {
         // Possibly produce a shorter key that does not exist in data. Even if a key can be shortened, it may not be below average.
         Key closeKey = KeyShortener.shorten(prevKey, key);
 
-        if ((closeKey.getSize() <= avergageKeySize || blockWriter.getRawSize() > maxBlockSize) && !isGiantKey(closeKey)) {
+        if ((closeKey.getSize() <= avergageKeySize || getBlockSize() > maxBlockSize) && !isGiantKey(closeKey)) {
           closeBlock(closeKey, false);
-          blockWriter = fileWriter.prepareDataBlock();
+          prepareBlock();
           // set average to zero so its recomputed for the next block
           avergageKeySize = 0;
         }
       }
 
-      RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
+      currentLocalityGroup.updateBlockStats(key);
+
+      if (columnarBlock != null) {
+        columnarBlock.add(key, value);
+      } else {
+        RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
 
-      rk.write(blockWriter);
-      value.write(blockWriter);
+        rk.write(blockWriter);
+        value.write(blockWriter);
+      }
       entries++;
 
       keyLenStats.addValue(key.getSize());
@@ -470,7 +629,18 @@ public class RFile {
 
     }
 
+    private void prepareBlock() throws IOException {
+      blockWriter = fileWriter.prepareDataBlock();
+      if (currentLocalityGroup.blockEncoding == BlockEncoding.COLUMNAR)
+        columnarBlock = new ColumnarBlock.Encoder();
+    }
+
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
+      if (columnarBlock != null) {
+        columnarBlock.write(blockWriter);
+        columnarBlock = null;
+      }
+
       blockWriter.close();
 
       if (lastBlock)
@@ -478,6 +648,8 @@ public class RFile {
       else
         currentLocalityGroup.indexWriter.add(key, entries, blockWriter.getStartPos(), blockWriter.getCompressedSize(), blockWriter.getRawSize());
 
+      currentLocalityGroup.closeBlockStats();
+
       if (sample != null)
         sample.flushIfNeeded();
 
@@ -486,9 +658,66 @@ public class RFile {
       entries = 0;
     }
 
+    /**
+     * Adds the data blocks of a locality group of another file to this locality group, copying them as they are stored.
+     */
+    public void copyBlocks(BlockFileReader source, LocalityGroupMetadata lgm) throws IOException {
+      if (blockWriter != null || (lastCopiedBlock == null && currentLocalityGroup.getFirstKey() != null)) {
+        throw new IllegalStateException("Can not copy blocks into a locality group that keys were appended to");
+      }
+
+      if (lgm.blockEncoding != currentLocalityGroup.blockEncoding) {
+        throw new IllegalArgumentException("Can not copy " + lgm.blockEncoding + " blocks into a locality group of " + currentLocalityGroup.blockEncoding
+            + " blocks");
+      }
+
+      if (lgm.getFirstKey() == null) {
+        // no data
+        return;
+      }
+
+      if (lgm.getFirstKey().compareTo(prevKey) < 0) {
+        throw new IllegalArgumentException("Keys appended out-of-order.  New key " + lgm.getFirstKey() + ", previous key " + prevKey);
+      }
+
+      currentLocalityGroup.addColumnCounts(lgm);
+
+      if (currentLocalityGroup.getFirstKey() == null) {
+        currentLocalityGroup.setFirstKey(lgm.getFirstKey());
+      }
+
+      int numBlocks = 0;
+      IndexIterator iter = lgm.indexReader.lookup(new Key());
+      while (iter.hasNext()) {
+        IndexEntry entry = iter.next();
+        if (entry.getOffset() < 0) {
+          throw new IllegalArgumentException("Can not copy blocks of a file whose index does not have their positions");
+        }
+
+        if (lastCopiedBlock != null) {
+          currentLocalityGroup.indexWriter.add(lastCopiedBlock.getKey(), lastCopiedBlock.getNumEntries(), lastCopiedBlock.getOffset(),
+              lastCopiedBlock.getCompressedSize(), lastCopiedBlock.getRawSize());
+        }
+
+        long offset = fileWriter.copyDataBlock(source, entry.getOffset(), entry.getCompressedSize(), entry.getRawSize());
+        lastCopiedBlock = new IndexEntry(new Key(entry.getKey()), entry.getNumEntries(), offset, entry.getCompressedSize(), entry.getRawSize());
+        numBlocks++;
+      }
+
+      // the dictionaries are only usable when they have an entry for every block
+      currentLocalityGroup.visibilities.addBlocks(lgm.visibilities != null && lgm.visibilities.getNumBlocks() == numBlocks ? lgm.visibilities : null);
+      currentLocalityGroup.families.addBlocks(lgm.families != null && lgm.families.getNumBlocks() == numBlocks ? lgm.families : null);
+
+      // the index entry of the last block of a locality group is its last key
+      prevKey = lastCopiedBlock.getKey();
+    }
+
     public void close() throws IOException {
       if (blockWriter != null) {
         closeBlock(lastKeyInBlock, true);
+      } else if (lastCopiedBlock != null) {
+        currentLocalityGroup.indexWriter.addLast(lastCopiedBlock.getKey(), lastCopiedBlock.getNumEntries(), lastCopiedBlock.getOffset(),
+            lastCopiedBlock.getCompressedSize(), lastCopiedBlock.getRawSize());
       }
 
       if (sample != null) {
@@ -500,6 +729,7 @@ public class RFile {
   public static class Writer implements FileSKVWriter {
 
     public static final int MAX_CF_IN_DLG = 1000;
+    public static final int MAX_VIS_IN_LG = 1000;
     private static final double MAX_BLOCK_MULTIPLIER = 1.1;
 
     private BlockFileWriter fileWriter;
@@ -526,11 +756,18 @@ public class RFile {
     private SamplerConfigurationImpl samplerConfig;
     private Sampler sampler;
 
+    private final BlockEncoding blockEncoding;
+
     public Writer(BlockFileWriter bfw, int blockSize) throws IOException {
       this(bfw, blockSize, (int) DefaultConfiguration.getInstance().getAsBytes(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX), null, null);
     }
 
     public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize, SamplerConfigurationImpl samplerConfig, Sampler sampler) throws IOException {
+      this(bfw, blockSize, indexBlockSize, samplerConfig, sampler, BlockEncoding.RELATIVE);
+    }
+
+    public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize, SamplerConfigurationImpl samplerConfig, Sampler sampler, BlockEncoding blockEncoding)
+        throws IOException {
       this.blockSize = blockSize;
       this.maxBlockSize = (long) (blockSize * MAX_BLOCK_MULTIPLIER);
       this.indexBlockSize = indexBlockSize;
@@ -538,6 +775,7 @@ public class RFile {
       previousColumnFamilies = new HashSet<>();
       this.samplerConfig = samplerConfig;
       this.sampler = sampler;
+      this.blockEncoding = requireNonNull(blockEncoding);
     }
 
     @Override
@@ -552,7 +790,7 @@ public class RFile {
       ABlockWriter mba = fileWriter.prepareMetaBlock("RFile.index");
 
       mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_8);
+      mba.writeInt(RINDEX_VER_11);
 
       if (currentLocalityGroup != null) {
         localityGroups.add(currentLocalityGroup);
@@ -607,6 +845,48 @@ public class RFile {
       lgWriter.append(key, value);
     }
 
+    /**
+     * Adds the data of another RFile's locality group to the locality group being written, by copying the other file's data blocks as they are stored instead
+     * of reading and appending its keys. The other locality group must have the same name and block encoding, and the other file must have been written with
+     * the same compression and sampler. Neither file may be encrypted. Keys can not be appended to a locality group that blocks were copied into, or the
+     * reverse.
+     */
+    public void copyLocalityGroup(Reader source) throws IOException {
+      if (dataClosed) {
+        throw new IllegalStateException("Cannont copy, data closed");
+      }
+
+      if (lgWriter == null) {
+        throw new IllegalStateException("No locality group started");
+      }
+
+      if (!Objects.equals(samplerConfig, source.samplerConfig)) {
+        throw new IllegalArgumentException("Can not copy blocks of a file sampled with " + source.samplerConfig + " into a file sampled with " + samplerConfig);
+      }
+
+      for (int i = 0; i < source.localityGroups.size(); i++) {
+        LocalityGroupMetadata lgm = source.localityGroups.get(i);
+
+        if (currentLocalityGroup.isDefaultLG && !lgm.isDefaultLG && lgm.getFirstKey() != null) {
+          // the data of the other file's named locality groups has to have been copied into this file's named locality groups
+          boolean found = false;
+          for (LocalityGroupMetadata written : localityGroups) {
+            found |= lgm.name.equals(written.name);
+          }
+          if (!found) {
+            throw new IllegalArgumentException("Can not copy data of locality group " + lgm.name + " that this file does not have");
+          }
+        }
+
+        if (lgm.isDefaultLG == currentLocalityGroup.isDefaultLG && Objects.equals(lgm.name, currentLocalityGroup.name)) {
+          lgWriter.copyBlocks(source.reader, lgm);
+          if (lgWriter.sample != null) {
+            lgWriter.sample.copyBlocks(source.reader, source.sampleGroups.get(i));
+          }
+        }
+      }
+    }
+
     @Override
     public DataOutputStream createMetaStore(String name) throws IOException {
       closeData();
@@ -649,9 +929,10 @@ public class RFile {
 
       SampleLocalityGroupWriter sampleWriter = null;
       if (sampler != null) {
-        sampleWriter = new SampleLocalityGroupWriter(new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, sampleLocalityGroup, null), sampler);
+        sampleWriter = new SampleLocalityGroupWriter(new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, sampleLocalityGroup, null, blockEncoding),
+            sampler);
       }
-      lgWriter = new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, currentLocalityGroup, sampleWriter);
+      lgWriter = new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, currentLocalityGroup, sampleWriter, blockEncoding);
     }
 
     @Override
@@ -681,7 +962,7 @@ public class RFile {
     }
   }
 
-  private static class LocalityGroupReader extends LocalityGroup implements FileSKVIterator {
+  private static class LocalityGroupReader extends LocalityGroup implements FileSKVIterator, BatchedIterator {
 
     private BlockFileReader reader;
     private MultiLevelIndex.Reader index;
@@ -691,6 +972,14 @@ public class RFile {
     private boolean closed = false;
     private int version;
     private boolean checkRange = true;
+    private ColumnDictionary visibilities;
+    private ColumnDictionary families;
+    // dictionary ids of the visibilities that are visible, null when blocks are not skipped for their visibilities
+    private BitSet visibleIds;
+    // dictionary ids of the column families the last seek asked for, null when blocks are not skipped for their families
+    private BitSet familyIds;
+    private boolean familiesInclusive;
+    private BlockEncoding blockEncoding;
 
     private LocalityGroupReader(BlockFileReader reader, LocalityGroupMetadata lgm, int version) throws IOException {
       super(lgm.columnFamilies, lgm.isDefaultLG);
@@ -699,6 +988,9 @@ public class RFile {
       this.startBlock = lgm.startBlock;
       blockCount = index.size();
       this.version = version;
+      this.visibilities = lgm.visibilities;
+      this.families = lgm.families;
+      this.blockEncoding = lgm.blockEncoding;
 
       this.reader = reader;
 
@@ -712,6 +1004,61 @@ public class RFile {
       this.blockCount = lgr.blockCount;
       this.reader = lgr.reader;
       this.version = lgr.version;
+      this.visibilities = lgr.visibilities;
+      this.families = lgr.families;
+      this.blockEncoding = lgr.blockEncoding;
+    }
+
+    /**
+     * Causes sequential reads to pass over data blocks where no key has a visible column visibility. Does nothing if the file has no visibility dictionary for
+     * this locality group.
+     */
+    void skipBlocksWithoutVisibleKeys(Predicate<ByteSequence> visible) {
+      if (visibilities == null || visibilities.getNumBlocks() != blockCount)
+        return;
+
+      visibleIds = visibilities.select(visible);
+    }
+
+    @Override
+    protected void setColumnFamilyFilter(Set<ByteSequence> columnFamilies, boolean inclusive) {
+      if (families == null || families.getNumBlocks() != blockCount)
+        return;
+
+      BitSet ids = null;
+      if (columnFamilies.size() > 0)
+        ids = families.select(columnFamilies::contains);
+
+      if (!Objects.equals(ids, familyIds) || (ids != null && inclusive != familiesInclusive)) {
+        // The current position may have been reached by passing over blocks that the new filter wants, so do not let the next seek reuse it.
+        reset();
+      }
+
+      familyIds = ids;
+      familiesInclusive = inclusive;
+    }
+
+    private boolean mayHaveMatchingKeys(int block) {
+      if (visibleIds != null && !visibilities.getBlock(block).intersects(visibleIds))
+        return false;
+
+      if (familyIds != null) {
+        BitSet blockFamilies = families.getBlock(block);
+        if (familiesInclusive) {
+          if (!blockFamilies.intersects(familyIds))
+            return false;
+        } else {
+          // excluding families, so a block can be passed over when all of its families are excluded
+          boolean allExcluded = true;
+          for (int id = blockFamilies.nextSetBit(0); id >= 0 && allExcluded; id = blockFamilies.nextSetBit(id + 1)) {
+            allExcluded = familyIds.get(id);
+          }
+          if (allExcluded)
+            return false;
+        }
+      }
+
+      return true;
     }
 
     Iterator<IndexEntry> getIndex() throws IOException {
@@ -728,10 +1075,17 @@ public class RFile {
     }
 
     private IndexIterator iiter;
+    // blocks read in order since the last seek, and the position in the index of the blocks fetched ahead of them
+    private int sequentialBlocks;
+    private IndexIterator prefetchIter;
     private int entriesLeft;
     private ABlockReader currBlock;
+    // the decoded current block when blocks are columnar
+    private ColumnarBlock columnarBlock;
     private RelativeKey rk;
     private Value val;
+    // set once val may be held by a caller or is not owned by this reader, so the next value must be read into a new Value (see BatchedIterator)
+    private boolean valShared = true;
     private Key prevKey = null;
     private Range range = null;
     private boolean hasTop = false;
@@ -744,6 +1098,7 @@ public class RFile {
 
     @Override
     public Value getTopValue() {
+      valShared = true;
       return val;
     }
 
@@ -762,6 +1117,22 @@ public class RFile {
       }
     }
 
+    @Override
+    public int nextBatch(KeyValueBatch batch) throws IOException {
+      int start = batch.size();
+      try {
+        while (hasTop && !batch.isFull()) {
+          batch.add(rk.getKey(), val);
+          valShared = true;
+          _next();
+        }
+      } catch (IOException ioe) {
+        reset();
+        throw ioe;
+      }
+      return batch.size() - start;
+    }
+
     private void _next() throws IOException {
 
       if (!hasTop)
@@ -774,6 +1145,19 @@ public class RFile {
 
         if (iiter.hasNext()) {
           IndexEntry indexEntry = iiter.next();
+
+          while (!mayHaveMatchingKeys(iiter.previousIndex())) {
+            if (!iiter.hasNext() || range.afterEndKey(indexEntry.getKey())) {
+              rk = null;
+              val = null;
+              hasTop = false;
+              return;
+            }
+            indexEntry = iiter.next();
+          }
+
+          prefetchBlocks(indexEntry);
+
           entriesLeft = indexEntry.getNumEntries();
           currBlock = getDataBlock(indexEntry);
 
@@ -790,8 +1174,20 @@ public class RFile {
       }
 
       prevKey = rk.getKey();
-      rk.readFields(currBlock);
-      val.readFields(currBlock);
+      if (columnarBlock != null) {
+        int pos = columnarBlock.size() - entriesLeft;
+        rk = RelativeKey.decoded(columnarBlock.getKey(pos));
+        val = columnarBlock.getValue(pos);
+        valShared = true;
+      } else {
+        rk.readFields(currBlock);
+        // values that were handed out may still be held by callers, while values no one asked for are read into again
+        if (valShared || val == null) {
+          val = new Value();
+          valShared = false;
+        }
+        val.readFields(currBlock);
+      }
 
       if (metricsGatherer != null)
         metricsGatherer.addMetric(rk.getKey(), val);
@@ -801,15 +1197,48 @@ public class RFile {
         hasTop = !range.afterEndKey(rk.getKey());
     }
 
+    /**
+     * Asks the block reader to fetch the blocks after the given one, which is about to be read in order. The longer reads stay in order, the further ahead
+     * this fetches, up to the most blocks the block reader allows.
+     */
+    private void prefetchBlocks(IndexEntry indexEntry) throws IOException {
+      int maxBlocks = reader.getMaxPrefetchBlocks();
+      if (maxBlocks <= 0 || version == RINDEX_VER_3 || version == RINDEX_VER_4)
+        return;
+
+      sequentialBlocks++;
+      int current = iiter.previousIndex();
+      int last = current + Math.min(maxBlocks, 1 << Math.min(sequentialBlocks - 1, 30));
+
+      if (prefetchIter == null)
+        prefetchIter = index.lookup(indexEntry.getKey());
+
+      while (prefetchIter.hasNext() && prefetchIter.nextIndex() <= last) {
+        if (prefetchIter.hasPrevious() && range.afterEndKey(prefetchIter.peekPrevious().getKey())) {
+          // the range ends in the previous block
+          break;
+        }
+
+        int block = prefetchIter.nextIndex();
+        IndexEntry entry = prefetchIter.next();
+        if (block > current && mayHaveMatchingKeys(block))
+          reader.prefetchDataBlock(entry.getOffset(), entry.getCompressedSize(), entry.getRawSize());
+      }
+    }
+
     private ABlockReader getDataBlock(IndexEntry indexEntry) throws IOException {
       if (interruptFlag != null && interruptFlag.get())
         throw new IterationInterruptedException();
 
+      ABlockReader block;
       if (version == RINDEX_VER_3 || version == RINDEX_VER_4)
-        return reader.getDataBlock(startBlock + iiter.previousIndex());
+        block = reader.getDataBlock(startBlock + iiter.previousIndex());
       else
-        return reader.getDataBlock(indexEntry.getOffset(), indexEntry.getCompressedSize(), indexEntry.getRawSize());
+        block = reader.getDataBlock(indexEntry.getOffset(), indexEntry.getCompressedSize(), indexEntry.getRawSize());
 
+      columnarBlock = blockEncoding == BlockEncoding.COLUMNAR ? ColumnarBlock.read(block) : null;
+
+      return block;
     }
 
     @Override
@@ -845,6 +1274,7 @@ public class RFile {
           }
         } finally {
           currBlock = null;
+          columnarBlock = null;
         }
       }
     }
@@ -893,13 +1323,17 @@ public class RFile {
           // causing the build of an index... doing this could slow down some use cases and
           // and speed up others.
 
-          MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
-          SkippR skippr = RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, getTopKey(), entriesLeft);
-          if (skippr.skipped > 0) {
-            entriesLeft -= skippr.skipped;
-            val = new Value(valbs.toArray());
-            prevKey = skippr.prevKey;
-            rk = skippr.rk;
+          if (columnarBlock != null) {
+            seekColumnarBlock(startKey);
+          } else {
+            MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
+            SkippR skippr = RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, getTopKey(), entriesLeft);
+            if (skippr.skipped > 0) {
+              entriesLeft -= skippr.skipped;
+              val = new Value(valbs.toArray());
+              prevKey = skippr.prevKey;
+              rk = skippr.rk;
+            }
           }
 
           reseek = false;
@@ -921,6 +1355,8 @@ public class RFile {
 
       if (reseek) {
         iiter = index.lookup(startKey);
+        sequentialBlocks = 0;
+        prefetchIter = null;
 
         reset();
 
@@ -940,47 +1376,29 @@ public class RFile {
             prevKey = new Key(); // first block in the file, so set prev key to minimal key
 
           IndexEntry indexEntry = iiter.next();
-          entriesLeft = indexEntry.getNumEntries();
-          currBlock = getDataBlock(indexEntry);
 
-          checkRange = range.afterEndKey(indexEntry.getKey());
-          if (!checkRange)
-            hasTop = true;
+          // pass over blocks that can not have a matching key, but not past the end of the range
+          while (!mayHaveMatchingKeys(iiter.previousIndex()) && iiter.hasNext() && !range.afterEndKey(indexEntry.getKey())) {
+            prevKey = new Key(indexEntry.getKey());
+            indexEntry = iiter.next();
+          }
+
+          if (mayHaveMatchingKeys(iiter.previousIndex())) {
+            entriesLeft = indexEntry.getNumEntries();
+            currBlock = getDataBlock(indexEntry);
 
-          MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
-
-          Key currKey = null;
-
-          if (currBlock.isIndexable()) {
-            BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
-            if (blockIndex != null) {
-              BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
-              if (bie != null) {
-                // we are seeked to the current position of the key in the index
-                // need to prime the read process and read this key from the block
-                RelativeKey tmpRk = new RelativeKey();
-                tmpRk.setPrevKey(bie.getPrevKey());
-                tmpRk.readFields(currBlock);
-                val = new Value();
-
-                val.readFields(currBlock);
-                valbs = new MutableByteSequence(val.get(), 0, val.getSize());
-
-                // just consumed one key from the input stream, so subtract one from entries left
-                entriesLeft = bie.getEntriesLeft() - 1;
-                prevKey = new Key(bie.getPrevKey());
-                currKey = tmpRk.getKey();
-              }
+            checkRange = range.afterEndKey(indexEntry.getKey());
+            if (!checkRange)
+              hasTop = true;
+
+            if (columnarBlock != null) {
+              // position before the first key, the way a block is positioned after its previous block
+              entriesLeft = columnarBlock.size() + 1;
+              seekColumnarBlock(startKey);
+            } else {
+              seekBlock(startKey, indexEntry);
             }
           }
-
-          SkippR skippr = RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, currKey, entriesLeft);
-          prevKey = skippr.prevKey;
-          entriesLeft -= skippr.skipped;
-          val = new Value(valbs.toArray());
-          // set rk when everything above is successful, if exception
-          // occurs rk will not be set
-          rk = skippr.rk;
         }
       }
 
@@ -996,6 +1414,61 @@ public class RFile {
       }
     }
 
+    /**
+     * Moves forward in the current columnar block to the first key that is not before the given key, or the last key in the block if all keys are before it.
+     */
+    private void seekColumnarBlock(Key startKey) {
+      int size = columnarBlock.size();
+      // the position of the top key, or -1 if positioned before the block
+      int top = size - entriesLeft - 1;
+      int pos = Math.min(columnarBlock.seek(startKey, Math.max(top, 0)), size - 1);
+      if (pos > top) {
+        if (pos > 0)
+          prevKey = columnarBlock.getKey(pos - 1);
+        rk = RelativeKey.decoded(columnarBlock.getKey(pos));
+        val = columnarBlock.getValue(pos);
+        valShared = true;
+        entriesLeft = size - pos - 1;
+      }
+    }
+
+    private void seekBlock(Key startKey, IndexEntry indexEntry) throws IOException {
+      MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
+
+      Key currKey = null;
+
+      if (currBlock.isIndexable()) {
+        BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
+        if (blockIndex != null) {
+          BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
+          if (bie != null) {
+            // we are seeked to the current position of the key in the index
+            // need to prime the read process and read this key from the block
+            RelativeKey tmpRk = new RelativeKey();
+            tmpRk.setPrevKey(bie.getPrevKey());
+            tmpRk.readFields(currBlock);
+            val = new Value();
+
+            val.readFields(currBlock);
+            valbs = new MutableByteSequence(val.get(), 0, val.getSize());
+
+            // just consumed one key from the input stream, so subtract one from entries left
+            entriesLeft = bie.getEntriesLeft() - 1;
+            prevKey = new Key(bie.getPrevKey());
+            currKey = tmpRk.getKey();
+          }
+        }
+      }
+
+      SkippR skippr = RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, currKey, entriesLeft);
+      prevKey = skippr.prevKey;
+      entriesLeft -= skippr.skipped;
+      val = new Value(valbs.toArray());
+      // set rk when everything above is successful, if exception
+      // occurs rk will not be set
+      rk = skippr.rk;
+    }
+
     @Override
     public Key getFirstKey() throws IOException {
       return firstKey;
@@ -1065,6 +1538,8 @@ public class RFile {
 
     private List<Reader> deepCopies;
     private boolean deepCopy = false;
+    // a view from skipInvisibleBlocks, closed with its parent's deep copies but otherwise used in place of its parent
+    private boolean view = false;
 
     private AtomicBoolean interruptFlag;
 
@@ -1072,6 +1547,9 @@ public class RFile {
 
     private int rfileVersion;
 
+    // when set, the locality group readers of this reader and its deep copies skip blocks with no visible keys
+    private Predicate<ByteSequence> visibleFilter = null;
+
     public Reader(BlockFileReader rdr) throws IOException {
       this.reader = rdr;
 
@@ -1083,7 +1561,8 @@ public class RFile {
 
         if (magic != RINDEX_MAGIC)
           throw new IOException("Did not see expected magic number, saw " + magic);
-        if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
+        if (ver != RINDEX_VER_11 && ver != RINDEX_VER_10 && ver != RINDEX_VER_9 && ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6
+            && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
           throw new IOException("Did not see expected version, saw " + ver);
 
         int size = mb.readInt();
@@ -1101,7 +1580,7 @@ public class RFile {
 
         readers = currentReaders;
 
-        if (ver == RINDEX_VER_8 && mb.readBoolean()) {
+        if ((ver == RINDEX_VER_8 || ver == RINDEX_VER_9 || ver == RINDEX_VER_10 || ver == RINDEX_VER_11) && mb.readBoolean()) {
           sampleReaders = new LocalityGroupReader[size];
 
           for (int i = 0; i < size; i++) {
@@ -1155,6 +1634,8 @@ public class RFile {
       this.readers = r.readers;
       this.sampleReaders = r.sampleReaders;
 
+      this.visibleFilter = r.visibleFilter;
+
       for (int i = 0; i < r.readers.length; i++) {
         if (useSample) {
           this.currentReaders[i] = new LocalityGroupReader(r.sampleReaders[i]);
@@ -1164,10 +1645,37 @@ public class RFile {
           this.currentReaders[i].setInterruptFlag(r.interruptFlag);
         }
 
+        skipBlocks(this.currentReaders[i]);
+      }
+      this.lgContext = new LocalityGroupContext(currentReaders);
+    }
+
+    private Reader(Reader r, Predicate<ByteSequence> visibleFilter) {
+      super(r.currentReaders.length);
+      this.reader = r.reader;
+      this.currentReaders = new LocalityGroupReader[r.currentReaders.length];
+      this.deepCopies = r.deepCopies;
+      this.deepCopy = false;
+      this.view = true;
+      this.samplerConfig = r.samplerConfig;
+      this.rfileVersion = r.rfileVersion;
+      this.readers = r.readers;
+      this.sampleReaders = r.sampleReaders;
+      this.visibleFilter = visibleFilter;
+
+      for (int i = 0; i < r.currentReaders.length; i++) {
+        this.currentReaders[i] = new LocalityGroupReader(r.currentReaders[i]);
+        this.currentReaders[i].setInterruptFlag(r.interruptFlag);
+        skipBlocks(this.currentReaders[i]);
       }
       this.lgContext = new LocalityGroupContext(currentReaders);
     }
 
+    private void skipBlocks(LocalityGroupReader lgr) {
+      if (visibleFilter != null)
+        lgr.skipBlocksWithoutVisibleKeys(visibleFilter);
+    }
+
     private void closeLocalityGroupReaders() {
       for (LocalityGroupReader lgr : currentReaders) {
         try {
@@ -1180,7 +1688,7 @@ public class RFile {
 
     @Override
     public void closeDeepCopies() {
-      if (deepCopy)
+      if (deepCopy || view)
         throw new RuntimeException("Calling closeDeepCopies on a deep copy is not supported");
 
       for (Reader deepCopy : deepCopies)
@@ -1191,7 +1699,7 @@ public class RFile {
 
     @Override
     public void close() throws IOException {
-      if (deepCopy)
+      if (deepCopy || view)
         throw new RuntimeException("Calling close on a deep copy is not supported");
 
       closeDeepCopies();
@@ -1374,6 +1882,19 @@ public class RFile {
       return null;
     }
 
+    @Override
+    public FileSKVIterator skipInvisibleBlocks(Predicate<ByteSequence> visible) {
+      requireNonNull(visible);
+
+      if (rfileVersion != RINDEX_VER_9 && rfileVersion != RINDEX_VER_10 && rfileVersion != RINDEX_VER_11)
+        return this;
+
+      Reader copy = new Reader(this, visible);
+      copy.setInterruptFlagInternal(interruptFlag);
+      deepCopies.add(copy);
+      return copy;
+    }
+
     // only visible for printinfo
     FileSKVIterator getSample() {
       if (samplerConfig == null)
@@ -1413,8 +1934,10 @@ public class RFile {
       if (deepCopy)
         throw new RuntimeException("Calling setInterruptFlag on a deep copy is not supported");
 
-      if (deepCopies.size() != 0)
-        throw new RuntimeException("Setting interrupt flag after calling deep copy not supported");
+      for (Reader copy : deepCopies) {
+        if (!copy.view)
+          throw new RuntimeException("Setting interrupt flag after calling deep copy not supported");
+      }
 
       setInterruptFlagInternal(flag);
     }
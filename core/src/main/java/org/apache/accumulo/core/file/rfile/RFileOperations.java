@@ -30,6 +30,7 @@ import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
+import org.apache.accumulo.core.file.rfile.RFile.BlockEncoding;
 import org.apache.accumulo.core.file.streams.RateLimitedOutputStream;
 import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
 import org.apache.accumulo.core.sample.impl.SamplerFactory;
@@ -45,6 +46,11 @@ public class RFileOperations extends FileOperations {
   private static RFile.Reader getReader(FileReaderOperation<?> options) throws IOException {
     CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader(options.getFileSystem(), new Path(options.getFilename()), options.getConfiguration(),
         options.getDataCache(), options.getIndexCache(), options.getRateLimiter(), options.getTableConfiguration());
+    if (options.getPrefetchExecutor() != null) {
+      int prefetchBlocks = options.getTableConfiguration().getCount(Property.TABLE_FILE_PREFETCH_BLOCKS);
+      if (prefetchBlocks > 0)
+        _cbr.enablePrefetch(options.getPrefetchExecutor(), prefetchBlocks, options.getPrefetchStats());
+    }
     return new RFile.Reader(_cbr);
   }
 
@@ -121,7 +127,9 @@ public class RFileOperations extends FileOperations {
     CachableBlockFile.Writer _cbw = new CachableBlockFile.Writer(new RateLimitedOutputStream(outputStream, options.getRateLimiter()), compression, conf,
         acuconf);
 
-    RFile.Writer writer = new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, samplerConfig, sampler);
+    BlockEncoding blockEncoding = BlockEncoding.valueOf(acuconf.get(Property.TABLE_FILE_BLOCK_ENCODING).toUpperCase());
+
+    RFile.Writer writer = new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, samplerConfig, sampler, blockEncoding);
     return writer;
   }
 }
@@ -18,10 +18,12 @@ package org.apache.accumulo.core.file.rfile;
 
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
 import org.apache.accumulo.core.util.MutableByteSequence;
 import org.apache.accumulo.core.util.UnsynchronizedBuffer;
 import org.apache.hadoop.io.Writable;
@@ -37,6 +39,9 @@ public class RelativeKey implements Writable {
   private byte fieldsSame;
   private byte fieldsPrefixed;
 
+  // read position within a cached block's array while decoding from it
+  private int blockPos;
+
   // Exact match compression options (first byte) and flag for further
   private static final byte ROW_SAME = BIT << 0;
   private static final byte CF_SAME = BIT << 1;
@@ -162,8 +167,33 @@ public class RelativeKey implements Writable {
     this.prevKey = pk;
   }
 
+  /**
+   * @return a relative key holding a key that was already decoded, used by readers of blocks that are not relatively encoded
+   */
+  static RelativeKey decoded(Key key) {
+    RelativeKey rk = new RelativeKey();
+    rk.key = rk.prevKey = key;
+    return rk;
+  }
+
+  /**
+   * Returns the array backing a field of the previous key, so that a key with the same field shares it instead of copying it. Keys already share field arrays
+   * when copied with {@link Key#Key(Key)}, so this relies on nothing new.
+   */
+  private static byte[] same(ByteSequence prevField) {
+    if (prevField.isBackedByArray() && prevField.offset() == 0 && prevField.getBackingArray().length == prevField.length())
+      return prevField.getBackingArray();
+    return prevField.toArray();
+  }
+
   @Override
   public void readFields(DataInput in) throws IOException {
+    if (in instanceof ABlockReader && ((ABlockReader) in).isIndexable()) {
+      // the block is a cached byte array, so decode from the array directly instead of going through the stream a byte at a time
+      readFields((ABlockReader) in);
+      return;
+    }
+
     fieldsSame = in.readByte();
     if ((fieldsSame & PREFIX_COMPRESSION_ENABLED) == PREFIX_COMPRESSION_ENABLED) {
       fieldsPrefixed = in.readByte();
@@ -175,7 +205,7 @@ public class RelativeKey implements Writable {
     long ts;
 
     if ((fieldsSame & ROW_SAME) == ROW_SAME) {
-      row = prevKey.getRowData().toArray();
+      row = same(prevKey.getRowData());
     } else if ((fieldsPrefixed & ROW_COMMON_PREFIX) == ROW_COMMON_PREFIX) {
       row = readPrefix(in, prevKey.getRowData());
     } else {
@@ -183,7 +213,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CF_SAME) == CF_SAME) {
-      cf = prevKey.getColumnFamilyData().toArray();
+      cf = same(prevKey.getColumnFamilyData());
     } else if ((fieldsPrefixed & CF_COMMON_PREFIX) == CF_COMMON_PREFIX) {
       cf = readPrefix(in, prevKey.getColumnFamilyData());
     } else {
@@ -191,7 +221,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CQ_SAME) == CQ_SAME) {
-      cq = prevKey.getColumnQualifierData().toArray();
+      cq = same(prevKey.getColumnQualifierData());
     } else if ((fieldsPrefixed & CQ_COMMON_PREFIX) == CQ_COMMON_PREFIX) {
       cq = readPrefix(in, prevKey.getColumnQualifierData());
     } else {
@@ -199,7 +229,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CV_SAME) == CV_SAME) {
-      cv = prevKey.getColumnVisibilityData().toArray();
+      cv = same(prevKey.getColumnVisibilityData());
     } else if ((fieldsPrefixed & CV_COMMON_PREFIX) == CV_COMMON_PREFIX) {
       cv = readPrefix(in, prevKey.getColumnVisibilityData());
     } else {
@@ -218,6 +248,128 @@ public class RelativeKey implements Writable {
     this.prevKey = this.key;
   }
 
+  /**
+   * Same as {@link #readFields(DataInput)}, but decodes straight out of the array of a cached block and then advances the block past what was read.
+   */
+  private void readFields(ABlockReader block) throws IOException {
+    final byte[] buf = block.getBuffer();
+    final int start = block.getPosition();
+    blockPos = start;
+
+    fieldsSame = readByte(buf);
+    if ((fieldsSame & PREFIX_COMPRESSION_ENABLED) == PREFIX_COMPRESSION_ENABLED) {
+      fieldsPrefixed = readByte(buf);
+    } else {
+      fieldsPrefixed = 0;
+    }
+
+    byte[] row, cf, cq, cv;
+    long ts;
+
+    if ((fieldsSame & ROW_SAME) == ROW_SAME) {
+      row = same(prevKey.getRowData());
+    } else if ((fieldsPrefixed & ROW_COMMON_PREFIX) == ROW_COMMON_PREFIX) {
+      row = readPrefix(buf, prevKey.getRowData());
+    } else {
+      row = read(buf);
+    }
+
+    if ((fieldsSame & CF_SAME) == CF_SAME) {
+      cf = same(prevKey.getColumnFamilyData());
+    } else if ((fieldsPrefixed & CF_COMMON_PREFIX) == CF_COMMON_PREFIX) {
+      cf = readPrefix(buf, prevKey.getColumnFamilyData());
+    } else {
+      cf = read(buf);
+    }
+
+    if ((fieldsSame & CQ_SAME) == CQ_SAME) {
+      cq = same(prevKey.getColumnQualifierData());
+    } else if ((fieldsPrefixed & CQ_COMMON_PREFIX) == CQ_COMMON_PREFIX) {
+      cq = readPrefix(buf, prevKey.getColumnQualifierData());
+    } else {
+      cq = read(buf);
+    }
+
+    if ((fieldsSame & CV_SAME) == CV_SAME) {
+      cv = same(prevKey.getColumnVisibilityData());
+    } else if ((fieldsPrefixed & CV_COMMON_PREFIX) == CV_COMMON_PREFIX) {
+      cv = readPrefix(buf, prevKey.getColumnVisibilityData());
+    } else {
+      cv = read(buf);
+    }
+
+    if ((fieldsSame & TS_SAME) == TS_SAME) {
+      ts = prevKey.getTimestamp();
+    } else if ((fieldsPrefixed & TS_DIFF) == TS_DIFF) {
+      ts = readVLong(buf) + prevKey.getTimestamp();
+    } else {
+      ts = readVLong(buf);
+    }
+
+    int len = blockPos - start;
+    if (block.skipBytes(len) != len) {
+      throw new EOFException("Key extends past end of block");
+    }
+
+    this.key = new Key(row, cf, cq, cv, ts, (fieldsSame & DELETED) == DELETED, false);
+    this.prevKey = this.key;
+  }
+
+  private void checkAvailable(byte[] buf, int len) throws IOException {
+    if (len < 0 || blockPos + len > buf.length) {
+      throw new EOFException("Key extends past end of block");
+    }
+  }
+
+  private byte readByte(byte[] buf) throws IOException {
+    checkAvailable(buf, 1);
+    return buf[blockPos++];
+  }
+
+  /**
+   * Decodes a long written by {@link WritableUtils#writeVLong(DataOutput, long)} from the block array.
+   */
+  private long readVLong(byte[] buf) throws IOException {
+    byte first = readByte(buf);
+    int len = WritableUtils.decodeVIntSize(first);
+    if (len == 1) {
+      return first;
+    }
+    checkAvailable(buf, len - 1);
+    long i = 0;
+    for (int idx = 1; idx < len; idx++) {
+      i = (i << 8) | (buf[blockPos++] & 0xFF);
+    }
+    return WritableUtils.isNegativeVInt(first) ? (i ^ -1L) : i;
+  }
+
+  private byte[] readPrefix(byte[] buf, ByteSequence prefixSource) throws IOException {
+    int prefixLen = (int) readVLong(buf);
+    int remainingLen = (int) readVLong(buf);
+    if (prefixLen < 0 || prefixLen > prefixSource.length()) {
+      throw new IOException("Common prefix length " + prefixLen + " exceeds previous key field length " + prefixSource.length());
+    }
+    checkAvailable(buf, remainingLen);
+    byte[] data = new byte[prefixLen + remainingLen];
+    if (prefixSource.isBackedByArray()) {
+      System.arraycopy(prefixSource.getBackingArray(), prefixSource.offset(), data, 0, prefixLen);
+    } else {
+      System.arraycopy(prefixSource.toArray(), 0, data, 0, prefixLen);
+    }
+    System.arraycopy(buf, blockPos, data, prefixLen, remainingLen);
+    blockPos += remainingLen;
+    return data;
+  }
+
+  private byte[] read(byte[] buf) throws IOException {
+    int len = (int) readVLong(buf);
+    checkAvailable(buf, len);
+    byte[] data = new byte[len];
+    System.arraycopy(buf, blockPos, data, 0, len);
+    blockPos += len;
+    return data;
+  }
+
   public static class SkippR {
     RelativeKey rk;
     int skipped;
@@ -394,7 +394,7 @@ public final class BCFile {
           long offsetIndexMeta = out.position();
           metaIndex.write(out);
 
-          if (cryptoParams.getAlgorithmName() == null || cryptoParams.getAlgorithmName().equals(Property.CRYPTO_CIPHER_SUITE.getDefaultValue())) {
+          if (!isEncrypted()) {
             out.writeLong(offsetIndexMeta);
             API_VERSION_1.write(out);
           } else {
@@ -419,6 +419,10 @@ public final class BCFile {
       return dataIndex.getDefaultCompressionAlgorithm();
     }
 
+    private boolean isEncrypted() {
+      return cryptoParams.getAlgorithmName() != null && !cryptoParams.getAlgorithmName().equals(Property.CRYPTO_CIPHER_SUITE.getDefaultValue());
+    }
+
     private BlockAppender prepareMetaBlock(String name, Algorithm compressAlgo) throws IOException, MetaBlockAlreadyExists {
       if (blkInProgress == true) {
         throw new IllegalStateException("Cannot create Meta Block until previous block is closed.");
@@ -490,6 +494,51 @@ public final class BCFile {
       return ba;
     }
 
+    /**
+     * Copies a data block of another BCFile into this file as it is stored, without decompressing it. Both files must use the same compression, and neither may
+     * be encrypted since every file has its own key.
+     *
+     * @return the offset of the copied block in this file
+     */
+    public long copyDataBlock(Reader source, long offset, long compressedSize, long rawSize) throws IOException {
+      if (blkInProgress == true) {
+        throw new IllegalStateException("Cannot copy Data Block until previous block is closed.");
+      }
+
+      if (metaBlkSeen == true) {
+        throw new IllegalStateException("Cannot create Data Block after Meta Blocks.");
+      }
+
+      if (!source.getDefaultCompressionName().equals(getDefaultCompressionAlgorithm().getName())) {
+        throw new IllegalArgumentException("Cannot copy " + source.getDefaultCompressionName() + " compressed block into "
+            + getDefaultCompressionAlgorithm().getName() + " compressed file");
+      }
+
+      if (isEncrypted() || source.cryptoParams != null) {
+        throw new IllegalArgumentException("Cannot copy blocks of encrypted files");
+      }
+
+      long begin = out.position();
+      InputStream in = new BoundedRangeFileInputStream(source.in, offset, compressedSize);
+      try {
+        byte[] buffer = new byte[getFSInputBufferSize(conf)];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) > 0) {
+          out.write(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+
+      long end = out.position();
+      if (end - begin != compressedSize) {
+        throw new IOException("Copied " + (end - begin) + " bytes of a " + compressedSize + " byte block");
+      }
+
+      dataIndex.addBlockRegion(new BlockRegion(begin, compressedSize, rawSize));
+      return begin;
+    }
+
     /**
      * Callback to make sure a meta block is added to the internal list when its stream is closed.
      */
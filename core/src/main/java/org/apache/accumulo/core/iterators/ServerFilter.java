@@ -24,6 +24,8 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.system.BatchedIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 
 /**
  * An optimized version of {@link org.apache.accumulo.core.iterators.Filter}. This class grants protected access to the read only <code>source</code> iterator.
@@ -32,7 +34,7 @@ import org.apache.accumulo.core.data.Value;
  *
  * @since 2.0
  */
-public abstract class ServerFilter extends ServerWrappingIterator {
+public abstract class ServerFilter extends ServerWrappingIterator implements BatchedIterator {
 
   public ServerFilter(SortedKeyValueIterator<Key,Value> source) {
     super(source);
@@ -53,6 +55,29 @@ public abstract class ServerFilter extends ServerWrappingIterator {
     findTop();
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+
+    while (!batch.isFull() && source.hasTop()) {
+      int first = batch.size();
+      KeyValueBatch.fill(source, batch);
+
+      int kept = first;
+      for (int i = first; i < batch.size(); i++) {
+        Key key = batch.getKey(i);
+        Value value = batch.getValue(i);
+        if (key.isDeleted() || accept(key, value))
+          batch.set(kept++, key, value);
+      }
+      batch.truncate(kept);
+
+      findTop();
+    }
+
+    return batch.size() - start;
+  }
+
   /**
    * Iterates over the source until an acceptable key/value pair is found.
    */
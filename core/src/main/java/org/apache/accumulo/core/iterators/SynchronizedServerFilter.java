@@ -24,6 +24,8 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.system.BatchedIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 
 /**
  * A SortedKeyValueIterator similar to {@link org.apache.accumulo.core.iterators.ServerFilter} but with the implemented methods marked as synchronized. The
@@ -31,7 +33,7 @@ import org.apache.accumulo.core.data.Value;
  *
  * @since 2.0
  */
-public abstract class SynchronizedServerFilter implements SortedKeyValueIterator<Key,Value> {
+public abstract class SynchronizedServerFilter implements SortedKeyValueIterator<Key,Value>, BatchedIterator {
 
   protected final SortedKeyValueIterator<Key,Value> source;
 
@@ -69,6 +71,29 @@ public abstract class SynchronizedServerFilter implements SortedKeyValueIterator
     return source.hasTop();
   }
 
+  @Override
+  public synchronized int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+
+    while (!batch.isFull() && source.hasTop()) {
+      int first = batch.size();
+      KeyValueBatch.fill(source, batch);
+
+      int kept = first;
+      for (int i = first; i < batch.size(); i++) {
+        Key key = batch.getKey(i);
+        Value value = batch.getValue(i);
+        if (key.isDeleted() || accept(key, value))
+          batch.set(kept++, key, value);
+      }
+      batch.truncate(kept);
+
+      findTop();
+    }
+
+    return batch.size() - start;
+  }
+
   /**
    * Iterates over the source until an acceptable key/value pair is found.
    */
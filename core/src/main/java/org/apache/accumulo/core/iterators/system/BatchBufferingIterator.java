@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * Presents the top of a stack of {@link BatchedIterator}s one key at a time. The system iterators below it pass batches to each other, while the iterators
+ * above it, which may be user iterators, see the usual per key protocol. If the source is not a {@link BatchedIterator} it is read one key at a time to fill
+ * the buffer.
+ *
+ * <p>
+ * After a seek the first batch holds a single key/value and each following batch is twice as large, up to the capacity, so consumers that seek often and read
+ * little do not make the stack read far ahead of what they use.
+ */
+public class BatchBufferingIterator implements SortedKeyValueIterator<Key,Value> {
+
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final SortedKeyValueIterator<Key,Value> source;
+  private final KeyValueBatch batch;
+  private int pos = 0;
+
+  public BatchBufferingIterator(SortedKeyValueIterator<Key,Value> source) {
+    this(source, DEFAULT_CAPACITY);
+  }
+
+  public BatchBufferingIterator(SortedKeyValueIterator<Key,Value> source, int capacity) {
+    this.source = source;
+    this.batch = new KeyValueBatch(capacity);
+  }
+
+  private void fill() throws IOException {
+    batch.clear();
+    pos = 0;
+    KeyValueBatch.fill(source, batch);
+  }
+
+  @Override
+  public synchronized void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+    source.seek(range, columnFamilies, inclusive);
+    batch.setLimit(1);
+    fill();
+  }
+
+  @Override
+  public synchronized void next() throws IOException {
+    if (pos >= batch.size()) {
+      throw new IllegalStateException("Called next() when there is no top");
+    }
+
+    pos++;
+    if (pos == batch.size()) {
+      batch.setLimit(Math.min(batch.getLimit() * 2, batch.capacity()));
+      fill();
+    }
+  }
+
+  @Override
+  public synchronized boolean hasTop() {
+    return pos < batch.size();
+  }
+
+  @Override
+  public synchronized Key getTopKey() {
+    return batch.getKey(pos);
+  }
+
+  @Override
+  public synchronized Value getTopValue() {
+    return batch.getValue(pos);
+  }
+
+  @Override
+  public synchronized SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+    return new BatchBufferingIterator(source.deepCopy(env), batch.capacity());
+  }
+
+  @Override
+  public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.io.IOException;
+
+/**
+ * An optional interface for system iterators that can hand back many key/values per call, so that the layers of the system iterator stack pass arrays of
+ * references to each other instead of making several virtual calls per key.
+ *
+ * <p>
+ * Keys and values added to a batch, or returned as the top key/value, must not be modified afterwards by the iterator or its sources, because the caller holds
+ * on to them after the iterator has moved on. Sources that do not implement this interface make no such promise, so the per key fallback in
+ * {@link KeyValueBatch#fill(org.apache.accumulo.core.iterators.SortedKeyValueIterator, KeyValueBatch)} copies what it reads from them. Iterators that pass
+ * through what another iterator returns only keep the promise when that iterator does, which they report through {@link #hasStableEntries()}.
+ */
+public interface BatchedIterator {
+
+  /**
+   * Adds key/values to the batch, beginning with the current top, until the batch is full or this iterator runs out. Afterwards this iterator is positioned on
+   * the first key/value that was not added.
+   *
+   * @return the number of key/values added, which is zero only when there is no top
+   */
+  int nextBatch(KeyValueBatch batch) throws IOException;
+
+  /**
+   * @return true if the top key/value is never modified after this iterator moves on, so it can be added to a batch without copying it
+   */
+  default boolean hasStableEntries() {
+    return true;
+  }
+}
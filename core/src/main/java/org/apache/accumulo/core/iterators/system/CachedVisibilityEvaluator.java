@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import java.util.function.Predicate;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.security.impl.CompiledVisibility;
+import org.apache.accumulo.core.util.BadArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Decides if column visibilities are visible with a set of authorizations. The results are kept in a cache, bounded by the bytes of the expressions it holds,
+ * that is shared by every scan in the process, so a new scan does not parse and evaluate the expressions that earlier scans with the same authorizations
+ * already did.
+ */
+public class CachedVisibilityEvaluator implements Predicate<ByteSequence> {
+
+  private static final Logger log = LoggerFactory.getLogger(CachedVisibilityEvaluator.class);
+
+  // the cache size until a tablet server sets tserver.cache.visibility.size
+  static final long DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+  // what a cached result takes besides the bytes of its expression: the key, the copied expression and the cache's entry
+  static final int ENTRY_OVERHEAD = 96;
+
+  private static final Cache<EvaluationKey,Boolean> cache = Caffeine.newBuilder().maximumWeight(DEFAULT_CACHE_SIZE)
+      .weigher((EvaluationKey key, Boolean visible) -> key.expression.length() + ENTRY_OVERHEAD).build();
+
+  /**
+   * Sets the most bytes the shared cache of evaluations may use.
+   */
+  public static void setCacheSize(long bytes) {
+    cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(bytes));
+  }
+
+  /**
+   * An expression evaluated with a set of authorizations.
+   */
+  private static class EvaluationKey {
+    private final Authorizations authorizations;
+    private final ByteSequence expression;
+    private final int hash;
+
+    EvaluationKey(Authorizations authorizations, int authorizationsHash, ByteSequence expression) {
+      this.authorizations = authorizations;
+      this.expression = expression;
+      this.hash = 31 * authorizationsHash + expression.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (!(o instanceof EvaluationKey))
+        return false;
+      EvaluationKey other = (EvaluationKey) o;
+      return hash == other.hash && expression.equals(other.expression)
+          && (authorizations == other.authorizations || authorizations.equals(other.authorizations));
+    }
+  }
+
+  private final Authorizations authorizations;
+  // hashing the authorizations walks all of them, so it is done once instead of for every lookup
+  private final int authorizationsHash;
+  private final ByteSequence defaultVisibility;
+
+  public CachedVisibilityEvaluator(Authorizations authorizations, byte[] defaultVisibility) {
+    this.authorizations = authorizations;
+    this.authorizationsHash = authorizations.hashCode();
+    this.defaultVisibility = new ArrayByteSequence(defaultVisibility);
+  }
+
+  public Authorizations getAuthorizations() {
+    return authorizations;
+  }
+
+  public ByteSequence getDefaultVisibility() {
+    return defaultVisibility;
+  }
+
+  /**
+   * @return true if a key with the given column visibility may be seen. An empty visibility is evaluated as the default visibility.
+   */
+  @Override
+  public boolean test(ByteSequence visibility) {
+    ByteSequence testVis = visibility;
+
+    if (testVis.length() == 0 && defaultVisibility.length() == 0)
+      return true;
+    else if (testVis.length() == 0)
+      testVis = defaultVisibility;
+
+    Boolean b = cache.getIfPresent(new EvaluationKey(authorizations, authorizationsHash, testVis));
+    if (b != null)
+      return b;
+
+    try {
+      Boolean bb = CompiledVisibility.compile(testVis).evaluate(authorizations);
+      // copy the expression, the cache outlives whatever array it came from
+      cache.put(new EvaluationKey(authorizations, authorizationsHash, new ArrayByteSequence(testVis)), bb);
+      return bb;
+    } catch (VisibilityParseException | BadArgumentException e) {
+      log.error("Parse Error", e);
+      return false;
+    }
+  }
+}
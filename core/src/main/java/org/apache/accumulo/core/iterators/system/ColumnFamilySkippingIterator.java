@@ -32,7 +32,10 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.ServerSkippingIterator;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class ColumnFamilySkippingIterator extends ServerSkippingIterator implements InterruptibleIterator {
+public class ColumnFamilySkippingIterator extends ServerSkippingIterator implements InterruptibleIterator, BatchedIterator {
+
+  // how many key/values nextBatch reads from the source before it checks whether to seek, the same number of times consume() calls next before seeking
+  private static final int MIN_FILTERED_READ = 10;
 
   protected Set<ByteSequence> colFamSet = null;
   protected TreeSet<ByteSequence> sortedColFams = null;
@@ -87,6 +90,41 @@ public class ColumnFamilySkippingIterator extends ServerSkippingIterator impleme
       }
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    if (!inclusive && (colFamSet == null || colFamSet.isEmpty()))
+      return KeyValueBatch.fill(source, batch);
+
+    int start = batch.size();
+    int limit = batch.getLimit();
+    int chunk = MIN_FILTERED_READ;
+    try {
+      while (batch.size() < limit && source.hasTop()) {
+        // reads a little at a time while families are being dropped, so that consume() gets to seek past them instead of them being read into the batch
+        int first = batch.size();
+        batch.setLimit(Math.min(limit, first + chunk));
+        int added = KeyValueBatch.fill(source, batch);
+
+        int kept = first;
+        for (int i = first; i < batch.size(); i++) {
+          Key key = batch.getKey(i);
+          if (colFamSet.contains(key.getColumnFamilyData()) == inclusive)
+            batch.set(kept++, key, batch.getValue(i));
+        }
+        batch.truncate(kept);
+
+        chunk = kept - first == added ? chunk * 2 : MIN_FILTERED_READ;
+
+        // skips, seeking if needed, to the next family that is wanted
+        consume();
+      }
+    } finally {
+      batch.setLimit(limit);
+    }
+
+    return batch.size() - start;
+  }
+
   private void reseek(Key key) throws IOException {
     if (range.afterEndKey(key)) {
       range = new Range(range.getEndKey(), true, range.getEndKey(), range.isEndKeyInclusive());
@@ -25,7 +25,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 
-public class CountingIterator extends WrappingIterator {
+public class CountingIterator extends WrappingIterator implements BatchedIterator {
 
   private long count;
 
@@ -55,6 +55,13 @@ public class CountingIterator extends WrappingIterator {
     count++;
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int added = KeyValueBatch.fill(getSource(), batch);
+    count += added;
+    return added;
+  }
+
   public long getCount() {
     return count;
   }
@@ -30,7 +30,7 @@ import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.ServerWrappingIterator;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class DeletingIterator extends ServerWrappingIterator {
+public class DeletingIterator extends ServerWrappingIterator implements BatchedIterator {
   private boolean propogateDeletes;
   private Key workKey = new Key();
 
@@ -77,6 +77,44 @@ public class DeletingIterator extends ServerWrappingIterator {
     }
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int start = batch.size();
+
+    while (!batch.isFull() && source.hasTop()) {
+      int first = batch.size();
+      KeyValueBatch.fill(source, batch);
+
+      // a delete hides the rest of its row and column, which may carry on past the end of what the source added
+      Key hiddenBy = null;
+      int kept = first;
+      for (int i = first; i < batch.size(); i++) {
+        Key key = batch.getKey(i);
+        if (hiddenBy != null && key.equals(hiddenBy, PartialKey.ROW_COLFAM_COLQUAL_COLVIS))
+          continue;
+
+        hiddenBy = null;
+        if (key.isDeleted()) {
+          hiddenBy = key;
+          if (!propogateDeletes)
+            continue;
+        }
+
+        batch.set(kept++, key, batch.getValue(i));
+      }
+      batch.truncate(kept);
+
+      if (hiddenBy != null) {
+        while (source.hasTop() && source.getTopKey().equals(hiddenBy, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+          source.next();
+        }
+      }
+      findTop();
+    }
+
+    return batch.size() - start;
+  }
+
   private void findTop() throws IOException {
     if (!propogateDeletes) {
       while (source.hasTop() && source.getTopKey().isDeleted()) {
@@ -17,117 +17,245 @@
 package org.apache.accumulo.core.iterators.system;
 
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
 /**
- * Constructs a {@link PriorityQueue} of multiple SortedKeyValueIterators. Provides a simple way to interact with multiple SortedKeyValueIterators in sorted
- * order.
+ * Merges multiple SortedKeyValueIterators into one sorted stream. Provides a simple way to interact with multiple SortedKeyValueIterators in sorted order.
+ *
+ * <p>
+ * The sources are kept in a loser tree (a tournament tree where each internal node remembers the loser of the match played there). When the top source is
+ * advanced, the smallest key among the other sources is cached, so as long as the top source keeps producing keys that sort before it only one comparison is
+ * needed per key. This is the common case when a tablet has one large file and a few small ones. When the top source does lose, it replays its path to the root
+ * which costs one comparison per level, instead of removing and re-adding to a binary heap.
  */
-public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value> {
-  private PriorityQueue<SortedKeyValueIterator<Key,Value>> heap;
+public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value>, BatchedIterator {
+  // sources in the tournament, exhausted sources are set to null and dropped the next time the tree is built
+  private SortedKeyValueIterator<Key,Value>[] sources;
+  private int size = 0;
+  // losers[0] is the index of the overall winner, losers[1..size-1] are the losers of the match at each internal node
+  private int[] losers;
+  // scratch space for building the tree
+  private int[] winners;
+  // set when sources were added and the tree needs to be built before it is used
+  private boolean rebuild = false;
+
   private SortedKeyValueIterator<Key,Value> topIdx = null;
   private Key nextKey;
 
-  private static class SKVIComparator implements Comparator<SortedKeyValueIterator<Key,Value>> {
-
-    @Override
-    public int compare(SortedKeyValueIterator<Key,Value> o1, SortedKeyValueIterator<Key,Value> o2) {
-      return o1.getTopKey().compareTo(o2.getTopKey());
-    }
-  }
-
   protected HeapIterator() {
-    heap = null;
+    sources = null;
   }
 
   protected HeapIterator(int maxSize) {
     createHeap(maxSize);
   }
 
+  @SuppressWarnings("unchecked")
   protected void createHeap(int maxSize) {
-    if (heap != null)
+    if (sources != null)
       throw new IllegalStateException("heap already exist");
 
-    heap = new PriorityQueue<>(maxSize == 0 ? 1 : maxSize, new SKVIComparator());
+    int capacity = maxSize == 0 ? 1 : maxSize;
+    sources = new SortedKeyValueIterator[capacity];
+    losers = new int[capacity];
+    winners = new int[capacity * 2];
   }
 
   @Override
   final public Key getTopKey() {
+    if (rebuild)
+      build();
     return topIdx.getTopKey();
   }
 
   @Override
   final public Value getTopValue() {
+    if (rebuild)
+      build();
     return topIdx.getTopValue();
   }
 
   @Override
   final public boolean hasTop() {
+    if (rebuild)
+      build();
     return topIdx != null;
   }
 
   @Override
   final public void next() throws IOException {
+    if (rebuild)
+      build();
+
     if (topIdx == null) {
       throw new IllegalStateException("Called next() when there is no top");
     }
 
     topIdx.next();
     if (!topIdx.hasTop()) {
+      // drop the exhausted source from the tournament
+      sources[losers[0]] = null;
       if (nextKey == null) {
         // No iterators left
         topIdx = null;
         return;
       }
-
-      pullReferencesFromHeap();
     } else {
       if (nextKey == null) {
         // topIdx is the only iterator
         return;
       }
 
-      if (nextKey.compareTo(topIdx.getTopKey()) < 0) {
-        // Grab the next top iterator and put the current top iterator back on the heap
-        // This updating of references is special-cased to save on percolation on edge cases
-        // since the current top is guaranteed to not be the minimum
-        SortedKeyValueIterator<Key,Value> nextTopIdx = heap.remove();
-        heap.add(topIdx);
+      if (nextKey.compareTo(topIdx.getTopKey()) >= 0) {
+        // the current top still sorts before every other source, so the tree does not change
+        return;
+      }
+    }
 
-        topIdx = nextTopIdx;
-        nextKey = heap.peek().getTopKey();
+    replay(losers[0]);
+  }
+
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    if (rebuild)
+      build();
+
+    int start = batch.size();
+    while (topIdx != null && !batch.isFull()) {
+      if (nextKey == null) {
+        // only one source is left, so it can fill the rest of the batch itself
+        KeyValueBatch.fill(topIdx, batch);
+        if (!topIdx.hasTop()) {
+          sources[losers[0]] = null;
+          topIdx = null;
+        }
+        break;
       }
+
+      batch.addTop(topIdx);
+      next();
     }
+
+    return batch.size() - start;
   }
 
-  private void pullReferencesFromHeap() {
-    topIdx = heap.remove();
-    if (!heap.isEmpty()) {
-      nextKey = heap.peek().getTopKey();
-    } else {
+  @Override
+  public boolean hasStableEntries() {
+    if (rebuild)
+      build();
+    // the top of the current source is handed out as it is
+    return topIdx == null || KeyValueBatch.hasStableEntries(topIdx);
+  }
+
+  /**
+   * @return true if the source at index a should be returned before the source at index b. Exhausted sources sort after everything.
+   */
+  private boolean before(int a, int b) {
+    SortedKeyValueIterator<Key,Value> sa = sources[a];
+    SortedKeyValueIterator<Key,Value> sb = sources[b];
+    if (sa == null)
+      return false;
+    if (sb == null)
+      return true;
+    return sa.getTopKey().compareTo(sb.getTopKey()) < 0;
+  }
+
+  /**
+   * Plays the matches on the path from a leaf whose key changed to the root.
+   */
+  private void replay(int leaf) {
+    int candidate = leaf;
+    for (int node = (leaf + size) >>> 1; node > 0; node >>>= 1) {
+      int loser = losers[node];
+      if (before(loser, candidate)) {
+        losers[node] = candidate;
+        candidate = loser;
+      }
+    }
+
+    losers[0] = candidate;
+    pullReferencesFromTree();
+  }
+
+  private void build() {
+    rebuild = false;
+
+    // drop any exhausted sources
+    int live = 0;
+    for (int i = 0; i < size; i++) {
+      if (sources[i] != null)
+        sources[live++] = sources[i];
+    }
+    Arrays.fill(sources, live, size, null);
+    size = live;
+
+    if (size == 0) {
+      topIdx = null;
+      nextKey = null;
+      return;
+    }
+
+    for (int i = 0; i < size; i++)
+      winners[size + i] = i;
+
+    for (int node = size - 1; node > 0; node--) {
+      int left = winners[node * 2];
+      int right = winners[node * 2 + 1];
+      if (before(right, left)) {
+        winners[node] = right;
+        losers[node] = left;
+      } else {
+        winners[node] = left;
+        losers[node] = right;
+      }
+    }
+
+    losers[0] = size == 1 ? 0 : winners[1];
+    pullReferencesFromTree();
+  }
+
+  private void pullReferencesFromTree() {
+    int winner = losers[0];
+    topIdx = sources[winner];
+    if (topIdx == null) {
       nextKey = null;
+      return;
     }
+
+    // only sources that lost directly to the winner can be second, and those are the losers on the winner's path
+    int second = -1;
+    for (int node = (winner + size) >>> 1; node > 0; node >>>= 1) {
+      int loser = losers[node];
+      if (sources[loser] != null && (second == -1 || before(loser, second)))
+        second = loser;
+    }
+
+    nextKey = second == -1 ? null : sources[second].getTopKey();
   }
 
   final protected void clear() {
-    heap.clear();
+    Arrays.fill(sources, 0, size, null);
+    size = 0;
+    rebuild = false;
     topIdx = null;
     nextKey = null;
   }
 
   final protected void addSource(SortedKeyValueIterator<Key,Value> source) {
     if (source.hasTop()) {
-      heap.add(source);
-      if (topIdx != null) {
-        heap.add(topIdx);
+      if (size == sources.length) {
+        int capacity = size * 2;
+        sources = Arrays.copyOf(sources, capacity);
+        losers = new int[capacity];
+        winners = new int[capacity * 2];
       }
 
-      pullReferencesFromHeap();
+      sources[size++] = source;
+      rebuild = true;
     }
   }
 }
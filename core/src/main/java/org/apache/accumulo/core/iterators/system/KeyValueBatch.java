@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * A reusable array of key/value references passed between {@link BatchedIterator}s. Iterators that filter do so in place, by moving the entries they keep
+ * toward the front with {@link #set(int, Key, Value)} and then calling {@link #truncate(int)}.
+ */
+public final class KeyValueBatch {
+
+  private final Key[] keys;
+  private final Value[] values;
+  private int size = 0;
+  private int limit;
+
+  public KeyValueBatch(int capacity) {
+    checkArgument(capacity > 0, "capacity must be positive");
+    this.keys = new Key[capacity];
+    this.values = new Value[capacity];
+    this.limit = capacity;
+  }
+
+  public int capacity() {
+    return keys.length;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Sets how many entries the batch holds before it is considered full, which lets a caller ask for less than the capacity.
+   */
+  public void setLimit(int limit) {
+    checkArgument(limit > 0 && limit <= keys.length, "limit %s not in [1,%s]", limit, keys.length);
+    this.limit = limit;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size >= limit;
+  }
+
+  public Key getKey(int i) {
+    return keys[i];
+  }
+
+  public Value getValue(int i) {
+    return values[i];
+  }
+
+  public void add(Key key, Value value) {
+    keys[size] = key;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * @return true if the source is a {@link BatchedIterator} whose top key/value is not modified after it moves on
+   */
+  public static boolean hasStableEntries(SortedKeyValueIterator<Key,Value> source) {
+    return source instanceof BatchedIterator && ((BatchedIterator) source).hasStableEntries();
+  }
+
+  /**
+   * Adds the top key/value of the source. A source without stable entries may reuse its top key and value when it moves on, as the map file reader does, so
+   * those are copied.
+   */
+  void addTop(SortedKeyValueIterator<Key,Value> source) {
+    if (hasStableEntries(source))
+      add(source.getTopKey(), source.getTopValue());
+    else
+      add(new Key(source.getTopKey()), new Value(source.getTopValue()));
+  }
+
+  public void set(int i, Key key, Value value) {
+    keys[i] = key;
+    values[i] = value;
+  }
+
+  /**
+   * Drops every entry at or after the given index.
+   */
+  public void truncate(int newSize) {
+    Arrays.fill(keys, newSize, size, null);
+    Arrays.fill(values, newSize, size, null);
+    size = newSize;
+  }
+
+  public void clear() {
+    truncate(0);
+  }
+
+  /**
+   * Adds key/values from the source until the batch is full or the source runs out, using {@link BatchedIterator#nextBatch(KeyValueBatch)} when the source
+   * supports it and the per key protocol, copying each key/value, otherwise.
+   *
+   * @return the number of key/values added
+   */
+  public static int fill(SortedKeyValueIterator<Key,Value> source, KeyValueBatch batch) throws IOException {
+    if (source instanceof BatchedIterator) {
+      return ((BatchedIterator) source).nextBatch(batch);
+    }
+
+    int start = batch.size;
+    while (!batch.isFull() && source.hasTop()) {
+      batch.addTop(source);
+      source.next();
+    }
+    return batch.size - start;
+  }
+}
@@ -65,6 +65,12 @@ public class LocalityGroupIterator extends HeapIterator implements Interruptible
       return iterator;
     }
 
+    /**
+     * Called with the column families of a seek before this group's iterator is seeked. Groups that can pass over data containing none of the wanted families
+     * may override this. The iterator is still seeked without column families, so the data it returns must still be filtered.
+     */
+    protected void setColumnFamilyFilter(Set<ByteSequence> columnFamilies, boolean inclusive) {}
+
     protected boolean isDefaultLocalityGroup;
     protected Map<ByteSequence,MutableLong> columnFamilies;
     private InterruptibleIterator iterator;
@@ -225,6 +231,7 @@ public class LocalityGroupIterator extends HeapIterator implements Interruptible
     }
 
     for (LocalityGroup lgr : groups) {
+      lgr.setColumnFamilyFilter(cfSet, inclusive);
       lgr.getIterator().seek(range, EMPTY_CF_SET, false);
       hiter.addSource(lgr.getIterator());
     }
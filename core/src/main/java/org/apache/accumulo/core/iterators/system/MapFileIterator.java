@@ -78,7 +78,11 @@ public class MapFileIterator implements FileSKVIterator {
     if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get())
       throw new IterationInterruptedException();
 
-    reader.next(topKey, topValue);
+    // the reader fills in the same key and value every time
+    if (!reader.next(topKey, topValue)) {
+      topKey = null;
+      topValue = null;
+    }
   }
 
   @Override
@@ -98,7 +102,14 @@ public class MapFileIterator implements FileSKVIterator {
       key = new Key();
     }
 
-    reader.seek(key);
+    topValue = new Value();
+    Key closest = (Key) reader.getClosest(key, topValue);
+    if (closest == null) {
+      topKey = null;
+      topValue = null;
+    } else {
+      topKey = new Key(closest);
+    }
 
     while (hasTop() && range.beforeStartKey(getTopKey())) {
       next();
@@ -38,7 +38,7 @@ import org.apache.accumulo.core.iterators.YieldCallback;
  * (InMemoryMap that was minor compacted to a file). Clients reading from a table that has data in memory should not see interruption in their scan when that
  * data is minor compacted. This iterator is designed to manage this behind the scene.
  */
-public class SourceSwitchingIterator implements InterruptibleIterator {
+public class SourceSwitchingIterator implements InterruptibleIterator, BatchedIterator {
 
   public interface DataSource {
     boolean isCurrent();
@@ -140,6 +140,38 @@ public class SourceSwitchingIterator implements InterruptibleIterator {
     }
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    synchronized (copies) {
+      int start = batch.size();
+
+      // switching, yielding and row isolation are checked on every key, so those take the per key path
+      if (onlySwitchAfterRow || yield.isPresent() || !source.isCurrent()) {
+        while (key != null && !batch.isFull()) {
+          // the key is already a copy, and the source may change on any key
+          batch.add(key, KeyValueBatch.hasStableEntries(iter) ? val : new Value(val));
+          readNext(false);
+        }
+        return batch.size() - start;
+      }
+
+      if (key == null)
+        return 0;
+
+      // the source is positioned on the current top, and a switch can not happen while the lock on copies is held
+      KeyValueBatch.fill(iter, batch);
+      readTop();
+      return batch.size() - start;
+    }
+  }
+
+  @Override
+  public boolean hasStableEntries() {
+    synchronized (copies) {
+      return iter == null || KeyValueBatch.hasStableEntries(iter);
+    }
+  }
+
   private void readNext(boolean initialSeek) throws IOException {
 
     // we need to check here if we were yielded in case the source was switched out and re-seeked by someone else (minor compaction/InMemoryMap)
@@ -168,6 +200,10 @@ public class SourceSwitchingIterator implements InterruptibleIterator {
       }
     }
 
+    readTop();
+  }
+
+  private void readTop() throws IOException {
     if (iter.hasTop()) {
       if (yield.isPresent() && yield.get().hasYielded()) {
         throw new IOException("Coding error: hasTop returned true but has yielded at " + yield.get().getPositionAndReset());
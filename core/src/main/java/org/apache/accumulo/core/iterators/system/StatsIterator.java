@@ -31,7 +31,7 @@ import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 /**
  *
  */
-public class StatsIterator extends ServerWrappingIterator {
+public class StatsIterator extends ServerWrappingIterator implements BatchedIterator {
 
   private int numRead = 0;
   private AtomicLong seekCounter;
@@ -54,6 +54,19 @@ public class StatsIterator extends ServerWrappingIterator {
     }
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    int added = KeyValueBatch.fill(source, batch);
+    numRead += added;
+
+    if (numRead >= 23) {
+      readCounter.addAndGet(numRead);
+      numRead = 0;
+    }
+
+    return added;
+  }
+
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     return new StatsIterator(source.deepCopy(env), seekCounter, readCounter);
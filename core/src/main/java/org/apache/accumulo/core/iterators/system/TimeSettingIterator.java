@@ -29,7 +29,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
-public class TimeSettingIterator implements InterruptibleIterator {
+public class TimeSettingIterator implements InterruptibleIterator, BatchedIterator {
 
   private SortedKeyValueIterator<Key,Value> source;
   private long time;
@@ -72,6 +72,33 @@ public class TimeSettingIterator implements InterruptibleIterator {
     source.next();
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    if (!hasTop())
+      return 0;
+
+    int start = batch.size();
+    KeyValueBatch.fill(source, batch);
+
+    // setting the time can not reorder keys, so once one is past the end of the range the rest are too
+    int end = start;
+    while (end < batch.size()) {
+      Key key = batch.getKey(end);
+      key.setTimestamp(time);
+      if (range.afterEndKey(key))
+        break;
+      end++;
+    }
+    batch.truncate(end);
+
+    return end - start;
+  }
+
+  @Override
+  public boolean hasStableEntries() {
+    return KeyValueBatch.hasStableEntries(source);
+  }
+
   @Override
   public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
     Range seekRange = IteratorUtil.maximizeStartKeyTimeStamp(range);
@@ -16,70 +16,38 @@
  */
 package org.apache.accumulo.core.iterators.system;
 
-import org.apache.accumulo.core.data.ArrayByteSequence;
-import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SynchronizedServerFilter;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
-import org.apache.accumulo.core.security.VisibilityParseException;
-import org.apache.accumulo.core.util.BadArgumentException;
-import org.apache.commons.collections.map.LRUMap;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * A SortedKeyValueIterator that filters based on ColumnVisibility and optimized for use with system iterators. Prior to 2.0, this class extended
  * {@link org.apache.accumulo.core.iterators.Filter} and all system iterators where wrapped with a <code>SynchronizedIterator</code> during creation of the
  * iterator stack in {@link org.apache.accumulo.core.iterators.IteratorUtil} .loadIterators(). For performance reasons, the synchronization was pushed down the
  * stack to this class.
+ *
+ * <p>
+ * Evaluated visibilities are cached by {@link CachedVisibilityEvaluator}, which shares the results between all filters using the same authorizations.
  */
 public class VisibilityFilter extends SynchronizedServerFilter {
-  protected VisibilityEvaluator ve;
-  protected ByteSequence defaultVisibility;
-  protected LRUMap cache;
-  protected Authorizations authorizations;
-
-  private static final Logger log = LoggerFactory.getLogger(VisibilityFilter.class);
+  protected CachedVisibilityEvaluator evaluator;
 
   private VisibilityFilter(SortedKeyValueIterator<Key,Value> iterator, Authorizations authorizations, byte[] defaultVisibility) {
     super(iterator);
-    this.ve = new VisibilityEvaluator(authorizations);
-    this.authorizations = authorizations;
-    this.defaultVisibility = new ArrayByteSequence(defaultVisibility);
-    this.cache = new LRUMap(1000);
+    this.evaluator = new CachedVisibilityEvaluator(authorizations, defaultVisibility);
   }
 
   @Override
   public synchronized SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
-    return new VisibilityFilter(source.deepCopy(env), authorizations, defaultVisibility.toArray());
+    return new VisibilityFilter(source.deepCopy(env), evaluator.getAuthorizations(), evaluator.getDefaultVisibility().toArray());
   }
 
   @Override
   protected boolean accept(Key k, Value v) {
-    ByteSequence testVis = k.getColumnVisibilityData();
-
-    if (testVis.length() == 0 && defaultVisibility.length() == 0)
-      return true;
-    else if (testVis.length() == 0)
-      testVis = defaultVisibility;
-
-    Boolean b = (Boolean) cache.get(testVis);
-    if (b != null)
-      return b;
-
-    try {
-      Boolean bb = ve.evaluate(new ColumnVisibility(testVis.toArray()));
-      cache.put(testVis, bb);
-      return bb;
-    } catch (VisibilityParseException | BadArgumentException e) {
-      log.error("Parse Error", e);
-      return false;
-    }
+    return evaluator.test(k.getColumnVisibilityData());
   }
 
   private static class EmptyAuthsVisibilityFilter extends SynchronizedServerFilter {
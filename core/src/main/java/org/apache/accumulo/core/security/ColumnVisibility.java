@@ -28,6 +28,7 @@ import java.util.TreeSet;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.impl.CompiledVisibility;
 import org.apache.accumulo.core.util.BadArgumentException;
 import org.apache.accumulo.core.util.TextUtil;
 import org.apache.hadoop.io.Text;
@@ -74,6 +75,8 @@ public class ColumnVisibility {
 
   Node node = null;
   private byte[] expression;
+  // set the first time this visibility is evaluated
+  private CompiledVisibility compiled = null;
 
   /**
    * Accessor for the underlying byte string.
@@ -506,6 +509,15 @@ public class ColumnVisibility {
     return node;
   }
 
+  /**
+   * Gets the compiled form of this visibility, compiling it the first time.
+   */
+  CompiledVisibility getCompiled() throws VisibilityParseException {
+    if (compiled == null)
+      compiled = CompiledVisibility.compile(this);
+    return compiled;
+  }
+
   /**
    * Properly quotes terms in a column visibility expression. If no quoting is needed, then nothing is done.
    *
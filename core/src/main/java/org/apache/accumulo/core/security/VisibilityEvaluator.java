@@ -16,89 +16,18 @@
  */
 package org.apache.accumulo.core.security;
 
-import java.util.ArrayList;
-
-import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
-import org.apache.accumulo.core.security.ColumnVisibility.Node;
+import org.apache.accumulo.core.security.impl.CompiledVisibility;
 
 /**
- * A class which evaluates visibility expressions against a set of authorizations.
+ * A class which evaluates visibility expressions against a set of authorizations. Expressions are compiled into a flat program the first time they are evaluated.
  */
 public class VisibilityEvaluator {
+  // authorizations in their unescaped form, terms are unescaped when expressions are compiled
   private AuthorizationContainer auths;
 
-  /**
-   * Authorizations in column visibility expression are in escaped form. Column visibility parsing does not unescape. This class wraps an AuthorizationContainer
-   * and unescapes auths before checking the wrapped container.
-   */
-  private static class UnescapingAuthorizationContainer implements AuthorizationContainer {
-
-    private AuthorizationContainer wrapped;
-
-    UnescapingAuthorizationContainer(AuthorizationContainer wrapee) {
-      this.wrapped = wrapee;
-    }
-
-    @Override
-    public boolean contains(ByteSequence auth) {
-      return wrapped.contains(unescape(auth));
-    }
-  }
-
   static ByteSequence unescape(ByteSequence auth) {
-    int escapeCharCount = 0;
-    for (int i = 0; i < auth.length(); i++) {
-      byte b = auth.byteAt(i);
-      if (b == '"' || b == '\\') {
-        escapeCharCount++;
-      }
-    }
-
-    if (escapeCharCount > 0) {
-      if (escapeCharCount % 2 == 1) {
-        throw new IllegalArgumentException("Illegal escape sequence in auth : " + auth);
-      }
-
-      byte[] unescapedCopy = new byte[auth.length() - escapeCharCount / 2];
-      int pos = 0;
-      for (int i = 0; i < auth.length(); i++) {
-        byte b = auth.byteAt(i);
-        if (b == '\\') {
-          i++;
-          b = auth.byteAt(i);
-          if (b != '"' && b != '\\') {
-            throw new IllegalArgumentException("Illegal escape sequence in auth : " + auth);
-          }
-        } else if (b == '"') {
-          // should only see quote after a slash
-          throw new IllegalArgumentException("Illegal escape sequence in auth : " + auth);
-        }
-
-        unescapedCopy[pos++] = b;
-      }
-
-      return new ArrayByteSequence(unescapedCopy);
-    } else {
-      return auth;
-    }
-  }
-
-  /**
-   * Creates a new {@link Authorizations} object with escaped forms of the authorizations in the given object.
-   *
-   * @param auths
-   *          original authorizations
-   * @return authorizations object with escaped authorization strings
-   * @see #escape(byte[], boolean)
-   */
-  static Authorizations escape(Authorizations auths) {
-    ArrayList<byte[]> retAuths = new ArrayList<>(auths.getAuthorizations().size());
-
-    for (byte[] auth : auths.getAuthorizations())
-      retAuths.add(escape(auth, false));
-
-    return new Authorizations(retAuths);
+    return CompiledVisibility.unescape(auth);
   }
 
   /**
@@ -142,18 +71,18 @@ public class VisibilityEvaluator {
    * @since 1.7.0
    */
   public VisibilityEvaluator(AuthorizationContainer authsContainer) {
-    this.auths = new UnescapingAuthorizationContainer(authsContainer);
+    this.auths = authsContainer;
   }
 
   /**
-   * Creates a new evaluator for the given collection of authorizations. Each authorization string is escaped before handling, and the original strings are
-   * unchanged.
+   * Creates a new evaluator for the given collection of authorizations. The authorizations are used as given, escaped terms in expressions are unescaped
+   * before being looked up.
    *
    * @param authorizations
    *          authorizations object
    */
   public VisibilityEvaluator(Authorizations authorizations) {
-    this.auths = escape(authorizations);
+    this.auths = authorizations;
   }
 
   /**
@@ -167,34 +96,6 @@ public class VisibilityEvaluator {
    *           if an AND or OR subexpression has less than two children, or a subexpression is of an unknown type
    */
   public boolean evaluate(ColumnVisibility visibility) throws VisibilityParseException {
-    // The VisibilityEvaluator computes a trie from the given Authorizations, that ColumnVisibility expressions can be evaluated against.
-    return evaluate(visibility.getExpression(), visibility.getParseTree());
-  }
-
-  private final boolean evaluate(final byte[] expression, final Node root) throws VisibilityParseException {
-    if (expression.length == 0)
-      return true;
-    switch (root.type) {
-      case TERM:
-        return auths.contains(root.getTerm(expression));
-      case AND:
-        if (root.children == null || root.children.size() < 2)
-          throw new VisibilityParseException("AND has less than 2 children", expression, root.start);
-        for (Node child : root.children) {
-          if (!evaluate(expression, child))
-            return false;
-        }
-        return true;
-      case OR:
-        if (root.children == null || root.children.size() < 2)
-          throw new VisibilityParseException("OR has less than 2 children", expression, root.start);
-        for (Node child : root.children) {
-          if (evaluate(expression, child))
-            return true;
-        }
-        return false;
-      default:
-        throw new VisibilityParseException("No such node type", expression, root.start);
-    }
+    return visibility.getCompiled().evaluate(auths);
   }
 }
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import java.util.List;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.AuthorizationContainer;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.ColumnVisibility.Node;
+import org.apache.accumulo.core.security.ColumnVisibility.NodeType;
+import org.apache.accumulo.core.security.VisibilityParseException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * A visibility expression compiled into a flat program that can be evaluated against any set of authorizations without recursion or allocation.
+ *
+ * <p>
+ * The program has one instruction for each term in the expression, in the order the terms appear. An instruction checks if its term is in the authorizations
+ * and then jumps to one of two instructions depending on the result, or ends the evaluation. The jumps encode the AND and OR operators, so evaluation
+ * short-circuits the same way a walk of the parse tree does. Terms are unescaped when compiling.
+ *
+ * <p>
+ * Compiled expressions are interned, so each distinct expression is parsed and compiled once.
+ */
+public final class CompiledVisibility {
+
+  // jump targets that end evaluation
+  private static final int ACCEPT = -1;
+  private static final int REJECT = -2;
+
+  // distinct expressions kept in the intern cache
+  static final int MAX_INTERNED = 10000;
+
+  private static final Cache<ByteSequence,CompiledVisibility> interned = Caffeine.newBuilder().maximumSize(MAX_INTERNED).build();
+
+  private static final CompiledVisibility EMPTY = new CompiledVisibility(new ByteSequence[0], new int[0], new int[0]);
+
+  private final ByteSequence[] terms;
+  private final int[] onTrue;
+  private final int[] onFalse;
+
+  private CompiledVisibility(ByteSequence[] terms, int[] onTrue, int[] onFalse) {
+    this.terms = terms;
+    this.onTrue = onTrue;
+    this.onFalse = onFalse;
+  }
+
+  /**
+   * @param auths
+   *          authorizations, not escaped
+   * @return true if the authorizations satisfy the expression. An empty expression is always satisfied.
+   */
+  public boolean evaluate(AuthorizationContainer auths) {
+    if (terms.length == 0)
+      return true;
+
+    int pc = 0;
+    while (pc >= 0) {
+      pc = auths.contains(terms[pc]) ? onTrue[pc] : onFalse[pc];
+    }
+
+    return pc == ACCEPT;
+  }
+
+  /**
+   * Gets the compiled form of a visibility expression, compiling it if it has not been seen before.
+   *
+   * @throws org.apache.accumulo.core.util.BadArgumentException
+   *           if the expression does not parse
+   * @throws VisibilityParseException
+   *           if an AND or OR subexpression has less than two children
+   */
+  public static CompiledVisibility compile(ByteSequence expression) throws VisibilityParseException {
+    if (expression.length() == 0)
+      return EMPTY;
+
+    CompiledVisibility compiled = interned.getIfPresent(expression);
+    if (compiled == null) {
+      // copy the expression, the cache outlives whatever array it came from
+      ArrayByteSequence copy = new ArrayByteSequence(expression);
+      compiled = compile(copy.getBackingArray(), new ColumnVisibility(copy.getBackingArray()).getParseTree());
+      interned.put(copy, compiled);
+    }
+
+    return compiled;
+  }
+
+  /**
+   * Gets the compiled form of a parsed visibility, reusing its parse tree if the expression has not been seen before.
+   *
+   * @throws VisibilityParseException
+   *           if an AND or OR subexpression has less than two children
+   */
+  public static CompiledVisibility compile(ColumnVisibility visibility) throws VisibilityParseException {
+    byte[] expression = visibility.getExpression();
+    if (expression.length == 0)
+      return EMPTY;
+
+    CompiledVisibility compiled = interned.getIfPresent(new ArrayByteSequence(expression));
+    if (compiled == null) {
+      compiled = compile(expression, visibility.getParseTree());
+      interned.put(new ArrayByteSequence(expression.clone()), compiled);
+    }
+
+    return compiled;
+  }
+
+  private static CompiledVisibility compile(byte[] expression, Node root) throws VisibilityParseException {
+    int size = countTerms(root);
+    ByteSequence[] terms = new ByteSequence[size];
+    int[] onTrue = new int[size];
+    int[] onFalse = new int[size];
+
+    compile(expression, root, 0, ACCEPT, REJECT, terms, onTrue, onFalse);
+
+    return new CompiledVisibility(terms, onTrue, onFalse);
+  }
+
+  private static int countTerms(Node node) {
+    if (node.getType() == NodeType.TERM)
+      return 1;
+
+    int count = 0;
+    for (Node child : node.getChildren())
+      count += countTerms(child);
+    return count;
+  }
+
+  /**
+   * Emits the instructions for a node starting at pc, jumping to ifTrue or ifFalse once the node's value is known.
+   *
+   * @return the instruction after the last one emitted
+   */
+  private static int compile(byte[] expression, Node node, int pc, int ifTrue, int ifFalse, ByteSequence[] terms, int[] onTrue, int[] onFalse)
+      throws VisibilityParseException {
+    switch (node.getType()) {
+      case TERM:
+        terms[pc] = new ArrayByteSequence(unescape(node.getTerm(expression)));
+        onTrue[pc] = ifTrue;
+        onFalse[pc] = ifFalse;
+        return pc + 1;
+      case AND:
+      case OR:
+        List<Node> children = node.getChildren();
+        if (children == null || children.size() < 2)
+          throw new VisibilityParseException(node.getType() + " has less than 2 children", expression, node.getTermStart());
+
+        boolean and = node.getType() == NodeType.AND;
+        for (int i = 0; i < children.size(); i++) {
+          Node child = children.get(i);
+          boolean last = i == children.size() - 1;
+          // the first instruction of the next child, where evaluation continues when this child does not decide the node
+          int next = last ? -1 : pc + countTerms(child);
+          if (and)
+            pc = compile(expression, child, pc, last ? ifTrue : next, ifFalse, terms, onTrue, onFalse);
+          else
+            pc = compile(expression, child, pc, ifTrue, last ? ifFalse : next, terms, onTrue, onFalse);
+        }
+        return pc;
+      default:
+        throw new VisibilityParseException("No such node type", expression, node.getTermStart());
+    }
+  }
+
+  /**
+   * Removes the escaping from a term or authorization.
+   *
+   * @throws IllegalArgumentException
+   *           if the escaping is invalid
+   */
+  public static ByteSequence unescape(ByteSequence auth) {
+    int escapeCharCount = 0;
+    for (int i = 0; i < auth.length(); i++) {
+      byte b = auth.byteAt(i);
+      if (b == '"' || b == '\\') {
+        escapeCharCount++;
+      }
+    }
+
+    if (escapeCharCount > 0) {
+      if (escapeCharCount % 2 == 1) {
+        throw new IllegalArgumentException("Illegal escape sequence in auth : " + auth);
+      }
+
+      byte[] unescapedCopy = new byte[auth.length() - escapeCharCount / 2];
+      int pos = 0;
+      for (int i = 0; i < auth.length(); i++) {
+        byte b = auth.byteAt(i);
+        if (b == '\\') {
+          i++;
+          b = auth.byteAt(i);
+          if (b != '"' && b != '\\') {
+            throw new IllegalArgumentException("Illegal escape sequence in auth : " + auth);
+          }
+        } else if (b == '"') {
+          // should only see quote after a slash
+          throw new IllegalArgumentException("Illegal escape sequence in auth : " + auth);
+        }
+
+        unescapedCopy[pos++] = b;
+      }
+
+      return new ArrayByteSequence(unescapedCopy);
+    } else {
+      return auth;
+    }
+  }
+}
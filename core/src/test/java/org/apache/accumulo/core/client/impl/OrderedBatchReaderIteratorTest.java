@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.Instance;
+import org.apache.accumulo.core.client.TimedOutException;
+import org.apache.accumulo.core.client.impl.OrderedBatchReaderIterator.Piece;
+import org.apache.accumulo.core.client.impl.OrderedBatchReaderIterator.PieceScanner;
+import org.apache.accumulo.core.client.impl.TabletLocator.TabletServerMutations;
+import org.apache.accumulo.core.client.impl.ThriftScanner.ScanTimedOutException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.hadoop.io.Text;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderedBatchReaderIteratorTest {
+
+  private static final Table.ID TABLE_ID = new Table.ID("1");
+
+  /**
+   * Locates four tablets split at g, n and t, which alternate between two servers. Tablets in the unknown set can not be located, so ranges touching them are
+   * returned whole, the way the real locator returns ranges it fails to bin.
+   */
+  private static class FakeLocator extends TabletLocator {
+    final List<KeyExtent> tablets = new ArrayList<>();
+    final Set<KeyExtent> unknown = new HashSet<>();
+
+    FakeLocator() {
+      Text prev = null;
+      for (String split : new String[] {"g", "n", "t", null}) {
+        Text end = split == null ? null : new Text(split);
+        tablets.add(new KeyExtent(TABLE_ID, end, prev));
+        prev = end;
+      }
+    }
+
+    @Override
+    public List<Range> binRanges(ClientContext context, List<Range> ranges, Map<String,Map<KeyExtent,List<Range>>> binnedRanges) {
+      List<Range> failures = new ArrayList<>();
+      for (Range range : ranges) {
+        Map<KeyExtent,Range> overlapping = new HashMap<>();
+        for (KeyExtent tablet : tablets) {
+          Range clipped = tablet.toDataRange().clip(range, true);
+          if (clipped != null)
+            overlapping.put(tablet, clipped);
+        }
+
+        if (!Collections.disjoint(overlapping.keySet(), unknown)) {
+          failures.add(range);
+          continue;
+        }
+
+        for (KeyExtent tablet : overlapping.keySet()) {
+          String server = "server" + (tablets.indexOf(tablet) % 2);
+          Map<KeyExtent,List<Range>> tabletMap = binnedRanges.get(server);
+          if (tabletMap == null)
+            binnedRanges.put(server, tabletMap = new HashMap<>());
+          List<Range> tabletRanges = tabletMap.get(tablet);
+          if (tabletRanges == null)
+            tabletMap.put(tablet, tabletRanges = new ArrayList<>());
+          tabletRanges.add(range);
+        }
+      }
+      return failures;
+    }
+
+    @Override
+    public TabletLocation locateTablet(ClientContext context, Text row, boolean skipRow, boolean retry) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Mutation> void binMutations(ClientContext context, List<T> mutations, Map<String,TabletServerMutations<T>> binnedMutations,
+        List<T> failures) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void invalidateCache(KeyExtent failedExtent) {}
+
+    @Override
+    public void invalidateCache(Collection<KeyExtent> keySet) {}
+
+    @Override
+    public void invalidateCache() {}
+
+    @Override
+    public void invalidateCache(Instance instance, String server) {}
+  }
+
+  private final TreeMap<Key,Value> data = new TreeMap<>();
+  private final List<List<Range>> scannedPieces = Collections.synchronizedList(new ArrayList<List<Range>>());
+  private final Random random = new Random(5);
+  private ExecutorService pool;
+
+  @Before
+  public void setUp() {
+    for (char row = 'a'; row <= 'z'; row++) {
+      for (int col = 0; col < 5; col++) {
+        data.put(new Key("" + row, "cf", "cq" + col), new Value(row + "_" + col));
+      }
+    }
+    pool = Executors.newFixedThreadPool(3);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Reads a piece of the data two entries at a time, taking a random while to return each batch so that pieces finish out of order.
+   */
+  private Function<Piece,PieceScanner> scanners() {
+    return piece -> {
+      scannedPieces.add(piece.ranges);
+      final Iterator<Entry<Key,Value>> iter = entries(piece.ranges).iterator();
+      final int delay = random.nextInt(10);
+      return () -> {
+        Thread.sleep(delay);
+        List<KeyValue> batch = new ArrayList<>();
+        while (iter.hasNext() && batch.size() < 2) {
+          Entry<Key,Value> entry = iter.next();
+          batch.add(new KeyValue(entry.getKey(), entry.getValue()));
+        }
+        return batch.isEmpty() ? null : batch;
+      };
+    };
+  }
+
+  private List<Entry<Key,Value>> entries(List<Range> ranges) {
+    List<Entry<Key,Value>> entries = new ArrayList<>();
+    for (Entry<Key,Value> entry : data.entrySet()) {
+      for (Range range : ranges) {
+        if (range.contains(entry.getKey())) {
+          entries.add(entry);
+          break;
+        }
+      }
+    }
+    return entries;
+  }
+
+  private static List<Entry<Key,Value>> read(Iterator<Entry<Key,Value>> iter) {
+    List<Entry<Key,Value>> entries = new ArrayList<>();
+    while (iter.hasNext()) {
+      Entry<Key,Value> entry = iter.next();
+      entries.add(new KeyValue(entry.getKey(), entry.getValue()));
+    }
+    return entries;
+  }
+
+  private static void assertSameEntries(List<Entry<Key,Value>> expected, List<Entry<Key,Value>> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+      assertEquals(expected.get(i).getValue(), actual.get(i).getValue());
+    }
+  }
+
+  @Test
+  public void testMergeOrderAcrossTablets() {
+    // unsorted and overlapping ranges, several in each tablet
+    List<Range> ranges = Arrays.asList(new Range("w", "x"), new Range("b", "d"), new Range("k"), new Range("c", "h"), new Range("q", "r"), new Range("a"),
+        new Range("u", true, "v", false));
+
+    OrderedBatchReaderIterator iter = new OrderedBatchReaderIterator(null, new FakeLocator(), ranges, 1, pool, scanners());
+    List<Entry<Key,Value>> actual = read(iter);
+
+    assertFalse(actual.isEmpty());
+    assertSameEntries(entries(ranges), actual);
+    assertFalse(iter.hasNext());
+  }
+
+  @Test
+  public void testRangeSpanningServers() {
+    List<Range> ranges = Collections.singletonList(new Range("c", "x"));
+
+    OrderedBatchReaderIterator iter = new OrderedBatchReaderIterator(null, new FakeLocator(), ranges, 2, pool, scanners());
+    assertSameEntries(entries(ranges), read(iter));
+
+    // the range was split at each tablet boundary, so tablets on both servers were read in parallel pieces
+    Set<List<Range>> expectedPieces = new HashSet<>();
+    for (KeyExtent tablet : new FakeLocator().tablets)
+      expectedPieces.add(Collections.singletonList(tablet.toDataRange().clip(ranges.get(0))));
+    assertEquals(expectedPieces, new HashSet<>(scannedPieces));
+  }
+
+  @Test
+  public void testTabletRangesReadTogether() {
+    List<Range> ranges = Arrays.asList(new Range("f"), new Range("a"), new Range("k"), new Range("c", "d"));
+
+    OrderedBatchReaderIterator iter = new OrderedBatchReaderIterator(null, new FakeLocator(), ranges, 2, pool, scanners());
+    assertSameEntries(entries(ranges), read(iter));
+
+    // the ranges of the first tablet are read by one session, in order
+    Set<List<Range>> expectedPieces = new HashSet<>();
+    expectedPieces.add(Arrays.asList(new Range("a"), new Range("c", "d"), new Range("f")));
+    expectedPieces.add(Collections.singletonList(new Range("k")));
+    assertEquals(expectedPieces, new HashSet<>(scannedPieces));
+  }
+
+  @Test
+  public void testUnlocatedRangeReadWhole() {
+    FakeLocator locator = new FakeLocator();
+    locator.unknown.add(locator.tablets.get(1));
+    List<Range> ranges = Arrays.asList(new Range("b", "c"), new Range("e", "p"), new Range("y", "z"));
+
+    OrderedBatchReaderIterator iter = new OrderedBatchReaderIterator(null, locator, ranges, 2, pool, scanners());
+    assertSameEntries(entries(ranges), read(iter));
+
+    // the range that could not be located is read as one piece, left for its scan session to locate
+    assertTrue(scannedPieces.contains(Collections.singletonList(new Range("e", "p"))));
+    assertEquals(3, scannedPieces.size());
+  }
+
+  private void runFailure(final Exception failure, Class<? extends RuntimeException> expected) {
+    List<Range> ranges = Arrays.asList(new Range("a", "b"), new Range("h", "i"), new Range("o", "p"));
+    final Function<Piece,PieceScanner> scanners = scanners();
+    Function<Piece,PieceScanner> failing = piece -> {
+      final PieceScanner scanner = scanners.apply(piece);
+      if (!piece.ranges.get(0).contains(new Key("h")))
+        return scanner;
+      return () -> {
+        throw failure;
+      };
+    };
+
+    OrderedBatchReaderIterator iter = new OrderedBatchReaderIterator(null, new FakeLocator(), ranges, 2, pool, failing);
+
+    // what comes before the failed piece is returned, then the failure is thrown in order
+    List<Entry<Key,Value>> expectedEntries = entries(Collections.singletonList(ranges.get(0)));
+    for (Entry<Key,Value> entry : expectedEntries) {
+      assertTrue(iter.hasNext());
+      assertEquals(entry.getKey(), iter.next().getKey());
+    }
+    try {
+      iter.hasNext();
+      fail("expected " + expected.getSimpleName());
+    } catch (RuntimeException e) {
+      assertTrue(e.getClass().getName(), expected.isInstance(e));
+    }
+    assertFalse(iter.hasNext());
+  }
+
+  @Test
+  public void testFailedPiece() {
+    runFailure(new AccumuloException("failed"), RuntimeException.class);
+  }
+
+  @Test
+  public void testTimedOutPiece() {
+    runFailure(new ScanTimedOutException(), TimedOutException.class);
+  }
+}
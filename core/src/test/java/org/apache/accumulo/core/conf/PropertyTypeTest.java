@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.accumulo.core.file.rfile.RFile.BlockEncoding;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -99,6 +100,15 @@ public class PropertyTypeTest {
     invalid("foo12", "foo/g", "foo\\c");
   }
 
+  @Test
+  public void testTypeBLOCK_ENCODING() {
+    valid(null, "relative", "columnar", "Relative", "COLUMNAR");
+    invalid("", "column", "relative,columnar");
+    // every encoding RFile knows can be configured
+    for (BlockEncoding encoding : BlockEncoding.values())
+      valid(encoding.name().toLowerCase());
+  }
+
   @Test
   public void testTypeBOOLEAN() {
     valid(null, "True", "true", "False", "false", "tRUE", "fAlSe");
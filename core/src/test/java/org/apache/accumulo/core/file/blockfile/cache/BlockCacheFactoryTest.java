@@ -23,6 +23,7 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
 import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
 import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
+import org.apache.accumulo.core.file.blockfile.cache.tiered.TieredBlockCacheManager;
 import org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager;
 import org.junit.Assert;
 import org.junit.Test;
@@ -45,6 +46,14 @@ public class BlockCacheFactoryTest {
     BlockCacheManagerFactory.getInstance(cc);
   }
 
+  @Test
+  public void testCreateTieredBlockCacheFactory() throws Exception {
+    DefaultConfiguration dc = DefaultConfiguration.getInstance();
+    ConfigurationCopy cc = new ConfigurationCopy(dc);
+    cc.set(Property.TSERV_CACHE_MANAGER_IMPL, TieredBlockCacheManager.class.getName());
+    BlockCacheManagerFactory.getInstance(cc);
+  }
+
   @Test
   public void testStartWithDefault() throws Exception {
     DefaultConfiguration dc = DefaultConfiguration.getInstance();
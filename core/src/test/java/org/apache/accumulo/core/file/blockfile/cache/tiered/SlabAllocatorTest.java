@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SlabAllocatorTest {
+
+  @Test
+  public void testSlotSizes() {
+    SlabAllocator allocator = new SlabAllocator(1 << 20, 1024, 64 * 1024);
+    assertEquals(1024, allocator.getSlotSize(1));
+    assertEquals(1024, allocator.getSlotSize(1024));
+    assertEquals(1536, allocator.getSlotSize(1025));
+    assertEquals(2048, allocator.getSlotSize(1537));
+    assertEquals(48 * 1024, allocator.getSlotSize(33 * 1024));
+    assertEquals(64 * 1024, allocator.getSlotSize(64 * 1024));
+    assertEquals(-1, allocator.getSlotSize(64 * 1024 + 1));
+    assertEquals(-1, allocator.allocate(64 * 1024 + 1));
+  }
+
+  @Test
+  public void testFillAndFree() {
+    // four buckets of 256K
+    SlabAllocator allocator = new SlabAllocator(1 << 20, 1024, 64 * 1024);
+    assertEquals(1 << 20, allocator.getCapacity());
+
+    Set<Long> offsets = new HashSet<>();
+    List<Long> small = new ArrayList<>();
+    long offset;
+    while ((offset = allocator.allocate(1000)) >= 0) {
+      assertTrue(offsets.add(offset));
+      assertEquals(0, offset % 1024);
+      small.add(offset);
+    }
+
+    // every bucket went to the small size class
+    assertEquals(1024, small.size());
+    assertEquals(1 << 20, allocator.getUsedBytes());
+    assertEquals(-1, allocator.allocate(64 * 1024));
+
+    // freeing one slot does not free a bucket for another size class
+    allocator.free(small.get(0));
+    assertEquals(-1, allocator.allocate(64 * 1024));
+    assertEquals(small.get(0).longValue(), allocator.allocate(1000));
+
+    // freeing a whole bucket does
+    for (Long o : small) {
+      if (o < 256 * 1024)
+        allocator.free(o);
+    }
+    assertEquals(3 << 18, allocator.getUsedBytes());
+    for (int i = 0; i < 4; i++) {
+      offset = allocator.allocate(64 * 1024);
+      assertTrue(offset >= 0 && offset < 256 * 1024);
+    }
+    assertEquals(-1, allocator.allocate(64 * 1024));
+    assertEquals(1 << 20, allocator.getUsedBytes());
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
+import org.apache.accumulo.core.file.blockfile.cache.CacheType;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TieredBlockCacheTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder(new File(System.getProperty("user.dir") + "/target"));
+
+  private static final int BLOCK_SIZE = 16 * 1024;
+
+  private TieredBlockCache createCache(String l2Path) {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.TSERV_DEFAULT_BLOCKSIZE, Integer.toString(BLOCK_SIZE));
+    cc.set(Property.TSERV_DATACACHE_SIZE, Integer.toString(4 * BLOCK_SIZE));
+
+    TieredBlockCacheConfiguration.Builder builder = TieredBlockCacheConfiguration.builder(CacheType.DATA).l2Size(1 << 20).l2MaxBlockSize(64 * 1024);
+    if (l2Path != null)
+      builder.l2Path(l2Path);
+    builder.buildMap().forEach(cc::set);
+
+    TieredBlockCacheConfiguration conf = new TieredBlockCacheConfiguration(new BlockCacheConfiguration(cc), CacheType.DATA);
+    assertEquals(1 << 20, conf.getL2Size());
+    // demote on the evicting thread, so the test sees the second level change as soon as the first level evicts
+    return new TieredBlockCache(conf, Runnable::run);
+  }
+
+  private static byte[] block(int i) {
+    byte[] b = new byte[BLOCK_SIZE - 100];
+    Arrays.fill(b, (byte) i);
+    return b;
+  }
+
+  private void runTest(TieredBlockCache cache) {
+    try {
+      assertTrue(cache.getMaxHeapSize() < cache.getMaxSize());
+
+      // blocks that are requested twice before being loaded qualify for the second level
+      for (int i = 0; i < 10; i++) {
+        assertNull(cache.getBlock("hot" + i));
+        assertNull(cache.getBlock("hot" + i));
+        cache.cacheBlock("hot" + i, block(i));
+        cache.cleanUp();
+      }
+
+      // the first level only holds a few blocks, so most hot blocks were demoted
+      int hotInL2 = 0;
+      for (int i = 0; i < 10; i++) {
+        if (cache.getL2().contains("hot" + i))
+          hotInL2++;
+      }
+      assertTrue(hotInL2 >= 6);
+
+      // blocks that are only read once are dropped when evicted from the first level
+      for (int i = 0; i < 100; i++) {
+        assertNull(cache.getBlock("cold" + i));
+        cache.cacheBlock("cold" + i, block(i));
+        cache.cleanUp();
+      }
+
+      for (int i = 0; i < 100; i++) {
+        assertFalse(cache.getL2().contains("cold" + i));
+      }
+
+      // every hot block is still cached in one of the levels
+      for (int i = 0; i < 10; i++) {
+        CacheEntry ce = cache.getBlock("hot" + i);
+        assertNotNull(ce);
+        assertArrayEquals(block(i), ce.getBuffer());
+        cache.cleanUp();
+      }
+
+      assertFalse(cache.getStats().hitCount() > cache.getStats().requestCount());
+
+      // checking for a block does not count as a request
+      long requests = cache.getStats().requestCount();
+      for (int i = 0; i < 10; i++) {
+        assertTrue(cache.containsBlock("hot" + i));
+      }
+      assertFalse(cache.containsBlock("cold0"));
+      assertEquals(requests, cache.getStats().requestCount());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testWriteMoreThanSecondLevel() {
+    TieredBlockCache cache = createCache(null);
+    try {
+      // write many times the second level's size in hot blocks of several slot sizes, so the buckets fill with partly used slots of other sizes
+      int[] sizes = {BLOCK_SIZE - 100, 3 * BLOCK_SIZE / 4, 5 * BLOCK_SIZE / 2};
+      int count = 600;
+      for (int i = 0; i < count; i++) {
+        byte[] b = new byte[sizes[i % sizes.length]];
+        Arrays.fill(b, (byte) i);
+        // the last blocks are requested more often than the ones already stored, so they are admitted in their place
+        int requests = i < count - 20 ? 2 : 4;
+        for (int r = 0; r < requests; r++)
+          assertNull(cache.getBlock("hot" + i));
+        cache.cacheBlock("hot" + i, b);
+        cache.cleanUp();
+      }
+
+      // recently demoted blocks are still stored
+      int recentInL2 = 0;
+      for (int i = count - 20; i < count; i++) {
+        if (cache.getL2().contains("hot" + i))
+          recentInL2++;
+      }
+      assertTrue("only " + recentInL2 + " recent blocks in L2", recentInL2 >= 10);
+      assertTrue(cache.getL2().getUsedBytes() <= cache.getL2().getCapacity());
+
+      for (int i = count - 20; i < count; i++) {
+        CacheEntry ce = cache.getBlock("hot" + i);
+        assertNotNull(ce);
+        assertEquals(sizes[i % sizes.length], ce.getBuffer().length);
+        assertEquals((byte) i, ce.getBuffer()[0]);
+        cache.cleanUp();
+      }
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testPromotionRemovesFromSecondLevel() {
+    TieredBlockCache cache = createCache(null);
+    try {
+      for (int i = 0; i < 10; i++) {
+        assertNull(cache.getBlock("hot" + i));
+        assertNull(cache.getBlock("hot" + i));
+        cache.cacheBlock("hot" + i, block(i));
+        cache.cleanUp();
+      }
+
+      for (int i = 0; i < 10; i++) {
+        if (cache.getL2().contains("hot" + i)) {
+          CacheEntry ce = cache.getBlock("hot" + i);
+          assertNotNull(ce);
+          assertArrayEquals(block(i), ce.getBuffer());
+          // the block is only kept in the first level now
+          assertFalse(cache.getL2().contains("hot" + i));
+          return;
+        }
+      }
+      fail("no block was demoted");
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testSecondLevelAdmission() throws Exception {
+    final Set<String> preferred = new HashSet<>();
+    // one bucket of four slots
+    SlabBlockStore store = new SlabBlockStore(4 * BLOCK_SIZE, TieredBlockCacheConfiguration.L2_MIN_BLOCK_SIZE, BLOCK_SIZE, null,
+        (candidate, victim) -> preferred.contains(candidate) && !preferred.contains(victim));
+    try {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(store.put("b" + i, block(i)));
+      }
+
+      // the store is full, and a new block is not preferred over any stored block
+      assertFalse(store.put("b4", block(4)));
+      assertEquals(1, store.getRejectedCount());
+      for (int i = 0; i < 4; i++) {
+        assertTrue(store.contains("b" + i));
+      }
+
+      // a preferred block replaces a stored one
+      preferred.add("b5");
+      assertTrue(store.put("b5", block(5)));
+      assertArrayEquals(block(5), store.get("b5"));
+      assertEquals(4, store.getBlockCount());
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testDirect() {
+    runTest(createCache(null));
+  }
+
+  @Test
+  public void testMappedFile() throws Exception {
+    File dir = tempFolder.newFolder();
+    runTest(createCache(dir.getAbsolutePath()));
+    // the mapped file is deleted as soon as it is mapped
+    assertEquals(0, dir.list().length);
+  }
+}
@@ -40,6 +40,11 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.impl.BaseIteratorEnvironment;
@@ -65,6 +70,7 @@ import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFacto
 import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCache;
 import org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
+import org.apache.accumulo.core.file.rfile.RFile.BlockEncoding;
 import org.apache.accumulo.core.file.rfile.RFile.Reader;
 import org.apache.accumulo.core.file.streams.PositionedOutputs;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
@@ -211,6 +217,8 @@ public class RFileTest {
     protected AccumuloConfiguration accumuloConfiguration;
     public Reader reader;
     public SortedKeyValueIterator<Key,Value> iter;
+    public ExecutorService prefetchExecutor;
+    public CachableBlockFile.PrefetchStats prefetchStats = new CachableBlockFile.PrefetchStats();
     private BlockCacheManager manager;
 
     public TestRFile(AccumuloConfiguration accumuloConfiguration) {
@@ -235,7 +243,9 @@ public class RFileTest {
         sampler = SamplerFactory.newSampler(samplerConfig, accumuloConfiguration);
       }
 
-      writer = new RFile.Writer(_cbw, blockSize, 1000, samplerConfig, sampler);
+      BlockEncoding blockEncoding = BlockEncoding.valueOf(accumuloConfiguration.get(Property.TABLE_FILE_BLOCK_ENCODING).toUpperCase());
+
+      writer = new RFile.Writer(_cbw, blockSize, 1000, samplerConfig, sampler, blockEncoding);
 
       if (startDLG)
         writer.startDefaultLocalityGroup();
@@ -287,6 +297,8 @@ public class RFileTest {
       LruBlockCache dataCache = (LruBlockCache) manager.getBlockCache(CacheType.DATA);
 
       CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader(in, fileLength, conf, dataCache, indexCache, DefaultConfiguration.getInstance());
+      if (prefetchExecutor != null)
+        _cbr.enablePrefetch(prefetchExecutor, accumuloConfiguration.getCount(Property.TABLE_FILE_PREFETCH_BLOCKS), prefetchStats);
       reader = new RFile.Reader(_cbr);
       if (cfsi)
         iter = new ColumnFamilySkippingIterator(reader);
@@ -1621,6 +1633,386 @@ public class RFileTest {
     trf.closeReader();
   }
 
+  @Test
+  public void testSkipInvisibleBlocks() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+
+    trf.openWriter();
+    for (int i = 0; i < 1000; i++) {
+      // runs of 250 rows share a visibility, so each run spans several blocks that contain a single visibility
+      String cv = (i / 250) % 2 == 0 ? "A" : "B";
+      trf.writer.append(newKey(formatString("r_", i), "cf1", "cq1", cv, 42), newValue("" + i));
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+
+    ByteSequence visibleCv = new ArrayByteSequence("A");
+    FileSKVIterator view = trf.reader.skipInvisibleBlocks(cv -> cv.equals(visibleCv));
+
+    for (SortedKeyValueIterator<Key,Value> iter : Arrays.asList(view, view.deepCopy(null))) {
+      for (int[] bounds : new int[][] {{0, 999}, {100, 600}, {240, 260}, {250, 270}}) {
+        Range range = new Range(formatString("r_", bounds[0]), formatString("r_", bounds[1]));
+        iter.seek(range, EMPTY_COL_FAMS, false);
+
+        int visible = 0;
+        int read = 0;
+        int expected = 0;
+        for (int i = bounds[0]; i <= bounds[1]; i++) {
+          if ((i / 250) % 2 == 0)
+            expected++;
+        }
+
+        while (iter.hasTop()) {
+          Key k = iter.getTopKey();
+          assertTrue(range.contains(k));
+          if (k.getColumnVisibilityData().equals(visibleCv))
+            visible++;
+          read++;
+          iter.next();
+        }
+
+        assertEquals(expected, visible);
+        if (bounds[1] - bounds[0] > 100)
+          assertTrue("read " + read + " keys", read < bounds[1] - bounds[0] + 1);
+      }
+    }
+
+    // the view is closed along with the reader's deep copies
+    trf.reader.closeDeepCopies();
+    try {
+      view.seek(new Range(), EMPTY_COL_FAMS, false);
+      Assert.fail("view was not closed");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    // reading without the view still sees everything
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    int count = 0;
+    while (trf.iter.hasTop()) {
+      count++;
+      trf.iter.next();
+    }
+    assertEquals(1000, count);
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testSkipBlocksByColumnFamily() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+
+    trf.openWriter();
+    for (int i = 0; i < 1000; i++) {
+      // runs of 250 rows share a family, so each run spans several blocks that contain a single family
+      String cf = (i / 250) % 2 == 0 ? "A" : "B";
+      trf.writer.append(newKey(formatString("r_", i), cf, "cq1", "", 42), newValue("" + i));
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+
+    ByteSequence familyA = new ArrayByteSequence("A");
+    ByteSequence familyB = new ArrayByteSequence("B");
+
+    // the reader itself does not filter families, so count what it returns to see what was passed over
+    for (boolean inclusive : new boolean[] {true, false}) {
+      for (ByteSequence family : Arrays.asList(familyA, familyB)) {
+        for (int[] bounds : new int[][] {{0, 999}, {100, 600}, {240, 260}}) {
+          Range range = new Range(formatString("r_", bounds[0]), formatString("r_", bounds[1]));
+          trf.reader.seek(range, Collections.singleton(family), inclusive);
+
+          int wanted = 0;
+          int read = 0;
+          int expected = 0;
+          for (int i = bounds[0]; i <= bounds[1]; i++) {
+            if (((i / 250) % 2 == 0) == (family == familyA) == inclusive)
+              expected++;
+          }
+
+          while (trf.reader.hasTop()) {
+            Key k = trf.reader.getTopKey();
+            assertTrue(range.contains(k));
+            if (k.getColumnFamilyData().equals(family) == inclusive)
+              wanted++;
+            read++;
+            trf.reader.next();
+          }
+
+          assertEquals(expected, wanted);
+          if (bounds[1] - bounds[0] > 100)
+            assertTrue("read " + read + " keys", read < bounds[1] - bounds[0] + 1);
+        }
+      }
+    }
+
+    // seeking without families sees everything
+    trf.reader.seek(new Range(), EMPTY_COL_FAMS, false);
+    int count = 0;
+    while (trf.reader.hasTop()) {
+      count++;
+      trf.reader.next();
+    }
+    assertEquals(1000, count);
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    ConfigurationCopy prefetchConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    prefetchConf.set(Property.TABLE_FILE_PREFETCH_BLOCKS, "4");
+
+    TestRFile trf = new TestRFile(prefetchConf);
+    trf.prefetchExecutor = Executors.newFixedThreadPool(2);
+
+    trf.openWriter();
+    for (int i = 0; i < 2000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf1", "cq1", "", 1), newValue("" + i));
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+
+    for (int[] bounds : new int[][] {{0, 1999}, {500, 1500}, {1990, 1999}}) {
+      trf.iter.seek(new Range(formatString("r_", bounds[0]), formatString("r_", bounds[1])), EMPTY_COL_FAMS, false);
+      for (int i = bounds[0]; i <= bounds[1]; i++) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(newKey(formatString("r_", i), "cf1", "cq1", "", 1), trf.iter.getTopKey());
+        assertEquals(newValue("" + i), trf.iter.getTopValue());
+        trf.iter.next();
+      }
+      assertFalse(trf.iter.hasTop());
+    }
+
+    assertTrue(trf.prefetchStats.getPrefetchHits() > 0);
+    assertTrue(trf.prefetchStats.getPrefetchHits() <= trf.prefetchStats.getPrefetchedBlocks());
+
+    trf.closeReader();
+    trf.prefetchExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testPrefetchClose() throws Exception {
+    ConfigurationCopy prefetchConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    prefetchConf.set(Property.TABLE_FILE_PREFETCH_BLOCKS, "8");
+
+    TestRFile trf = new TestRFile(prefetchConf);
+    trf.prefetchExecutor = Executors.newFixedThreadPool(4);
+
+    trf.openWriter();
+    for (int i = 0; i < 2000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf1", "cq1", "", 1), newValue("" + i));
+    }
+    trf.closeWriter();
+
+    // close while blocks are being fetched, fetches already reading finish before the file is closed and later ones do not run
+    for (int attempt = 0; attempt < 10; attempt++) {
+      trf.openReader();
+      trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+      for (int i = 0; i < 300; i++) {
+        assertTrue(trf.iter.hasTop());
+        trf.iter.next();
+      }
+      trf.closeReader();
+    }
+
+    trf.prefetchExecutor.shutdown();
+    assertTrue(trf.prefetchExecutor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test(timeout = 60000)
+  public void testPrefetchNotStarted() throws Exception {
+    ConfigurationCopy prefetchConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    prefetchConf.set(Property.TABLE_FILE_PREFETCH_BLOCKS, "4");
+
+    TestRFile trf = new TestRFile(prefetchConf);
+    trf.prefetchExecutor = Executors.newSingleThreadExecutor();
+
+    trf.openWriter();
+    for (int i = 0; i < 2000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf1", "cq1", "", 1), newValue("" + i));
+    }
+    trf.closeWriter();
+
+    // keep the only prefetch thread busy, so every fetch stays queued and reads must not wait for them
+    CountDownLatch busy = new CountDownLatch(1);
+    trf.prefetchExecutor.execute(() -> {
+      try {
+        busy.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < 2000; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(newValue("" + i), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+
+    assertTrue(trf.prefetchStats.getPrefetchedBlocks() > 0);
+    assertEquals(0, trf.prefetchStats.getPrefetchHits());
+
+    busy.countDown();
+    trf.closeReader();
+    trf.prefetchExecutor.shutdown();
+    assertTrue(trf.prefetchExecutor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testColumnarBlocks() throws IOException {
+    ConfigurationCopy columnarConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    columnarConf.set(Property.TABLE_FILE_BLOCK_ENCODING, "columnar");
+
+    TestRFile trf = new TestRFile(columnarConf);
+
+    TreeMap<Key,Value> expected = new TreeMap<>();
+    trf.openWriter();
+    for (int r = 0; r < 300; r++) {
+      for (int c = 0; c < 3; c++) {
+        for (int ts = 3; ts > 0; ts--) {
+          Key k = newKey(formatString("r_", r), "cf" + c, formatString("cq_", r * c), c == 2 ? "A&B" : "", ts);
+          k.setDeleted(ts == 2 && r % 7 == 0);
+          Value v = newValue(k.isDeleted() ? "" : r + "_" + c + "_" + ts);
+          trf.writer.append(k, v);
+          expected.put(k, v);
+        }
+      }
+    }
+    trf.closeWriter();
+
+    trf.openReader();
+
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    verify(trf, expected.keySet().iterator(), expected.values().iterator());
+
+    // seek forward and backward, within a block and across blocks
+    Random rand = new Random(42);
+    List<Key> keys = new ArrayList<>(expected.keySet());
+    for (int i = 0; i < 200; i++) {
+      Key start = keys.get(rand.nextInt(keys.size()));
+      if (rand.nextBoolean())
+        start = start.followingKey(PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME);
+      trf.iter.seek(new Range(start, true, null, true), EMPTY_COL_FAMS, false);
+
+      Iterator<Entry<Key,Value>> eiter = expected.tailMap(start).entrySet().iterator();
+      for (int j = 0; j < 20 && eiter.hasNext(); j++) {
+        Entry<Key,Value> e = eiter.next();
+        assertTrue(trf.iter.hasTop());
+        assertEquals(e.getKey(), trf.iter.getTopKey());
+        assertEquals(e.getValue(), trf.iter.getTopValue());
+        trf.iter.next();
+      }
+      if (!eiter.hasNext())
+        assertFalse(trf.iter.hasTop());
+    }
+
+    // the decoded blocks are cached and shared, so modifying the keys a reader returns, as iterators setting timestamps do, must not change them
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    while (trf.iter.hasTop()) {
+      Key k = trf.iter.getTopKey();
+      k.setTimestamp(k.getTimestamp() + 100);
+      k.setDeleted(!k.isDeleted());
+      trf.iter.next();
+    }
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    verify(trf, expected.keySet().iterator(), expected.values().iterator());
+
+    trf.closeReader();
+  }
+
+  @Test
+  public void testCopyLocalityGroups() throws IOException {
+    for (String encoding : new String[] {"relative", "columnar"}) {
+      ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+      conf.set(Property.TABLE_FILE_BLOCK_ENCODING, encoding);
+      conf.set(Property.TABLE_SAMPLER, RowSampler.class.getName());
+      conf.set(Property.TABLE_SAMPLER_OPTS + "hasher", "murmur3_32");
+      conf.set(Property.TABLE_SAMPLER_OPTS + "modulus", "7");
+      Sampler sampler = SamplerFactory.newSampler(SamplerConfigurationImpl.newSamplerConfig(conf), conf);
+
+      TreeMap<Key,Value> expected = new TreeMap<>();
+      List<TestRFile> parts = new ArrayList<>();
+      for (int p = 0; p < 3; p++) {
+        TestRFile part = new TestRFile(conf);
+        part.openWriter(false, 200);
+        for (boolean lg1 : new boolean[] {true, false}) {
+          if (lg1)
+            part.writer.startNewLocalityGroup("lg1", newColFamByteSequence("cf1"));
+          else
+            part.writer.startDefaultLocalityGroup();
+          for (int r = p * 100; r < p * 100 + 100; r++) {
+            for (String cf : lg1 ? new String[] {"cf1"} : new String[] {"cf2", "cf3"}) {
+              Key k = newKey(formatString("r_", r), cf, "cq", r % 3 == 0 ? "A" : "", 1);
+              Value v = newValue(r + "_" + cf);
+              part.writer.append(k, v);
+              expected.put(k, v);
+            }
+          }
+        }
+        part.closeWriter();
+        part.openReader(false);
+        parts.add(part);
+      }
+
+      TestRFile trf = new TestRFile(conf);
+      trf.openWriter(false, 200);
+      trf.writer.startNewLocalityGroup("lg1", newColFamByteSequence("cf1"));
+      for (TestRFile part : parts)
+        trf.writer.copyLocalityGroup(part.reader);
+      trf.writer.startDefaultLocalityGroup();
+      for (TestRFile part : parts)
+        trf.writer.copyLocalityGroup(part.reader);
+
+      try {
+        trf.writer.append(newKey(formatString("r_", 1000), "cf2", "cq", "", 1), newValue("x"));
+        Assert.fail("appended to a locality group with copied blocks");
+      } catch (IllegalStateException e) {}
+
+      try {
+        trf.writer.copyLocalityGroup(parts.get(0).reader);
+        Assert.fail("copied blocks out of order");
+      } catch (IllegalArgumentException e) {}
+
+      trf.closeWriter();
+      trf.openReader();
+
+      trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+      verify(trf, expected.keySet().iterator(), expected.values().iterator());
+
+      for (String cf : new String[] {"cf1", "cf3"}) {
+        trf.iter.seek(new Range(), newColFamByteSequence(cf), true);
+        int count = 0;
+        while (trf.iter.hasTop()) {
+          assertEquals(cf, trf.iter.getTopKey().getColumnFamily().toString());
+          count++;
+          trf.iter.next();
+        }
+        assertEquals(300, count);
+      }
+
+      Key start = newKey(formatString("r_", 150), "", "", "", 0);
+      trf.iter.seek(new Range(start, null), EMPTY_COL_FAMS, false);
+      verify(trf, expected.tailMap(start).keySet().iterator(), expected.tailMap(start).values().iterator());
+
+      List<Entry<Key,Value>> sampleData = new ArrayList<>();
+      for (Entry<Key,Value> entry : expected.entrySet()) {
+        if (sampler.accept(entry.getKey()))
+          sampleData.add(entry);
+      }
+      checkSample(trf.reader.getSample(SamplerConfigurationImpl.newSamplerConfig(conf)), sampleData);
+
+      trf.closeReader();
+      for (TestRFile part : parts)
+        part.closeReader();
+    }
+  }
+
   @Test(expected = NullPointerException.class)
   public void testMissingUnreleasedVersions() throws Exception {
     runVersionTest(5);
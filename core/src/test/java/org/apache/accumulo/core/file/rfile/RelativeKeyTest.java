@@ -25,11 +25,13 @@ import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
 import org.apache.accumulo.core.file.rfile.RelativeKey.SkippR;
 import org.apache.accumulo.core.util.MutableByteSequence;
 import org.apache.accumulo.core.util.UnsynchronizedBuffer;
@@ -164,6 +166,66 @@ public class RelativeKeyTest {
     }
   }
 
+  @Test
+  public void testReadFromCachedBlock() throws IOException {
+    CachedBlockRead block = new CachedBlockRead(null, baos.toByteArray());
+
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(new Key());
+    Value value = new Value();
+    for (int i = 0; i < expectedKeys.size(); i++) {
+      assertEquals(expectedPositions.get(i).intValue(), block.getPosition());
+      rk.readFields(block);
+      value.readFields(block);
+      assertEquals(expectedKeys.get(i), rk.getKey());
+      assertEquals(expectedKeys.get(i).isDeleted(), rk.getKey().isDeleted());
+      assertEquals(expectedValues.get(i), value);
+    }
+    assertEquals(0, block.available());
+  }
+
+  @Test
+  public void testReadLargeTimestampFromCachedBlock() throws IOException {
+    Key prevKey = new Key("row1", "cf", "cq", "cv", Long.MAX_VALUE);
+    Key newKey = new Key("row1", "cf", "cq2", "cv", -5);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RelativeKey(prevKey, newKey).write(new DataOutputStream(out));
+
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(prevKey);
+    rk.readFields(new CachedBlockRead(null, out.toByteArray()));
+    assertEquals(newKey, rk.getKey());
+    assertEquals(-5, rk.getKey().getTimestamp());
+  }
+
+  @Test
+  public void testReadFirstKeyFromCachedBlock() throws IOException {
+    Key firstKey = new Key("row1", "cf", "cq", "cv", 5);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RelativeKey(null, firstKey).write(new DataOutputStream(out));
+
+    // the first key of a block is read without a previous key
+    RelativeKey rk = new RelativeKey();
+    rk.readFields(new CachedBlockRead(null, out.toByteArray()));
+    assertEquals(firstKey, rk.getKey());
+  }
+
+  @Test(expected = EOFException.class)
+  public void testReadTruncatedCachedBlock() throws IOException {
+    Key prevKey = new Key("row1", "cf", "cq", "cv", 5);
+    Key newKey = new Key("row1", "cf", "cq2", "cv", 6);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RelativeKey(prevKey, newKey).write(new DataOutputStream(out));
+    byte[] data = out.toByteArray();
+
+    RelativeKey rk = new RelativeKey();
+    rk.setPrevKey(prevKey);
+    rk.readFields(new CachedBlockRead(null, Arrays.copyOf(data, data.length - 2)));
+  }
+
   private DataInputStream in;
 
   @Before
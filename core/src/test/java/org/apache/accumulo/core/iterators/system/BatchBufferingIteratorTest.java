@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators.system;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorUtil;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchBufferingIteratorTest {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder(new File(System.getProperty("user.dir") + "/target"));
+
+  private static List<TreeMap<Key,Value>> createData(Random rand, int numSources) {
+    List<TreeMap<Key,Value>> maps = new ArrayList<>();
+    for (int i = 0; i < numSources; i++)
+      maps.add(new TreeMap<Key,Value>());
+
+    // keys are unique across sources, so the order of the merged data does not depend on how ties are broken
+    Set<Key> seen = new HashSet<>();
+    String[] visibilities = {"", "A", "B", "A&B"};
+    for (int i = 0; i < 5000; i++) {
+      Key k = new Key(String.format("r%04d", rand.nextInt(300)), "cf" + rand.nextInt(4), "cq" + rand.nextInt(3), visibilities[rand.nextInt(visibilities.length)],
+          rand.nextInt(20));
+      if (!seen.add(k))
+        continue;
+      k = new Key(k);
+      k.setDeleted(rand.nextInt(10) == 0);
+      maps.get(rand.nextInt(numSources)).put(k, new Value(Integer.toString(i).getBytes(UTF_8)));
+    }
+
+    return maps;
+  }
+
+  private static SortedKeyValueIterator<Key,Value> merge(List<TreeMap<Key,Value>> maps) {
+    List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<>();
+    for (TreeMap<Key,Value> map : maps)
+      sources.add(new SortedMapIterator(map));
+    return new MultiIterator(sources, false);
+  }
+
+  /**
+   * The system scan iterators stacked the way they were before batching, which only use the per key protocol.
+   */
+  private static SortedKeyValueIterator<Key,Value> perKeyStack(List<TreeMap<Key,Value>> maps, Set<Column> cols, Authorizations auths) throws IOException {
+    DeletingIterator delIter = new DeletingIterator(merge(maps), false);
+    ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
+    SortedKeyValueIterator<Key,Value> colFilter = ColumnQualifierFilter.wrap(cfsi, cols);
+    return VisibilityFilter.wrap(colFilter, auths, EMPTY);
+  }
+
+  static String entry(Key k, Value v) {
+    return k.toStringNoTime() + " " + k.getTimestamp() + " " + k.isDeleted() + " " + v;
+  }
+
+  /**
+   * Reads what is left in a {@link BatchedIterator}, alternating between a batch of the given size and a single call to next, so that each protocol has to
+   * leave the iterator where the other one expects it.
+   */
+  static List<String> readMixed(SortedKeyValueIterator<Key,Value> iter, int batchSize) throws IOException {
+    List<String> entries = new ArrayList<>();
+    KeyValueBatch batch = new KeyValueBatch(batchSize);
+    boolean useBatch = true;
+    while (iter.hasTop()) {
+      if (useBatch) {
+        batch.clear();
+        assertEquals(batch.size(), ((BatchedIterator) iter).nextBatch(batch));
+        assertTrue(batch.size() > 0);
+        for (int i = 0; i < batch.size(); i++)
+          entries.add(entry(batch.getKey(i), batch.getValue(i)));
+      } else {
+        entries.add(entry(iter.getTopKey(), iter.getTopValue()));
+        iter.next();
+      }
+      useBatch = !useBatch;
+    }
+    return entries;
+  }
+
+  static List<String> read(SortedKeyValueIterator<Key,Value> iter, Range range, Collection<ByteSequence> families, boolean inclusive, int max)
+      throws IOException {
+    List<String> entries = new ArrayList<>();
+    iter.seek(range, families, inclusive);
+    while (iter.hasTop() && entries.size() < max) {
+      entries.add(entry(iter.getTopKey(), iter.getTopValue()));
+      iter.next();
+    }
+    return entries;
+  }
+
+  private void runTest(Set<Column> cols, Authorizations auths) throws IOException {
+    Random rand = new Random(7);
+    for (int numSources : new int[] {1, 3, 12}) {
+      List<TreeMap<Key,Value>> maps = createData(rand, numSources);
+
+      Collection<ByteSequence> families = cols.isEmpty() ? LocalityGroupUtil.EMPTY_CF_SET : LocalityGroupUtil.families(cols);
+      boolean inclusive = !cols.isEmpty();
+
+      SortedKeyValueIterator<Key,Value> expected = perKeyStack(maps, cols, auths);
+      SortedKeyValueIterator<Key,Value> actual = IteratorUtil.setupSystemScanIterators(merge(maps), cols, auths, EMPTY);
+      assertTrue(actual instanceof BatchBufferingIterator);
+
+      // read everything, then read a little after many different seeks the way a seek heavy iterator would
+      List<String> all = read(expected, new Range(), families, inclusive, Integer.MAX_VALUE);
+      assertFalse(all.isEmpty());
+      assertEquals(all, read(actual, new Range(), families, inclusive, Integer.MAX_VALUE));
+
+      for (int i = 0; i < 100; i++) {
+        Range range = new Range(new Key(String.format("r%04d", rand.nextInt(300))), null);
+        int max = rand.nextInt(50);
+        assertEquals(read(expected, range, families, inclusive, max), read(actual, range, families, inclusive, max));
+      }
+    }
+  }
+
+  @Test
+  public void testAllColumns() throws IOException {
+    runTest(Collections.<Column> emptySet(), new Authorizations("A", "B"));
+  }
+
+  @Test
+  public void testEmptyAuths() throws IOException {
+    runTest(Collections.<Column> emptySet(), Authorizations.EMPTY);
+  }
+
+  @Test
+  public void testFetchColumns() throws IOException {
+    Set<Column> cols = new HashSet<>();
+    cols.add(new Column("cf1".getBytes(UTF_8), null, null));
+    cols.add(new Column("cf2".getBytes(UTF_8), "cq0".getBytes(UTF_8), null));
+    runTest(cols, new Authorizations("A"));
+  }
+
+  @Test
+  public void testPropagatedDeletes() throws IOException {
+    Random rand = new Random(11);
+    List<TreeMap<Key,Value>> maps = createData(rand, 5);
+
+    SortedKeyValueIterator<Key,Value> expected = new DeletingIterator(merge(maps), true);
+    SortedKeyValueIterator<Key,Value> actual = new BatchBufferingIterator(new DeletingIterator(merge(maps), true), 16);
+
+    List<String> all = read(expected, new Range(), LocalityGroupUtil.EMPTY_CF_SET, false, Integer.MAX_VALUE);
+    assertEquals(all, read(actual, new Range(), LocalityGroupUtil.EMPTY_CF_SET, false, Integer.MAX_VALUE));
+  }
+
+  private SortedKeyValueIterator<Key,Value> writeMapFile(TreeMap<Key,Value> map) throws IOException {
+    Configuration conf = new Configuration();
+    FileSystem fs = FileSystem.getLocal(conf);
+    Path dir = new Path(tempFolder.newFolder().getAbsolutePath(), "data.map");
+    MapFile.Writer writer = new MapFile.Writer(conf, fs.makeQualified(dir), MapFile.Writer.keyClass(Key.class), MapFile.Writer.valueClass(Value.class));
+    for (Entry<Key,Value> entry : map.entrySet())
+      writer.append(entry.getKey(), entry.getValue());
+    writer.close();
+    return new MapFileIterator(DefaultConfiguration.getInstance(), fs, dir.toString(), conf);
+  }
+
+  @Test
+  public void testMapFileSources() throws IOException {
+    // the map file reader reuses its top key and value, so the batches must hold copies of them
+    Random rand = new Random(13);
+    for (int numSources : new int[] {1, 3}) {
+      List<TreeMap<Key,Value>> maps = createData(rand, numSources);
+
+      List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<>();
+      for (TreeMap<Key,Value> map : maps)
+        sources.add(writeMapFile(map));
+
+      Authorizations auths = new Authorizations("A");
+      SortedKeyValueIterator<Key,Value> expected = perKeyStack(maps, Collections.<Column> emptySet(), auths);
+      SortedKeyValueIterator<Key,Value> actual = IteratorUtil.setupSystemScanIterators(new MultiIterator(sources, false), Collections.<Column> emptySet(),
+          auths, EMPTY);
+
+      List<String> all = read(expected, new Range(), LocalityGroupUtil.EMPTY_CF_SET, false, Integer.MAX_VALUE);
+      assertFalse(all.isEmpty());
+      assertEquals(all, read(actual, new Range(), LocalityGroupUtil.EMPTY_CF_SET, false, Integer.MAX_VALUE));
+
+      for (int i = 0; i < 20; i++) {
+        Range range = new Range(new Key(String.format("r%04d", rand.nextInt(300))), null);
+        int max = rand.nextInt(50);
+        assertEquals(read(expected, range, LocalityGroupUtil.EMPTY_CF_SET, false, max), read(actual, range, LocalityGroupUtil.EMPTY_CF_SET, false, max));
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@ package org.apache.accumulo.core.iterators.system;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
@@ -236,4 +237,41 @@ public class ColumnFamilySkippingIteratorTest extends TestCase {
 
     // System.out.println(ci.getCount());
   }
+
+  public void testNextBatch() throws Exception {
+    TreeMap<Key,Value> tm1 = new TreeMap<>();
+
+    for (int r = 0; r < 10; r++) {
+      for (int cf = 0; cf < 1000; cf++) {
+        for (int cq = 0; cq < 3; cq++) {
+          put(tm1, r, cf, cq, 6, r * cf * cq);
+        }
+      }
+    }
+
+    HashSet<ByteSequence> colfams = new HashSet<>();
+    colfams.add(new ArrayByteSequence(String.format("%06d", 5)));
+    colfams.add(new ArrayByteSequence(String.format("%06d", 500)));
+
+    for (boolean inclusive : new boolean[] {true, false}) {
+      for (int batchSize : new int[] {1, 3, 256}) {
+        CountingIterator expectedCount = new CountingIterator(new SortedMapIterator(tm1));
+        ColumnFamilySkippingIterator expected = new ColumnFamilySkippingIterator(expectedCount);
+        List<String> expectedEntries = BatchBufferingIteratorTest.read(expected, new Range(), colfams, inclusive, Integer.MAX_VALUE);
+
+        CountingIterator actualCount = new CountingIterator(new SortedMapIterator(tm1));
+        ColumnFamilySkippingIterator actual = new ColumnFamilySkippingIterator(actualCount);
+        actual.seek(new Range(), colfams, inclusive);
+
+        List<String> entries = BatchBufferingIteratorTest.readMixed(actual, batchSize);
+        assertEquals(inclusive ? 60 : 29940, entries.size());
+        assertEquals(expectedEntries, entries);
+
+        if (inclusive) {
+          // batches should seek past the unwanted families about as soon as next does, rather than reading them and then dropping them
+          assertTrue(actualCount.getCount() + " " + expectedCount.getCount(), actualCount.getCount() <= 2 * expectedCount.getCount());
+        }
+      }
+    }
+  }
 }
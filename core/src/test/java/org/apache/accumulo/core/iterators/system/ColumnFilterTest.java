@@ -18,6 +18,7 @@ package org.apache.accumulo.core.iterators.system;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.data.Column;
@@ -102,4 +103,32 @@ public class ColumnFilterTest extends TestCase {
     cf.next();
     Assert.assertFalse(cf.hasTop());
   }
+
+  public void testNextBatch() throws Exception {
+    TreeMap<Key,Value> data = new TreeMap<>();
+    for (int r = 0; r < 50; r++) {
+      for (int cf = 0; cf < 3; cf++) {
+        for (int cq = 0; cq < 4; cq++) {
+          Key k = newKey(String.format("r%03d", r), "cf" + cf, "cq" + cq);
+          // deleted keys pass through the filter no matter their column
+          k.setDeleted((r + cf + cq) % 11 == 0);
+          data.put(k, new Value(r + "_" + cf + "_" + cq));
+        }
+      }
+    }
+
+    HashSet<Column> columns = new HashSet<>();
+    columns.add(newColumn("cf0"));
+    columns.add(newColumn("cf2", "cq1"));
+    columns.add(newColumn("cf2", "cq3"));
+
+    for (int batchSize : new int[] {1, 2, 7, 100}) {
+      SortedKeyValueIterator<Key,Value> expected = ColumnQualifierFilter.wrap(new SortedMapIterator(data), columns);
+      List<String> entries = BatchBufferingIteratorTest.read(expected, new Range(), Collections.emptySet(), false, Integer.MAX_VALUE);
+
+      SortedKeyValueIterator<Key,Value> actual = ColumnQualifierFilter.wrap(new SortedMapIterator(data), columns);
+      actual.seek(new Range(), Collections.emptySet(), false);
+      Assert.assertEquals(entries, BatchBufferingIteratorTest.readMixed(actual, batchSize));
+    }
+  }
 }
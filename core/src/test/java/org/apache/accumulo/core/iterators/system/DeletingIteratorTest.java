@@ -19,6 +19,7 @@ package org.apache.accumulo.core.iterators.system;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
@@ -214,6 +215,30 @@ public class DeletingIteratorTest extends TestCase {
     assertFalse(it.hasTop());
   }
 
+  // test that batches hide the same keys as next, including when a delete ends one batch and the keys it hides start the next
+  public void testNextBatch() throws IOException {
+    TreeMap<Key,Value> tm = new TreeMap<>();
+
+    for (int r = 0; r < 20; r++) {
+      String row = String.format("r%03d", r);
+      for (long ts = 1; ts <= 8; ts++)
+        newKeyValue(tm, row, ts, false, row + "_" + ts);
+      if (r % 3 != 0)
+        newKeyValue(tm, row, 8 - r % 7, true, "");
+    }
+
+    for (boolean propogateDeletes : new boolean[] {false, true}) {
+      for (int batchSize : new int[] {1, 2, 3, 5, 64}) {
+        DeletingIterator expected = new DeletingIterator(new SortedMapIterator(tm), propogateDeletes);
+        List<String> entries = BatchBufferingIteratorTest.read(expected, new Range(), EMPTY_COL_FAMS, false, Integer.MAX_VALUE);
+
+        DeletingIterator actual = new DeletingIterator(new SortedMapIterator(tm), propogateDeletes);
+        actual.seek(new Range(), EMPTY_COL_FAMS, false);
+        assertEquals(entries, BatchBufferingIteratorTest.readMixed(actual, batchSize));
+      }
+    }
+  }
+
   private Range newRange(String row, long ts, boolean inclusive) {
     return new Range(newKey(row, ts), inclusive, null, true);
   }
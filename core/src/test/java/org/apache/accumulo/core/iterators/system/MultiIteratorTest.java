@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.client.impl.Table;
@@ -401,4 +403,39 @@ public class MultiIteratorTest extends TestCase {
     mi.seek(r7, EMPTY_COL_FAMS, false);
     assertFalse(mi.hasTop());
   }
+
+  public void testManySources() throws IOException {
+    // one large source and many small ones, like a tablet with one big file after a compaction and several flushes since
+    Random rand = new Random(42);
+    TreeMap<Key,Value> expected = new TreeMap<>();
+    List<TreeMap<Key,Value>> maps = new ArrayList<>();
+    for (int i = 0; i < 30; i++)
+      maps.add(new TreeMap<Key,Value>());
+
+    for (int i = 0; i < 10000; i++) {
+      int source = rand.nextInt(10) < 8 ? 0 : rand.nextInt(maps.size());
+      Key k = newKey(rand.nextInt(1000), rand.nextInt(100));
+      if (expected.containsKey(k))
+        continue;
+      Value v = new Value(Integer.toString(i).getBytes());
+      maps.get(source).put(k, v);
+      expected.put(k, v);
+    }
+
+    List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>();
+    for (TreeMap<Key,Value> map : maps)
+      iters.add(new SortedMapIterator(map));
+    MultiIterator mi = new MultiIterator(iters, false);
+
+    for (int row : new int[] {0, 500, 999, 1000}) {
+      mi.seek(newRange(row, Long.MAX_VALUE), EMPTY_COL_FAMS, false);
+      for (Entry<Key,Value> entry : expected.tailMap(newKey(row, Long.MAX_VALUE)).entrySet()) {
+        assertTrue(mi.hasTop());
+        assertEquals(entry.getKey(), mi.getTopKey());
+        assertEquals(entry.getValue(), mi.getTopValue());
+        mi.next();
+      }
+      assertFalse(mi.hasTop());
+    }
+  }
 }
@@ -197,6 +197,43 @@ public class SourceSwitchingIteratorTest extends TestCase {
 
   }
 
+  public void testNextBatch() throws Exception {
+    TreeMap<Key,Value> tm1 = new TreeMap<>();
+    put(tm1, "r1", "cf1", "cq1", 5, "v1");
+    put(tm1, "r1", "cf1", "cq3", 5, "v2");
+    put(tm1, "r2", "cf1", "cq1", 5, "v3");
+    put(tm1, "r3", "cf1", "cq1", 5, "v4");
+
+    SortedMapIterator smi = new SortedMapIterator(tm1);
+    TestDataSource tds = new TestDataSource(smi);
+    SourceSwitchingIterator ssi = new SourceSwitchingIterator(tds);
+    // a sorted map iterator is not a batched iterator, so what it returns is copied
+    assertFalse(ssi.hasStableEntries());
+
+    ssi.seek(new Range(), new ArrayList<ByteSequence>(), false);
+    KeyValueBatch batch = new KeyValueBatch(2);
+    assertEquals(2, ssi.nextBatch(batch));
+    assertEquals(newKey("r1", "cf1", "cq1", 5), batch.getKey(0));
+    assertEquals("v2", batch.getValue(1).toString());
+    testAndCallNext(ssi, "r2", "cf1", "cq1", 5, "v3", false);
+
+    TreeMap<Key,Value> tm2 = new TreeMap<>();
+    put(tm2, "r2", "cf1", "cq1", 5, "v5");
+    put(tm2, "r3", "cf1", "cq1", 5, "v6");
+    tds.next = new TestDataSource(new SortedMapIterator(tm2));
+
+    // the switch happens on the next key, after the current top is added
+    batch.clear();
+    assertEquals(2, ssi.nextBatch(batch));
+    assertEquals("v3", batch.getValue(0).toString());
+    assertEquals(newKey("r3", "cf1", "cq1", 5), batch.getKey(1));
+    assertEquals("v6", batch.getValue(1).toString());
+    assertFalse(ssi.hasTop());
+
+    batch.clear();
+    assertEquals(0, ssi.nextBatch(batch));
+  }
+
   public void test4() throws Exception {
     // ensure switch is done on initial seek
     TreeMap<Key,Value> tm1 = new TreeMap<>();
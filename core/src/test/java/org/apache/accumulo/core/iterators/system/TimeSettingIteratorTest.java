@@ -85,6 +85,38 @@ public class TimeSettingIteratorTest {
     assertFalse(tsi.hasTop());
   }
 
+  @Test
+  public void testNextBatch() throws Exception {
+    TreeMap<Key,Value> tm1 = new TreeMap<>();
+
+    tm1.put(new Key("r0", "cf1", "cq1", 9l), new Value("v0".getBytes()));
+    tm1.put(new Key("r1", "cf1", "cq1", Long.MAX_VALUE), new Value("v1".getBytes()));
+    tm1.put(new Key("r1", "cf1", "cq1", 90l), new Value("v2".getBytes()));
+    tm1.put(new Key("r1", "cf1", "cq1", 0l), new Value("v3".getBytes()));
+    tm1.put(new Key("r2", "cf1", "cq1", 6l), new Value("v4".getBytes()));
+
+    TimeSettingIterator tsi = new TimeSettingIterator(new SortedMapIterator(tm1), 50);
+    tsi.seek(new Range(new Key("r1", "cf1", "cq1", 50l), true, new Key("r1", "cf1", "cq1", 50l), true), new HashSet<ByteSequence>(), false);
+
+    // keys past the end of the range once their time is set are not added
+    KeyValueBatch batch = new KeyValueBatch(10);
+    assertEquals(3, tsi.nextBatch(batch));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(new Key("r1", "cf1", "cq1", 50l), batch.getKey(i));
+      assertEquals("v" + (i + 1), batch.getValue(i).toString());
+    }
+    assertFalse(tsi.hasTop());
+    assertEquals(0, tsi.nextBatch(batch));
+
+    tsi.seek(new Range(), new HashSet<ByteSequence>(), false);
+    batch = new KeyValueBatch(2);
+    assertEquals(2, tsi.nextBatch(batch));
+    assertEquals(new Key("r0", "cf1", "cq1", 50l), batch.getKey(0));
+    assertEquals(new Key("r1", "cf1", "cq1", 50l), batch.getKey(1));
+    assertTrue(tsi.hasTop());
+    assertEquals("v2", tsi.getTopValue().toString());
+  }
+
   @Test
   public void testAvoidKeyCopy() throws Exception {
     TreeMap<Key,Value> tm1 = new TreeMap<>();
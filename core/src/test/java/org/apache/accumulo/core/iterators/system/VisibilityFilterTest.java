@@ -18,8 +18,10 @@ package org.apache.accumulo.core.iterators.system;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.TreeMap;
 
+import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -34,6 +36,37 @@ import junit.framework.TestCase;
 
 public class VisibilityFilterTest extends TestCase {
 
+  public void testCachedEvaluationsKeyedByAuthorizations() {
+    CachedVisibilityEvaluator a = new CachedVisibilityEvaluator(new Authorizations("A"), new byte[0]);
+    CachedVisibilityEvaluator b = new CachedVisibilityEvaluator(new Authorizations("B"), new byte[0]);
+    CachedVisibilityEvaluator a2 = new CachedVisibilityEvaluator(new Authorizations("A"), "B".getBytes());
+
+    // the same expressions evaluated with other authorizations are cached separately
+    for (int i = 0; i < 2; i++) {
+      assertTrue(a.test(new ArrayByteSequence("A|C")));
+      assertFalse(b.test(new ArrayByteSequence("A|C")));
+      assertTrue(b.test(new ArrayByteSequence("B")));
+      assertFalse(a.test(new ArrayByteSequence("B")));
+      assertTrue(a2.test(new ArrayByteSequence("A|C")));
+      assertFalse(a2.test(new ArrayByteSequence("")));
+    }
+  }
+
+  public void testCachedEvaluationsWithSmallCache() {
+    CachedVisibilityEvaluator.setCacheSize(CachedVisibilityEvaluator.ENTRY_OVERHEAD * 4);
+    try {
+      CachedVisibilityEvaluator evaluator = new CachedVisibilityEvaluator(new Authorizations("A", "B"), new byte[0]);
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 100; j++) {
+          assertTrue(evaluator.test(new ArrayByteSequence("A&(B|X" + j + ")")));
+          assertFalse(evaluator.test(new ArrayByteSequence("A&X" + j)));
+        }
+      }
+    } finally {
+      CachedVisibilityEvaluator.setCacheSize(CachedVisibilityEvaluator.DEFAULT_CACHE_SIZE);
+    }
+  }
+
   public void testBadVisibility() throws IOException {
     TreeMap<Key,Value> tm = new TreeMap<>();
 
@@ -67,4 +100,28 @@ public class VisibilityFilterTest extends TestCase {
     filter.next();
     assertFalse(filter.hasTop());
   }
+
+  public void testNextBatch() throws IOException {
+    TreeMap<Key,Value> tm = new TreeMap<>();
+
+    String[] visibilities = {"", "A", "B", "A&B", "A|C", "C"};
+    for (int r = 0; r < 100; r++) {
+      Key k = new Key(String.format("r%03d", r), "cf1", "cq1", visibilities[r % visibilities.length]);
+      // deleted keys pass through the filter no matter their visibility
+      k.setDeleted(r % 13 == 0);
+      tm.put(k, new Value(Integer.toString(r).getBytes()));
+    }
+
+    for (Authorizations auths : new Authorizations[] {new Authorizations("A"), Authorizations.EMPTY}) {
+      for (int batchSize : new int[] {1, 2, 7, 100}) {
+        SortedKeyValueIterator<Key,Value> expected = VisibilityFilter.wrap(new SortedMapIterator(tm), auths, "".getBytes());
+        List<String> entries = BatchBufferingIteratorTest.read(expected, new Range(), new HashSet<ByteSequence>(), false, Integer.MAX_VALUE);
+        assertFalse(entries.isEmpty());
+
+        SortedKeyValueIterator<Key,Value> actual = VisibilityFilter.wrap(new SortedMapIterator(tm), auths, "".getBytes());
+        actual.seek(new Range(), new HashSet<ByteSequence>(), false);
+        assertEquals(entries, BatchBufferingIteratorTest.readMixed(actual, batchSize));
+      }
+    }
+  }
 }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import static org.apache.accumulo.core.security.ColumnVisibility.quote;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.ColumnVisibility.Node;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.util.BadArgumentException;
+import org.junit.Test;
+
+public class CompiledVisibilityTest {
+
+  private static boolean evaluate(String expression, String... auths) throws VisibilityParseException {
+    return CompiledVisibility.compile(new ArrayByteSequence(expression)).evaluate(new Authorizations(auths));
+  }
+
+  @Test
+  public void testEvaluate() throws VisibilityParseException {
+    assertTrue(evaluate(""));
+    assertTrue(evaluate("", "a"));
+    assertTrue(evaluate("a", "a"));
+    assertFalse(evaluate("a"));
+    assertFalse(evaluate("a&b", "a"));
+    assertTrue(evaluate("a&b", "a", "b"));
+    assertTrue(evaluate("a|b", "b"));
+    assertFalse(evaluate("a|b", "c"));
+    assertTrue(evaluate("(a|b)&(c|d)", "b", "c"));
+    assertFalse(evaluate("(a|b)&(c|d)", "a", "b"));
+    assertTrue(evaluate("(a&b)|(c&d)|e", "e"));
+    assertFalse(evaluate("(a&b)|(c&d)|e", "a", "d"));
+    assertTrue(evaluate("a&(b|(c&(d|e)))", "a", "c", "e"));
+    assertFalse(evaluate("a&(b|(c&(d|e)))", "a", "c"));
+  }
+
+  @Test
+  public void testEscapedTerms() throws VisibilityParseException {
+    assertTrue(evaluate(quote("A#C") + "|" + quote("A?C"), "A#C"));
+    assertTrue(evaluate(quote("A\"C") + "&" + quote("A\\C"), "A\"C", "A\\C"));
+    assertFalse(evaluate(quote("A\"C") + "&" + quote("A\\C"), "A\"C"));
+    assertTrue(evaluate(quote("五") + "&(" + quote("四") + "|" + quote("九") + ")", "五", "九"));
+  }
+
+  @Test(expected = BadArgumentException.class)
+  public void testBadExpression() throws VisibilityParseException {
+    evaluate("a&b|c", "a");
+  }
+
+  @Test
+  public void testInterned() throws VisibilityParseException {
+    CompiledVisibility c1 = CompiledVisibility.compile(new ArrayByteSequence("x&(y|z)"));
+    assertSame(c1, CompiledVisibility.compile(new ArrayByteSequence("x&(y|z)")));
+    assertSame(c1, CompiledVisibility.compile(new ColumnVisibility("x&(y|z)")));
+
+    ColumnVisibility cv = new ColumnVisibility("x|w");
+    assertSame(CompiledVisibility.compile(cv), CompiledVisibility.compile(cv));
+  }
+
+  private static boolean walk(byte[] expression, Node node, Set<String> auths) {
+    switch (node.getType()) {
+      case EMPTY:
+        return true;
+      case TERM:
+        return auths.contains(node.getTerm(expression).toString());
+      case AND:
+        for (Node child : node.getChildren())
+          if (!walk(expression, child, auths))
+            return false;
+        return true;
+      case OR:
+        for (Node child : node.getChildren())
+          if (walk(expression, child, auths))
+            return true;
+        return false;
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+
+  private static String randomExpression(Random rand, String[] terms, int depth) {
+    if (depth == 0 || rand.nextInt(3) == 0)
+      return terms[rand.nextInt(terms.length)];
+
+    String op = rand.nextBoolean() ? "&" : "|";
+    int numChildren = 2 + rand.nextInt(3);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < numChildren; i++) {
+      if (i > 0)
+        sb.append(op);
+      sb.append('(').append(randomExpression(rand, terms, depth - 1)).append(')');
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testSameAsTreeWalk() throws VisibilityParseException {
+    String[] terms = {"a", "b", "c", "d", "e", "f"};
+    Random rand = new Random(42);
+
+    for (int i = 0; i < 5000; i++) {
+      ColumnVisibility cv = new ColumnVisibility(randomExpression(rand, terms, 4));
+
+      List<String> auths = new ArrayList<>();
+      for (String term : terms)
+        if (rand.nextBoolean())
+          auths.add(term);
+
+      boolean expected = walk(cv.getExpression(), cv.getParseTree(), new HashSet<>(auths));
+      assertEquals(cv.toString(), expected, CompiledVisibility.compile(cv).evaluate(new Authorizations(auths.toArray(new String[0]))));
+    }
+  }
+}
@@ -28,10 +28,12 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.BatchedIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 import org.apache.accumulo.server.AccumuloServerContext;
 
-public class ProblemReportingIterator implements InterruptibleIterator {
+public class ProblemReportingIterator implements InterruptibleIterator, BatchedIterator {
   private final SortedKeyValueIterator<Key,Value> source;
   private boolean sawError = false;
   private final boolean continueOnError;
@@ -81,14 +83,30 @@ public class ProblemReportingIterator implements InterruptibleIterator {
     try {
       source.next();
     } catch (IOException ioe) {
-      sawError = true;
-      ProblemReports.getInstance(context).report(new ProblemReport(tableId, ProblemType.FILE_READ, resource, ioe));
-      if (!continueOnError) {
-        throw ioe;
-      }
+      handleError(ioe);
     }
   }
 
+  @Override
+  public int nextBatch(KeyValueBatch batch) throws IOException {
+    if (sawError) {
+      return 0;
+    }
+
+    int start = batch.size();
+    try {
+      KeyValueBatch.fill(source, batch);
+    } catch (IOException ioe) {
+      handleError(ioe);
+    }
+    return batch.size() - start;
+  }
+
+  @Override
+  public boolean hasStableEntries() {
+    return KeyValueBatch.hasStableEntries(source);
+  }
+
   @Override
   public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
     if (continueOnError && sawError) {
@@ -98,11 +116,15 @@ public class ProblemReportingIterator implements InterruptibleIterator {
     try {
       source.seek(range, columnFamilies, inclusive);
     } catch (IOException ioe) {
-      sawError = true;
-      ProblemReports.getInstance(context).report(new ProblemReport(tableId, ProblemType.FILE_READ, resource, ioe));
-      if (!continueOnError) {
-        throw ioe;
-      }
+      handleError(ioe);
+    }
+  }
+
+  private void handleError(IOException ioe) throws IOException {
+    sawError = true;
+    ProblemReports.getInstance(context).report(new ProblemReport(tableId, ProblemType.FILE_READ, resource, ioe));
+    if (!continueOnError) {
+      throw ioe;
     }
   }
 
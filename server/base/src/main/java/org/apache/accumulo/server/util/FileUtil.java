@@ -360,6 +360,53 @@ public class FileUtil {
     }
   }
 
+  /**
+   * Uses the index entries of the given files to find rows that divide their data into parts of roughly equal size. Fewer rows are returned when the indexes
+   * have too few distinct rows, and none are returned when there are more files than can be opened at once.
+   *
+   * @return up to numParts - 1 sorted rows, each after prevEndRow and before endRow
+   */
+  public static List<Text> findSplitRows(VolumeManager fs, AccumuloConfiguration acuConf, Text prevEndRow, Text endRow, Collection<String> mapFiles,
+      int numParts) throws IOException {
+    List<Text> splitRows = new ArrayList<>();
+    if (numParts < 2 || mapFiles.size() > acuConf.getCount(Property.TSERV_TABLET_SPLIT_FINDMIDPOINT_MAXOPEN))
+      return splitRows;
+
+    Configuration conf = CachedConfiguration.getInstance();
+    ArrayList<FileSKVIterator> readers = new ArrayList<>(mapFiles.size());
+
+    try {
+      long numKeys = countIndexEntries(acuConf, prevEndRow, endRow, mapFiles, true, conf, fs, readers);
+      if (numKeys < numParts)
+        return splitRows;
+
+      List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>(readers);
+      MultiIterator mmfi = new MultiIterator(iters, true);
+
+      long keysRead = 0;
+      while (mmfi.hasTop() && splitRows.size() < numParts - 1) {
+        Key key = mmfi.getTopKey();
+        if (endRow != null && key.compareRow(endRow) >= 0)
+          break;
+
+        if (prevEndRow == null || key.compareRow(prevEndRow) > 0) {
+          keysRead++;
+          if (keysRead * numParts >= numKeys * (splitRows.size() + 1)) {
+            Text row = key.getRow();
+            if (splitRows.isEmpty() || row.compareTo(splitRows.get(splitRows.size() - 1)) > 0)
+              splitRows.add(row);
+          }
+        }
+
+        mmfi.next();
+      }
+
+      return splitRows;
+    } finally {
+      cleanupIndexOp(null, fs, readers);
+    }
+  }
+
   protected static void cleanupIndexOp(Path tmpDir, VolumeManager fs, ArrayList<FileSKVIterator> readers) throws IOException {
     // close all of the index sequence files
     for (FileSKVIterator r : readers) {
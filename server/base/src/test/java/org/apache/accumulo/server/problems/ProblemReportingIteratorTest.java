@@ -25,6 +25,7 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Collection;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.impl.Table;
@@ -32,7 +33,9 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.iterators.system.KeyValueBatch;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -90,6 +93,27 @@ public class ProblemReportingIteratorTest {
     assertFalse(pri.sawError());
   }
 
+  @Test
+  public void testNextBatch() throws Exception {
+    TreeMap<Key,Value> map = new TreeMap<>();
+    for (int i = 0; i < 5; i++)
+      map.put(new Key("r" + i), new Value(("v" + i).getBytes()));
+    pri = new ProblemReportingIterator(null, TABLE_ID, RESOURCE, false, new SortedMapIterator(map));
+    assertFalse(pri.hasStableEntries());
+
+    pri.seek(new Range(), new java.util.HashSet<ByteSequence>(), false);
+    KeyValueBatch batch = new KeyValueBatch(3);
+    assertEquals(3, pri.nextBatch(batch));
+    assertEquals(new Key("r2"), batch.getKey(2));
+    assertEquals(new Key("r3"), pri.getTopKey());
+
+    batch.clear();
+    assertEquals(2, pri.nextBatch(batch));
+    assertEquals("v4", batch.getValue(1).toString());
+    assertFalse(pri.hasTop());
+    assertFalse(pri.sawError());
+  }
+
   @Test
   public void testSetInterruptFlag() {
     AtomicBoolean flag = new AtomicBoolean(true);
@@ -30,30 +30,78 @@ import org.apache.htrace.wrappers.TraceRunnable;
 
 /**
  * {@link TraceRunnable} objects placed in this queue <b>must</a> wrap a {@link Runnable} which is also {@link Comparable}
+ *
+ * <p>
+ * Tasks are taken in the order of their {@link Comparable}, except that a task that has waited longer than the queue's maximum wait is taken before any other,
+ * oldest first, so that a task that always sorts last still gets its turn.
  */
 class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQueue<TraceRunnable> {
 
-  private List<TraceRunnable> task = new LinkedList<>();
+  /**
+   * How long a task waits before it is taken ahead of the ones that sort before it.
+   */
+  static final long MAX_WAIT_MILLIS = 10 * 60 * 1000;
+
+  private static class QueuedTask {
+    final TraceRunnable task;
+    final long queued;
+
+    QueuedTask(TraceRunnable task, long queued) {
+      this.task = task;
+      this.queued = queued;
+    }
+  }
+
+  private List<QueuedTask> task = new LinkedList<>();
+
+  private final long maxWaitMillis;
 
-  private static final Comparator<TraceRunnable> comparator = new Comparator<TraceRunnable>() {
+  private static final Comparator<QueuedTask> comparator = new Comparator<QueuedTask>() {
     @SuppressWarnings("unchecked")
     @Override
-    public int compare(TraceRunnable o1, TraceRunnable o2) {
-      return ((Comparable<Runnable>) o1.getRunnable()).compareTo(o2.getRunnable());
+    public int compare(QueuedTask o1, QueuedTask o2) {
+      return ((Comparable<Runnable>) o1.task.getRunnable()).compareTo(o2.task.getRunnable());
     }
   };
 
+  CompactionQueue() {
+    this(MAX_WAIT_MILLIS);
+  }
+
+  CompactionQueue(long maxWaitMillis) {
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  /**
+   * @return the task that has waited the longest if it has waited too long, otherwise the least task
+   */
+  private QueuedTask next() {
+    QueuedTask oldest = null;
+    for (QueuedTask queuedTask : task) {
+      if (oldest == null || queuedTask.queued < oldest.queued)
+        oldest = queuedTask;
+    }
+    if (System.currentTimeMillis() - oldest.queued > maxWaitMillis)
+      return oldest;
+    return Collections.min(task, comparator);
+  }
+
+  private void add(TraceRunnable e) {
+    task.add(new QueuedTask(e, System.currentTimeMillis()));
+    notify();
+  }
+
   @Override
   public synchronized TraceRunnable poll() {
     if (task.size() == 0)
       return null;
 
-    TraceRunnable min = Collections.min(task, comparator);
-    Iterator<TraceRunnable> iterator = task.iterator();
+    QueuedTask min = next();
+    Iterator<QueuedTask> iterator = task.iterator();
     while (iterator.hasNext()) {
       if (iterator.next() == min) {
         iterator.remove();
-        return min;
+        return min.task;
       }
     }
     throw new IllegalStateException("Minimum object found, but not there when removing");
@@ -64,27 +112,23 @@ class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQu
     if (task.size() == 0)
       return null;
 
-    TraceRunnable min = Collections.min(task, comparator);
-    return min;
+    return next().task;
   }
 
   @Override
   public synchronized boolean offer(TraceRunnable e) {
-    task.add(e);
-    notify();
+    add(e);
     return true;
   }
 
   @Override
   public synchronized void put(TraceRunnable e) throws InterruptedException {
-    task.add(e);
-    notify();
+    add(e);
   }
 
   @Override
   public synchronized boolean offer(TraceRunnable e, long timeout, TimeUnit unit) throws InterruptedException {
-    task.add(e);
-    notify();
+    add(e);
     return true;
   }
 
@@ -121,14 +165,10 @@ class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQu
 
   @Override
   public synchronized int drainTo(Collection<? super TraceRunnable> c, int maxElements) {
-    Collections.sort(task, comparator);
-
     int num = Math.min(task.size(), maxElements);
 
-    Iterator<TraceRunnable> iter = task.iterator();
     for (int i = 0; i < num; i++) {
-      c.add(iter.next());
-      iter.remove();
+      c.add(poll());
     }
 
     return num;
@@ -138,7 +178,23 @@ class CompactionQueue extends AbstractQueue<TraceRunnable> implements BlockingQu
   public synchronized Iterator<TraceRunnable> iterator() {
     Collections.sort(task, comparator);
 
-    return task.iterator();
+    final Iterator<QueuedTask> iter = task.iterator();
+    return new Iterator<TraceRunnable>() {
+      @Override
+      public boolean hasNext() {
+        return iter.hasNext();
+      }
+
+      @Override
+      public TraceRunnable next() {
+        return iter.next().task;
+      }
+
+      @Override
+      public void remove() {
+        iter.remove();
+      }
+    };
   }
 
   @Override
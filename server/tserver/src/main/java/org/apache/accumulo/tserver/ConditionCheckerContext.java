@@ -103,32 +103,93 @@ public class ConditionCheckerContext {
     return IteratorUtil.loadIterators(systemIter, mic.mergedIters, mic.mergedItersOpts, tie, true, context, classCache);
   }
 
-  boolean checkConditions(SortedKeyValueIterator<Key,Value> systemIter, ServerConditionalMutation scm) throws IOException {
-    boolean add = true;
-
-    for (TCondition tc : scm.getConditions()) {
-
-      Range range;
+  /**
+   * A single condition of a conditional mutation, along with the range it reads. Sorting these by range lets all of the conditions in a batch be checked in one
+   * forward pass over the tablet.
+   */
+  private static class PendingCondition implements Comparable<PendingCondition> {
+    final int mutation;
+    final TCondition tc;
+    final Range range;
+
+    PendingCondition(int mutation, ServerConditionalMutation scm, TCondition tc) {
+      this.mutation = mutation;
+      this.tc = tc;
       if (tc.hasTimestamp)
         range = Range.exact(new Text(scm.getRow()), new Text(tc.getCf()), new Text(tc.getCq()), new Text(tc.getCv()), tc.getTs());
       else
         range = Range.exact(new Text(scm.getRow()), new Text(tc.getCf()), new Text(tc.getCq()), new Text(tc.getCv()));
+    }
+
+    /**
+     * @return true if this condition reads exactly the same data as the other, through the same iterators
+     */
+    boolean readsSameAs(PendingCondition other) {
+      return other != null && range.equals(other.range) && Arrays.equals(tc.getIterators(), other.tc.getIterators());
+    }
+
+    @Override
+    public int compareTo(PendingCondition o) {
+      return range.getStartKey().compareTo(o.range.getStartKey());
+    }
+  }
+
+  /**
+   * Checks the conditions of all of the given mutations against one tablet. Conditions are evaluated in key order, so the underlying files are read forward,
+   * and one iterator stack is built per distinct iterator configuration and reseeked for each condition rather than rebuilt. Consecutive conditions that read
+   * the same data reuse the value already read.
+   *
+   * @return for each mutation, in order, whether all of its conditions passed
+   */
+  boolean[] checkConditions(SortedKeyValueIterator<Key,Value> systemIter, List<ServerConditionalMutation> scms) throws IOException {
+    boolean[] passed = new boolean[scms.size()];
+    Arrays.fill(passed, true);
+
+    List<PendingCondition> conditions = new ArrayList<>();
+    for (int i = 0; i < scms.size(); i++) {
+      ServerConditionalMutation scm = scms.get(i);
+      for (TCondition tc : scm.getConditions()) {
+        conditions.add(new PendingCondition(i, scm, tc));
+      }
+    }
+
+    Collections.sort(conditions);
 
-      SortedKeyValueIterator<Key,Value> iter = buildIterator(systemIter, tc);
+    Map<ByteSequence,SortedKeyValueIterator<Key,Value>> iterStacks = new HashMap<>();
+    PendingCondition previous = null;
+    byte[] previousVal = null;
 
-      ByteSequence cf = new ArrayByteSequence(tc.getCf());
-      iter.seek(range, Collections.singleton(cf), true);
-      Value val = null;
-      if (iter.hasTop()) {
-        val = iter.getTopValue();
+    for (PendingCondition pc : conditions) {
+      if (!passed[pc.mutation]) {
+        // another condition of this mutation already failed
+        continue;
       }
 
-      if ((val == null ^ tc.getVal() == null) || (val != null && !Arrays.equals(tc.getVal(), val.get()))) {
-        add = false;
-        break;
+      byte[] val;
+      if (pc.readsSameAs(previous)) {
+        val = previousVal;
+      } else {
+        ArrayByteSequence iterKey = new ArrayByteSequence(pc.tc.iterators);
+        SortedKeyValueIterator<Key,Value> iter = iterStacks.get(iterKey);
+        if (iter == null) {
+          iter = buildIterator(systemIter, pc.tc);
+          iterStacks.put(iterKey, iter);
+        }
+
+        ByteSequence cf = new ArrayByteSequence(pc.tc.getCf());
+        iter.seek(pc.range, Collections.singleton(cf), true);
+        val = iter.hasTop() ? iter.getTopValue().get() : null;
+
+        previous = pc;
+        previousVal = val;
+      }
+
+      if ((val == null ^ pc.tc.getVal() == null) || (val != null && !Arrays.equals(pc.tc.getVal(), val))) {
+        passed[pc.mutation] = false;
       }
     }
-    return add;
+
+    return passed;
   }
 
   public class ConditionChecker {
@@ -148,8 +209,10 @@ public class ConditionCheckerContext {
       checkArgument(!checked, "check() method should only be called once");
       checked = true;
 
-      for (ServerConditionalMutation scm : conditionsToCheck) {
-        if (checkConditions(systemIter, scm)) {
+      boolean[] passed = checkConditions(systemIter, conditionsToCheck);
+      for (int i = 0; i < passed.length; i++) {
+        ServerConditionalMutation scm = conditionsToCheck.get(i);
+        if (passed[i]) {
           okMutations.add(scm);
         } else {
           results.add(new TCMResult(scm.getID(), TCMStatus.REJECTED));
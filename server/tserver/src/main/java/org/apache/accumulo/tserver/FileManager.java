@@ -26,17 +26,21 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
 import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.PrefetchStats;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
@@ -113,6 +117,8 @@ public class FileManager {
   // null if unallocated
   private BlockCache dataCache = null;
   private BlockCache indexCache = null;
+  private ExecutorService prefetchExecutor = null;
+  private PrefetchStats prefetchStats = null;
 
   private long maxIdleTime;
 
@@ -163,14 +169,21 @@ public class FileManager {
    *          : underlying file can and should be able to handle a null cache
    * @param indexCache
    *          : underlying file can and should be able to handle a null cache
+   * @param prefetchExecutor
+   *          : fetches data blocks ahead of scans for tables that enable it
+   * @param prefetchStats
+   *          : counts the blocks fetched ahead
    */
-  public FileManager(AccumuloServerContext context, VolumeManager fs, int maxOpen, BlockCache dataCache, BlockCache indexCache) {
+  public FileManager(AccumuloServerContext context, VolumeManager fs, int maxOpen, BlockCache dataCache, BlockCache indexCache,
+      ExecutorService prefetchExecutor, PrefetchStats prefetchStats) {
 
     if (maxOpen <= 0)
       throw new IllegalArgumentException("maxOpen <= 0");
     this.context = context;
     this.dataCache = dataCache;
     this.indexCache = indexCache;
+    this.prefetchExecutor = prefetchExecutor;
+    this.prefetchStats = prefetchStats;
 
     this.filePermits = new Semaphore(maxOpen, true);
     this.maxOpen = maxOpen;
@@ -318,7 +331,7 @@ public class FileManager {
         // log.debug("Opening "+file + " path " + path);
         FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder().forFile(path.toString(), ns, ns.getConf())
             .withTableConfiguration(context.getServerConfigurationFactory().getTableConfiguration(tablet.getTableId())).withBlockCache(dataCache, indexCache)
-            .build();
+            .withPrefetchExecutor(prefetchExecutor, prefetchStats).build();
         reservedFiles.add(reader);
         readersReserved.put(reader, file);
       } catch (Exception e) {
@@ -506,6 +519,16 @@ public class FileManager {
 
     public synchronized List<InterruptibleIterator> openFiles(Map<FileRef,DataFileValue> files, boolean detachable, SamplerConfigurationImpl samplerConfig)
         throws IOException {
+      return openFiles(files, detachable, samplerConfig, null);
+    }
+
+    /**
+     * @param visibleFilter
+     *          if not null, the files may pass over data whose column visibilities do not satisfy this. Only use this when the keys returned are filtered by
+     *          visibility later.
+     */
+    public synchronized List<InterruptibleIterator> openFiles(Map<FileRef,DataFileValue> files, boolean detachable, SamplerConfigurationImpl samplerConfig,
+        Predicate<ByteSequence> visibleFilter) throws IOException {
 
       List<FileSKVIterator> newlyReservedReaders = openFileRefs(files.keySet());
 
@@ -523,6 +546,10 @@ public class FileManager {
           }
         }
 
+        if (visibleFilter != null) {
+          source = source.skipInvisibleBlocks(visibleFilter);
+        }
+
         if (detachable) {
           FileDataSource fds = new FileDataSource(filename, source);
           dataSources.add(fds);
@@ -552,6 +579,10 @@ public class FileManager {
     }
 
     public synchronized void reattach(SamplerConfigurationImpl samplerConfig) throws IOException {
+      reattach(samplerConfig, null);
+    }
+
+    public synchronized void reattach(SamplerConfigurationImpl samplerConfig, Predicate<ByteSequence> visibleFilter) throws IOException {
       if (tabletReservedReaders.size() != 0)
         throw new IllegalStateException();
 
@@ -581,6 +612,9 @@ public class FileManager {
             throw new SampleNotPresentException();
           }
         }
+        if (visibleFilter != null) {
+          source = source.skipInvisibleBlocks(visibleFilter);
+        }
         fds.setIterator(source);
       }
     }
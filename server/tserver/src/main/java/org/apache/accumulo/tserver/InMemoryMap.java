@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
@@ -88,6 +89,7 @@ public class InMemoryMap {
   private volatile String memDumpFile = null;
   private final String memDumpDir;
   private final String mapType;
+  private final boolean concurrentWrites;
 
   private Map<String,Set<ByteSequence>> lggroups;
 
@@ -108,6 +110,8 @@ public class InMemoryMap {
   public static final String TYPE_DEFAULT_MAP = "DefaultMap";
   public static final String TYPE_LOCALITY_GROUP_MAP = "LocalityGroupMap";
   public static final String TYPE_LOCALITY_GROUP_MAP_NATIVE = "LocalityGroupMap with native";
+  public static final String TYPE_OFF_HEAP_MAP_WRAPPER = "OffHeapMapWrapper";
+  public static final String TYPE_LOCALITY_GROUP_MAP_OFF_HEAP = "LocalityGroupMap with off heap";
 
   private AtomicReference<Pair<SamplerConfigurationImpl,Sampler>> samplerRef = new AtomicReference<>(null);
 
@@ -130,29 +134,31 @@ public class InMemoryMap {
   public InMemoryMap(AccumuloConfiguration config) throws LocalityGroupConfigurationError {
 
     boolean useNativeMap = config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
+    boolean useOffHeapMap = config.getBoolean(Property.TSERV_OFFHEAPMAP_ENABLED);
 
     this.memDumpDir = config.get(Property.TSERV_MEMDUMP_DIR);
     this.lggroups = LocalityGroupUtil.getLocalityGroups(config);
 
     this.config = config;
+    this.concurrentWrites = config.getBoolean(Property.TSERV_MEMORY_MAPS_CONCURRENT_WRITES);
 
     SimpleMap allMap;
     SimpleMap sampleMap;
 
     if (lggroups.size() == 0) {
-      allMap = newMap(useNativeMap);
-      sampleMap = newMap(useNativeMap);
-      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
+      allMap = newMap(useNativeMap, useOffHeapMap);
+      sampleMap = newMap(useNativeMap, useOffHeapMap);
+      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : (useOffHeapMap ? TYPE_OFF_HEAP_MAP_WRAPPER : TYPE_DEFAULT_MAP);
     } else {
-      allMap = new LocalityGroupMap(lggroups, useNativeMap);
-      sampleMap = new LocalityGroupMap(lggroups, useNativeMap);
-      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
+      allMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap);
+      sampleMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap);
+      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : (useOffHeapMap ? TYPE_LOCALITY_GROUP_MAP_OFF_HEAP : TYPE_LOCALITY_GROUP_MAP);
     }
 
     map = new SampleMap(allMap, sampleMap);
   }
 
-  private static SimpleMap newMap(boolean useNativeMap) {
+  private static SimpleMap newMap(boolean useNativeMap, boolean useOffHeapMap) {
     if (useNativeMap && NativeMap.isLoaded()) {
       try {
         return new NativeMapWrapper();
@@ -161,15 +167,23 @@ public class InMemoryMap {
       }
     }
 
+    if (useOffHeapMap) {
+      try {
+        return new OffHeapMapWrapper();
+      } catch (Throwable t) {
+        log.error("Failed to create off heap map", t);
+      }
+    }
+
     return new DefaultMap();
   }
 
   /**
    * Description of the type of SimpleMap that is created.
    * <p>
-   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP or TYPE_NATIVE_MAP_WRAPPER. If there is one more locality groups, then the
-   * InMemoryMap has an array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP which contains DefaultMaps or TYPE_LOCALITY_GROUP_MAP_NATIVE
-   * which contains NativeMapWrappers.
+   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP, TYPE_NATIVE_MAP_WRAPPER or TYPE_OFF_HEAP_MAP_WRAPPER. If there is one more
+   * locality groups, then the InMemoryMap has an array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP which contains DefaultMaps,
+   * TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers or TYPE_LOCALITY_GROUP_MAP_OFF_HEAP which contains OffHeapMapWrappers.
    *
    * @return String that describes the Map type
    */
@@ -190,6 +204,10 @@ public class InMemoryMap {
 
     long getMemoryUsed();
 
+    /**
+     * Inserts mutations using consecutive kvCounts starting at the one passed in. Implementations must allow multiple threads to call this concurrently, each
+     * with its own disjoint range of kvCounts.
+     */
     void mutate(List<Mutation> mutations, int kvCount);
   }
 
@@ -289,15 +307,13 @@ public class InMemoryMap {
     // the last map in the array is the default locality group
     private SimpleMap maps[];
     private Partitioner partitioner;
-    private PreAllocatedArray<List<Mutation>> partitioned;
 
-    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap) {
+    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap, boolean useOffHeapMap) {
       this.groupFams = new PreAllocatedArray<>(groups.size());
       this.maps = new SimpleMap[groups.size() + 1];
-      this.partitioned = new PreAllocatedArray<>(groups.size() + 1);
 
       for (int i = 0; i < maps.length; i++) {
-        maps[i] = newMap(useNativeMap);
+        maps[i] = newMap(useNativeMap, useOffHeapMap);
       }
 
       int count = 0;
@@ -309,10 +325,6 @@ public class InMemoryMap {
       }
 
       partitioner = new LocalityGroupUtil.Partitioner(this.groupFams);
-
-      for (int i = 0; i < partitioned.length; i++) {
-        partitioned.set(i, new ArrayList<Mutation>());
-      }
     }
 
     @Override
@@ -364,25 +376,20 @@ public class InMemoryMap {
     }
 
     @Override
-    public synchronized void mutate(List<Mutation> mutations, int kvCount) {
-      // this method is synchronized because it reuses objects to avoid allocation,
-      // currently, the method that calls this is synchronized so there is no
-      // loss in parallelism.... synchronization was added here for future proofing
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      // the partition lists are created per call instead of being reused so that multiple threads can write to the locality groups concurrently
+      PreAllocatedArray<List<Mutation>> partitioned = new PreAllocatedArray<>(maps.length);
+      for (int i = 0; i < partitioned.length; i++) {
+        partitioned.set(i, new ArrayList<Mutation>());
+      }
 
-      try {
-        partitioner.partition(mutations, partitioned);
+      partitioner.partition(mutations, partitioned);
 
-        for (int i = 0; i < partitioned.length; i++) {
-          if (partitioned.get(i).size() > 0) {
-            maps[i].mutate(partitioned.get(i), kvCount);
-            for (Mutation m : partitioned.get(i))
-              kvCount += m.getUpdates().size();
-          }
-        }
-      } finally {
-        // clear immediately so mutations can be garbage collected
-        for (List<Mutation> list : partitioned) {
-          list.clear();
+      for (int i = 0; i < partitioned.length; i++) {
+        if (partitioned.get(i).size() > 0) {
+          maps[i].mutate(partitioned.get(i), kvCount);
+          for (Mutation m : partitioned.get(i))
+            kvCount += m.getUpdates().size();
         }
       }
     }
@@ -507,11 +514,63 @@ public class InMemoryMap {
     }
   }
 
+  private static class OffHeapMapWrapper implements SimpleMap {
+    private OffHeapMap offHeapMap;
+
+    OffHeapMapWrapper() {
+      offHeapMap = new OffHeapMap();
+    }
+
+    @Override
+    public Value get(Key key) {
+      return offHeapMap.get(key);
+    }
+
+    @Override
+    public Iterator<Entry<Key,Value>> iterator(Key startKey) {
+      return offHeapMap.iterator(startKey);
+    }
+
+    @Override
+    public int size() {
+      return offHeapMap.size();
+    }
+
+    @Override
+    public InterruptibleIterator skvIterator(SamplerConfigurationImpl samplerConfig) {
+      if (samplerConfig != null)
+        throw new SampleNotPresentException();
+      return (InterruptibleIterator) offHeapMap.skvIterator();
+    }
+
+    @Override
+    public void delete() {
+      offHeapMap.delete();
+    }
+
+    @Override
+    public long getMemoryUsed() {
+      return offHeapMap.getMemoryUsed();
+    }
+
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      offHeapMap.mutate(mutations, kvCount);
+    }
+  }
+
   private AtomicInteger nextKVCount = new AtomicInteger(1);
   private AtomicInteger kvCount = new AtomicInteger(0);
 
   private Object writeSerializer = new Object();
 
+  // writes that finished before a write that started earlier, maps the first kvCount of a write to its last kvCount
+  private final TreeMap<Integer,Integer> finishedWrites = new TreeMap<>();
+
+  // the first kvCount of a write that failed part way, nothing at or after it can be made visible without exposing a partial mutation
+  private volatile int failedKV = Integer.MAX_VALUE;
+  private Throwable failure = null;
+
   /**
    * Applies changes to a row in the InMemoryMap
    *
@@ -521,6 +580,11 @@ public class InMemoryMap {
     for (int i = 0; i < mutations.size(); i++)
       numKVs += mutations.get(i).size();
 
+    if (concurrentWrites) {
+      concurrentMutate(mutations, numKVs);
+      return;
+    }
+
     // Can not update mutationCount while writes that started before
     // are in progress, this would cause partial mutations to be seen.
     // Also, can not continue until mutation count is updated, because
@@ -529,12 +593,90 @@ public class InMemoryMap {
     //
     // using separate lock from this map, to allow read/write in parallel
     synchronized (writeSerializer) {
+      checkNoFailedWrite();
       int kv = nextKVCount.getAndAdd(numKVs);
       try {
         map.mutate(mutations, kv);
-      } finally {
-        kvCount.set(kv + numKVs - 1);
+      } catch (RuntimeException | Error e) {
+        failWrite(kv, e);
+        throw e;
       }
+      kvCount.set(kv + numKVs - 1);
+    }
+  }
+
+  /**
+   * Inserts into the map without holding a lock, so that multiple threads can write to the same tablet at once. Each write reserves its own range of
+   * kvCounts. The kvCount visible to readers only advances over a contiguous prefix of finished writes, so partial mutations are never seen, and this method
+   * does not return until all writes that started before it are visible.
+   */
+  private void concurrentMutate(List<Mutation> mutations, int numKVs) {
+    if (numKVs == 0)
+      return;
+
+    checkNoFailedWrite();
+    int kv = nextKVCount.getAndAdd(numKVs);
+    try {
+      map.mutate(mutations, kv);
+    } catch (RuntimeException | Error e) {
+      failWrite(kv, e);
+      throw e;
+    }
+    finishWrite(kv, kv + numKVs - 1);
+  }
+
+  private void checkNoFailedWrite() {
+    if (failedKV != Integer.MAX_VALUE) {
+      synchronized (writeSerializer) {
+        throw new IllegalStateException("A previous write to the in memory map failed", failure);
+      }
+    }
+  }
+
+  /**
+   * Records a write that failed after inserting some of its key/values. Its kvCounts are never published, so readers do not see the partial mutation. Since
+   * making any later write visible would also expose it, writes that started after it fail too and the map accepts no more writes.
+   */
+  private void failWrite(int firstKV, Throwable e) {
+    synchronized (writeSerializer) {
+      if (firstKV < failedKV) {
+        failedKV = firstKV;
+        failure = e;
+      }
+      writeSerializer.notifyAll();
+    }
+  }
+
+  private void finishWrite(int firstKV, int lastKV) {
+    synchronized (writeSerializer) {
+      if (kvCount.get() == firstKV - 1) {
+        int visible = lastKV;
+        Integer last;
+        while ((last = finishedWrites.remove(visible + 1)) != null) {
+          visible = last;
+        }
+        kvCount.set(visible);
+        writeSerializer.notifyAll();
+      } else {
+        finishedWrites.put(firstKV, lastKV);
+      }
+
+      boolean interrupted = false;
+      while (kvCount.get() < lastKV) {
+        if (failedKV < firstKV) {
+          if (interrupted)
+            Thread.currentThread().interrupt();
+          throw new IllegalStateException("A write to the in memory map that started before this one failed", failure);
+        }
+        try {
+          writeSerializer.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+
+      if (interrupted)
+        Thread.currentThread().interrupt();
     }
   }
 
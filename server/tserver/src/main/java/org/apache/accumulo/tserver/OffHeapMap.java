@@ -0,0 +1,620 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.accumulo.core.client.SampleNotPresentException;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.util.PreAllocatedArray;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A sorted map of {@link MemKey}s to values that keeps all keys and values in direct memory, outside of the Java heap. It is a pure Java alternative to
+ * {@link NativeMap} for hosts where the native library can not be built or loaded.
+ *
+ * <p>
+ * Entries are stored as nodes of a skip list that are allocated from an arena of direct byte buffers. Nodes are never moved or freed individually, all of the
+ * memory is released at once when the map is deleted. Like {@link NativeMap}, writers hold a write lock and readers hold a read lock while reading a small
+ * batch of entries. Because nodes never move, an iterator only needs to remember the node it stopped at to continue after a concurrent write.
+ */
+public class OffHeapMap implements Iterable<Map.Entry<Key,Value>> {
+
+  private static final int MAX_LEVEL = 24;
+
+  // node layout : level(1) next pointers(8 * level) header data
+  // header layout : rowLen(4) cfLen(4) cqLen(4) cvLen(4) valLen(4) timestamp(8) deleted(1) kvCount(4)
+  private static final int NEXT_OFFSET = 1;
+  private static final int HEADER_SIZE = 4 * 5 + 8 + 1 + 4;
+
+  private static final int MIN_CHUNK_SIZE = 1 << 16;
+  private static final int MAX_CHUNK_SIZE = 1 << 22;
+
+  private final ReadWriteLock rwLock;
+  private final Lock rlock;
+  private final Lock wlock;
+
+  // a pointer to a node is the chunk index plus one in the high 32 bits and the offset in the chunk in the low 32 bits, zero is the head of the list
+  private List<ByteBuffer> chunks = new ArrayList<>();
+  private ByteBuffer currentChunk = null;
+  private int currentChunkIndex = -1;
+
+  private final long[] head = new long[MAX_LEVEL];
+  private int topLevel = 1;
+  private final Random random = new Random();
+
+  private int size = 0;
+  private long memoryAllocated = 0;
+  private boolean deleted = false;
+
+  public OffHeapMap() {
+    rwLock = new ReentrantReadWriteLock();
+    rlock = rwLock.readLock();
+    wlock = rwLock.writeLock();
+  }
+
+  private ByteBuffer chunk(long ptr) {
+    return chunks.get((int) (ptr >>> 32) - 1);
+  }
+
+  private static int offset(long ptr) {
+    return (int) ptr;
+  }
+
+  // it is assumed the write lock is held when this method is called
+  private long allocate(int len) {
+    if (currentChunk == null || currentChunk.remaining() < len) {
+      int chunkSize = currentChunk == null ? MIN_CHUNK_SIZE : Math.min(currentChunk.capacity() * 2, MAX_CHUNK_SIZE);
+      ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, len));
+      memoryAllocated += chunk.capacity();
+      chunks.add(chunk);
+
+      if (len > chunkSize) {
+        // give large entries their own chunk and keep filling the current one
+        chunk.position(len);
+        return ((long) chunks.size()) << 32;
+      }
+
+      currentChunk = chunk;
+      currentChunkIndex = chunks.size() - 1;
+    }
+
+    int offset = currentChunk.position();
+    currentChunk.position(offset + len);
+    return (((long) currentChunkIndex + 1) << 32) | offset;
+  }
+
+  private long getNext(long node, int level) {
+    if (node == 0)
+      return head[level];
+    return chunk(node).getLong(offset(node) + NEXT_OFFSET + level * 8);
+  }
+
+  private void setNext(long node, int level, long next) {
+    if (node == 0)
+      head[level] = next;
+    else
+      chunk(node).putLong(offset(node) + NEXT_OFFSET + level * 8, next);
+  }
+
+  private int dataOffset(long node) {
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+    return off + NEXT_OFFSET + buf.get(off) * 8;
+  }
+
+  private static int compareBytes(ByteBuffer buf, int off, int len, byte[] b) {
+    int end = Math.min(len, b.length);
+    for (int i = 0; i < end; i++) {
+      int cmp = (buf.get(off + i) & 0xff) - (b[i] & 0xff);
+      if (cmp != 0)
+        return cmp;
+    }
+    return len - b.length;
+  }
+
+  /**
+   * Compares the key stored in a node to the key passed in, using the same order as {@link MemKeyComparator}.
+   */
+  private int compare(long node, byte[] row, byte[] cf, byte[] cq, byte[] cv, long ts, boolean del, int kvCount) {
+    ByteBuffer buf = chunk(node);
+    int hdr = dataOffset(node);
+    int rowLen = buf.getInt(hdr);
+    int cfLen = buf.getInt(hdr + 4);
+    int cqLen = buf.getInt(hdr + 8);
+    int cvLen = buf.getInt(hdr + 12);
+    int data = hdr + HEADER_SIZE;
+
+    int cmp = compareBytes(buf, data, rowLen, row);
+    if (cmp != 0)
+      return cmp;
+    data += rowLen;
+
+    cmp = compareBytes(buf, data, cfLen, cf);
+    if (cmp != 0)
+      return cmp;
+    data += cfLen;
+
+    cmp = compareBytes(buf, data, cqLen, cq);
+    if (cmp != 0)
+      return cmp;
+    data += cqLen;
+
+    cmp = compareBytes(buf, data, cvLen, cv);
+    if (cmp != 0)
+      return cmp;
+
+    long nodeTs = buf.getLong(hdr + 20);
+    if (nodeTs != ts)
+      return nodeTs < ts ? 1 : -1;
+
+    boolean nodeDel = buf.get(hdr + 28) != 0;
+    if (nodeDel != del)
+      return nodeDel ? -1 : 1;
+
+    return Integer.compare(kvCount, buf.getInt(hdr + 29));
+  }
+
+  private int compare(long node, Key key) {
+    // a key that is not a MemKey sorts before all MemKeys with the same fields
+    int kvCount = key instanceof MemKey ? ((MemKey) key).getKVCount() : Integer.MAX_VALUE;
+    return compare(node, key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(), key
+        .getColumnVisibilityData().toArray(), key.getTimestamp(), key.isDeleted(), kvCount);
+  }
+
+  // it is assumed the read lock is held when this method is called, returns the last node less than the key
+  private long findPredecessor(Key key) {
+    long x = 0;
+    for (int level = topLevel - 1; level >= 0; level--) {
+      long next;
+      while ((next = getNext(x, level)) != 0 && compare(next, key) < 0)
+        x = next;
+    }
+    return x;
+  }
+
+  // it is assumed the write lock is held when this method is called
+  private void insert(byte[] row, byte[] cf, byte[] cq, byte[] cv, long ts, boolean del, byte[] val, int kvCount) {
+    long update[] = new long[MAX_LEVEL];
+    long x = 0;
+    for (int level = topLevel - 1; level >= 0; level--) {
+      long next;
+      while ((next = getNext(x, level)) != 0 && compare(next, row, cf, cq, cv, ts, del, kvCount) < 0)
+        x = next;
+      update[level] = x;
+    }
+
+    // like the native map, an entry with an identical key replaces the existing entry. The old node is unlinked, but its memory is not reclaimed until the
+    // map is deleted and an iterator positioned on it can still follow its next pointers.
+    boolean replaced = false;
+    long existing = getNext(update[0], 0);
+    if (existing != 0 && compare(existing, row, cf, cq, cv, ts, del, kvCount) == 0) {
+      int existingLevel = chunk(existing).get(offset(existing));
+      for (int i = 0; i < existingLevel; i++) {
+        if (getNext(update[i], i) == existing)
+          setNext(update[i], i, getNext(existing, i));
+      }
+      replaced = true;
+    }
+
+    int level = 1;
+    while (level < MAX_LEVEL && random.nextInt(4) == 0)
+      level++;
+
+    if (level > topLevel) {
+      for (int i = topLevel; i < level; i++)
+        update[i] = 0;
+      topLevel = level;
+    }
+
+    int len = NEXT_OFFSET + level * 8 + HEADER_SIZE + row.length + cf.length + cq.length + cv.length + val.length;
+    long node = allocate(len);
+
+    ByteBuffer buf = chunk(node).duplicate();
+    int off = offset(node);
+    buf.put(off, (byte) level);
+    int hdr = off + NEXT_OFFSET + level * 8;
+    buf.putInt(hdr, row.length);
+    buf.putInt(hdr + 4, cf.length);
+    buf.putInt(hdr + 8, cq.length);
+    buf.putInt(hdr + 12, cv.length);
+    buf.putInt(hdr + 16, val.length);
+    buf.putLong(hdr + 20, ts);
+    buf.put(hdr + 28, (byte) (del ? 1 : 0));
+    buf.putInt(hdr + 29, kvCount);
+    buf.position(hdr + HEADER_SIZE);
+    buf.put(row);
+    buf.put(cf);
+    buf.put(cq);
+    buf.put(cv);
+    buf.put(val);
+
+    for (int i = 0; i < level; i++) {
+      setNext(node, i, getNext(update[i], i));
+      setNext(update[i], i, node);
+    }
+
+    if (!replaced)
+      size++;
+  }
+
+  // it is assumed the read lock is held when this method is called
+  private Entry<Key,Value> readEntry(long node) {
+    ByteBuffer buf = chunk(node).duplicate();
+    int hdr = dataOffset(node);
+
+    byte row[] = new byte[buf.getInt(hdr)];
+    byte cf[] = new byte[buf.getInt(hdr + 4)];
+    byte cq[] = new byte[buf.getInt(hdr + 8)];
+    byte cv[] = new byte[buf.getInt(hdr + 12)];
+    byte val[] = new byte[buf.getInt(hdr + 16)];
+    long ts = buf.getLong(hdr + 20);
+    boolean del = buf.get(hdr + 28) != 0;
+    int kvCount = buf.getInt(hdr + 29);
+
+    buf.position(hdr + HEADER_SIZE);
+    buf.get(row);
+    buf.get(cf);
+    buf.get(cq);
+    buf.get(cv);
+    buf.get(val);
+
+    return new SimpleImmutableEntry<Key,Value>(new MemKey(row, cf, cq, cv, ts, del, false, kvCount), new Value(val, false));
+  }
+
+  private void checkNotDeleted() {
+    if (deleted) {
+      throw new IllegalStateException("Off heap map deleted");
+    }
+  }
+
+  private class ConcurrentIterator implements Iterator<Map.Entry<Key,Value>> {
+
+    // read several entries each time the read lock is acquired so that concurrent readers and writers do not contend on the lock for every entry
+    private static final int MAX_READ_AHEAD_ENTRIES = 16;
+    private static final int READ_AHEAD_BYTES = 4096;
+
+    // the last node read, entries are read by following its next pointer so that entries inserted after it are seen
+    private long lastNode;
+
+    private PreAllocatedArray<Entry<Key,Value>> nextEntries;
+    private int index;
+    private int end;
+
+    ConcurrentIterator() {
+      this(new MemKey());
+    }
+
+    ConcurrentIterator(Key key) {
+      // start off with a small read ahead
+      nextEntries = new PreAllocatedArray<>(1);
+
+      rlock.lock();
+      try {
+        checkNotDeleted();
+        lastNode = findPredecessor(key);
+        fill();
+      } finally {
+        rlock.unlock();
+      }
+    }
+
+    // it is assumed the read lock is held when this method is called
+    private void fill() {
+      end = 0;
+      index = 0;
+
+      checkNotDeleted();
+
+      int amountRead = 0;
+
+      // as we keep filling, increase the read ahead buffer
+      if (nextEntries.length < MAX_READ_AHEAD_ENTRIES)
+        nextEntries = new PreAllocatedArray<>(Math.min(nextEntries.length * 2, MAX_READ_AHEAD_ENTRIES));
+
+      long nextNode;
+      while ((nextNode = getNext(lastNode, 0)) != 0 && end < nextEntries.length) {
+        Entry<Key,Value> ne = readEntry(nextNode);
+        lastNode = nextNode;
+        nextEntries.set(end++, ne);
+        amountRead += ne.getKey().getSize() + ne.getValue().getSize();
+
+        if (amountRead > READ_AHEAD_BYTES)
+          break;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return end != 0;
+    }
+
+    @Override
+    public Entry<Key,Value> next() {
+      if (end == 0) {
+        throw new NoSuchElementException();
+      }
+
+      Entry<Key,Value> ret = nextEntries.get(index++);
+
+      if (index == end) {
+        rlock.lock();
+        try {
+          fill();
+        } finally {
+          rlock.unlock();
+        }
+      }
+
+      return ret;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @VisibleForTesting
+  public void mutate(Mutation mutation, int mutationCount) {
+    mutate(Collections.singletonList(mutation), mutationCount);
+  }
+
+  void mutate(List<Mutation> mutations, int mutationCount) {
+    Iterator<Mutation> iter = mutations.iterator();
+
+    while (iter.hasNext()) {
+
+      wlock.lock();
+      try {
+        checkNotDeleted();
+
+        int count = 0;
+        while (iter.hasNext() && count < 10) {
+          Mutation mutation = iter.next();
+          byte[] row = mutation.getRow();
+          for (ColumnUpdate update : mutation.getUpdates()) {
+            insert(row, update.getColumnFamily(), update.getColumnQualifier(), update.getColumnVisibility(), update.getTimestamp(), update.isDeleted(),
+                update.getValue(), mutationCount++);
+          }
+          count += mutation.size();
+        }
+      } finally {
+        wlock.unlock();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  public void put(Key key, Value value) {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+
+      insert(key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(), key.getColumnVisibilityData().toArray(),
+          key.getTimestamp(), key.isDeleted(), value.get(), key instanceof MemKey ? ((MemKey) key).getKVCount() : 0);
+    } finally {
+      wlock.unlock();
+    }
+  }
+
+  public Value get(Key key) {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+
+      long node = getNext(findPredecessor(key), 0);
+      if (node != 0) {
+        Entry<Key,Value> entry = readEntry(node);
+        if (entry.getKey().equals(key)) {
+          return entry.getValue();
+        }
+      }
+
+      return null;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  public int size() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return size;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  /**
+   * @return the amount of direct memory allocated by this map, which includes space reserved for entries that have not been written yet
+   */
+  public long getMemoryUsed() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return memoryAllocated;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<Key,Value>> iterator() {
+    return new ConcurrentIterator();
+  }
+
+  public Iterator<Map.Entry<Key,Value>> iterator(Key startKey) {
+    return new ConcurrentIterator(startKey);
+  }
+
+  /**
+   * Releases all memory held by this map. The direct buffers are freed by the JVM once they are no longer referenced.
+   */
+  public void delete() {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+
+      deleted = true;
+      chunks = null;
+      currentChunk = null;
+      size = 0;
+      memoryAllocated = 0;
+    } finally {
+      wlock.unlock();
+    }
+  }
+
+  private static class OHMSKVIter implements InterruptibleIterator {
+
+    private ConcurrentIterator iter;
+    private Entry<Key,Value> entry;
+
+    private OffHeapMap map;
+    private Range range;
+    private AtomicBoolean interruptFlag;
+    private int interruptCheckCount = 0;
+
+    private OHMSKVIter(OffHeapMap map, AtomicBoolean interruptFlag) {
+      this.map = map;
+      this.range = new Range();
+      iter = map.new ConcurrentIterator();
+      if (iter.hasNext())
+        entry = iter.next();
+      else
+        entry = null;
+
+      this.interruptFlag = interruptFlag;
+    }
+
+    public OHMSKVIter(OffHeapMap map) {
+      this(map, null);
+    }
+
+    @Override
+    public Key getTopKey() {
+      return entry.getKey();
+    }
+
+    @Override
+    public Value getTopValue() {
+      return entry.getValue();
+    }
+
+    @Override
+    public boolean hasTop() {
+      return entry != null;
+    }
+
+    @Override
+    public void next() throws IOException {
+
+      if (entry == null)
+        throw new IllegalStateException();
+
+      // checking the interrupt flag for every call to next had bad a bad performance impact
+      // so check it every 100th time
+      if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+
+      if (interruptFlag != null && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      this.range = range;
+
+      Key key = range.getStartKey();
+      if (key == null) {
+        key = new MemKey();
+      }
+
+      iter = map.new ConcurrentIterator(key);
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+
+      while (hasTop() && range.beforeStartKey(getTopKey())) {
+        next();
+      }
+    }
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options, IteratorEnvironment env) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      if (env != null && env.isSamplingEnabled()) {
+        throw new SampleNotPresentException();
+      }
+      return new OHMSKVIter(map, interruptFlag);
+    }
+
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      this.interruptFlag = flag;
+    }
+  }
+
+  public SortedKeyValueIterator<Key,Value> skvIterator() {
+    return new OHMSKVIter(this);
+  }
+}
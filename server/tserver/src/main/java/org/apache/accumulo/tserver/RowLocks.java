@@ -17,10 +17,10 @@
 package org.apache.accumulo.tserver;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.accumulo.core.data.ArrayByteSequence;
@@ -30,16 +30,18 @@ import org.apache.accumulo.tserver.ConditionalMutationSet.DeferFilter;
 import org.apache.accumulo.tserver.data.ServerConditionalMutation;
 
 /**
- *
+ * Per row locks for conditional mutations. The lock table is a concurrent map, and a lock's reference count is only changed while the map holds the bin for
+ * its row, so acquiring and releasing locks for different rows does not contend on a single monitor.
  */
 class RowLocks {
 
-  private Map<ByteSequence,RowLock> rowLocks = new HashMap<>();
+  private final ConcurrentHashMap<ByteSequence,RowLock> rowLocks = new ConcurrentHashMap<>();
 
   static class RowLock {
-    ReentrantLock rlock;
+    final ReentrantLock rlock;
+    // only read or written inside a compute call on the row's map entry
     int count;
-    ByteSequence rowSeq;
+    final ByteSequence rowSeq;
 
     RowLock(ReentrantLock rlock, ByteSequence rowSeq) {
       this.rlock = rlock;
@@ -61,35 +63,31 @@ class RowLocks {
   }
 
   private RowLock getRowLock(ArrayByteSequence rowSeq) {
-    RowLock lock = rowLocks.get(rowSeq);
-    if (lock == null) {
-      lock = new RowLock(new ReentrantLock(), rowSeq);
-      rowLocks.put(rowSeq, lock);
-    }
-
-    lock.count++;
-    return lock;
+    return rowLocks.compute(rowSeq, (row, lock) -> {
+      if (lock == null) {
+        lock = new RowLock(new ReentrantLock(), row);
+      }
+      lock.count++;
+      return lock;
+    });
   }
 
   private void returnRowLock(RowLock lock) {
-    if (lock.count == 0)
-      throw new IllegalStateException();
-    lock.count--;
-
-    if (lock.count == 0) {
-      rowLocks.remove(lock.rowSeq);
-    }
+    rowLocks.compute(lock.rowSeq, (row, current) -> {
+      if (current != lock || lock.count == 0)
+        throw new IllegalStateException();
+      lock.count--;
+      return lock.count == 0 ? null : lock;
+    });
   }
 
   List<RowLock> acquireRowlocks(Map<KeyExtent,List<ServerConditionalMutation>> updates, Map<KeyExtent,List<ServerConditionalMutation>> deferred) {
     ArrayList<RowLock> locks = new ArrayList<>();
 
     // assume that mutations are in sorted order to avoid deadlock
-    synchronized (rowLocks) {
-      for (List<ServerConditionalMutation> scml : updates.values()) {
-        for (ServerConditionalMutation scm : scml) {
-          locks.add(getRowLock(new ArrayByteSequence(scm.getRow())));
-        }
+    for (List<ServerConditionalMutation> scml : updates.values()) {
+      for (ServerConditionalMutation scm : scml) {
+        locks.add(getRowLock(new ArrayByteSequence(scm.getRow())));
       }
     }
 
@@ -136,10 +134,8 @@ class RowLocks {
         }
       }
 
-      synchronized (rowLocks) {
-        for (RowLock rowLock : locksToReturn) {
-          returnRowLock(rowLock);
-        }
+      for (RowLock rowLock : locksToReturn) {
+        returnRowLock(rowLock);
       }
 
       locks = filteredLocks;
@@ -147,15 +143,20 @@ class RowLocks {
     return locks;
   }
 
+  /**
+   * @return the number of rows in the lock table, a row stays in it while any update holds or waits for its lock
+   */
+  int size() {
+    return rowLocks.size();
+  }
+
   void releaseRowLocks(List<RowLock> locks) {
     for (RowLock rowLock : locks) {
       rowLock.unlock();
     }
 
-    synchronized (rowLocks) {
-      for (RowLock rowLock : locks) {
-        returnRowLock(rowLock);
-      }
+    for (RowLock rowLock : locks) {
+      returnRowLock(rowLock);
     }
   }
 
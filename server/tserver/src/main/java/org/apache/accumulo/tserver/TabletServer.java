@@ -113,6 +113,7 @@ import org.apache.accumulo.core.data.thrift.TSummaries;
 import org.apache.accumulo.core.data.thrift.TSummaryRequest;
 import org.apache.accumulo.core.data.thrift.UpdateErrors;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.PrefetchStats;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.master.thrift.BulkImportState;
 import org.apache.accumulo.core.master.thrift.Compacting;
@@ -242,6 +243,8 @@ import org.apache.accumulo.tserver.replication.ReplicationServicerHandler;
 import org.apache.accumulo.tserver.replication.ReplicationWorker;
 import org.apache.accumulo.tserver.scan.LookupTask;
 import org.apache.accumulo.tserver.scan.NextBatchTask;
+import org.apache.accumulo.tserver.scan.ScanBatchSizer;
+import org.apache.accumulo.tserver.scan.ScanBatchStream;
 import org.apache.accumulo.tserver.scan.ScanRunState;
 import org.apache.accumulo.tserver.session.ConditionalSession;
 import org.apache.accumulo.tserver.session.MultiScanSession;
@@ -296,6 +299,10 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
   private final Metrics scanMetrics;
   private final Metrics mincMetrics;
 
+  public Metrics getUpdateMetrics() {
+    return updateMetrics;
+  }
+
   public Metrics getScanMetrics() {
     return scanMetrics;
   }
@@ -392,7 +399,8 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
     final RetryFactory walCreationRetryFactory = new RetryFactory(toleratedWalCreationFailures, walCreationFailureRetryIncrement,
         walCreationFailureRetryIncrement, walCreationFailureRetryMax);
 
-    logger = new TabletServerLogger(this, walogMaxSize, syncCounter, flushCounter, walCreationRetryFactory, walogMaxAge);
+    logger = new TabletServerLogger(this, walogMaxSize, syncCounter, flushCounter, walCreationRetryFactory, walogMaxAge,
+        aconf.getCount(Property.TSERV_WAL_STREAMS));
     this.resourceManager = new TabletServerResourceManager(this, fs);
     this.security = AuditedSecurityOperation.getInstance(this);
 
@@ -527,8 +535,16 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
         columnSet.add(new Column(tcolumn));
       }
 
+      // metadata scans read ahead inline or on their own pool, so they are not streamed
+      int streamBatches = extent.isMeta() ? 0 : tablet.getTableConfiguration().getCount(Property.TABLE_SCAN_STREAM_BATCHES);
+
+      long batchMemory = tablet.getTableConfiguration().getAsBytes(Property.TABLE_SCAN_MAXMEM);
+      long maxBatchMemory = tablet.getTableConfiguration().getAsBytes(Property.TABLE_SCAN_MAXMEM_ADAPTIVE);
+
       final ScanSession scanSession = new ScanSession(credentials, extent, columnSet, ssiList, ssio, new Authorizations(authorizations), readaheadThreshold,
-          batchTimeOut, context);
+          streamBatches, batchMemory, batchTimeOut, context);
+      if (maxBatchMemory > 0)
+        scanSession.batchSizer = new ScanBatchSizer(batchMemory, maxBatchMemory, batchSize, scanMetrics);
       scanSession.scanner = tablet.createScanner(new Range(range), batchSize, scanSession.columnSet, scanSession.auths, ssiList, ssio, isolated,
           scanSession.interruptFlag, SamplerConfigurationImpl.fromThrift(tSamplerConfig), scanSession.batchTimeOut, scanSession.context);
 
@@ -565,15 +581,21 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
     private ScanResult continueScan(TInfo tinfo, long scanID, ScanSession scanSession) throws NoSuchScanIDException, NotServingTabletException,
         org.apache.accumulo.core.tabletserver.thrift.TooManyFilesException, TSampleNotPresentException {
 
-      if (scanSession.nextBatchTask == null) {
+      ScanBatchStream batchStream = scanSession.batchStream;
+      if (batchStream == null && scanSession.nextBatchTask == null) {
         scanSession.nextBatchTask = new NextBatchTask(TabletServer.this, scanID, scanSession.interruptFlag);
-        resourceManager.executeReadAhead(scanSession.extent, scanSession.nextBatchTask);
+        resourceManager.executeReadAhead(scanSession, scanSession.nextBatchTask);
       }
 
+      long waitStart = System.currentTimeMillis();
       ScanBatch bresult;
       try {
-        bresult = scanSession.nextBatchTask.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
-        scanSession.nextBatchTask = null;
+        if (batchStream != null) {
+          bresult = batchStream.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+          bresult = scanSession.nextBatchTask.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
+          scanSession.nextBatchTask = null;
+        }
       } catch (ExecutionException e) {
         sessionManager.removeSession(scanID);
         if (e.getCause() instanceof NotServingTabletException)
@@ -587,6 +609,8 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
           List<KVEntry> empty = Collections.emptyList();
           bresult = new ScanBatch(empty, true);
           scanSession.nextBatchTask = null;
+          // the stream stopped at the error, the next batch is read without it
+          scanSession.batchStream = null;
         } else {
           throw new RuntimeException(e);
         }
@@ -608,17 +632,29 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
         throw new RuntimeException(t);
       }
 
+      if (scanSession.batchSizer != null) {
+        long now = System.currentTimeMillis();
+        scanSession.batchSizer.batchTaken(now - waitStart, now);
+      }
+
       ScanResult scanResult = new ScanResult(Key.compress(bresult.getResults()), bresult.isMore());
 
       scanSession.entriesReturned += scanResult.results.size();
 
       scanSession.batchCount++;
 
-      if (scanResult.more && scanSession.batchCount > scanSession.readaheadThreshold) {
-        // start reading next batch while current batch is transmitted
-        // to client
-        scanSession.nextBatchTask = new NextBatchTask(TabletServer.this, scanID, scanSession.interruptFlag);
-        resourceManager.executeReadAhead(scanSession.extent, scanSession.nextBatchTask);
+      if (scanResult.more && scanSession.batchCount > scanSession.readaheadThreshold && scanSession.batchStream == null) {
+        if (scanSession.streamBatches > 1) {
+          // keep reading batches while the client takes the ones already read, staying up to streamBatches ahead of it
+          scanSession.batchStream = new ScanBatchStream(TabletServer.this, scanID, scanSession.interruptFlag,
+              task -> resourceManager.executeReadAhead(scanSession, task), scanSession.streamBatches, scanSession::getBatchMemory);
+          scanSession.batchStream.start();
+        } else {
+          // start reading next batch while current batch is transmitted
+          // to client
+          scanSession.nextBatchTask = new NextBatchTask(TabletServer.this, scanID, scanSession.interruptFlag);
+          resourceManager.executeReadAhead(scanSession, scanSession.nextBatchTask);
+        }
       }
 
       if (!scanResult.more)
@@ -728,12 +764,13 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
 
       if (session.lookupTask == null) {
         session.lookupTask = new LookupTask(TabletServer.this, scanID);
-        resourceManager.executeReadAhead(session.threadPoolExtent, session.lookupTask);
+        resourceManager.executeReadAhead(session, session.lookupTask);
       }
 
       try {
         MultiScanResult scanResult = session.lookupTask.get(MAX_TIME_TO_WAIT_FOR_SCAN_RESULT_MILLIS, TimeUnit.MILLISECONDS);
         session.lookupTask = null;
+        session.batchCount++;
         return scanResult;
       } catch (ExecutionException e) {
         sessionManager.removeSession(scanID);
@@ -1799,12 +1836,8 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
 
     @Override
     public List<String> getActiveLogs(TInfo tinfo, TCredentials credentials) throws TException {
-      String log = logger.getLogFile();
-      // Might be null if there no active logger
-      if (null == log) {
-        return Collections.emptyList();
-      }
-      return Collections.singletonList(log);
+      // Might be empty if there no active logger
+      return logger.getLogFiles();
     }
 
     @Override
@@ -3206,6 +3239,10 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
     return resourceManager.holdTime();
   }
 
+  public PrefetchStats getBlockPrefetchStats() {
+    return resourceManager.getBlockPrefetchStats();
+  }
+
   public SecurityOperation getSecurityOperation() {
     return security;
   }
@@ -21,17 +21,21 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -44,6 +48,8 @@ import org.apache.accumulo.core.file.blockfile.cache.BlockCacheManager;
 import org.apache.accumulo.core.file.blockfile.cache.CacheType;
 import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
 import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.PrefetchStats;
+import org.apache.accumulo.core.iterators.system.CachedVisibilityEvaluator;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
 import org.apache.accumulo.core.util.Daemon;
 import org.apache.accumulo.core.util.NamingThreadFactory;
@@ -56,14 +62,22 @@ import org.apache.accumulo.server.tabletserver.MemoryManagementActions;
 import org.apache.accumulo.server.tabletserver.MemoryManager;
 import org.apache.accumulo.server.tabletserver.TabletState;
 import org.apache.accumulo.server.util.time.SimpleTimer;
+import org.apache.accumulo.start.classloader.vfs.AccumuloVFSClassLoader;
 import org.apache.accumulo.tserver.FileManager.ScanFileManager;
 import org.apache.accumulo.tserver.TabletServer.AssignmentHandler;
+import org.apache.accumulo.tserver.compaction.CompactionPlan;
 import org.apache.accumulo.tserver.compaction.CompactionStrategy;
 import org.apache.accumulo.tserver.compaction.DefaultCompactionStrategy;
 import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
 import org.apache.accumulo.tserver.compaction.MajorCompactionRequest;
+import org.apache.accumulo.tserver.scan.ScanDispatcher;
+import org.apache.accumulo.tserver.scan.ScanInfo;
+import org.apache.accumulo.tserver.scan.ScanPrioritizer;
+import org.apache.accumulo.tserver.session.MultiScanSession;
+import org.apache.accumulo.tserver.session.ScanSession;
 import org.apache.accumulo.tserver.tablet.Tablet;
 import org.apache.htrace.wrappers.TraceExecutorService;
+import org.apache.htrace.wrappers.TraceRunnable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,6 +92,10 @@ public class TabletServerResourceManager {
 
   private final ExecutorService minorCompactionThreadPool;
   private final ExecutorService majorCompactionThreadPool;
+  private final ExecutorService largeMajorCompactionThreadPool;
+  private final long largeMajorCompactionSize;
+  private final ExecutorService majorCompactionSubRangePool;
+  private final ExecutorService majorCompactionPlanningPool;
   private final ExecutorService rootMajorCompactionThreadPool;
   private final ExecutorService defaultMajorCompactionThreadPool;
   private final ExecutorService splitThreadPool;
@@ -86,11 +104,13 @@ public class TabletServerResourceManager {
   private final ExecutorService migrationPool;
   private final ExecutorService assignmentPool;
   private final ExecutorService assignMetaDataPool;
-  private final ExecutorService readAheadThreadPool;
+  private final Map<String,ExecutorService> scanExecutors;
   private final ExecutorService defaultReadAheadThreadPool;
   private final ExecutorService summaryRetrievalPool;
   private final ExecutorService summaryParitionPool;
   private final ExecutorService summaryRemotePool;
+  private final ExecutorService blockPrefetchPool;
+  private final PrefetchStats blockPrefetchStats = new PrefetchStats();
   private final Map<String,ExecutorService> threadPools = new TreeMap<>();
 
   private final ConcurrentHashMap<KeyExtent,RunnableStartedAt> activeAssignments;
@@ -117,15 +137,22 @@ public class TabletServerResourceManager {
     return tp;
   }
 
-  private ExecutorService addEs(final Property maxThreads, String name, final ThreadPoolExecutor tp) {
+  private ExecutorService addEs(Property maxThreads, String name, ThreadPoolExecutor tp) {
+    return addEs(maxThreads.getKey(), name, tp);
+  }
+
+  private ExecutorService addEs(final String maxThreadsKey, String name, final ThreadPoolExecutor tp) {
     ExecutorService result = addEs(name, tp);
     SimpleTimer.getInstance(tserver.getConfiguration()).schedule(new Runnable() {
       @Override
       public void run() {
         try {
-          int max = tserver.getConfiguration().getCount(maxThreads);
+          String maxThreads = tserver.getConfiguration().get(maxThreadsKey);
+          if (maxThreads == null)
+            return;
+          int max = Integer.parseInt(maxThreads);
           if (tp.getMaximumPoolSize() != max) {
-            log.info("Changing " + maxThreads.getKey() + " to " + max);
+            log.info("Changing " + maxThreadsKey + " to " + max);
             tp.setCorePoolSize(max);
             tp.setMaximumPoolSize(max);
           }
@@ -164,13 +191,125 @@ public class TabletServerResourceManager {
     return addEs(name, new ThreadPoolExecutor(min, max, timeout, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamingThreadFactory(name)));
   }
 
+  /**
+   * Creates the scan executors defined with {@link Property#TSERV_SCAN_EXECUTORS_PREFIX}. The default executor always exists, it is sized by
+   * {@link Property#TSERV_READ_AHEAD_MAXCONCURRENT}.
+   */
+  private Map<String,ExecutorService> createScanExecutors(AccumuloConfiguration acuConf) {
+    String prefix = Property.TSERV_SCAN_EXECUTORS_PREFIX.getKey();
+
+    Map<String,Map<String,String>> executorOptions = new TreeMap<>();
+    executorOptions.put(ScanDispatcher.DEFAULT_EXECUTOR, new HashMap<String,String>());
+    for (Entry<String,String> entry : acuConf.getAllPropertiesWithPrefix(Property.TSERV_SCAN_EXECUTORS_PREFIX).entrySet()) {
+      String suffix = entry.getKey().substring(prefix.length());
+      int dot = suffix.indexOf('.');
+      if (dot <= 0) {
+        log.warn("Ignoring scan executor property without an executor name " + entry.getKey());
+        continue;
+      }
+
+      String name = suffix.substring(0, dot);
+      Map<String,String> options = executorOptions.get(name);
+      if (options == null) {
+        options = new HashMap<>();
+        executorOptions.put(name, options);
+      }
+      options.put(suffix.substring(dot + 1), entry.getValue());
+    }
+
+    Map<String,ExecutorService> executors = new HashMap<>();
+    for (Entry<String,Map<String,String>> entry : executorOptions.entrySet()) {
+      executors.put(entry.getKey(), createScanExecutor(entry.getKey(), entry.getValue()));
+    }
+    return Collections.unmodifiableMap(executors);
+  }
+
+  private ExecutorService createScanExecutor(String name, Map<String,String> options) {
+    BlockingQueue<Runnable> queue;
+
+    String prioritizerClass = options.get("prioritizer");
+    if (prioritizerClass == null || prioritizerClass.isEmpty()) {
+      queue = new LinkedBlockingQueue<>();
+    } else {
+      ScanPrioritizer prioritizer;
+      try {
+        prioritizer = AccumuloVFSClassLoader.loadClass(prioritizerClass, ScanPrioritizer.class).newInstance();
+      } catch (Exception e) {
+        throw new RuntimeException("Error creating prioritizer " + prioritizerClass + " for scan executor " + name, e);
+      }
+
+      String optsPrefix = "prioritizer.opts.";
+      Map<String,String> prioritizerOptions = new HashMap<>();
+      for (Entry<String,String> entry : options.entrySet()) {
+        if (entry.getKey().startsWith(optsPrefix))
+          prioritizerOptions.put(entry.getKey().substring(optsPrefix.length()), entry.getValue());
+      }
+
+      queue = new PriorityBlockingQueue<>(11, new ScanQueueComparator(prioritizer.createComparator(prioritizerOptions)));
+      log.info("Scan executor " + name + " using prioritizer " + prioritizerClass);
+    }
+
+    if (name.equals(ScanDispatcher.DEFAULT_EXECUTOR)) {
+      return createEs(Property.TSERV_READ_AHEAD_MAXCONCURRENT, "tablet read ahead", queue);
+    }
+
+    String threadsKey = Property.TSERV_SCAN_EXECUTORS_PREFIX.getKey() + name + ".threads";
+    if (!options.containsKey("threads")) {
+      throw new IllegalArgumentException("Scan executor " + name + " has no thread count, set " + threadsKey);
+    }
+    int maxThreads = Integer.parseInt(options.get("threads"));
+    String poolName = "scan executor " + name;
+    ThreadPoolExecutor tp = new ThreadPoolExecutor(maxThreads, maxThreads, 0L, TimeUnit.MILLISECONDS, queue, new NamingThreadFactory(poolName));
+    return addEs(threadsKey, poolName, tp);
+  }
+
+  /**
+   * Carries the state of a scan along with its task through an executor's queue, so that a prioritizer can order it.
+   */
+  private static class ScanRunnable implements Runnable {
+    private final ScanInfo scanInfo;
+    private final Runnable task;
+
+    ScanRunnable(ScanInfo scanInfo, Runnable task) {
+      this.scanInfo = scanInfo;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      task.run();
+    }
+  }
+
+  private static class ScanQueueComparator implements Comparator<Runnable> {
+    private final Comparator<ScanInfo> comparator;
+
+    ScanQueueComparator(Comparator<ScanInfo> comparator) {
+      this.comparator = comparator;
+    }
+
+    private static ScanInfo getScanInfo(Runnable r) {
+      // executors are wrapped in a TraceExecutorService, which wraps each task
+      if (r instanceof TraceRunnable)
+        r = ((TraceRunnable) r).getRunnable();
+      return ((ScanRunnable) r).scanInfo;
+    }
+
+    @Override
+    public int compare(Runnable r1, Runnable r2) {
+      return comparator.compare(getScanInfo(r1), getScanInfo(r2));
+    }
+  }
+
   public TabletServerResourceManager(TabletServer tserver, VolumeManager fs) {
     this.tserver = tserver;
     this.conf = tserver.getServerConfigurationFactory();
     final AccumuloConfiguration acuConf = conf.getSystemConfiguration();
 
     long maxMemory = acuConf.getAsBytes(Property.TSERV_MAXMEM);
-    boolean usingNativeMap = acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED) && NativeMap.isLoaded();
+    // the off heap map keeps its data in direct memory, so like the native map it does not count against the heap
+    boolean usingNativeMap = (acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED) && NativeMap.isLoaded())
+        || acuConf.getBoolean(Property.TSERV_OFFHEAPMAP_ENABLED);
 
     long totalQueueSize = acuConf.getAsBytes(Property.TSERV_TOTAL_MUTATION_QUEUE_MAX);
 
@@ -186,6 +325,8 @@ public class TabletServerResourceManager {
     _dCache = cacheManager.getBlockCache(CacheType.DATA);
     _sCache = cacheManager.getBlockCache(CacheType.SUMMARY);
 
+    CachedVisibilityEvaluator.setCacheSize(acuConf.getAsBytes(Property.TSERV_VISIBILITYCACHE_SIZE));
+
     long dCacheSize = _dCache.getMaxHeapSize();
     long iCacheSize = _iCache.getMaxHeapSize();
     long sCacheSize = _sCache.getMaxHeapSize();
@@ -215,6 +356,12 @@ public class TabletServerResourceManager {
     // make this thread pool have a priority queue... and execute tablets with the most
     // files first!
     majorCompactionThreadPool = createEs(Property.TSERV_MAJC_MAXCONCURRENT, "major compactor", new CompactionQueue().asBlockingQueueOfRunnable());
+    // large compactions get their own lane so they never hold up the small ones
+    largeMajorCompactionThreadPool = createEs(Property.TSERV_MAJC_LARGE_MAXCONCURRENT, "large major compactor",
+        new CompactionQueue().asBlockingQueueOfRunnable());
+    largeMajorCompactionSize = acuConf.getAsBytes(Property.TSERV_MAJC_LARGE_SIZE);
+    majorCompactionSubRangePool = createEs(Property.TSERV_MAJC_SUBRANGE_THREADS, "major compaction sub-range");
+    majorCompactionPlanningPool = createEs(Property.TSERV_MAJC_MAXCONCURRENT, "major compaction planner");
     rootMajorCompactionThreadPool = createEs(0, 1, 300, "md root major compactor");
     defaultMajorCompactionThreadPool = createEs(0, 1, 300, "md major compactor");
 
@@ -233,16 +380,19 @@ public class TabletServerResourceManager {
 
     activeAssignments = new ConcurrentHashMap<>();
 
-    readAheadThreadPool = createEs(Property.TSERV_READ_AHEAD_MAXCONCURRENT, "tablet read ahead");
+    scanExecutors = createScanExecutors(acuConf);
     defaultReadAheadThreadPool = createEs(Property.TSERV_METADATA_READ_AHEAD_MAXCONCURRENT, "metadata tablets read ahead");
 
     summaryRetrievalPool = createIdlingEs(Property.TSERV_SUMMARY_RETRIEVAL_THREADS, "summary file retriever", 60, TimeUnit.SECONDS);
     summaryRemotePool = createIdlingEs(Property.TSERV_SUMMARY_REMOTE_THREADS, "summary remote", 60, TimeUnit.SECONDS);
     summaryParitionPool = createIdlingEs(Property.TSERV_SUMMARY_PARTITION_THREADS, "summary partition", 60, TimeUnit.SECONDS);
 
+    // a bounded queue, so that fetching ahead is dropped instead of piling up when the file system can not keep up
+    blockPrefetchPool = createEs(Property.TSERV_FILE_PREFETCH_THREADS, "file block prefetch", new ArrayBlockingQueue<Runnable>(1000));
+
     int maxOpenFiles = acuConf.getCount(Property.TSERV_SCAN_MAX_OPENFILES);
 
-    fileManager = new FileManager(tserver, fs, maxOpenFiles, _dCache, _iCache);
+    fileManager = new FileManager(tserver, fs, maxOpenFiles, _dCache, _iCache, blockPrefetchPool, blockPrefetchStats);
 
     memoryManager = Property.createInstanceFromPropertyName(acuConf, Property.TSERV_MEM_MGMT, MemoryManager.class, new LargestFirstMemoryManager());
     memoryManager.init(tserver.getServerConfigurationFactory());
@@ -680,9 +830,7 @@ public class TabletServerResourceManager {
           return false;
         }
       }
-      CompactionStrategy strategy = Property.createTableInstanceFromPropertyName(tableConf, Property.TABLE_COMPACTION_STRATEGY, CompactionStrategy.class,
-          new DefaultCompactionStrategy());
-      strategy.init(Property.getCompactionStrategyOptions(tableConf));
+      CompactionStrategy strategy = createCompactionStrategy();
       MajorCompactionRequest request = new MajorCompactionRequest(extent, reason, tableConf);
       request.setFiles(tabletFiles);
       try {
@@ -692,6 +840,37 @@ public class TabletServerResourceManager {
       }
     }
 
+    /**
+     * Estimates which files a major compaction of the tablet will read, using the compaction plan of the table's strategy. The strategy gathers information
+     * first, the same way it does before the compaction itself is planned, so this may read the tablet's files and must not be called while holding the tablet
+     * lock. User and chop compactions, and strategies that fail to plan, are assumed to read every file.
+     */
+    public MajorCompactionInput estimateMajorCompactionInput(SortedMap<FileRef,DataFileValue> tabletFiles, MajorCompactionReason reason, VolumeManager fs) {
+      CompactionPlan plan = null;
+      if (reason == MajorCompactionReason.NORMAL || reason == MajorCompactionReason.IDLE) {
+        try {
+          CompactionStrategy strategy = createCompactionStrategy();
+          MajorCompactionRequest request = new MajorCompactionRequest(extent, reason, fs, tableConf, getSummaryCache(), getIndexCache());
+          request.setFiles(tabletFiles);
+          strategy.gatherInformation(request);
+
+          request = new MajorCompactionRequest(extent, reason, tableConf);
+          request.setFiles(tabletFiles);
+          plan = strategy.getCompactionPlan(request);
+        } catch (Exception e) {
+          log.debug("Unable to plan compaction of " + extent + " to estimate its size, assuming all files are read", e);
+        }
+      }
+      return getPlannedInput(plan, tabletFiles);
+    }
+
+    private CompactionStrategy createCompactionStrategy() {
+      CompactionStrategy strategy = Property.createTableInstanceFromPropertyName(tableConf, Property.TABLE_COMPACTION_STRATEGY, CompactionStrategy.class,
+          new DefaultCompactionStrategy());
+      strategy.init(Property.getCompactionStrategyOptions(tableConf));
+      return strategy;
+    }
+
     // END methods that Tablets call to make decisions about major compaction
 
     // tablets call this method to run minor compactions,
@@ -722,8 +901,16 @@ public class TabletServerResourceManager {
       return TabletServerResourceManager.this;
     }
 
-    public void executeMajorCompaction(KeyExtent tablet, Runnable compactionTask) {
-      TabletServerResourceManager.this.executeMajorCompaction(tablet, compactionTask);
+    public void executeMajorCompaction(KeyExtent tablet, long inputSize, Runnable compactionTask) {
+      TabletServerResourceManager.this.executeMajorCompaction(tablet, inputSize, compactionTask);
+    }
+
+    /**
+     * Runs a task that plans a major compaction and then queues it. Planning may read the tablet's files, so it runs on its own threads instead of the
+     * caller's, which holds the tablet lock.
+     */
+    public void executeMajorCompactionPlanning(Runnable planningTask) {
+      majorCompactionPlanningPool.execute(new LoggingRunnable(log, planningTask));
     }
 
   }
@@ -740,23 +927,102 @@ public class TabletServerResourceManager {
     }
   }
 
-  public void executeMajorCompaction(KeyExtent tablet, Runnable compactionTask) {
+  /**
+   * @param inputSize
+   *          size of the files the compaction is planned to read
+   */
+  public void executeMajorCompaction(KeyExtent tablet, long inputSize, Runnable compactionTask) {
     if (tablet.isRootTablet()) {
       rootMajorCompactionThreadPool.execute(compactionTask);
     } else if (tablet.isMeta()) {
       defaultMajorCompactionThreadPool.execute(compactionTask);
+    } else if (isLargeMajorCompaction(inputSize, largeMajorCompactionSize)) {
+      largeMajorCompactionThreadPool.execute(compactionTask);
     } else {
       majorCompactionThreadPool.execute(compactionTask);
     }
   }
 
-  public void executeReadAhead(KeyExtent tablet, Runnable task) {
+  static boolean isLargeMajorCompaction(long inputSize, long largeMajorCompactionSize) {
+    return largeMajorCompactionSize > 0 && inputSize >= largeMajorCompactionSize;
+  }
+
+  /**
+   * The tablet files a major compaction is planned to read.
+   */
+  public static class MajorCompactionInput {
+    private final int numFiles;
+    private final long size;
+
+    MajorCompactionInput(int numFiles, long size) {
+      this.numFiles = numFiles;
+      this.size = size;
+    }
+
+    public int getNumFiles() {
+      return numFiles;
+    }
+
+    public long getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * @return the plan's input files, or all the tablet's files when there is no plan
+   */
+  public static MajorCompactionInput getPlannedInput(CompactionPlan plan, Map<FileRef,DataFileValue> tabletFiles) {
+    Collection<FileRef> inputFiles = plan == null || plan.inputFiles.isEmpty() ? tabletFiles.keySet() : plan.inputFiles;
+    int numFiles = 0;
+    long size = 0;
+    for (FileRef file : inputFiles) {
+      DataFileValue dfv = tabletFiles.get(file);
+      if (dfv != null) {
+        numFiles++;
+        size += dfv.getSize();
+      }
+    }
+    return new MajorCompactionInput(numFiles, size);
+  }
+
+  public void executeReadAhead(ScanSession session, Runnable task) {
+    executeReadAhead(session.extent, ScanInfo.Type.SINGLE, session.startTime, session.batchCount, task);
+  }
+
+  public void executeReadAhead(MultiScanSession session, Runnable task) {
+    executeReadAhead(session.threadPoolExtent, ScanInfo.Type.MULTI, session.startTime, session.batchCount, task);
+  }
+
+  private void executeReadAhead(KeyExtent tablet, ScanInfo.Type type, long creationTime, long batchesReturned, Runnable task) {
     if (tablet.isRootTablet()) {
       task.run();
     } else if (tablet.isMeta()) {
       defaultReadAheadThreadPool.execute(task);
     } else {
-      readAheadThreadPool.execute(task);
+      Tablet onlineTablet = tserver.getOnlineTablet(tablet);
+      int priority = onlineTablet == null ? 0 : onlineTablet.getScanPriority();
+      ScanInfo scanInfo = new ScanInfo(type, tablet.getTableId(), creationTime, batchesReturned, priority);
+
+      ExecutorService executor = null;
+      if (onlineTablet != null) {
+        String name = null;
+        try {
+          name = onlineTablet.getScanDispatcher().dispatch(scanInfo);
+        } catch (RuntimeException e) {
+          log.warn("Scan dispatcher for " + tablet + " failed, using default scan executor", e);
+        }
+        if (name != null) {
+          executor = scanExecutors.get(name);
+          if (executor == null)
+            log.warn("Scan dispatcher for " + tablet + " chose unknown scan executor " + name + ", using default scan executor");
+        }
+      }
+
+      // a task for a tablet that is no longer online will fail quickly, so it does not matter where it runs
+      if (executor == null)
+        executor = scanExecutors.get(ScanDispatcher.DEFAULT_EXECUTOR);
+
+      executor.execute(new ScanRunnable(scanInfo, task));
     }
   }
 
@@ -786,6 +1052,10 @@ public class TabletServerResourceManager {
     return _dCache;
   }
 
+  public PrefetchStats getBlockPrefetchStats() {
+    return blockPrefetchStats;
+  }
+
   public BlockCache getSummaryCache() {
     return _sCache;
   }
@@ -801,4 +1071,8 @@ public class TabletServerResourceManager {
   public ExecutorService getSummaryRemoteExecutor() {
     return summaryRemotePool;
   }
+
+  public ExecutorService getMajorCompactionSubRangeExecutor() {
+    return majorCompactionSubRangePool;
+  }
 }
@@ -38,8 +38,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.client.Durability;
@@ -58,9 +60,11 @@ import org.apache.accumulo.fate.util.LoggingRunnable;
 import org.apache.accumulo.server.ServerConstants;
 import org.apache.accumulo.server.fs.VolumeChooserEnvironment;
 import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.metrics.Metrics;
 import org.apache.accumulo.tserver.TabletMutations;
 import org.apache.accumulo.tserver.logger.LogFileKey;
 import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.accumulo.tserver.metrics.TabletServerUpdateMetricsKeys;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.Path;
@@ -139,7 +143,7 @@ public class DfsLogger implements Comparable<DfsLogger> {
 
   private final Object closeLock = new Object();
 
-  private static final DfsLogger.LogWork CLOSED_MARKER = new DfsLogger.LogWork(null, Durability.FLUSH);
+  static final DfsLogger.LogWork CLOSED_MARKER = new DfsLogger.LogWork(null, Durability.FLUSH);
 
   private static final LogFileValue EMPTY = new LogFileValue();
 
@@ -147,6 +151,8 @@ public class DfsLogger implements Comparable<DfsLogger> {
 
   private class LogSyncingTask implements Runnable {
     private int expectedReplication = 0;
+    private long lastSyncNanos = 0;
+    private int lastBatchSize = 0;
 
     @Override
     public void run() {
@@ -162,6 +168,12 @@ public class DfsLogger implements Comparable<DfsLogger> {
         }
         workQueue.drainTo(work);
 
+        // only wait for more work when the previous sync covered writes from more than one writer
+        long maxWait = lastBatchSize <= 1 ? 0 : Math.min(groupCommitDelayNanos, lastSyncNanos);
+        long waitTime = waitForMoreWork(workQueue, work, maxWait, groupCommitBytes, groupCommitMutations);
+        // an interrupt would make hsync/hflush fail, so hold it until this batch has been synced
+        boolean interrupted = Thread.interrupted();
+
         Method durabilityMethod = null;
         loop: for (LogWork logWork : work) {
           switch (logWork.durability) {
@@ -181,7 +193,7 @@ public class DfsLogger implements Comparable<DfsLogger> {
           }
         }
 
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         try {
           if (durabilityMethod != null) {
             durabilityMethod.invoke(logFile);
@@ -194,7 +206,15 @@ public class DfsLogger implements Comparable<DfsLogger> {
         } catch (Exception ex) {
           fail(work, ex, "synching");
         }
-        long duration = System.currentTimeMillis() - start;
+        lastSyncNanos = System.nanoTime() - start;
+        lastBatchSize = countWrites(work);
+        long duration = TimeUnit.NANOSECONDS.toMillis(lastSyncNanos);
+
+        if (updateMetrics != null && updateMetrics.isEnabled()) {
+          updateMetrics.add(TabletServerUpdateMetricsKeys.WALOG_SYNC_BATCH_SIZE, lastBatchSize);
+          updateMetrics.add(TabletServerUpdateMetricsKeys.WALOG_SYNC_WAIT_TIME, TimeUnit.NANOSECONDS.toMillis(waitTime));
+        }
+
         if (duration > slowFlushMillis) {
           String msg = new StringBuilder(128).append("Slow sync cost: ").append(duration).append(" ms, current pipeline: ")
               .append(Arrays.toString(getPipeLine())).toString();
@@ -224,6 +244,10 @@ public class DfsLogger implements Comparable<DfsLogger> {
             sawClosedMarker = true;
           else
             logWork.latch.countDown();
+
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
       }
     }
 
@@ -235,14 +259,83 @@ public class DfsLogger implements Comparable<DfsLogger> {
     }
   }
 
-  private static class LogWork {
+  /**
+   * Group commit. Waits up to maxWait nanoseconds for more work to arrive, so that a single sync can cover all of it. The wait ends early once enough bytes or
+   * mutations are pending, or when the log is closed. The caller passes a maxWait of zero when the previous sync covered a lone writer, and never more than
+   * the previous sync took, since past that point syncing sooner would cost less latency than it saves.
+   *
+   * @return the nanoseconds spent waiting
+   */
+  static long waitForMoreWork(BlockingQueue<LogWork> workQueue, List<LogWork> work, long maxWait, long maxBytes, long maxMutations) {
+    if (maxWait <= 0) {
+      return 0;
+    }
+
+    long start = System.nanoTime();
+    long bytes = 0;
+    long mutations = 0;
+    int counted = 0;
+    while (true) {
+      for (; counted < work.size(); counted++) {
+        LogWork logWork = work.get(counted);
+        if (logWork == CLOSED_MARKER) {
+          // nothing will be queued after the marker
+          return System.nanoTime() - start;
+        }
+        bytes += logWork.bytes;
+        mutations += logWork.mutations;
+      }
+
+      long remaining = maxWait - (System.nanoTime() - start);
+      if (bytes >= maxBytes || mutations >= maxMutations || remaining <= 0) {
+        break;
+      }
+
+      LogWork next;
+      try {
+        next = workQueue.poll(remaining, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      if (next == null) {
+        break;
+      }
+      work.add(next);
+      workQueue.drainTo(work);
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * @return the number of writes in a batch of work, not counting the marker queued by close
+   */
+  static int countWrites(List<LogWork> work) {
+    int writes = 0;
+    for (LogWork logWork : work) {
+      if (logWork != CLOSED_MARKER) {
+        writes++;
+      }
+    }
+    return writes;
+  }
+
+  static class LogWork {
     final CountDownLatch latch;
     final Durability durability;
+    final int mutations;
+    final long bytes;
     volatile Exception exception;
 
     public LogWork(CountDownLatch latch, Durability durability) {
+      this(latch, durability, 0, 0);
+    }
+
+    public LogWork(CountDownLatch latch, Durability durability, int mutations, long bytes) {
       this.latch = latch;
       this.durability = durability;
+      this.mutations = mutations;
+      this.bytes = bytes;
     }
   }
 
@@ -313,17 +406,34 @@ public class DfsLogger implements Comparable<DfsLogger> {
   private String metaReference;
   private AtomicLong syncCounter;
   private AtomicLong flushCounter;
+  private Metrics updateMetrics;
   private final long slowFlushMillis;
+  private final long groupCommitDelayNanos;
+  private final long groupCommitBytes;
+  private final long groupCommitMutations;
 
   private DfsLogger(ServerResources conf) {
     this.conf = conf;
-    this.slowFlushMillis = conf.getConfiguration().getTimeInMillis(Property.TSERV_SLOW_FLUSH_MILLIS);
+    AccumuloConfiguration acuConf = conf.getConfiguration();
+    this.slowFlushMillis = acuConf.getTimeInMillis(Property.TSERV_SLOW_FLUSH_MILLIS);
+    this.groupCommitDelayNanos = TimeUnit.MILLISECONDS.toNanos(acuConf.getTimeInMillis(Property.TSERV_WAL_GROUP_COMMIT_DELAY));
+    this.groupCommitBytes = acuConf.getAsBytes(Property.TSERV_WAL_GROUP_COMMIT_BYTES);
+    this.groupCommitMutations = acuConf.getCount(Property.TSERV_WAL_GROUP_COMMIT_MUTATIONS);
   }
 
   public DfsLogger(ServerResources conf, AtomicLong syncCounter, AtomicLong flushCounter) throws IOException {
+    this(conf, syncCounter, flushCounter, null);
+  }
+
+  /**
+   * @param updateMetrics
+   *          receives the size of each group of writes covered by a sync and the time spent waiting to form it; may be null
+   */
+  public DfsLogger(ServerResources conf, AtomicLong syncCounter, AtomicLong flushCounter, Metrics updateMetrics) throws IOException {
     this(conf);
     this.syncCounter = syncCounter;
     this.flushCounter = flushCounter;
+    this.updateMetrics = updateMetrics;
   }
 
   /**
@@ -600,7 +710,15 @@ public class DfsLogger implements Comparable<DfsLogger> {
   }
 
   private LoggerOperation logFileData(List<Pair<LogFileKey,LogFileValue>> keys, Durability durability) throws IOException {
-    DfsLogger.LogWork work = new DfsLogger.LogWork(new CountDownLatch(1), durability);
+    int numMutations = 0;
+    long numBytes = 0;
+    for (Pair<LogFileKey,LogFileValue> pair : keys) {
+      for (Mutation m : pair.getSecond().mutations) {
+        numMutations++;
+        numBytes += m.numBytes();
+      }
+    }
+    DfsLogger.LogWork work = new DfsLogger.LogWork(new CountDownLatch(1), durability, numMutations, numBytes);
     synchronized (DfsLogger.this) {
       try {
         for (Pair<LogFileKey,LogFileValue> pair : keys) {
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.accumulo.tserver.logger.LogEvents;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+
+/**
+ * Buffers write-ahead log entries so they can be sorted in {@link LogFileKey} order. The fields a key compares on are copied into primitive arrays when an entry
+ * is added, and the sort permutes an array of indexes using only those, so no comparator or pair objects are created. Large buffers are sorted with a stable
+ * merge sort split across a fork/join pool.
+ */
+class LogSortBuffer {
+
+  // ranges at most this size are sorted by a single thread
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
+  private static final int INSERTION_THRESHOLD = 16;
+
+  private LogFileKey[] keys;
+  private LogFileValue[] values;
+  // event type in the high 32 bits, tid in the low 32 bits
+  private long[] major;
+  private long[] seqs;
+  private int size = 0;
+
+  LogSortBuffer() {
+    this(1024);
+  }
+
+  LogSortBuffer(int initialCapacity) {
+    initialCapacity = Math.max(1, initialCapacity);
+    keys = new LogFileKey[initialCapacity];
+    values = new LogFileValue[initialCapacity];
+    major = new long[initialCapacity];
+    seqs = new long[initialCapacity];
+  }
+
+  void add(LogFileKey key, LogFileValue value) {
+    if (size == keys.length) {
+      int newCapacity = size + (size >> 1) + 1;
+      keys = Arrays.copyOf(keys, newCapacity);
+      values = Arrays.copyOf(values, newCapacity);
+      major = Arrays.copyOf(major, newCapacity);
+      seqs = Arrays.copyOf(seqs, newCapacity);
+    }
+
+    keys[size] = key;
+    values[size] = value;
+    if (key.event == LogEvents.OPEN) {
+      // all OPEN events compare equal
+      major[size] = 0;
+      seqs[size] = 0;
+    } else {
+      // flipping the sign bit makes the unsigned order of the low bits match the signed order of the tid
+      major[size] = ((long) LogFileKey.eventType(key.event) << 32) | ((key.tid ^ Integer.MIN_VALUE) & 0xffffffffL);
+      seqs[size] = key.seq;
+    }
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  LogFileKey getKey(int i) {
+    return keys[i];
+  }
+
+  LogFileValue getValue(int i) {
+    return values[i];
+  }
+
+  /**
+   * Sorts the buffered entries. Entries whose keys compare equal keep the order they were added in.
+   *
+   * @return the indexes of the entries in sorted order
+   */
+  int[] sort(ForkJoinPool pool) {
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    int[] tmp = new int[size];
+    if (size <= PARALLEL_THRESHOLD || pool == null) {
+      sort(order, tmp, 0, size);
+    } else {
+      pool.invoke(new SortTask(order, tmp, 0, size));
+    }
+    return order;
+  }
+
+  private int compare(int i1, int i2) {
+    int cmp = Long.compare(major[i1], major[i2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Long.compare(seqs[i1], seqs[i2]);
+  }
+
+  private void sort(int[] order, int[] tmp, int lo, int hi) {
+    if (hi - lo <= INSERTION_THRESHOLD) {
+      for (int i = lo + 1; i < hi; i++) {
+        int idx = order[i];
+        int j = i - 1;
+        while (j >= lo && compare(order[j], idx) > 0) {
+          order[j + 1] = order[j];
+          j--;
+        }
+        order[j + 1] = idx;
+      }
+      return;
+    }
+
+    int mid = (lo + hi) >>> 1;
+    sort(order, tmp, lo, mid);
+    sort(order, tmp, mid, hi);
+    merge(order, tmp, lo, mid, hi);
+  }
+
+  private void merge(int[] order, int[] tmp, int lo, int mid, int hi) {
+    if (compare(order[mid - 1], order[mid]) <= 0) {
+      // already in order
+      return;
+    }
+
+    System.arraycopy(order, lo, tmp, lo, hi - lo);
+    int left = lo;
+    int right = mid;
+    for (int i = lo; i < hi; i++) {
+      if (right >= hi || (left < mid && compare(tmp[left], tmp[right]) <= 0)) {
+        order[i] = tmp[left++];
+      } else {
+        order[i] = tmp[right++];
+      }
+    }
+  }
+
+  private class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] order;
+    private final int[] tmp;
+    private final int lo;
+    private final int hi;
+
+    SortTask(int[] order, int[] tmp, int lo, int hi) {
+      this.order = order;
+      this.tmp = tmp;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo <= PARALLEL_THRESHOLD) {
+        sort(order, tmp, lo, hi);
+        return;
+      }
+
+      int mid = (lo + hi) >>> 1;
+      invokeAll(new SortTask(order, tmp, lo, mid), new SortTask(order, tmp, mid, hi));
+      merge(order, tmp, lo, mid, hi);
+    }
+  }
+}
@@ -21,11 +21,14 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.accumulo.core.Constants;
@@ -33,7 +36,6 @@ import org.apache.accumulo.core.client.Instance;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.master.thrift.RecoveryStatus;
-import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.core.util.SimpleThreadPool;
 import org.apache.accumulo.core.zookeeper.ZooUtil;
 import org.apache.accumulo.server.fs.VolumeManager;
@@ -121,7 +123,9 @@ public class LogSorter {
           // Creating a 'finished' marker will cause recovery to proceed normally and the
           // empty file will be correctly ignored downstream.
           fs.mkdirs(new Path(destPath));
-          writeBuffer(destPath, Collections.<Pair<LogFileKey,LogFileValue>> emptyList(), part++);
+          RecoveryLogIndex index = new RecoveryLogIndex();
+          writeBuffer(destPath, new LogSortBuffer(), part++, index);
+          index.write(fs, new Path(destPath));
           fs.create(SortedLogState.getFinishedMarkerPath(destPath)).close();
           return;
         }
@@ -129,10 +133,14 @@ public class LogSorter {
         this.input = inputStreams.getOriginalInput();
         this.decryptingInput = inputStreams.getDecryptingInputStream();
 
-        final long bufferSize = conf.getAsBytes(Property.TSERV_SORT_BUFFER_SIZE);
+        // Half of the buffer is filled while the other half is sorted and written out
+        final long bufferSize = Math.max(1, conf.getAsBytes(Property.TSERV_SORT_BUFFER_SIZE) / 2);
         Thread.currentThread().setName("Sorting " + name + " for recovery");
-        while (true) {
-          final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+        final RecoveryLogIndex index = new RecoveryLogIndex();
+        Future<Void> pendingWrite = null;
+        boolean eof = false;
+        while (!eof) {
+          final LogSortBuffer buffer = new LogSortBuffer();
           try {
             long start = input.getPos();
             while (input.getPos() - start < bufferSize) {
@@ -140,15 +148,23 @@ public class LogSorter {
               LogFileValue value = new LogFileValue();
               key.readFields(decryptingInput);
               value.readFields(decryptingInput);
-              buffer.add(new Pair<>(key, value));
+              buffer.add(key, value);
             }
-            writeBuffer(destPath, buffer, part++);
-            buffer.clear();
           } catch (EOFException ex) {
-            writeBuffer(destPath, buffer, part++);
-            break;
+            eof = true;
           }
+          waitForWrite(pendingWrite);
+          final int bufferPart = part++;
+          pendingWrite = sortPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              writeBuffer(destPath, buffer, bufferPart, index);
+              return null;
+            }
+          });
         }
+        waitForWrite(pendingWrite);
+        index.write(fs, new Path(destPath));
         fs.create(new Path(destPath, "finished")).close();
         log.info("Finished log sort " + name + " " + getBytesCopied() + " bytes " + part + " parts in " + getSortTime() + "ms");
       } catch (Throwable t) {
@@ -173,21 +189,32 @@ public class LogSorter {
       }
     }
 
-    private void writeBuffer(String destPath, List<Pair<LogFileKey,LogFileValue>> buffer, int part) throws IOException {
+    private void waitForWrite(Future<Void> pendingWrite) throws IOException {
+      if (pendingWrite == null) {
+        return;
+      }
+      try {
+        pendingWrite.get();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException)
+          throw (IOException) e.getCause();
+        throw new IOException(e.getCause());
+      }
+    }
+
+    private void writeBuffer(String destPath, LogSortBuffer buffer, int part, RecoveryLogIndex index) throws IOException {
       Path path = new Path(destPath, String.format("part-r-%05d", part));
+      RecoveryLogIndex.PartBuilder partIndex = index.newPart(path.getName());
       FileSystem ns = fs.getVolumeByPath(path).getFileSystem();
 
       MapFile.Writer output = new MapFile.Writer(ns.getConf(), ns.makeQualified(path), MapFile.Writer.keyClass(LogFileKey.class),
           MapFile.Writer.valueClass(LogFileValue.class));
       try {
-        Collections.sort(buffer, new Comparator<Pair<LogFileKey,LogFileValue>>() {
-          @Override
-          public int compare(Pair<LogFileKey,LogFileValue> o1, Pair<LogFileKey,LogFileValue> o2) {
-            return o1.getFirst().compareTo(o2.getFirst());
-          }
-        });
-        for (Pair<LogFileKey,LogFileValue> entry : buffer) {
-          output.append(entry.getFirst(), entry.getSecond());
+        for (int i : buffer.sort(sortPool)) {
+          output.append(buffer.getKey(i), buffer.getValue(i));
+          partIndex.add(buffer.getKey(i));
         }
       } finally {
         output.close();
@@ -220,6 +247,8 @@ public class LogSorter {
   }
 
   ThreadPoolExecutor threadPool;
+  // sorts and writes out buffered log entries for all recoveries on this server
+  final ForkJoinPool sortPool;
   private final Instance instance;
 
   public LogSorter(Instance instance, VolumeManager fs, AccumuloConfiguration conf) {
@@ -228,6 +257,7 @@ public class LogSorter {
     this.conf = conf;
     int threadPoolSize = conf.getCount(Property.TSERV_RECOVERY_MAX_CONCURRENT);
     this.threadPool = new SimpleThreadPool(threadPoolSize, this.getClass().getName());
+    this.sortPool = new ForkJoinPool(conf.getCount(Property.TSERV_RECOVERY_SORT_THREADS));
   }
 
   public void startWatchingForRecoveryLogs(ThreadPoolExecutor distWorkQThreadPool) throws KeeperException, InterruptedException {
@@ -18,6 +18,7 @@ package org.apache.accumulo.tserver.log;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Objects;
 
 import org.apache.accumulo.server.fs.VolumeManager;
@@ -116,6 +117,19 @@ public class MultiReader {
       throw new IOException("Sort \"" + SortedLogState.FINISHED.getMarker() + "\" flag not found in " + directory);
   }
 
+  /**
+   * Reads only the named parts of a sorted log directory.
+   */
+  public MultiReader(VolumeManager fs, Path directory, Collection<String> parts) throws IOException {
+    if (!fs.exists(SortedLogState.getFinishedMarkerPath(directory)))
+      throw new IOException("Sort \"" + SortedLogState.FINISHED.getMarker() + "\" flag not found in " + directory);
+    for (String part : parts) {
+      Path path = new Path(directory, part);
+      FileSystem ns = fs.getVolumeByPath(path).getFileSystem();
+      heap.add(new Index(new Reader(ns.makeQualified(path), ns.getConf())));
+    }
+  }
+
   private static void copy(Writable src, Writable dest) throws IOException {
     // not exactly efficient...
     DataOutputBuffer output = new DataOutputBuffer();
@@ -126,6 +140,8 @@ public class MultiReader {
   }
 
   public synchronized boolean next(WritableComparable key, Writable val) throws IOException {
+    if (heap.isEmpty())
+      return false;
     Index elt = (Index) heap.remove();
     try {
       elt.cache();
@@ -143,7 +159,8 @@ public class MultiReader {
   }
 
   public synchronized boolean seek(WritableComparable key) throws IOException {
-    PriorityBuffer reheap = new PriorityBuffer(heap.size());
+    // a reader of an index's parts may have no parts, and the buffer needs a capacity of at least one
+    PriorityBuffer reheap = new PriorityBuffer(Math.max(1, heap.size()));
     boolean result = false;
     for (Object obj : heap) {
       Index index = (Index) obj;
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.apache.accumulo.tserver.logger.LogEvents.DEFINE_TABLET;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.tserver.logger.LogEvents;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * An index of the tablets in a sorted write-ahead log, written by {@link LogSorter} next to the sorted parts. It records the session that opened the log, every
+ * tablet definition, and which tablet ids have entries in each part. With it, recovery can find a tablet's id without scanning all of the definitions in the
+ * log, and only needs to open the parts that hold the tablet's entries.
+ *
+ * Logs sorted before this index existed do not have one, and are recovered by scanning as before.
+ */
+public class RecoveryLogIndex {
+
+  // the leading underscore keeps MultiReader from treating the index as a part
+  static final String INDEX_FILE = "_index";
+  private static final int VERSION = 1;
+
+  private String tserverSession = null;
+  private boolean empty = true;
+  // modification time of the index file this was read from, so a cached copy can be told apart from the index of a later sort of the same log
+  private long modificationTime = -1;
+  private final List<LogFileKey> definitions = new ArrayList<>();
+  private final Map<String,BitSet> partTids = new LinkedHashMap<>();
+
+  // built on first lookup, the definition that recovery would select for each tablet
+  private Map<KeyExtent,LogFileKey> selected = null;
+
+  /**
+   * Collects the index entries for one part, as its sorted entries are written.
+   */
+  class PartBuilder {
+    private final BitSet tids = new BitSet();
+
+    private PartBuilder(String name) {
+      synchronized (RecoveryLogIndex.this) {
+        partTids.put(name, tids);
+      }
+    }
+
+    void add(LogFileKey key) {
+      synchronized (RecoveryLogIndex.this) {
+        empty = false;
+        switch (key.event) {
+          case OPEN:
+            tserverSession = key.tserverSession;
+            break;
+          case DEFINE_TABLET:
+            LogFileKey definition = new LogFileKey();
+            definition.event = DEFINE_TABLET;
+            definition.seq = key.seq;
+            definition.tid = key.tid;
+            definition.tablet = key.tablet;
+            definitions.add(definition);
+            selected = null;
+            break;
+          default:
+            if (key.tid >= 0) {
+              tids.set(key.tid);
+            }
+        }
+      }
+    }
+  }
+
+  PartBuilder newPart(String name) {
+    return new PartBuilder(name);
+  }
+
+  /**
+   * @return true if no entries were recorded, which means the log had no entries
+   */
+  synchronized boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * @return the session from the log's OPEN event, or null if it had none
+   */
+  synchronized String getTserverSession() {
+    return tserverSession;
+  }
+
+  /**
+   * Finds the definition recovery uses for a tablet: the one with the largest tablet id, since a tablet may leave a server and come back with a new id, and
+   * for that id the smallest sequence number. This matches the first definition for the last tablet id seen when scanning the sorted log.
+   *
+   * @return the definition, or null if the tablet is not defined in this log
+   */
+  synchronized LogFileKey getDefinition(KeyExtent extent) {
+    if (selected == null) {
+      selected = new HashMap<>();
+      for (LogFileKey definition : definitions) {
+        if (supersedes(definition, selected.get(definition.tablet))) {
+          selected.put(definition.tablet, definition);
+        }
+      }
+    }
+    return selected.get(extent);
+  }
+
+  /**
+   * @return true if recovery should use the candidate definition of a tablet rather than the current one
+   */
+  static boolean supersedes(LogFileKey candidate, LogFileKey current) {
+    if (candidate == null)
+      return false;
+    if (current == null)
+      return true;
+    return candidate.tid > current.tid || (candidate.tid == current.tid && candidate.seq < current.seq);
+  }
+
+  /**
+   * @return the names of the parts that have entries for the tablet id, other than its definition
+   */
+  synchronized List<String> getParts(int tid) {
+    List<String> parts = new ArrayList<>();
+    for (Entry<String,BitSet> entry : partTids.entrySet()) {
+      if (tid >= 0 && entry.getValue().get(tid)) {
+        parts.add(entry.getKey());
+      }
+    }
+    return parts;
+  }
+
+  long getModificationTime() {
+    return modificationTime;
+  }
+
+  /**
+   * @return the modification time of the index of a sorted log, or -1 if the log was sorted without one
+   */
+  static long getModificationTime(VolumeManager fs, Path sortedLogDir) throws IOException {
+    try {
+      return fs.getFileStatus(new Path(sortedLogDir, INDEX_FILE)).getModificationTime();
+    } catch (FileNotFoundException e) {
+      return -1;
+    }
+  }
+
+  synchronized void write(VolumeManager fs, Path sortedLogDir) throws IOException {
+    try (DataOutputStream out = fs.create(new Path(sortedLogDir, INDEX_FILE))) {
+      out.writeInt(VERSION);
+      out.writeBoolean(empty);
+      out.writeBoolean(tserverSession != null);
+      if (tserverSession != null) {
+        out.writeUTF(tserverSession);
+      }
+      out.writeInt(definitions.size());
+      for (LogFileKey definition : definitions) {
+        out.writeLong(definition.seq);
+        out.writeInt(definition.tid);
+        definition.tablet.write(out);
+      }
+      out.writeInt(partTids.size());
+      for (Entry<String,BitSet> entry : partTids.entrySet()) {
+        out.writeUTF(entry.getKey());
+        BitSet tids = entry.getValue();
+        out.writeInt(tids.cardinality());
+        for (int tid = tids.nextSetBit(0); tid >= 0; tid = tids.nextSetBit(tid + 1)) {
+          out.writeInt(tid);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the index of a sorted log, or null if the log was sorted without one
+   */
+  static RecoveryLogIndex read(VolumeManager fs, Path sortedLogDir) throws IOException {
+    Path path = new Path(sortedLogDir, INDEX_FILE);
+    RecoveryLogIndex index = new RecoveryLogIndex();
+    DataInputStream in;
+    try {
+      index.modificationTime = fs.getFileStatus(path).getModificationTime();
+      in = fs.open(path);
+    } catch (FileNotFoundException e) {
+      return null;
+    }
+    try {
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unexpected version " + version + " for recovery log index " + path);
+      }
+      index.empty = in.readBoolean();
+      if (in.readBoolean()) {
+        index.tserverSession = in.readUTF();
+      }
+      int numDefinitions = in.readInt();
+      for (int i = 0; i < numDefinitions; i++) {
+        LogFileKey definition = new LogFileKey();
+        definition.event = LogEvents.DEFINE_TABLET;
+        definition.seq = in.readLong();
+        definition.tid = in.readInt();
+        definition.tablet = new KeyExtent();
+        definition.tablet.readFields(in);
+        index.definitions.add(definition);
+      }
+      int numParts = in.readInt();
+      for (int i = 0; i < numParts; i++) {
+        String name = in.readUTF();
+        BitSet tids = new BitSet();
+        int numTids = in.readInt();
+        for (int j = 0; j < numTids; j++) {
+          tids.set(in.readInt());
+        }
+        index.partTids.put(name, tids);
+      }
+    } finally {
+      in.close();
+    }
+    return index;
+  }
+}
@@ -24,8 +24,11 @@ import static org.apache.accumulo.tserver.logger.LogEvents.MUTATION;
 import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.apache.accumulo.core.data.Mutation;
@@ -38,6 +41,9 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Extract Mutations for a tablet from a set of logs that have been sorted by operation and tablet.
  *
@@ -61,10 +67,50 @@ public class SortedLogRecovery {
     }
   }
 
+  // the most sorted logs a recovery keeps open at once
+  static final int MAX_OPEN_READERS = 16;
+
   private VolumeManager fs;
+  private final Cache<Path,Optional<RecoveryLogIndex>> indexes;
+  private final int maxOpenReaders;
 
   public SortedLogRecovery(VolumeManager fs) {
+    this(fs, newIndexCache());
+  }
+
+  /**
+   * @param indexes
+   *          cache of the indexes of sorted logs, which may be shared by the recoveries of many tablets
+   */
+  public SortedLogRecovery(VolumeManager fs, Cache<Path,Optional<RecoveryLogIndex>> indexes) {
+    this(fs, indexes, MAX_OPEN_READERS);
+  }
+
+  SortedLogRecovery(VolumeManager fs, Cache<Path,Optional<RecoveryLogIndex>> indexes, int maxOpenReaders) {
     this.fs = fs;
+    this.indexes = indexes;
+    this.maxOpenReaders = maxOpenReaders;
+  }
+
+  public static Cache<Path,Optional<RecoveryLogIndex>> newIndexCache() {
+    return CacheBuilder.newBuilder().maximumSize(1000).build();
+  }
+
+  private RecoveryLogIndex getIndex(Path logfile) throws IOException {
+    // A log is sorted again when an earlier sort was lost or failed, so a cached index is only used if the index file has not changed since it was read.
+    long modificationTime = RecoveryLogIndex.getModificationTime(fs, logfile);
+    Optional<RecoveryLogIndex> cached = indexes.getIfPresent(logfile);
+    if (cached != null && modificationTime == cached.map(RecoveryLogIndex::getModificationTime).orElse(-1L)) {
+      return cached.orElse(null);
+    }
+
+    RecoveryLogIndex index = modificationTime < 0 ? null : RecoveryLogIndex.read(fs, logfile);
+    indexes.put(logfile, Optional.ofNullable(index));
+    return index;
+  }
+
+  private MultiReader openReader(Path logfile, List<String> parts) throws IOException {
+    return parts == null ? new MultiReader(fs, logfile) : new MultiReader(fs, logfile, parts);
   }
 
   private enum Status {
@@ -98,14 +144,35 @@ public class SortedLogRecovery {
 
   public void recover(KeyExtent extent, List<Path> recoveryLogs, Set<String> tabletFiles, MutationReceiver mr) throws IOException {
     int[] tids = new int[recoveryLogs.size()];
+    // The first maxOpenReaders readers the tablet uses are kept open from finding the last compaction through playback. The others are closed after
+    // finding the last compaction and opened again for playback. A null reader with a tid is one that was closed.
+    MultiReader[] readers = new MultiReader[recoveryLogs.size()];
+    // the parts of each log to read, or null to read every part
+    List<List<String>> logParts = new ArrayList<>(Collections.nCopies(recoveryLogs.size(), (List<String>) null));
+    int openReaders = 0;
     LastStartToFinish lastStartToFinish = new LastStartToFinish();
-    for (int i = 0; i < recoveryLogs.size(); i++) {
-      Path logfile = recoveryLogs.get(i);
-      log.info("Looking at mutations from " + logfile + " for " + extent);
-      MultiReader reader = new MultiReader(fs, logfile);
-      try {
+    try {
+      for (int i = 0; i < recoveryLogs.size(); i++) {
+        Path logfile = recoveryLogs.get(i);
+        log.info("Looking at mutations from " + logfile + " for " + extent);
+        RecoveryLogIndex index = getIndex(logfile);
         try {
-          tids[i] = findLastStartToFinish(reader, i, extent, tabletFiles, lastStartToFinish);
+          if (index == null) {
+            readers[i] = openReader(logfile, null);
+            tids[i] = findLastStartToFinish(readers[i], i, extent, tabletFiles, lastStartToFinish);
+          } else {
+            LogFileKey defineKey = findDefinition(index, extent, lastStartToFinish);
+            tids[i] = defineKey.tid;
+            logParts.set(i, index.getParts(defineKey.tid));
+            readers[i] = openReader(logfile, logParts.get(i));
+            findLastStartToFinish(readers[i], i, defineKey, tabletFiles, lastStartToFinish);
+          }
+          if (openReaders < maxOpenReaders) {
+            openReaders++;
+          } else {
+            readers[i].close();
+            readers[i] = null;
+          }
         } catch (EmptyMapFileException ex) {
           log.info("Ignoring empty map file " + logfile);
           tids[i] = -1;
@@ -113,32 +180,41 @@ public class SortedLogRecovery {
           log.info("Ignoring log file " + logfile + " appears to be unused by " + extent);
           tids[i] = -1;
         }
-      } finally {
-        try {
-          reader.close();
-        } catch (IOException ex) {
-          log.warn("Ignoring error closing file");
+        if (tids[i] < 0 && readers[i] != null) {
+          readers[i].close();
+          readers[i] = null;
         }
       }
 
-    }
-
-    if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
-      throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) not followed by successful minor compaction");
+      if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
+        throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) not followed by successful minor compaction");
 
-    for (int i = 0; i < recoveryLogs.size(); i++) {
-      Path logfile = recoveryLogs.get(i);
-      MultiReader reader = new MultiReader(fs, logfile);
-      try {
-        playbackMutations(reader, tids[i], lastStartToFinish, mr);
-      } finally {
+      for (int i = 0; i < recoveryLogs.size(); i++) {
+        if (tids[i] < 0)
+          continue;
+        Path logfile = recoveryLogs.get(i);
+        if (readers[i] == null) {
+          MultiReader reader = openReader(logfile, logParts.get(i));
+          try {
+            playbackMutations(reader, tids[i], lastStartToFinish, mr);
+          } finally {
+            reader.close();
+          }
+        } else {
+          playbackMutations(readers[i], tids[i], lastStartToFinish, mr);
+        }
+        log.info("Recovery complete for " + extent + " using " + logfile);
+      }
+    } finally {
+      for (MultiReader reader : readers) {
+        if (reader == null)
+          continue;
         try {
           reader.close();
         } catch (IOException ex) {
           log.warn("Ignoring error closing file");
         }
       }
-      log.info("Recovery complete for " + extent + " using " + logfile);
     }
   }
 
@@ -152,10 +228,6 @@ public class SortedLogRecovery {
   int findLastStartToFinish(MultiReader reader, int fileno, KeyExtent extent, Set<String> tabletFiles, LastStartToFinish lastStartToFinish) throws IOException,
       EmptyMapFileException, UnusedException {
 
-    HashSet<String> suffixes = new HashSet<>();
-    for (String path : tabletFiles)
-      suffixes.add(getPathSuffix(path));
-
     // Scan for tableId for this extent (should always be in the log)
     LogFileKey key = new LogFileKey();
     LogFileValue value = new LogFileValue();
@@ -165,11 +237,7 @@ public class SortedLogRecovery {
     if (key.event != OPEN)
       throw new RuntimeException("First log entry value is not OPEN");
 
-    if (key.tserverSession.compareTo(lastStartToFinish.tserverSession) != 0) {
-      if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
-        throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) is not followed by a successful minor compaction.");
-      lastStartToFinish.update(key.tserverSession);
-    }
+    checkSession(key.tserverSession, lastStartToFinish);
     KeyExtent alternative = extent;
     if (extent.isRootTablet()) {
       alternative = RootTable.OLD_EXTENT;
@@ -197,8 +265,58 @@ public class SortedLogRecovery {
 
     log.debug("Found tid, seq " + tid + " " + defineKey.seq);
 
+    findLastStartToFinish(reader, fileno, defineKey, tabletFiles, lastStartToFinish);
+    return tid;
+  }
+
+  private void checkSession(String tserverSession, LastStartToFinish lastStartToFinish) {
+    if (tserverSession.compareTo(lastStartToFinish.tserverSession) != 0) {
+      if (lastStartToFinish.compactionStatus == Status.LOOKING_FOR_FINISH)
+        throw new RuntimeException("COMPACTION_FINISH (without preceding COMPACTION_START) is not followed by a successful minor compaction.");
+      lastStartToFinish.update(tserverSession);
+    }
+  }
+
+  /**
+   * Does the same as the start of {@link #findLastStartToFinish(MultiReader, int, KeyExtent, Set, LastStartToFinish)}, using the index instead of reading
+   * the OPEN and DEFINE_TABLET events.
+   */
+  private LogFileKey findDefinition(RecoveryLogIndex index, KeyExtent extent, LastStartToFinish lastStartToFinish) throws EmptyMapFileException,
+      UnusedException {
+    if (index.isEmpty())
+      throw new EmptyMapFileException();
+    if (index.getTserverSession() == null)
+      throw new RuntimeException("First log entry value is not OPEN");
+
+    checkSession(index.getTserverSession(), lastStartToFinish);
+
+    LogFileKey defineKey = index.getDefinition(extent);
+    if (extent.isRootTablet()) {
+      LogFileKey alternative = index.getDefinition(RootTable.OLD_EXTENT);
+      if (RecoveryLogIndex.supersedes(alternative, defineKey))
+        defineKey = alternative;
+    }
+    if (defineKey == null)
+      throw new UnusedException();
+
+    log.debug("Found tid, seq " + defineKey.tid + " " + defineKey.seq);
+    return defineKey;
+  }
+
+  private void findLastStartToFinish(MultiReader reader, int fileno, LogFileKey defineKey, Set<String> tabletFiles, LastStartToFinish lastStartToFinish)
+      throws IOException {
+
+    HashSet<String> suffixes = new HashSet<>();
+    for (String path : tabletFiles)
+      suffixes.add(getPathSuffix(path));
+
+    int tid = defineKey.tid;
+    LogFileValue value = new LogFileValue();
+
     // Scan start/stop events for this tablet
-    key = defineKey;
+    LogFileKey key = new LogFileKey();
+    key.tid = defineKey.tid;
+    key.seq = defineKey.seq;
     key.event = COMPACTION_START;
     reader.seek(key);
     while (reader.next(key, value)) {
@@ -229,7 +347,6 @@ public class SortedLogRecovery {
       } else
         break;
     }
-    return tid;
   }
 
   private void playbackMutations(MultiReader reader, int tid, LastStartToFinish lastStartToFinish, MutationReceiver mr) throws IOException {
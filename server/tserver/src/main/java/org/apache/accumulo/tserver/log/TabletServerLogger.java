@@ -23,10 +23,16 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -61,49 +67,41 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+
 /**
  * Central logging facility for the TServerInfo.
  *
  * Forwards in-memory updates to remote logs, carefully writing the same data to every log, while maintaining the maximum thread parallelism for greater
  * performance. As new logs are used and minor compactions are performed, the metadata table is kept up-to-date.
  *
+ * A tablet server may write to several logs at once, one per stream. Each tablet is hashed to a single stream, so all of a tablet's entries are written to
+ * that stream's logs in order and recovery sees the same sequence of logs for a tablet as it would with a single stream.
+ *
  */
 public class TabletServerLogger {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerLogger.class);
 
-  private final AtomicLong logSizeEstimate = new AtomicLong();
   private final long maxSize;
   private final long maxAge;
 
   private final TabletServer tserver;
 
-  // The current logger
-  private DfsLogger currentLog = null;
-  private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
-  private ThreadPoolExecutor nextLogMaker;
-
-  // The current generation of logs.
-  // Because multiple threads can be using a log at one time, a log
-  // failure is likely to affect multiple threads, who will all attempt to
-  // create a new log. This will cause many unnecessary updates to the
-  // metadata table.
-  // We'll use this generational counter to determine if another thread has
-  // already fetched a new log.
-  private final AtomicInteger logId = new AtomicInteger();
+  private final LogStream[] streams;
 
-  // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to change them
-  private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
+  // writes the parts of a multi-tablet update that belong to other streams, so that their syncs proceed in parallel
+  private final ExecutorService streamWriters;
 
   private final AtomicInteger seqGen = new AtomicInteger();
 
   private final AtomicLong syncCounter;
   private final AtomicLong flushCounter;
 
-  private long createTime = 0;
-
   private final RetryFactory retryFactory;
-  private Retry retry = null;
+
+  // the indexes of sorted logs, shared by the recoveries of all the tablets that used them
+  private final Cache<Path,Optional<RecoveryLogIndex>> recoveryLogIndexes = SortedLogRecovery.newIndexCache();
 
   static private abstract class TestCallWithWriteLock {
     abstract boolean test();
@@ -149,311 +147,427 @@ public class TabletServerLogger {
   }
 
   public TabletServerLogger(TabletServer tserver, long maxSize, AtomicLong syncCounter, AtomicLong flushCounter, RetryFactory retryFactory, long maxAge) {
+    this(tserver, maxSize, syncCounter, flushCounter, retryFactory, maxAge, 1);
+  }
+
+  /**
+   * @param numStreams
+   *          the number of logs to write to at once
+   */
+  public TabletServerLogger(TabletServer tserver, long maxSize, AtomicLong syncCounter, AtomicLong flushCounter, RetryFactory retryFactory, long maxAge,
+      int numStreams) {
+    if (numStreams < 1) {
+      throw new IllegalArgumentException("Number of WAL streams must be positive: " + numStreams);
+    }
     this.tserver = tserver;
     this.maxSize = maxSize;
     this.syncCounter = syncCounter;
     this.flushCounter = flushCounter;
     this.retryFactory = retryFactory;
-    this.retry = null;
     this.maxAge = maxAge;
+    this.streams = new LogStream[numStreams];
+    for (int i = 0; i < numStreams; i++) {
+      streams[i] = new LogStream(i);
+    }
+    this.streamWriters = numStreams == 1 ? null : new SimpleThreadPool(numStreams, "WALog writer");
   }
 
-  private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
-    final AtomicReference<DfsLogger> result = new AtomicReference<>();
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        result.set(currentLog);
-        if (currentLog != null)
-          logIdOut.set(logId.get());
-        return currentLog == null;
-      }
+  private LogStream streamFor(CommitSession commitSession) {
+    if (streams.length == 1) {
+      return streams[0];
+    }
+    return streams[(commitSession.getExtent().hashCode() & Integer.MAX_VALUE) % streams.length];
+  }
 
-      @Override
-      void withWriteLock() throws IOException {
-        try {
-          createLogger();
-          result.set(currentLog);
-          if (currentLog != null)
-            logIdOut.set(logId.get());
-          else
-            logIdOut.set(-1);
-        } catch (IOException e) {
-          log.error("Unable to create loggers", e);
-        }
-      }
-    });
-    return result.get();
+  interface Writer {
+    LoggerOperation write(DfsLogger logger, int seq) throws Exception;
   }
 
   /**
-   * Get the current WAL file
-   *
-   * @return The name of the current log, or null if there is no current log.
+   * A sequence of write-ahead logs, only one of which is written to at a time. When the current log fails, grows too large or too old, it is closed and the
+   * next one is used.
    */
-  public String getLogFile() {
-    logIdLock.readLock().lock();
-    try {
-      if (null == currentLog) {
-        return null;
-      }
-      return currentLog.getFileName();
-    } finally {
-      logIdLock.readLock().unlock();
-    }
-  }
+  private class LogStream {
+
+    private final String name;
+
+    private final AtomicLong logSizeEstimate = new AtomicLong();
 
-  synchronized private void createLogger() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("createLoggers should be called with write lock held!");
+    // The current logger
+    private DfsLogger currentLog = null;
+    private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
+    private ThreadPoolExecutor nextLogMaker;
+
+    // The current generation of logs.
+    // Because multiple threads can be using a log at one time, a log
+    // failure is likely to affect multiple threads, who will all attempt to
+    // create a new log. This will cause many unnecessary updates to the
+    // metadata table.
+    // We'll use this generational counter to determine if another thread has
+    // already fetched a new log.
+    private final AtomicInteger logId = new AtomicInteger();
+
+    // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to change them
+    private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
+
+    private long createTime = 0;
+
+    private Retry retry = null;
+
+    LogStream(int id) {
+      this.name = streams.length == 1 ? "WALog creator" : "WALog creator " + id;
     }
 
-    if (currentLog != null) {
-      throw new IllegalStateException("createLoggers should not be called when current log is set");
+    private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
+      final AtomicReference<DfsLogger> result = new AtomicReference<>();
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          result.set(currentLog);
+          if (currentLog != null)
+            logIdOut.set(logId.get());
+          return currentLog == null;
+        }
+
+        @Override
+        void withWriteLock() throws IOException {
+          try {
+            createLogger();
+            result.set(currentLog);
+            if (currentLog != null)
+              logIdOut.set(logId.get());
+            else
+              logIdOut.set(-1);
+          } catch (IOException e) {
+            log.error("Unable to create loggers", e);
+          }
+        }
+      });
+      return result.get();
     }
 
-    try {
-      startLogMaker();
-      Object next = nextLog.take();
-      if (next instanceof Exception) {
-        throw (Exception) next;
-      }
-      if (next instanceof DfsLogger) {
-        currentLog = (DfsLogger) next;
-        logId.incrementAndGet();
-        log.info("Using next log " + currentLog.getFileName());
-
-        // When we successfully create a WAL, make sure to reset the Retry.
-        if (null != retry) {
-          retry = null;
+    /**
+     * Get the current WAL file
+     *
+     * @return The name of the current log, or null if there is no current log.
+     */
+    String getLogFile() {
+      logIdLock.readLock().lock();
+      try {
+        if (null == currentLog) {
+          return null;
         }
+        return currentLog.getFileName();
+      } finally {
+        logIdLock.readLock().unlock();
+      }
+    }
 
-        this.createTime = System.currentTimeMillis();
-        return;
-      } else {
-        throw new RuntimeException("Error: unexpected type seen: " + next);
+    synchronized private void createLogger() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("createLoggers should be called with write lock held!");
       }
-    } catch (Exception t) {
-      if (null == retry) {
-        retry = retryFactory.create();
+
+      if (currentLog != null) {
+        throw new IllegalStateException("createLoggers should not be called when current log is set");
       }
 
-      // We have more retries or we exceeded the maximum number of accepted failures
-      if (retry.canRetry()) {
-        // Use the retry and record the time in which we did so
-        retry.useRetry();
+      try {
+        startLogMaker();
+        Object next = nextLog.take();
+        if (next instanceof Exception) {
+          throw (Exception) next;
+        }
+        if (next instanceof DfsLogger) {
+          currentLog = (DfsLogger) next;
+          logId.incrementAndGet();
+          log.info("Using next log " + currentLog.getFileName());
+
+          // When we successfully create a WAL, make sure to reset the Retry.
+          if (null != retry) {
+            retry = null;
+          }
 
-        try {
-          // Backoff
-          retry.waitForNextAttempt();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
+          this.createTime = System.currentTimeMillis();
+          return;
+        } else {
+          throw new RuntimeException("Error: unexpected type seen: " + next);
+        }
+      } catch (Exception t) {
+        if (null == retry) {
+          retry = retryFactory.create();
         }
-      } else {
-        log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
-        // We didn't have retries or we failed too many times.
-        Halt.halt("Experienced too many errors creating WALs, giving up", 1);
-      }
 
-      // The exception will trigger the log creation to be re-attempted.
-      throw new RuntimeException(t);
-    }
-  }
+        // We have more retries or we exceeded the maximum number of accepted failures
+        if (retry.canRetry()) {
+          // Use the retry and record the time in which we did so
+          retry.useRetry();
 
-  private synchronized void startLogMaker() {
-    if (nextLogMaker != null) {
-      return;
-    }
-    nextLogMaker = new SimpleThreadPool(1, "WALog creator");
-    nextLogMaker.submit(new LoggingRunnable(log, new Runnable() {
-      @Override
-      public void run() {
-        final ServerResources conf = tserver.getServerConfig();
-        final VolumeManager fs = conf.getFileSystem();
-        while (!nextLogMaker.isShutdown()) {
-          DfsLogger alog = null;
           try {
-            log.debug("Creating next WAL");
-            alog = new DfsLogger(conf, syncCounter, flushCounter);
-            alog.open(tserver.getClientAddressString());
-            String fileName = alog.getFileName();
-            log.debug("Created next WAL " + fileName);
-            tserver.addNewLogMarker(alog);
-            while (!nextLog.offer(alog, 12, TimeUnit.HOURS)) {
-              log.info("Our WAL was not used for 12 hours: " + fileName);
-            }
-          } catch (Exception t) {
-            log.error("Failed to open WAL", t);
-            if (null != alog) {
-              // It's possible that the sync of the header and OPEN record to the WAL failed
-              // We want to make sure that clean up the resources/thread inside the DfsLogger
-              // object before trying to create a new one.
-              try {
-                alog.close();
-              } catch (Exception e) {
-                log.error("Failed to close WAL after it failed to open", e);
+            // Backoff
+            retry.waitForNextAttempt();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        } else {
+          log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
+          // We didn't have retries or we failed too many times.
+          Halt.halt("Experienced too many errors creating WALs, giving up", 1);
+        }
+
+        // The exception will trigger the log creation to be re-attempted.
+        throw new RuntimeException(t);
+      }
+    }
+
+    private synchronized void startLogMaker() {
+      if (nextLogMaker != null) {
+        return;
+      }
+      nextLogMaker = new SimpleThreadPool(1, name);
+      nextLogMaker.submit(new LoggingRunnable(log, new Runnable() {
+        @Override
+        public void run() {
+          final ServerResources conf = tserver.getServerConfig();
+          final VolumeManager fs = conf.getFileSystem();
+          while (!nextLogMaker.isShutdown()) {
+            DfsLogger alog = null;
+            try {
+              log.debug("Creating next WAL");
+              alog = new DfsLogger(conf, syncCounter, flushCounter, tserver.getUpdateMetrics());
+              alog.open(tserver.getClientAddressString());
+              String fileName = alog.getFileName();
+              log.debug("Created next WAL " + fileName);
+              tserver.addNewLogMarker(alog);
+              while (!nextLog.offer(alog, 12, TimeUnit.HOURS)) {
+                log.info("Our WAL was not used for 12 hours: " + fileName);
               }
-              // Try to avoid leaving a bunch of empty WALs lying around
-              try {
-                Path path = alog.getPath();
-                if (fs.exists(path)) {
-                  fs.delete(path);
+            } catch (Exception t) {
+              log.error("Failed to open WAL", t);
+              if (null != alog) {
+                // It's possible that the sync of the header and OPEN record to the WAL failed
+                // We want to make sure that clean up the resources/thread inside the DfsLogger
+                // object before trying to create a new one.
+                try {
+                  alog.close();
+                } catch (Exception e) {
+                  log.error("Failed to close WAL after it failed to open", e);
+                }
+                // Try to avoid leaving a bunch of empty WALs lying around
+                try {
+                  Path path = alog.getPath();
+                  if (fs.exists(path)) {
+                    fs.delete(path);
+                  }
+                } catch (Exception e) {
+                  log.warn("Failed to delete a WAL that failed to open", e);
                 }
-              } catch (Exception e) {
-                log.warn("Failed to delete a WAL that failed to open", e);
               }
-            }
-            try {
-              nextLog.offer(t, 12, TimeUnit.HOURS);
-            } catch (InterruptedException ex) {
-              // ignore
+              try {
+                nextLog.offer(t, 12, TimeUnit.HOURS);
+              } catch (InterruptedException ex) {
+                // ignore
+              }
             }
           }
         }
-      }
-    }));
-  }
-
-  public void resetLoggers() throws IOException {
-    logIdLock.writeLock().lock();
-    try {
-      close();
-    } finally {
-      logIdLock.writeLock().unlock();
+      }));
     }
-  }
 
-  synchronized private void close() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("close should be called with write lock held!");
+    void resetLoggers() throws IOException {
+      logIdLock.writeLock().lock();
+      try {
+        close();
+      } finally {
+        logIdLock.writeLock().unlock();
+      }
     }
-    try {
-      if (null != currentLog) {
-        try {
-          currentLog.close();
-        } catch (DfsLogger.LogClosedException ex) {
-          // ignore
-        } catch (Throwable ex) {
-          log.error("Unable to cleanly close log " + currentLog.getFileName() + ": " + ex, ex);
-        } finally {
-          this.tserver.walogClosed(currentLog);
+
+    synchronized private void close() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("close should be called with write lock held!");
+      }
+      try {
+        if (null != currentLog) {
+          try {
+            currentLog.close();
+          } catch (DfsLogger.LogClosedException ex) {
+            // ignore
+          } catch (Throwable ex) {
+            log.error("Unable to cleanly close log " + currentLog.getFileName() + ": " + ex, ex);
+          } finally {
+            tserver.walogClosed(currentLog);
+          }
+          currentLog = null;
+          logSizeEstimate.set(0);
         }
-        currentLog = null;
-        logSizeEstimate.set(0);
+      } catch (Throwable t) {
+        throw new IOException(t);
       }
-    } catch (Throwable t) {
-      throw new IOException(t);
     }
-  }
 
-  interface Writer {
-    LoggerOperation write(DfsLogger logger, int seq) throws Exception;
-  }
-
-  private int write(CommitSession commitSession, boolean mincFinish, Writer writer) throws IOException {
-    List<CommitSession> sessions = Collections.singletonList(commitSession);
-    return write(sessions, mincFinish, writer);
-  }
+    private int write(CommitSession commitSession, boolean mincFinish, Writer writer) throws IOException {
+      List<CommitSession> sessions = Collections.singletonList(commitSession);
+      return write(sessions, mincFinish, writer);
+    }
 
-  private int write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer) throws IOException {
-    // Work very hard not to lock this during calls to the outside world
-    int currentLogId = logId.get();
+    private int write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer) throws IOException {
+      // Work very hard not to lock this during calls to the outside world
+      int currentLogId = logId.get();
 
-    int seq = -1;
-    int attempt = 1;
-    boolean success = false;
-    while (!success) {
-      try {
-        // get a reference to the loggers that no other thread can touch
-        DfsLogger copy = null;
-        AtomicInteger currentId = new AtomicInteger(-1);
-        copy = initializeLoggers(currentId);
-        currentLogId = currentId.get();
-
-        // add the logger to the log set for the memory in the tablet,
-        // update the metadata table if we've never used this tablet
-
-        if (currentLogId == logId.get()) {
-          for (CommitSession commitSession : sessions) {
-            if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
-              try {
-                // Scribble out a tablet definition and then write to the metadata table
-                defineTablet(commitSession);
-              } finally {
-                commitSession.finishUpdatingLogsUsed();
-              }
+      int seq = -1;
+      int attempt = 1;
+      boolean success = false;
+      while (!success) {
+        try {
+          // get a reference to the loggers that no other thread can touch
+          DfsLogger copy = null;
+          AtomicInteger currentId = new AtomicInteger(-1);
+          copy = initializeLoggers(currentId);
+          currentLogId = currentId.get();
+
+          // add the logger to the log set for the memory in the tablet,
+          // update the metadata table if we've never used this tablet
+
+          if (currentLogId == logId.get()) {
+            for (CommitSession commitSession : sessions) {
+              if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
+                try {
+                  // Scribble out a tablet definition and then write to the metadata table
+                  defineTablet(commitSession);
+                } finally {
+                  commitSession.finishUpdatingLogsUsed();
+                }
 
-              // Need to release
-              KeyExtent extent = commitSession.getExtent();
-              if (ReplicationConfigurationUtil.isEnabled(extent, tserver.getTableConfiguration(extent))) {
-                Status status = StatusUtil.openWithUnknownLength(System.currentTimeMillis());
-                log.debug("Writing " + ProtobufUtil.toString(status) + " to metadata table for " + copy.getFileName());
-                // Got some new WALs, note this in the metadata table
-                ReplicationTableUtil.updateFiles(tserver, commitSession.getExtent(), copy.getFileName(), status);
+                // Need to release
+                KeyExtent extent = commitSession.getExtent();
+                if (ReplicationConfigurationUtil.isEnabled(extent, tserver.getTableConfiguration(extent))) {
+                  Status status = StatusUtil.openWithUnknownLength(System.currentTimeMillis());
+                  log.debug("Writing " + ProtobufUtil.toString(status) + " to metadata table for " + copy.getFileName());
+                  // Got some new WALs, note this in the metadata table
+                  ReplicationTableUtil.updateFiles(tserver, commitSession.getExtent(), copy.getFileName(), status);
+                }
               }
             }
           }
-        }
 
-        // Make sure that the logs haven't changed out from underneath our copy
-        if (currentLogId == logId.get()) {
+          // Make sure that the logs haven't changed out from underneath our copy
+          if (currentLogId == logId.get()) {
 
-          // write the mutation to the logs
-          seq = seqGen.incrementAndGet();
-          if (seq < 0)
-            throw new RuntimeException("Logger sequence generator wrapped!  Onos!!!11!eleven");
-          LoggerOperation lop = writer.write(copy, seq);
-          lop.await();
+            // write the mutation to the logs
+            seq = seqGen.incrementAndGet();
+            if (seq < 0)
+              throw new RuntimeException("Logger sequence generator wrapped!  Onos!!!11!eleven");
+            LoggerOperation lop = writer.write(copy, seq);
+            lop.await();
 
-          // double-check: did the log set change?
-          success = (currentLogId == logId.get());
+            // double-check: did the log set change?
+            success = (currentLogId == logId.get());
+          }
+        } catch (DfsLogger.LogClosedException ex) {
+          log.debug("Logs closed while writing, retrying " + attempt);
+        } catch (Exception t) {
+          if (attempt != 1) {
+            log.error("Unexpected error writing to log, retrying attempt " + attempt, t);
+          }
+          sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+        } finally {
+          attempt++;
         }
-      } catch (DfsLogger.LogClosedException ex) {
-        log.debug("Logs closed while writing, retrying " + attempt);
-      } catch (Exception t) {
-        if (attempt != 1) {
-          log.error("Unexpected error writing to log, retrying attempt " + attempt, t);
+        // Some sort of write failure occurred. Grab the write lock and reset the logs.
+        // But since multiple threads will attempt it, only attempt the reset when
+        // the logs haven't changed.
+        final int finalCurrent = currentLogId;
+        if (!success) {
+          testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+
+            @Override
+            boolean test() {
+              return finalCurrent == logId.get();
+            }
+
+            @Override
+            void withWriteLock() throws IOException {
+              close();
+              closeForReplication(sessions);
+            }
+          });
         }
-        sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
-      } finally {
-        attempt++;
       }
-      // Some sort of write failure occurred. Grab the write lock and reset the logs.
-      // But since multiple threads will attempt it, only attempt the reset when
-      // the logs haven't changed.
-      final int finalCurrent = currentLogId;
-      if (!success) {
-        testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-
-          @Override
-          boolean test() {
-            return finalCurrent == logId.get();
-          }
+      // if the log gets too big or too old, reset it .. grab the write lock first
+      logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          return (logSizeEstimate.get() > maxSize) || ((System.currentTimeMillis() - createTime) > maxAge);
+        }
 
-          @Override
-          void withWriteLock() throws IOException {
-            close();
-            closeForReplication(sessions);
+        @Override
+        void withWriteLock() throws IOException {
+          close();
+          closeForReplication(sessions);
+        }
+      });
+      return seq;
+    }
+
+    int defineTablet(final CommitSession commitSession) throws IOException {
+      // scribble this into the metadata tablet, too.
+      return write(commitSession, false, new Writer() {
+        @Override
+        public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
+          logger.defineTablet(commitSession.getWALogSeq(), commitSession.getLogId(), commitSession.getExtent());
+          return DfsLogger.NO_WAIT_LOGGER_OP;
+        }
+      });
+    }
+
+    int logManyTablets(final Map<CommitSession,Mutations> loggables) throws IOException {
+      int seq = write(loggables.keySet(), false, new Writer() {
+        @Override
+        public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
+          List<TabletMutations> copy = new ArrayList<>(loggables.size());
+          for (Entry<CommitSession,Mutations> entry : loggables.entrySet()) {
+            CommitSession cs = entry.getKey();
+            Durability durability = entry.getValue().getDurability();
+            copy.add(new TabletMutations(cs.getLogId(), cs.getWALogSeq(), entry.getValue().getMutations(), durability));
           }
-        });
+          return logger.logManyTablets(copy);
+        }
+      });
+      for (Mutations entry : loggables.values()) {
+        if (entry.getMutations().size() < 1) {
+          throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
+        }
+        for (Mutation m : entry.getMutations()) {
+          logSizeEstimate.addAndGet(m.numBytes());
+        }
       }
+      return seq;
     }
-    // if the log gets too big or too old, reset it .. grab the write lock first
-    logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        return (logSizeEstimate.get() > maxSize) || ((System.currentTimeMillis() - createTime) > maxAge);
-      }
+  }
 
-      @Override
-      void withWriteLock() throws IOException {
-        close();
-        closeForReplication(sessions);
+  /**
+   * Get the current WAL files
+   *
+   * @return The names of the current logs, empty if there is no current log.
+   */
+  public List<String> getLogFiles() {
+    List<String> result = new ArrayList<>(streams.length);
+    for (LogStream stream : streams) {
+      String logFile = stream.getLogFile();
+      if (null != logFile) {
+        result.add(logFile);
       }
-    });
-    return seq;
+    }
+    return result;
+  }
+
+  public void resetLoggers() throws IOException {
+    for (LogStream stream : streams) {
+      stream.resetLoggers();
+    }
   }
 
   protected void closeForReplication(Collection<CommitSession> sessions) {
@@ -461,14 +575,7 @@ public class TabletServerLogger {
   }
 
   public int defineTablet(final CommitSession commitSession) throws IOException {
-    // scribble this into the metadata tablet, too.
-    return write(commitSession, false, new Writer() {
-      @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
-        logger.defineTablet(commitSession.getWALogSeq(), commitSession.getLogId(), commitSession.getExtent());
-        return DfsLogger.NO_WAIT_LOGGER_OP;
-      }
-    });
+    return streamFor(commitSession).defineTablet(commitSession);
   }
 
   public int log(final CommitSession commitSession, final int tabletSeq, final Mutation m, final Durability durability) throws IOException {
@@ -478,13 +585,14 @@ public class TabletServerLogger {
     if (durability == Durability.DEFAULT) {
       throw new IllegalArgumentException("Unexpected durability " + durability);
     }
-    int seq = write(commitSession, false, new Writer() {
+    LogStream stream = streamFor(commitSession);
+    int seq = stream.write(commitSession, false, new Writer() {
       @Override
       public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
         return logger.log(tabletSeq, commitSession.getLogId(), m, durability);
       }
     });
-    logSizeEstimate.addAndGet(m.numBytes());
+    stream.logSizeEstimate.addAndGet(m.numBytes());
     return seq;
   }
 
@@ -499,26 +607,54 @@ public class TabletServerLogger {
     if (loggables.size() == 0)
       return -1;
 
-    int seq = write(loggables.keySet(), false, new Writer() {
-      @Override
-      public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
-        List<TabletMutations> copy = new ArrayList<>(loggables.size());
-        for (Entry<CommitSession,Mutations> entry : loggables.entrySet()) {
-          CommitSession cs = entry.getKey();
-          Durability durability = entry.getValue().getDurability();
-          copy.add(new TabletMutations(cs.getLogId(), cs.getWALogSeq(), entry.getValue().getMutations(), durability));
-        }
-        return logger.logManyTablets(copy);
-      }
-    });
-    for (Mutations entry : loggables.values()) {
-      if (entry.getMutations().size() < 1) {
-        throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
+    if (streams.length == 1)
+      return streams[0].logManyTablets(loggables);
+
+    Map<LogStream,Map<CommitSession,Mutations>> byStream = new HashMap<>();
+    for (Entry<CommitSession,Mutations> entry : loggables.entrySet()) {
+      LogStream stream = streamFor(entry.getKey());
+      Map<CommitSession,Mutations> streamLoggables = byStream.get(stream);
+      if (streamLoggables == null) {
+        byStream.put(stream, streamLoggables = new HashMap<>());
       }
-      for (Mutation m : entry.getMutations()) {
-        logSizeEstimate.addAndGet(m.numBytes());
+      streamLoggables.put(entry.getKey(), entry.getValue());
+    }
+
+    // write to the other streams in the background and to the first one in this thread, then wait for all of them
+    Iterator<Entry<LogStream,Map<CommitSession,Mutations>>> iter = byStream.entrySet().iterator();
+    Entry<LogStream,Map<CommitSession,Mutations>> first = iter.next();
+    List<Future<Integer>> futures = new ArrayList<>(byStream.size() - 1);
+    while (iter.hasNext()) {
+      final Entry<LogStream,Map<CommitSession,Mutations>> entry = iter.next();
+      futures.add(streamWriters.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return entry.getKey().logManyTablets(entry.getValue());
+        }
+      }));
+    }
+
+    int seq = -1;
+    IOException failure = null;
+    try {
+      seq = first.getKey().logManyTablets(first.getValue());
+    } catch (IOException e) {
+      failure = e;
+    }
+    for (Future<Integer> future : futures) {
+      try {
+        seq = Math.max(seq, future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null)
+          failure = new IOException(e);
+      } catch (ExecutionException e) {
+        if (failure == null)
+          failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
       }
     }
+    if (failure != null)
+      throw failure;
     return seq;
   }
 
@@ -527,7 +663,7 @@ public class TabletServerLogger {
 
     long t1 = System.currentTimeMillis();
 
-    int seq = write(commitSession, true, new Writer() {
+    int seq = streamFor(commitSession).write(commitSession, true, new Writer() {
       @Override
       public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
         return logger.minorCompactionFinished(walogSeq, commitSession.getLogId(), fullyQualifiedFileName, durability);
@@ -541,7 +677,7 @@ public class TabletServerLogger {
 
   public int minorCompactionStarted(final CommitSession commitSession, final int seq, final String fullyQualifiedFileName, final Durability durability)
       throws IOException {
-    write(commitSession, false, new Writer() {
+    streamFor(commitSession).write(commitSession, false, new Writer() {
       @Override
       public LoggerOperation write(DfsLogger logger, int ignored) throws Exception {
         return logger.minorCompactionStarted(seq, commitSession.getLogId(), fullyQualifiedFileName, durability);
@@ -553,7 +689,7 @@ public class TabletServerLogger {
   public void recover(VolumeManager fs, KeyExtent extent, TableConfiguration tconf, List<Path> logs, Set<String> tabletFiles, MutationReceiver mr)
       throws IOException {
     try {
-      SortedLogRecovery recovery = new SortedLogRecovery(fs);
+      SortedLogRecovery recovery = new SortedLogRecovery(fs, recoveryLogIndexes);
       recovery.recover(extent, logs, tabletFiles, mr);
     } catch (Exception e) {
       throw new IOException(e);
@@ -37,7 +37,7 @@ public class Metrics2TabletServerMetrics implements Metrics, MetricsSource, Tabl
   private final MetricsRegistry registry;
 
   private final MutableGaugeLong entries, entriesInMemory, activeMajcs, queuedMajcs, activeMincs, queuedMincs, onlineTablets, openingTablets, unopenedTablets,
-      queries, totalMincs;
+      queries, totalMincs, prefetchedBlocks, prefetchHits;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerMetrics(TabletServer tserver, MetricsSystem system) {
@@ -56,6 +56,8 @@ public class Metrics2TabletServerMetrics implements Metrics, MetricsSource, Tabl
     unopenedTablets = registry.newGauge(Interns.info(UNOPENED_TABLETS, "Number of unopened tablets"), 0l);
     queries = registry.newGauge(Interns.info(QUERIES, "Number of queries"), 0l);
     totalMincs = registry.newGauge(Interns.info(TOTAL_MINCS, "Total number of minor compactions performed"), 0l);
+    prefetchedBlocks = registry.newGauge(Interns.info(PREFETCHED_BLOCKS, "Total number of file blocks fetched ahead of scans"), 0l);
+    prefetchHits = registry.newGauge(Interns.info(PREFETCH_HITS, "Total number of file blocks read by scans after being fetched ahead"), 0l);
   }
 
   @Override
@@ -86,6 +88,8 @@ public class Metrics2TabletServerMetrics implements Metrics, MetricsSource, Tabl
     unopenedTablets.set(util.getUnopenedCount());
     queries.set(util.getQueries());
     totalMincs.set(util.getTotalMinorCompactions());
+    prefetchedBlocks.set(util.getPrefetchedBlocks());
+    prefetchHits.set(util.getPrefetchHits());
   }
 
   @Override
@@ -101,6 +105,7 @@ public class Metrics2TabletServerMetrics implements Metrics, MetricsSource, Tabl
     // TODO Some day, MetricsRegistry will also support the MetricsGaugeDouble or allow us to instantiate it directly
     builder.addGauge(Interns.info(FILES_PER_TABLET, "Number of files per tablet"), util.getAverageFilesPerTablet());
     builder.addGauge(Interns.info(HOLD_TIME, "Time commits held"), util.getHoldTime());
+    builder.addGauge(Interns.info(PREFETCH_HIT_RATE, "Fraction of file blocks fetched ahead of scans that scans read"), util.getPrefetchHitRate());
   }
 
 }
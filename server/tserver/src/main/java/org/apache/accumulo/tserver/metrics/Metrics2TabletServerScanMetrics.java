@@ -33,7 +33,7 @@ public class Metrics2TabletServerScanMetrics implements Metrics, MetricsSource,
 
   private final MetricsSystem system;
   private final MetricsRegistry registry;
-  private final MutableStat scans, resultsPerScan, yields;
+  private final MutableStat scans, resultsPerScan, yields, batchMemory, batchShrinks;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerScanMetrics(MetricsSystem system) {
@@ -43,6 +43,8 @@ public class Metrics2TabletServerScanMetrics implements Metrics, MetricsSource,
     scans = registry.newStat(SCAN, "Scans", "Ops", "Count", true);
     resultsPerScan = registry.newStat(RESULT_SIZE, "Results per scan", "Ops", "Count", true);
     yields = registry.newStat(YIELD, "Yields", "Ops", "Count", true);
+    batchMemory = registry.newStat(BATCH_MEMORY, "Memory allowed for adaptively sized scan batches", "Ops", "Bytes", true);
+    batchShrinks = registry.newStat(BATCH_SHRINK, "Scan batches shrunk because the heap was nearly full", "Ops", "Count", true);
   }
 
   @Override
@@ -53,6 +55,10 @@ public class Metrics2TabletServerScanMetrics implements Metrics, MetricsSource,
       resultsPerScan.add(value);
     } else if (YIELD.equals(name)) {
       yields.add(value);
+    } else if (BATCH_MEMORY.equals(name)) {
+      batchMemory.add(value);
+    } else if (BATCH_SHRINK.equals(name)) {
+      batchShrinks.add(value);
     } else {
       throw new RuntimeException("Could not find metric to update for name " + name);
     }
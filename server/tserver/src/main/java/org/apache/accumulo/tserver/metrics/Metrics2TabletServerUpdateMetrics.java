@@ -36,7 +36,8 @@ public class Metrics2TabletServerUpdateMetrics implements Metrics, MetricsSource
   private final MetricsRegistry registry;
 
   private final MutableCounterLong permissionErrorsCounter, unknownTabletErrorsCounter, constraintViolationsCounter;
-  private final MutableStat commitPrepStat, walogWriteTimeStat, commitTimeStat, mutationArraySizeStat;
+  private final MutableStat commitPrepStat, walogWriteTimeStat, commitTimeStat, mutationArraySizeStat, walogSyncBatchSizeStat,
+      walogSyncWaitTimeStat;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerUpdateMetrics(MetricsSystem system) {
@@ -51,6 +52,8 @@ public class Metrics2TabletServerUpdateMetrics implements Metrics, MetricsSource
     walogWriteTimeStat = registry.newStat(WALOG_WRITE_TIME, "writing mutations to WAL", "Ops", "Time", true);
     commitTimeStat = registry.newStat(COMMIT_TIME, "committing mutations", "Ops", "Time", true);
     mutationArraySizeStat = registry.newStat(MUTATION_ARRAY_SIZE, "mutation array", "ops", "Size", true);
+    walogSyncBatchSizeStat = registry.newStat(WALOG_SYNC_BATCH_SIZE, "WAL writes grouped into one sync", "Ops", "Size", true);
+    walogSyncWaitTimeStat = registry.newStat(WALOG_SYNC_WAIT_TIME, "waiting to group WAL writes before a sync", "Ops", "Time", true);
   }
 
   @Override
@@ -69,6 +72,10 @@ public class Metrics2TabletServerUpdateMetrics implements Metrics, MetricsSource
       walogWriteTimeStat.add(value);
     } else if (COMMIT_TIME.equals(name)) {
       commitTimeStat.add(value);
+    } else if (WALOG_SYNC_BATCH_SIZE.equals(name)) {
+      walogSyncBatchSizeStat.add(value);
+    } else if (WALOG_SYNC_WAIT_TIME.equals(name)) {
+      walogSyncWaitTimeStat.add(value);
     } else {
       throw new RuntimeException("Cannot process metric with name " + name);
     }
@@ -34,5 +34,8 @@ public interface TabletServerMetricsKeys {
   String UNOPENED_TABLETS = "unopenedTablets";
   String QUERIES = "queries";
   String TOTAL_MINCS = "totalMinCs";
+  String PREFETCHED_BLOCKS = "prefetchedBlocks";
+  String PREFETCH_HITS = "prefetchHits";
+  String PREFETCH_HIT_RATE = "prefetchHitRate";
 
 }
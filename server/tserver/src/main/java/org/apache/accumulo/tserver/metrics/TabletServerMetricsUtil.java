@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.tserver.metrics;
 
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.PrefetchStats;
 import org.apache.accumulo.tserver.TabletServer;
 import org.apache.accumulo.tserver.tablet.Tablet;
 
@@ -120,6 +121,22 @@ public class TabletServerMetricsUtil {
     return tserver.getTotalMinorCompactions();
   }
 
+  public long getPrefetchedBlocks() {
+    return tserver.getBlockPrefetchStats().getPrefetchedBlocks();
+  }
+
+  public long getPrefetchHits() {
+    return tserver.getBlockPrefetchStats().getPrefetchHits();
+  }
+
+  public double getPrefetchHitRate() {
+    PrefetchStats stats = tserver.getBlockPrefetchStats();
+    long prefetched = stats.getPrefetchedBlocks();
+    if (prefetched == 0)
+      return 0;
+    return stats.getPrefetchHits() / (double) prefetched;
+  }
+
   public double getHoldTime() {
     return tserver.getHoldTimeMillis() / 1000.;
   }
@@ -92,6 +92,8 @@ public class TabletServerScanMetrics extends AbstractMetricsImpl implements Tabl
   public void reset() {
     createMetric(SCAN);
     createMetric(RESULT_SIZE);
+    createMetric(BATCH_MEMORY);
+    createMetric(BATCH_SHRINK);
   }
 
 }
@@ -24,5 +24,7 @@ public interface TabletServerScanMetricsKeys {
   String SCAN = "scan";
   String RESULT_SIZE = "result";
   String YIELD = "yield";
+  String BATCH_MEMORY = "batchMemory";
+  String BATCH_SHRINK = "batchShrink";
 
 }
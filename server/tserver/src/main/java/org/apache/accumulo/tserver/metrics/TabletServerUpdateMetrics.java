@@ -139,6 +139,26 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl implements Ta
     return this.getMetricAvg(COMMIT_TIME);
   }
 
+  @Override
+  public long getWALogSyncBatchAvgSize() {
+    return this.getMetricAvg(WALOG_SYNC_BATCH_SIZE);
+  }
+
+  @Override
+  public long getWALogSyncBatchMaxSize() {
+    return this.getMetricMax(WALOG_SYNC_BATCH_SIZE);
+  }
+
+  @Override
+  public long getWALogSyncWaitAvgTime() {
+    return this.getMetricAvg(WALOG_SYNC_WAIT_TIME);
+  }
+
+  @Override
+  public long getWALogSyncWaitMaxTime() {
+    return this.getMetricMax(WALOG_SYNC_WAIT_TIME);
+  }
+
   @Override
   public void reset() {
     createMetric(PERMISSION_ERRORS);
@@ -148,6 +168,8 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl implements Ta
     createMetric(CONSTRAINT_VIOLATIONS);
     createMetric(WALOG_WRITE_TIME);
     createMetric(COMMIT_TIME);
+    createMetric(WALOG_SYNC_BATCH_SIZE);
+    createMetric(WALOG_SYNC_WAIT_TIME);
   }
 
 }
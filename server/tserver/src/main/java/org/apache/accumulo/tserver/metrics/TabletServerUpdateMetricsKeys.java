@@ -28,5 +28,7 @@ public interface TabletServerUpdateMetricsKeys {
   static String CONSTRAINT_VIOLATIONS = "constraintViolations";
   static String WALOG_WRITE_TIME = "waLogWriteTime";
   static String COMMIT_TIME = "commitTime";
+  static String WALOG_SYNC_BATCH_SIZE = "waLogSyncBatchSize";
+  static String WALOG_SYNC_WAIT_TIME = "waLogSyncWaitTime";
 
 }
@@ -54,5 +54,13 @@ public interface TabletServerUpdateMetricsMBean extends TabletServerUpdateMetric
 
   long getCommitAvgTime();
 
+  long getWALogSyncBatchAvgSize();
+
+  long getWALogSyncBatchMaxSize();
+
+  long getWALogSyncWaitAvgTime();
+
+  long getWALogSyncWaitMaxTime();
+
   void reset();
 }
@@ -67,10 +67,7 @@ public class NextBatchTask extends ScanTask<ScanBatch> {
         return;
       }
 
-      long t1 = System.currentTimeMillis();
-      ScanBatch batch = scanSession.scanner.read();
-      long t2 = System.currentTimeMillis();
-      scanSession.nbTimes.addStat(t2 - t1);
+      ScanBatch batch = scanSession.readBatch();
 
       // there should only be one thing on the queue at a time, so
       // it should be ok to call add()
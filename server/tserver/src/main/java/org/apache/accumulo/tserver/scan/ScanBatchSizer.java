@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.function.DoubleSupplier;
+
+import org.apache.accumulo.server.metrics.Metrics;
+import org.apache.accumulo.tserver.metrics.TabletServerScanMetricsKeys;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+
+/**
+ * Chooses how much memory each batch of a scan may use. Batches start at the table's scan memory limit. When the client asks for the next batch sooner than
+ * the tablet server takes to read one, batches that stopped at the limit double, up to a maximum, so a fast bulk reader makes fewer round trips. When the
+ * client takes longer over a batch than reading it took, batches halve back towards the table limit. When the heap is nearly full, batches halve down to an
+ * eighth of the table limit regardless of the client.
+ */
+public class ScanBatchSizer {
+
+  // the fraction of the heap in use above which batches shrink
+  static final double HEAP_PRESSURE = 0.8;
+
+  private final long minMemory;
+  private final long baseMemory;
+  private final long maxMemory;
+  private final int maxEntries;
+  private final Metrics scanMetrics;
+  private final DoubleSupplier heapUsage;
+
+  private long batchMemory;
+  private long lastReadMillis = 0;
+  private boolean lastBatchFull = false;
+  private long lastTakenMillis = -1;
+
+  /**
+   * @param baseMemory
+   *          the table's scan memory limit, where batches start
+   * @param maxMemory
+   *          the most memory a batch may grow to
+   * @param maxEntries
+   *          the most entries the client asked for in a batch
+   */
+  public ScanBatchSizer(long baseMemory, long maxMemory, int maxEntries, Metrics scanMetrics) {
+    this(baseMemory, maxMemory, maxEntries, scanMetrics, () -> {
+      Runtime runtime = Runtime.getRuntime();
+      return (runtime.totalMemory() - runtime.freeMemory()) / (double) runtime.maxMemory();
+    });
+  }
+
+  ScanBatchSizer(long baseMemory, long maxMemory, int maxEntries, Metrics scanMetrics, DoubleSupplier heapUsage) {
+    this.baseMemory = Math.max(1, baseMemory);
+    this.minMemory = Math.max(1, this.baseMemory / 8);
+    this.maxMemory = Math.max(this.baseMemory, maxMemory);
+    this.maxEntries = maxEntries;
+    this.scanMetrics = scanMetrics;
+    this.heapUsage = heapUsage;
+    this.batchMemory = this.baseMemory;
+  }
+
+  /**
+   * @return the memory the next batch may use
+   */
+  public synchronized long getBatchMemory() {
+    if (batchMemory > minMemory && heapUsage.getAsDouble() > HEAP_PRESSURE) {
+      batchMemory = Math.max(minMemory, batchMemory / 2);
+      if (scanMetrics != null && scanMetrics.isEnabled())
+        scanMetrics.add(TabletServerScanMetricsKeys.BATCH_SHRINK, 1);
+    }
+    return batchMemory;
+  }
+
+  /**
+   * Records a batch read with the given memory limit.
+   */
+  public synchronized void batchRead(ScanBatch batch, long batchMemory, long readMillis) {
+    lastReadMillis = readMillis;
+    // a batch that stopped early with fewer entries than the client asked for most likely stopped at the memory limit
+    lastBatchFull = batch.isMore() && batch.getResults().size() < maxEntries;
+    if (scanMetrics != null && scanMetrics.isEnabled())
+      scanMetrics.add(TabletServerScanMetricsKeys.BATCH_MEMORY, batchMemory);
+  }
+
+  /**
+   * Records the client taking a batch.
+   *
+   * @param waitMillis
+   *          how long the client's request waited for the batch
+   * @param nowMillis
+   *          the time the client took the batch
+   */
+  public synchronized void batchTaken(long waitMillis, long nowMillis) {
+    if (lastTakenMillis >= 0) {
+      // the time the client spent on the previous batch, including sending it and the request for this one
+      long clientMillis = nowMillis - lastTakenMillis - waitMillis;
+      if (lastBatchFull && clientMillis <= lastReadMillis && heapUsage.getAsDouble() <= HEAP_PRESSURE) {
+        batchMemory = Math.min(maxMemory, batchMemory * 2);
+      } else if (clientMillis > 4 * Math.max(1, lastReadMillis) && batchMemory > baseMemory) {
+        batchMemory = Math.max(baseMemory, batchMemory / 2);
+      }
+    }
+    lastTakenMillis = nowMillis;
+  }
+}
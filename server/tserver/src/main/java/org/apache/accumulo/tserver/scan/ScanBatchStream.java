@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.tablet.KVEntry;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+
+/**
+ * Reads the batches of a scan ahead of the client, keeping up to a fixed number of them ready. The stream starts with one credit per batch it may hold. Reading
+ * a batch spends a credit and the client taking a batch returns it, so a client that stops taking batches stops the reads instead of having batches pile up on
+ * the tablet server. Batches are read one at a time, each by its own {@link NextBatchTask} on the scan executors, so other scans get a turn between batches.
+ *
+ * <p>
+ * When the client asks for the next batch, the batches after it that are already read are returned with it as long as the results stay within the memory a
+ * single batch of the scan may currently use, so a client that falls behind catches up in fewer round trips.
+ */
+public class ScanBatchStream {
+
+  private final TabletServer server;
+  private final long scanID;
+  private final AtomicBoolean interruptFlag;
+  private final Consumer<Runnable> executor;
+  private final LongSupplier maxBytes;
+
+  // batches that are read and not yet taken, and the error that ended the stream if there was one
+  private final LinkedBlockingQueue<Object> ready = new LinkedBlockingQueue<>();
+  // the task reading or that last read a batch, null before the first read
+  private volatile StreamTask task = null;
+  private int credits;
+  private boolean reading = false;
+  private boolean finished = false;
+  private volatile boolean cancelled = false;
+
+  /**
+   * A {@link NextBatchTask} that hands its result to the stream instead of keeping it for a call to get.
+   */
+  private class StreamTask extends NextBatchTask {
+    private boolean added = false;
+
+    StreamTask() {
+      super(ScanBatchStream.this.server, ScanBatchStream.this.scanID, ScanBatchStream.this.interruptFlag);
+    }
+
+    @Override
+    protected void addResult(Object result) {
+      added = true;
+      ScanBatchStream.this.addResult(result);
+    }
+  }
+
+  /**
+   * @param executor
+   *          runs the task reading each batch
+   * @param maxBatches
+   *          the most batches to have read and not taken by the client
+   * @param maxBytes
+   *          ready batches are only returned together while the bytes of their results stay within what this supplies when they are taken
+   */
+  public ScanBatchStream(TabletServer server, long scanID, AtomicBoolean interruptFlag, Consumer<Runnable> executor, int maxBatches, LongSupplier maxBytes) {
+    if (maxBatches < 1)
+      throw new IllegalArgumentException("maxBatches < 1 : " + maxBatches);
+    this.server = server;
+    this.scanID = scanID;
+    this.interruptFlag = interruptFlag;
+    this.executor = executor;
+    this.credits = maxBatches;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Starts reading batches.
+   */
+  public void start() {
+    readMore();
+  }
+
+  private void readMore() {
+    StreamTask t;
+    synchronized (this) {
+      if (reading || finished || cancelled || credits == 0)
+        return;
+      reading = true;
+      credits--;
+      t = task = new StreamTask();
+    }
+
+    try {
+      executor.accept(() -> readBatch(t));
+    } catch (RejectedExecutionException e) {
+      t.runState.set(ScanRunState.FINISHED);
+      addResult(e);
+    }
+  }
+
+  private void readBatch(StreamTask t) {
+    t.run();
+    if (!t.added) {
+      // the scan was cancelled or its session is gone
+      addResult(new CancellationException());
+    }
+    readMore();
+  }
+
+  private synchronized void addResult(Object result) {
+    reading = false;
+    if (!(result instanceof ScanBatch) || !((ScanBatch) result).isMore())
+      finished = true;
+    if (!cancelled)
+      ready.add(result);
+  }
+
+  private static long bytes(ScanBatch batch) {
+    long bytes = 0;
+    for (KVEntry entry : batch.getResults())
+      bytes += entry.numBytes();
+    return bytes;
+  }
+
+  /**
+   * Waits for the next batch, and appends to it the batches read after it that are ready and fit within the stream's size limit.
+   */
+  public ScanBatch get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    if (cancelled)
+      throw new CancellationException();
+
+    Object r = ready.poll(timeout, unit);
+
+    // could have been canceled while waiting
+    if (cancelled)
+      throw new CancellationException();
+
+    if (r == null)
+      throw new TimeoutException();
+
+    if (r instanceof Throwable)
+      throw new ExecutionException((Throwable) r);
+
+    ScanBatch batch = (ScanBatch) r;
+    List<KVEntry> results = batch.getResults();
+    boolean more = batch.isMore();
+    long bytes = bytes(batch);
+    int taken = 1;
+    long maxBytes = this.maxBytes.getAsLong();
+
+    // only the client thread takes from the queue, so what it peeks stays there
+    while (more && ready.peek() instanceof ScanBatch) {
+      ScanBatch next = (ScanBatch) ready.peek();
+      long nextBytes = bytes(next);
+      if (bytes + nextBytes > maxBytes)
+        break;
+      ready.poll();
+      if (taken == 1)
+        results = new ArrayList<>(results);
+      results.addAll(next.getResults());
+      more = next.isMore();
+      bytes += nextBytes;
+      taken++;
+    }
+
+    synchronized (this) {
+      credits += taken;
+    }
+    readMore();
+
+    return taken == 1 ? batch : new ScanBatch(results, more);
+  }
+
+  /**
+   * Stops reading batches, interrupting the read in progress.
+   */
+  public void cancel() {
+    cancelled = true;
+    StreamTask t = task;
+    if (t != null)
+      t.cancel(true);
+    interruptFlag.set(true);
+    ready.clear();
+  }
+
+  public ScanRunState getScanRunState() {
+    StreamTask t = task;
+    return t == null ? ScanRunState.FINISHED : t.getScanRunState();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Map;
+
+/**
+ * Chooses which scan executor runs the tasks of a scan. An instance is created per tablet from the table.scan.dispatcher property and is called for every
+ * {@link NextBatchTask} and {@link LookupTask} queued for that tablet, so it should be cheap and must not block.
+ * <p>
+ * Executors are defined on the tablet server using the tserver.scan.executors. prefix. The executor named {@value #DEFAULT_EXECUTOR} always exists.
+ */
+public abstract class ScanDispatcher {
+
+  public static final String DEFAULT_EXECUTOR = "default";
+
+  /**
+   * The settings for the dispatcher pulled from zookeeper. The <tt>table.scan.dispatcher.opts.</tt> part of each setting will be removed.
+   */
+  public void init(Map<String,String> options) {}
+
+  /**
+   * @return the name of the executor that should run the scan. If no executor with that name is configured, the default executor is used.
+   */
+  public abstract String dispatch(ScanInfo scanInfo);
+}
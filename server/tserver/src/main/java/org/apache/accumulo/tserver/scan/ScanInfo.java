@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import org.apache.accumulo.core.client.impl.Table;
+
+/**
+ * A snapshot of the state of a scan, taken when one of its tasks is handed to a scan executor. Used by {@link ScanDispatcher} to pick an executor and by
+ * {@link ScanPrioritizer} to order the executor's queue.
+ */
+public class ScanInfo {
+
+  public static enum Type {
+    /**
+     * A scan of a single tablet, which returns a batch per task.
+     */
+    SINGLE,
+    /**
+     * A batch scan of ranges across one or more tablets.
+     */
+    MULTI
+  }
+
+  private final Type type;
+  private final Table.ID tableId;
+  private final long creationTime;
+  private final long batchesReturned;
+  private final int tablePriority;
+
+  public ScanInfo(Type type, Table.ID tableId, long creationTime, long batchesReturned, int tablePriority) {
+    this.type = type;
+    this.tableId = tableId;
+    this.creationTime = creationTime;
+    this.batchesReturned = batchesReturned;
+    this.tablePriority = tablePriority;
+  }
+
+  public Type getScanType() {
+    return type;
+  }
+
+  public Table.ID getTableId() {
+    return tableId;
+  }
+
+  /**
+   * @return the time in millis at which the scan session was created
+   */
+  public long getCreationTime() {
+    return creationTime;
+  }
+
+  /**
+   * @return the number of batches the scan already returned to the client
+   */
+  public long getBatchesReturned() {
+    return batchesReturned;
+  }
+
+  /**
+   * @return the value of table.scan.priority for the scanned table, higher values should run first
+   */
+  public int getTablePriority() {
+    return tablePriority;
+  }
+
+  @Override
+  public String toString() {
+    return type + " scan of " + tableId + " created " + creationTime + " batches " + batchesReturned + " priority " + tablePriority;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Orders the queue of a scan executor. Configured per executor with tserver.scan.executors.&lt;name&gt;.prioritizer, executors without a prioritizer run
+ * scans in the order they were queued.
+ */
+public interface ScanPrioritizer {
+
+  /**
+   * @param options
+   *          the tserver.scan.executors.&lt;name&gt;.prioritizer.opts. settings for the executor, with that prefix removed
+   * @return a comparator where scans that compare lower are run first
+   */
+  Comparator<ScanInfo> createComparator(Map<String,String> options);
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Map;
+
+/**
+ * Sends all of a table's scans to one executor. Supports the following options.
+ *
+ * <ul>
+ * <li><tt>table.scan.dispatcher.opts.executor=&lt;name&gt;</tt> : the executor for all scans, defaults to {@value ScanDispatcher#DEFAULT_EXECUTOR}
+ * <li><tt>table.scan.dispatcher.opts.single_executor=&lt;name&gt;</tt> : the executor for single tablet scans, overrides <tt>executor</tt>
+ * <li><tt>table.scan.dispatcher.opts.multi_executor=&lt;name&gt;</tt> : the executor for batch scans, overrides <tt>executor</tt>
+ * </ul>
+ */
+public class SimpleScanDispatcher extends ScanDispatcher {
+
+  private String singleExecutor = DEFAULT_EXECUTOR;
+  private String multiExecutor = DEFAULT_EXECUTOR;
+
+  @Override
+  public void init(Map<String,String> options) {
+    String executor = options.containsKey("executor") ? options.get("executor") : DEFAULT_EXECUTOR;
+    singleExecutor = options.containsKey("single_executor") ? options.get("single_executor") : executor;
+    multiExecutor = options.containsKey("multi_executor") ? options.get("multi_executor") : executor;
+  }
+
+  @Override
+  public String dispatch(ScanInfo scanInfo) {
+    switch (scanInfo.getScanType()) {
+      case SINGLE:
+        return singleExecutor;
+      case MULTI:
+        return multiExecutor;
+      default:
+        throw new IllegalArgumentException("Unexpected scan type " + scanInfo.getScanType());
+    }
+  }
+}
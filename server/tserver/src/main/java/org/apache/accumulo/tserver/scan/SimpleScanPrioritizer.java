@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Runs scans of tables with a higher table.scan.priority first. Among scans of the same priority, scans that have returned fewer batches run first, so short
+ * interactive scans and lookups do not wait behind long running scans. Remaining ties go to the oldest scan.
+ * <p>
+ * The option <tt>ignore_batches=true</tt> disables the ordering by batches returned, leaving table priority and then age.
+ */
+public class SimpleScanPrioritizer implements ScanPrioritizer {
+
+  @Override
+  public Comparator<ScanInfo> createComparator(Map<String,String> options) {
+    final boolean ignoreBatches = Boolean.parseBoolean(options.get("ignore_batches"));
+
+    return new Comparator<ScanInfo>() {
+      @Override
+      public int compare(ScanInfo si1, ScanInfo si2) {
+        int cmp = Integer.compare(si2.getTablePriority(), si1.getTablePriority());
+        if (cmp == 0 && !ignoreBatches)
+          cmp = Long.compare(si1.getBatchesReturned(), si2.getBatchesReturned());
+        if (cmp == 0)
+          cmp = Long.compare(si1.getCreationTime(), si2.getCreationTime());
+        return cmp;
+      }
+    };
+  }
+}
@@ -46,6 +46,7 @@ public class MultiScanSession extends Session {
   public int numTablets;
   public int numEntries;
   public long totalLookupTime;
+  public long batchCount;
 
   public volatile ScanTask<MultiScanResult> lookupTask;
 
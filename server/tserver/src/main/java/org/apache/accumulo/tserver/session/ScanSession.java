@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.tserver.session;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,9 +28,13 @@ import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.thrift.TCredentials;
 import org.apache.accumulo.core.util.Stat;
+import org.apache.accumulo.tserver.scan.ScanBatchSizer;
+import org.apache.accumulo.tserver.scan.ScanBatchStream;
+import org.apache.accumulo.tserver.scan.ScanRunState;
 import org.apache.accumulo.tserver.scan.ScanTask;
 import org.apache.accumulo.tserver.tablet.ScanBatch;
 import org.apache.accumulo.tserver.tablet.Scanner;
+import org.apache.accumulo.tserver.tablet.TabletClosedException;
 
 public class ScanSession extends Session {
   public final Stat nbTimes = new Stat();
@@ -42,13 +47,19 @@ public class ScanSession extends Session {
   public long entriesReturned = 0;
   public long batchCount = 0;
   public volatile ScanTask<ScanBatch> nextBatchTask;
+  public volatile ScanBatchStream batchStream;
   public Scanner scanner;
+  // sizes this scan's batches when the table lets them adapt, otherwise null
+  public ScanBatchSizer batchSizer;
   public final long readaheadThreshold;
+  public final int streamBatches;
+  // the table's table.scan.max.memory, the memory a batch may use when there is no batch sizer
+  public final long scanMaxMemory;
   public final long batchTimeOut;
   public final String context;
 
   public ScanSession(TCredentials credentials, KeyExtent extent, Set<Column> columnSet, List<IterInfo> ssiList, Map<String,Map<String,String>> ssio,
-      Authorizations authorizations, long readaheadThreshold, long batchTimeOut, String context) {
+      Authorizations authorizations, long readaheadThreshold, int streamBatches, long scanMaxMemory, long batchTimeOut, String context) {
     super(credentials);
     this.extent = extent;
     this.columnSet = columnSet;
@@ -56,16 +67,46 @@ public class ScanSession extends Session {
     this.ssio = ssio;
     this.auths = authorizations;
     this.readaheadThreshold = readaheadThreshold;
+    this.streamBatches = streamBatches;
+    this.scanMaxMemory = scanMaxMemory;
     this.batchTimeOut = batchTimeOut;
     this.context = context;
   }
 
+  /**
+   * @return the memory a batch of this scan may use now
+   */
+  public long getBatchMemory() {
+    ScanBatchSizer sizer = batchSizer;
+    return sizer == null ? scanMaxMemory : sizer.getBatchMemory();
+  }
+
+  /**
+   * Reads the next batch of this scan.
+   */
+  public ScanBatch readBatch() throws IOException, TabletClosedException {
+    ScanBatchSizer sizer = batchSizer;
+    long batchMemory = sizer == null ? 0 : sizer.getBatchMemory();
+
+    long t1 = System.currentTimeMillis();
+    ScanBatch batch = sizer == null ? scanner.read() : scanner.read(batchMemory);
+    long t2 = System.currentTimeMillis();
+    nbTimes.addStat(t2 - t1);
+
+    if (sizer != null)
+      sizer.batchRead(batch, batchMemory, t2 - t1);
+
+    return batch;
+  }
+
   @Override
   public boolean cleanup() {
     final boolean ret;
     try {
       if (nextBatchTask != null)
         nextBatchTask.cancel(true);
+      if (batchStream != null)
+        batchStream.cancel();
     } finally {
       if (scanner != null)
         ret = scanner.close();
@@ -75,4 +116,17 @@ public class ScanSession extends Session {
     return ret;
   }
 
+  /**
+   * @return the state of the task reading this scan's next batch, or null if there is none
+   */
+  public ScanRunState getScanRunState() {
+    ScanTask<ScanBatch> nbt = nextBatchTask;
+    if (nbt != null)
+      return nbt.getScanRunState();
+    ScanBatchStream stream = batchStream;
+    if (stream != null)
+      return stream.getScanRunState();
+    return null;
+  }
+
 }
@@ -40,7 +40,6 @@ import org.apache.accumulo.core.util.MapCounter;
 import org.apache.accumulo.server.util.time.SimpleTimer;
 import org.apache.accumulo.tserver.scan.ScanRunState;
 import org.apache.accumulo.tserver.scan.ScanTask;
-import org.apache.accumulo.tserver.tablet.ScanBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -247,26 +246,22 @@ public class SessionManager {
     for (Entry<Long,Session> entry : sessions.entrySet()) {
 
       Session session = entry.getValue();
-      @SuppressWarnings("rawtypes")
-      ScanTask nbt = null;
+      ScanRunState srs = null;
       Table.ID tableID = null;
 
       if (session instanceof ScanSession) {
         ScanSession ss = (ScanSession) session;
-        nbt = ss.nextBatchTask;
+        srs = ss.getScanRunState();
         tableID = ss.extent.getTableId();
       } else if (session instanceof MultiScanSession) {
         MultiScanSession mss = (MultiScanSession) session;
-        nbt = mss.lookupTask;
+        ScanTask<MultiScanResult> nbt = mss.lookupTask;
+        if (nbt != null)
+          srs = nbt.getScanRunState();
         tableID = mss.threadPoolExtent.getTableId();
       }
 
-      if (nbt == null)
-        continue;
-
-      ScanRunState srs = nbt.getScanRunState();
-
-      if (srs == ScanRunState.FINISHED)
+      if (srs == null || srs == ScanRunState.FINISHED)
         continue;
 
       MapCounter<ScanRunState> stateCounts = counts.get(tableID);
@@ -303,11 +298,11 @@ public class SessionManager {
 
         ScanState state = ScanState.RUNNING;
 
-        ScanTask<ScanBatch> nbt = ss.nextBatchTask;
-        if (nbt == null) {
+        ScanRunState srs = ss.getScanRunState();
+        if (srs == null) {
           state = ScanState.IDLE;
         } else {
-          switch (nbt.getScanRunState()) {
+          switch (srs) {
             case QUEUED:
               state = ScanState.QUEUED;
               break;
@@ -25,11 +25,37 @@ final class CompactionRunner implements Runnable, Comparable<CompactionRunner> {
   private final Tablet tablet;
   private final MajorCompactionReason reason;
   private final long queued;
+  private final int numFiles;
+  private final int inputFiles;
+  private final boolean atMaxFiles;
+  private final double benefitPerByte;
 
-  public CompactionRunner(Tablet tablet, MajorCompactionReason reason) {
+  /**
+   * The order of queued compactions is worked out from what the tablet looked like when it was queued, so that it does not change while the compaction waits.
+   *
+   * @param inputSize
+   *          size of the files the compaction is planned to read
+   * @param inputFiles
+   *          how many files the compaction is planned to read
+   * @param numFiles
+   *          how many files the tablet has
+   * @param maxFiles
+   *          the table's table.file.max, tablets at or over it are compacted first
+   */
+  public CompactionRunner(Tablet tablet, MajorCompactionReason reason, long inputSize, int inputFiles, int numFiles, int maxFiles) {
+    this(tablet, reason, inputSize, inputFiles, numFiles, maxFiles, System.currentTimeMillis());
+  }
+
+  CompactionRunner(Tablet tablet, MajorCompactionReason reason, long inputSize, int inputFiles, int numFiles, int maxFiles, long queued) {
     this.tablet = tablet;
-    queued = System.currentTimeMillis();
+    this.queued = queued;
     this.reason = reason;
+    this.numFiles = numFiles;
+    this.inputFiles = inputFiles;
+    this.atMaxFiles = maxFiles > 0 && numFiles >= maxFiles;
+    // Each file merged away is one less file every scan of the tablet has to read, so the benefit is the number of planned input files that become one, and
+    // the cost is their size. Small compactions of many files come first.
+    this.benefitPerByte = (inputFiles - 1) / (double) Math.max(1, inputSize);
   }
 
   @Override
@@ -50,19 +76,9 @@ final class CompactionRunner implements Runnable, Comparable<CompactionRunner> {
     }
   }
 
-  // We used to synchronize on the Tablet before fetching this information,
-  // but this method is called by the compaction queue thread to re-order the compactions.
-  // The compaction queue holds a lock during this sort.
-  // A tablet lock can be held while putting itself on the queue, so we can't lock the tablet
-  // while pulling information used to sort the tablets in the queue, or we may get deadlocked.
-  // See ACCUMULO-1110.
-  private int getNumFiles() {
-    return tablet.getDatafileManager().getNumFiles();
-  }
-
   @Override
   public int hashCode() {
-    return Objects.hashCode(reason) + Objects.hashCode(queued) + getNumFiles();
+    return Objects.hashCode(reason) + Objects.hashCode(queued);
   }
 
   @Override
@@ -78,11 +94,25 @@ final class CompactionRunner implements Runnable, Comparable<CompactionRunner> {
 
     if (reason == MajorCompactionReason.USER || reason == MajorCompactionReason.CHOP) {
       // for these types of compactions want to do the oldest first
-      cmp = (int) (queued - o.queued);
+      cmp = Long.compare(queued, o.queued);
       if (cmp != 0)
         return cmp;
     }
 
-    return o.getNumFiles() - this.getNumFiles();
+    // tablets at table.file.max can not take minor compactions, so they go first regardless of cost
+    cmp = Boolean.compare(o.atMaxFiles, this.atMaxFiles);
+    if (cmp != 0)
+      return cmp;
+    if (atMaxFiles) {
+      cmp = Integer.compare(o.numFiles, this.numFiles);
+    } else {
+      cmp = Double.compare(o.benefitPerByte, this.benefitPerByte);
+      if (cmp == 0)
+        cmp = Integer.compare(o.inputFiles, this.inputFiles);
+    }
+    if (cmp != 0)
+      return cmp;
+
+    return Long.compare(queued, o.queued);
   }
 }
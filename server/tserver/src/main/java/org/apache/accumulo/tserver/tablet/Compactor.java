@@ -35,6 +35,7 @@ import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.file.FileOperations;
@@ -43,6 +44,7 @@ import org.apache.accumulo.core.file.FileSKVWriter;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.BatchBufferingIterator;
 import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
 import org.apache.accumulo.core.iterators.system.DeletingIterator;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
@@ -88,21 +90,22 @@ public class Compactor implements Callable<CompactionStats> {
     RateLimiter getWriteLimiter();
   }
 
-  private final Map<FileRef,DataFileValue> filesToCompact;
+  protected final Map<FileRef,DataFileValue> filesToCompact;
   private final InMemoryMap imm;
-  private final FileRef outputFile;
-  private final boolean propogateDeletes;
-  private final AccumuloConfiguration acuTableConf;
-  private final CompactionEnv env;
+  protected final FileRef outputFile;
+  protected final boolean propogateDeletes;
+  protected final AccumuloConfiguration acuTableConf;
+  protected final CompactionEnv env;
   private final VolumeManager fs;
   protected final KeyExtent extent;
-  private final List<IteratorSetting> iterators;
+  private final Range range;
+  protected final List<IteratorSetting> iterators;
 
   // things to report
   private String currentLocalityGroup = "";
   private final long startTime;
 
-  private int reason;
+  protected int reason;
 
   private final AtomicLong entriesRead = new AtomicLong(0);
   private final AtomicLong entriesWritten = new AtomicLong(0);
@@ -111,7 +114,7 @@ public class Compactor implements Callable<CompactionStats> {
   // a unique id to identify a compactor
   private final long compactorID = nextCompactorID.getAndIncrement();
   protected volatile Thread thread;
-  private final AccumuloServerContext context;
+  protected final AccumuloServerContext context;
 
   public long getCompactorID() {
     return compactorID;
@@ -146,8 +149,17 @@ public class Compactor implements Callable<CompactionStats> {
 
   public Compactor(AccumuloServerContext context, Tablet tablet, Map<FileRef,DataFileValue> files, InMemoryMap imm, FileRef outputFile,
       boolean propogateDeletes, CompactionEnv env, List<IteratorSetting> iterators, int reason, AccumuloConfiguration tableConfiguation) {
+    this(context, tablet, files, imm, outputFile, propogateDeletes, env, iterators, reason, tableConfiguation, tablet.getExtent().toDataRange());
+  }
+
+  /**
+   * Creates a compactor that only compacts the data within the given range of the tablet.
+   */
+  Compactor(AccumuloServerContext context, Tablet tablet, Map<FileRef,DataFileValue> files, InMemoryMap imm, FileRef outputFile, boolean propogateDeletes,
+      CompactionEnv env, List<IteratorSetting> iterators, int reason, AccumuloConfiguration tableConfiguation, Range range) {
     this.context = context;
     this.extent = tablet.getExtent();
+    this.range = range;
     this.fs = tablet.getTabletServer().getFileSystem();
     this.acuTableConf = tableConfiguation;
     this.filesToCompact = files;
@@ -336,7 +348,7 @@ public class Compactor implements Callable<CompactionStats> {
         iters.add(imm.compactionIterator());
       }
 
-      CountingIterator citr = new CountingIterator(new MultiIterator(iters, extent.toDataRange()), entriesRead);
+      CountingIterator citr = new CountingIterator(new MultiIterator(iters, range), entriesRead);
       DeletingIterator delIter = new DeletingIterator(citr, propogateDeletes);
       ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
 
@@ -350,10 +362,13 @@ public class Compactor implements Callable<CompactionStats> {
       else
         throw new IllegalArgumentException();
 
-      SortedKeyValueIterator<Key,Value> itr = iterEnv.getTopLevelIterator(IteratorUtil.loadIterators(env.getIteratorScope(), cfsi, extent, acuTableConf,
-          iterators, iterEnv));
+      // the system iterators pass batches to each other, the table's iterators still see one key at a time
+      BatchBufferingIterator batchIter = new BatchBufferingIterator(cfsi);
+
+      SortedKeyValueIterator<Key,Value> itr = iterEnv.getTopLevelIterator(IteratorUtil.loadIterators(env.getIteratorScope(), batchIter, extent,
+          acuTableConf, iterators, iterEnv));
 
-      itr.seek(extent.toDataRange(), columnFamilies, inclusive);
+      itr.seek(range, columnFamilies, inclusive);
 
       if (!inclusive) {
         mfw.startDefaultLocalityGroup();
@@ -36,6 +36,7 @@ import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.CachedVisibilityEvaluator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
 import org.apache.accumulo.core.iterators.system.MultiIterator;
 import org.apache.accumulo.core.iterators.system.SourceSwitchingIterator.DataSource;
@@ -66,6 +67,7 @@ class ScanDataSource implements DataSource {
   private long fileReservationId;
   private AtomicBoolean interruptFlag;
   private StatsIterator statsIterator;
+  private CachedVisibilityEvaluator visibleFilter;
 
   private final ScanOptions options;
   private final boolean loadIters;
@@ -167,7 +169,7 @@ class ScanDataSource implements DataSource {
       files = reservation.getSecond();
     }
 
-    Collection<InterruptibleIterator> mapfiles = fileManager.openFiles(files, options.isIsolated(), samplerConfig);
+    Collection<InterruptibleIterator> mapfiles = fileManager.openFiles(files, options.isIsolated(), samplerConfig, getVisibleFilter());
 
     for (SortedKeyValueIterator<Key,Value> skvi : Iterables.concat(mapfiles, memIters))
       ((InterruptibleIterator) skvi).setInterruptFlag(interruptFlag);
@@ -234,9 +236,16 @@ class ScanDataSource implements DataSource {
     throw new UnsupportedOperationException();
   }
 
+  private CachedVisibilityEvaluator getVisibleFilter() {
+    // keys from the files are always passed through a visibility filter, so the files may skip data the scan can not see
+    if (visibleFilter == null)
+      visibleFilter = new CachedVisibilityEvaluator(options.getAuthorizations(), options.getDefaultLabels());
+    return visibleFilter;
+  }
+
   public void reattachFileManager() throws IOException {
     if (fileManager != null)
-      fileManager.reattach(options.getSamplerConfigurationImpl());
+      fileManager.reattach(options.getSamplerConfigurationImpl(), getVisibleFilter());
   }
 
   public void detachFileManager() {
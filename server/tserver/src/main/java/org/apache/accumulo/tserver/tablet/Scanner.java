@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
@@ -55,6 +56,13 @@ public class Scanner {
   }
 
   public ScanBatch read() throws IOException, TabletClosedException {
+    return read(tablet.getTableConfiguration().getAsBytes(Property.TABLE_SCAN_MAXMEM));
+  }
+
+  /**
+   * Reads the next batch, stopping once its results use about the given amount of memory.
+   */
+  public ScanBatch read(long maxResultsSize) throws IOException, TabletClosedException {
 
     ScanDataSource dataSource = null;
 
@@ -95,7 +103,8 @@ public class Scanner {
         iter = new SourceSwitchingIterator(dataSource, false);
       }
 
-      results = tablet.nextBatch(iter, range, options.getNum(), options.getColumnSet(), options.getBatchTimeOut(), options.isIsolated());
+      results = tablet.nextBatch(iter, range, options.getNum(), options.getColumnSet(), options.getBatchTimeOut(), options.isIsolated(),
+          maxResultsSize);
 
       if (results.getResults() == null) {
         range = null;
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.tablet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.core.summary.SummarizerConfigurationUtil;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.core.util.LocalityGroupUtil.LocalityGroupConfigurationError;
+import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.server.AccumuloServerContext;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.hadoop.fs.FileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Major compacts a tablet by splitting it into sub-ranges that are compacted in parallel, each into its own part file, and then concatenating the parts in
+ * order into the one output file. The parts hold data that has already been merged, passed through the compaction iterators and had deletes dropped, so their
+ * compressed data blocks are copied into the output as they are stored and only the indexes are rebuilt. The output file is brought online like that of any
+ * other compaction.
+ */
+class SubRangeCompactor extends Compactor {
+  private static final Logger log = LoggerFactory.getLogger(SubRangeCompactor.class);
+
+  private final Tablet tablet;
+  private final List<Range> subRanges;
+  private final ExecutorService executor;
+
+  SubRangeCompactor(AccumuloServerContext context, Tablet tablet, Map<FileRef,DataFileValue> files, FileRef outputFile, boolean propogateDeletes,
+      CompactionEnv env, List<IteratorSetting> iterators, int reason, AccumuloConfiguration tableConfiguation, List<Range> subRanges,
+      ExecutorService executor) {
+    super(context, tablet, files, null, outputFile, propogateDeletes, env, iterators, reason, tableConfiguation);
+    this.tablet = tablet;
+    this.subRanges = subRanges;
+    this.executor = executor;
+  }
+
+  /**
+   * Blocks can only be copied between plain, unencrypted RFiles. Bloom filters and summaries are computed over every key appended to a file, so they can not be
+   * built from copied blocks.
+   */
+  static boolean canCopyBlocks(AccumuloConfiguration tableConf) {
+    String cipherSuite = tableConf.get(Property.CRYPTO_CIPHER_SUITE);
+    return !tableConf.getBoolean(Property.TABLE_BLOOM_ENABLED) && SummarizerConfigurationUtil.getSummarizerConfigs(tableConf).isEmpty()
+        && (cipherSuite == null || cipherSuite.equals(Property.CRYPTO_CIPHER_SUITE.getDefaultValue()));
+  }
+
+  /**
+   * Part files end with the same _tmp extension as the output file, so any left behind by a failure are removed when the tablet is next loaded.
+   */
+  private FileRef getPartFile(int part) {
+    String name = outputFile.path().toString();
+    int extension = name.lastIndexOf('.');
+    return new FileRef(name.substring(0, extension) + "_p" + part + name.substring(extension));
+  }
+
+  @Override
+  public CompactionStats call() throws IOException, CompactionCanceledException {
+    // stops the remaining parts as soon as one fails
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    CompactionEnv partEnv = new CompactionEnv() {
+      @Override
+      public boolean isCompactionEnabled() {
+        return !failed.get() && env.isCompactionEnabled();
+      }
+
+      @Override
+      public IteratorScope getIteratorScope() {
+        return env.getIteratorScope();
+      }
+
+      @Override
+      public RateLimiter getReadLimiter() {
+        return env.getReadLimiter();
+      }
+
+      @Override
+      public RateLimiter getWriteLimiter() {
+        return env.getWriteLimiter();
+      }
+    };
+
+    List<FileRef> partFiles = new ArrayList<>(subRanges.size());
+    List<Future<CompactionStats>> parts = new ArrayList<>(subRanges.size());
+
+    try {
+      for (int i = 0; i < subRanges.size(); i++) {
+        FileRef partFile = getPartFile(i);
+        partFiles.add(partFile);
+        parts.add(executor.submit(new Compactor(context, tablet, filesToCompact, null, partFile, propogateDeletes, partEnv, iterators, reason, acuTableConf,
+            subRanges.get(i))));
+      }
+
+      CompactionStats majCStats = new CompactionStats();
+      for (Future<CompactionStats> part : parts) {
+        try {
+          majCStats.add(part.get());
+        } catch (ExecutionException e) {
+          failed.set(true);
+          Throwable cause = e.getCause();
+          if (cause instanceof CompactionCanceledException)
+            throw (CompactionCanceledException) cause;
+          if (cause instanceof IOException)
+            throw (IOException) cause;
+          if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+          throw new IOException(cause);
+        } catch (InterruptedException e) {
+          failed.set(true);
+          throw new IOException(e);
+        }
+      }
+
+      long t1 = System.currentTimeMillis();
+      long length = copyParts(partFiles);
+      long t2 = System.currentTimeMillis();
+
+      log.debug(String.format("Compaction %s copied %d parts | %,d entries | %,6.3f secs | %,12d bytes", extent, partFiles.size(),
+          majCStats.getEntriesWritten(), (t2 - t1) / 1000.0, length));
+
+      majCStats.setFileSize(length);
+      return majCStats;
+    } finally {
+      failed.set(true);
+
+      // wait for every part to stop before removing the part files
+      for (Future<CompactionStats> part : parts) {
+        try {
+          part.get();
+        } catch (Exception e) {
+          // failures were already handled above
+        }
+      }
+
+      for (FileRef partFile : partFiles) {
+        try {
+          if (!getFileSystem().deleteRecursively(partFile.path()) && getFileSystem().exists(partFile.path()))
+            log.error("Unable to delete " + partFile);
+        } catch (IOException e) {
+          log.warn("{}", e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the data blocks of the part files, in order, into the output file one locality group at a time.
+   *
+   * @return the length of the output file
+   */
+  private long copyParts(List<FileRef> partFiles) throws IOException, CompactionCanceledException {
+    FileSystem ns = getFileSystem().getVolumeByPath(outputFile.path()).getFileSystem();
+    FileSKVWriter mfw = FileOperations.getInstance().newWriterBuilder().forFile(outputFile.path().toString(), ns, ns.getConf())
+        .withTableConfiguration(acuTableConf).withRateLimiter(env.getWriteLimiter()).build();
+
+    List<RFile.Reader> readers = new ArrayList<>(partFiles.size());
+
+    try {
+      if (!(mfw instanceof RFile.Writer))
+        throw new IllegalStateException("Can not copy blocks into " + mfw.getClass().getName());
+      RFile.Writer writer = (RFile.Writer) mfw;
+
+      for (FileRef partFile : partFiles) {
+        FileSystem pns = getFileSystem().getVolumeByPath(partFile.path()).getFileSystem();
+        FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder().forFile(partFile.path().toString(), pns, pns.getConf())
+            .withTableConfiguration(acuTableConf).withRateLimiter(env.getReadLimiter()).build();
+        if (!(reader instanceof RFile.Reader)) {
+          reader.close();
+          throw new IllegalStateException("Can not copy blocks of " + reader.getClass().getName());
+        }
+        readers.add((RFile.Reader) reader);
+      }
+
+      Map<String,Set<ByteSequence>> lGroups;
+      try {
+        lGroups = LocalityGroupUtil.getLocalityGroups(acuTableConf);
+      } catch (LocalityGroupConfigurationError e) {
+        throw new IOException(e);
+      }
+
+      for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
+        writer.startNewLocalityGroup(entry.getKey(), entry.getValue());
+        copyLocalityGroup(readers, writer);
+      }
+
+      writer.startDefaultLocalityGroup();
+      copyLocalityGroup(readers, writer);
+
+      FileSKVWriter mfwTmp = mfw;
+      mfw = null; // set this to null so we do not try to close it again in finally if the close fails
+      try {
+        mfwTmp.close();
+      } catch (IOException ex) {
+        if (!getFileSystem().deleteRecursively(outputFile.path()) && getFileSystem().exists(outputFile.path()))
+          log.error("Unable to delete " + outputFile);
+        throw ex;
+      }
+
+      return mfwTmp.getLength();
+    } finally {
+      for (RFile.Reader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          log.warn("{}", e.getMessage(), e);
+        }
+      }
+
+      if (mfw != null) {
+        // copy did not finish, so close and remove the output file
+        try {
+          mfw.close();
+        } finally {
+          if (!getFileSystem().deleteRecursively(outputFile.path()) && getFileSystem().exists(outputFile.path()))
+            log.error("Unable to delete " + outputFile);
+        }
+      }
+    }
+  }
+
+  private void copyLocalityGroup(List<RFile.Reader> readers, RFile.Writer writer) throws IOException, CompactionCanceledException {
+    for (RFile.Reader reader : readers) {
+      if (!env.isCompactionEnabled())
+        throw new CompactionCanceledException();
+      writer.copyLocalityGroup(reader);
+    }
+  }
+}
@@ -127,6 +127,8 @@ import org.apache.accumulo.tserver.MinorCompactionReason;
 import org.apache.accumulo.tserver.TConstraintViolationException;
 import org.apache.accumulo.tserver.TLevel;
 import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.TabletServerResourceManager;
+import org.apache.accumulo.tserver.TabletServerResourceManager.MajorCompactionInput;
 import org.apache.accumulo.tserver.TabletServerResourceManager.TabletResourceManager;
 import org.apache.accumulo.tserver.TabletStatsKeeper;
 import org.apache.accumulo.tserver.TabletStatsKeeper.Operation;
@@ -144,6 +146,8 @@ import org.apache.accumulo.tserver.log.MutationReceiver;
 import org.apache.accumulo.tserver.mastermessage.TabletStatusMessage;
 import org.apache.accumulo.tserver.metrics.TabletServerMinCMetrics;
 import org.apache.accumulo.tserver.metrics.TabletServerScanMetrics;
+import org.apache.accumulo.tserver.scan.ScanDispatcher;
+import org.apache.accumulo.tserver.scan.SimpleScanDispatcher;
 import org.apache.accumulo.tserver.tablet.Compactor.CompactionCanceledException;
 import org.apache.accumulo.tserver.tablet.Compactor.CompactionEnv;
 import org.apache.commons.codec.DecoderException;
@@ -223,6 +227,9 @@ public class Tablet implements TabletCommitter {
 
   private final AtomicReference<ConstraintChecker> constraintChecker = new AtomicReference<>();
 
+  private volatile ScanDispatcher scanDispatcher;
+  private volatile int scanPriority;
+
   private int writesInProgress = 0;
 
   private final TabletStatsKeeper timer = new TabletStatsKeeper();
@@ -368,9 +375,22 @@ public class Tablet implements TabletCommitter {
         constraintChecker.set(new ConstraintChecker(tableConfiguration));
       }
 
+      private void reloadScanDispatch() {
+        ScanDispatcher dispatcher = Property.createTableInstanceFromPropertyName(tableConfiguration, Property.TABLE_SCAN_DISPATCHER, ScanDispatcher.class,
+            new SimpleScanDispatcher());
+        Map<String,String> options = new HashMap<>();
+        for (Entry<String,String> entry : tableConfiguration.getAllPropertiesWithPrefix(Property.TABLE_SCAN_DISPATCHER_OPTS).entrySet()) {
+          options.put(entry.getKey().substring(Property.TABLE_SCAN_DISPATCHER_OPTS.getKey().length()), entry.getValue());
+        }
+        dispatcher.init(options);
+        scanDispatcher = dispatcher;
+        scanPriority = tableConfiguration.getCount(Property.TABLE_SCAN_PRIORITY);
+      }
+
       @Override
       public void propertiesChanged() {
         reloadConstraints();
+        reloadScanDispatch();
 
         try {
           setupDefaultSecurityLabels(extent);
@@ -383,6 +403,8 @@ public class Tablet implements TabletCommitter {
       public void propertyChanged(String prop) {
         if (prop.startsWith(Property.TABLE_CONSTRAINT_PREFIX.getKey()))
           reloadConstraints();
+        else if (prop.startsWith(Property.TABLE_SCAN_DISPATCHER.getKey()) || prop.equals(Property.TABLE_SCAN_PRIORITY.getKey()))
+          reloadScanDispatch();
         else if (prop.equals(Property.TABLE_DEFAULT_SCANTIME_VISIBILITY.getKey())) {
           try {
             log.info("Default security labels changed for extent: " + extent.toString());
@@ -726,7 +748,8 @@ public class Tablet implements TabletCommitter {
     }
   }
 
-  Batch nextBatch(SortedKeyValueIterator<Key,Value> iter, Range range, int num, Set<Column> columns, long batchTimeOut, boolean isolated) throws IOException {
+  Batch nextBatch(SortedKeyValueIterator<Key,Value> iter, Range range, int num, Set<Column> columns, long batchTimeOut, boolean isolated, long maxResultsSize)
+      throws IOException {
 
     // log.info("In nextBatch..");
 
@@ -741,8 +764,6 @@ public class Tablet implements TabletCommitter {
     long resultSize = 0L;
     long resultBytes = 0L;
 
-    long maxResultsSize = tableConfiguration.getAsBytes(Property.TABLE_SCAN_MAXMEM);
-
     Key continueKey = null;
     boolean skipContinueKey = false;
 
@@ -1140,6 +1161,17 @@ public class Tablet implements TabletCommitter {
     }
   }
 
+  /**
+   * @return the dispatcher that chooses the scan executor for this tablet's scans
+   */
+  public ScanDispatcher getScanDispatcher() {
+    return scanDispatcher;
+  }
+
+  public int getScanPriority() {
+    return scanPriority;
+  }
+
   public CommitSession prepareMutationsForCommit(TservConstraintEnv cenv, List<Mutation> mutations) throws TConstraintViolationException {
 
     ConstraintChecker cc = constraintChecker.get();
@@ -1461,7 +1493,7 @@ public class Tablet implements TabletCommitter {
     return location;
   }
 
-  public synchronized boolean initiateMajorCompaction(MajorCompactionReason reason) {
+  public synchronized boolean initiateMajorCompaction(final MajorCompactionReason reason) {
 
     if (isClosing() || isClosed() || !needsMajorCompaction(reason) || isMajorCompactionRunning() || majorCompactionQueued.contains(reason)) {
       return false;
@@ -1469,11 +1501,31 @@ public class Tablet implements TabletCommitter {
 
     majorCompactionQueued.add(reason);
 
-    getTabletResources().executeMajorCompaction(getExtent(), new CompactionRunner(this, reason));
+    final SortedMap<FileRef,DataFileValue> files = getDatafileManager().getDatafileSizes();
+    final int maxFiles = getTableConfiguration().getMaxFilesPerTablet();
+
+    if (extent.isMeta()) {
+      // metadata tablets compact on their own pools, so they are queued now instead of waiting behind the planning of other tablets' compactions
+      queueMajorCompaction(reason, TabletServerResourceManager.getPlannedInput(null, files), files.size(), maxFiles);
+      return false;
+    }
+
+    getTabletResources().executeMajorCompactionPlanning(new Runnable() {
+      @Override
+      public void run() {
+        // estimating the input of the compaction may read the tablet's files, so it is done here without the tablet lock
+        queueMajorCompaction(reason, getTabletResources().estimateMajorCompactionInput(files, reason, getTabletServer().getFileSystem()), files.size(), maxFiles);
+      }
+    });
 
     return false;
   }
 
+  private void queueMajorCompaction(MajorCompactionReason reason, MajorCompactionInput input, int numFiles, int maxFiles) {
+    getTabletResources().executeMajorCompaction(getExtent(), input.getSize(),
+        new CompactionRunner(this, reason, input.getSize(), input.getNumFiles(), numFiles, maxFiles));
+  }
+
   /**
    * Returns true if a major compaction should be performed on the tablet.
    *
@@ -1895,8 +1947,16 @@ public class Tablet implements TabletCommitter {
 
           // always propagate deletes, unless last batch
           boolean lastBatch = filesToCompact.isEmpty();
-          Compactor compactor = new Compactor(tabletServer, this, copy, null, compactTmpName, lastBatch ? propogateDeletes : true, cenv, compactionIterators,
-              reason.ordinal(), tableConf);
+          List<Range> subRanges = getCompactionSubRanges(copy, tableConf);
+          Compactor compactor;
+          if (subRanges.size() > 1) {
+            log.debug("Compacting " + extent + " as " + subRanges.size() + " sub-ranges in parallel");
+            compactor = new SubRangeCompactor(tabletServer, this, copy, compactTmpName, lastBatch ? propogateDeletes : true, cenv, compactionIterators,
+                reason.ordinal(), tableConf, subRanges, getTabletResources().getTabletServerResourceManager().getMajorCompactionSubRangeExecutor());
+          } else {
+            compactor = new Compactor(tabletServer, this, copy, null, compactTmpName, lastBatch ? propogateDeletes : true, cenv, compactionIterators,
+                reason.ordinal(), tableConf);
+          }
 
           CompactionStats mcs = compactor.call();
 
@@ -1930,6 +1990,42 @@ public class Tablet implements TabletCommitter {
     }
   }
 
+  /**
+   * Splits the tablet into ranges to compact in parallel, when the files being compacted are large enough and their blocks can be copied. See
+   * {@link Property#TABLE_MAJC_SUBRANGES}.
+   *
+   * @return the ranges to compact, or an empty list to compact the tablet as one range
+   */
+  private List<Range> getCompactionSubRanges(Map<FileRef,DataFileValue> files, AccumuloConfiguration tableConf) {
+    int numRanges = tableConf.getCount(Property.TABLE_MAJC_SUBRANGES);
+    if (numRanges < 2 || extent.isMeta() || !SubRangeCompactor.canCopyBlocks(tableConf))
+      return Collections.emptyList();
+
+    long size = 0;
+    for (DataFileValue dfv : files.values())
+      size += dfv.getSize();
+    if (size < tableConf.getAsBytes(Property.TABLE_MAJC_SUBRANGES_SIZE))
+      return Collections.emptyList();
+
+    List<Text> splitRows;
+    try {
+      splitRows = FileUtil.findSplitRows(getTabletServer().getFileSystem(), tableConf, extent.getPrevEndRow(), extent.getEndRow(),
+          FileUtil.toPathStrings(files.keySet()), numRanges);
+    } catch (IOException e) {
+      log.warn("Failed to find sub-ranges of " + extent + ", compacting it as one range " + e.getMessage());
+      return Collections.emptyList();
+    }
+
+    List<Range> subRanges = new ArrayList<>(splitRows.size() + 1);
+    Text prevRow = extent.getPrevEndRow();
+    for (Text row : splitRows) {
+      subRanges.add(new Range(prevRow, false, row, true));
+      prevRow = row;
+    }
+    subRanges.add(new Range(prevRow, false, extent.getEndRow(), true));
+    return subRanges;
+  }
+
   protected AccumuloConfiguration createTableConfiguration(TableConfiguration base, CompactionPlan plan) {
     if (plan == null || plan.writeParameters == null)
       return base;
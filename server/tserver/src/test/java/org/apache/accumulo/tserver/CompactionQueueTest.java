@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.htrace.wrappers.TraceRunnable;
+import org.junit.Test;
+
+public class CompactionQueueTest {
+
+  private static class Task implements Runnable, Comparable<Task> {
+    final int priority;
+
+    Task(int priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public void run() {}
+
+    @Override
+    public int compareTo(Task o) {
+      return Integer.compare(priority, o.priority);
+    }
+  }
+
+  private static List<Integer> drain(CompactionQueue queue) {
+    List<Integer> taken = new ArrayList<>();
+    TraceRunnable next;
+    while ((next = queue.poll()) != null) {
+      taken.add(((Task) next.getRunnable()).priority);
+    }
+    return taken;
+  }
+
+  @Test
+  public void testLeastFirst() {
+    CompactionQueue queue = new CompactionQueue();
+    for (int priority : new int[] {3, 1, 4, 2}) {
+      queue.add(new TraceRunnable(new Task(priority)));
+    }
+
+    assertEquals(4, queue.size());
+    assertEquals(1, ((Task) queue.peek().getRunnable()).priority);
+    assertEquals(Arrays.asList(1, 2, 3, 4), drain(queue));
+    assertNull(queue.peek());
+  }
+
+  @Test
+  public void testStarvedOldestFirst() throws Exception {
+    CompactionQueue queue = new CompactionQueue(20);
+    queue.add(new TraceRunnable(new Task(3)));
+    Thread.sleep(5);
+    queue.add(new TraceRunnable(new Task(2)));
+    Thread.sleep(50);
+    queue.add(new TraceRunnable(new Task(1)));
+
+    // the two tasks that waited too long come first, in the order they were added, then the one that has not
+    assertEquals(Arrays.asList(3, 2, 1), drain(queue));
+  }
+}
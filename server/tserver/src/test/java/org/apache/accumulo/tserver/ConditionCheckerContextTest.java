@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.impl.CompressedIterators;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.data.thrift.TCondition;
+import org.apache.accumulo.core.data.thrift.TConditionalMutation;
+import org.apache.accumulo.core.iterators.Combiner;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.apache.accumulo.core.iterators.user.RegExFilter;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.accumulo.tserver.data.ServerConditionalMutation;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConditionCheckerContextTest {
+
+  private final TreeMap<Key,Value> data = new TreeMap<>();
+  private final CompressedIterators clientIters = new CompressedIterators();
+
+  private IteratorSetting sum;
+  private IteratorSetting hideAll;
+
+  @Before
+  public void setup() {
+    put("r1", "count", "x", 1, "1");
+    put("r1", "count", "x", 2, "2");
+    put("r1", "count", "x", 3, "3");
+    put("r1", "meta", "y", 1, "a");
+    put("r2", "count", "x", 1, "5");
+    put("r2", "count", "x", 2, "7");
+
+    sum = new IteratorSetting(10, "sum", SummingCombiner.class);
+    LongCombiner.setEncodingType(sum, LongCombiner.Type.STRING);
+    Combiner.setColumns(sum, Collections.singletonList(new IteratorSetting.Column("count")));
+
+    hideAll = new IteratorSetting(10, "hide", RegExFilter.class);
+    RegExFilter.setRegexs(hideAll, null, null, null, "no such value", false);
+  }
+
+  private void put(String row, String cf, String cq, long ts, String val) {
+    data.put(new Key(row, cf, cq, ts), new Value(val.getBytes(UTF_8)));
+  }
+
+  private TCondition condition(String cf, String cq, String val, IteratorSetting... iters) {
+    return new TCondition(ByteBuffer.wrap(cf.getBytes(UTF_8)), ByteBuffer.wrap(cq.getBytes(UTF_8)), ByteBuffer.wrap(new byte[0]), 0, false,
+        val == null ? null : ByteBuffer.wrap(val.getBytes(UTF_8)), clientIters.compress(iters));
+  }
+
+  private ServerConditionalMutation mutation(String row, TCondition... conditions) {
+    Mutation m = new Mutation(row);
+    m.put("count", "x", "0");
+    return new ServerConditionalMutation(new TConditionalMutation(Arrays.asList(conditions), m.toThrift(), 0));
+  }
+
+  private boolean[] check(List<ServerConditionalMutation> mutations) throws Exception {
+    ConditionCheckerContext context = new ConditionCheckerContext(new CompressedIterators(clientIters.getSymbolTable()), DefaultConfiguration.getInstance());
+    return context.checkConditions(new ColumnFamilySkippingIterator(new SortedMapIterator(data)), mutations);
+  }
+
+  @Test
+  public void testMixedIteratorsSameRow() throws Exception {
+    List<ServerConditionalMutation> mutations = new ArrayList<>();
+    // the same column read with and without iterators in one mutation
+    mutations.add(mutation("r1", condition("count", "x", "3"), condition("count", "x", "6", sum)));
+    mutations.add(mutation("r1", condition("count", "x", "6", sum), condition("meta", "y", "a")));
+    mutations.add(mutation("r1", condition("count", "x", "3", sum)));
+    mutations.add(mutation("r1", condition("count", "x", null, hideAll), condition("count", "x", "6", sum), condition("count", "x", "3")));
+    mutations.add(mutation("r1", condition("meta", "y", "a", sum), condition("count", "x", "3", hideAll)));
+
+    assertArrayEquals(new boolean[] {true, true, false, true, false}, check(mutations));
+  }
+
+  @Test
+  public void testMixedIteratorsDifferentRows() throws Exception {
+    List<ServerConditionalMutation> mutations = new ArrayList<>();
+    // rows are not in order, and conditions on later rows come before ones on earlier rows
+    mutations.add(mutation("r3", condition("count", "x", null), condition("count", "x", null, sum)));
+    mutations.add(mutation("r2", condition("count", "x", "12", sum), condition("count", "x", "7")));
+    mutations.add(mutation("r1", condition("count", "x", "6", sum)));
+    mutations.add(mutation("r2", condition("count", "x", "7", sum)));
+    mutations.add(mutation("r3", condition("count", "x", "0", sum)));
+    mutations.add(mutation("r1", condition("count", "x", "3"), condition("count", "x", null, hideAll)));
+    mutations.add(mutation("r2", condition("count", "x", "5"), condition("count", "x", "12", sum)));
+
+    assertArrayEquals(new boolean[] {true, true, true, false, false, true, false}, check(mutations));
+  }
+}
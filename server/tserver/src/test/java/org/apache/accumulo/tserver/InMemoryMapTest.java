@@ -23,6 +23,7 @@ import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -46,6 +47,7 @@ import org.apache.accumulo.core.conf.DefaultConfiguration;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
@@ -538,6 +540,127 @@ public class InMemoryMapTest {
     }
   }
 
+  private void runConcurrentWrites(final InMemoryMap imm) throws Exception {
+    final int numThreads = 8;
+    final int numRows = 500;
+    final AtomicBoolean done = new AtomicBoolean(false);
+    ExecutorService e = Executors.newFixedThreadPool(numThreads);
+    for (int t = 0; t < numThreads; t++) {
+      final int threadId = t;
+      e.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (int r = 0; r < numRows; r++) {
+            Mutation m = new Mutation(String.format("r%02d_%04d", threadId, r));
+            m.put("cf1", "x", 2, "1");
+            m.put("cf2", "y", 2, "2");
+            m.put("cf3", "z", 2, "3");
+            imm.mutate(Collections.singletonList(m));
+          }
+        }
+      });
+    }
+    e.shutdown();
+
+    // a scan should never see part of a mutation, even while many threads are writing
+    while (!done.get()) {
+      done.set(e.isTerminated());
+      MemoryIterator iter = imm.skvIterator(null);
+      iter.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+      int count = 0;
+      while (iter.hasTop()) {
+        count++;
+        iter.next();
+      }
+      iter.close();
+      assertEquals(0, count % 3);
+    }
+
+    assertTrue(e.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(numThreads * numRows * 3, imm.getNumEntries());
+    assertEquals(numThreads * numRows * 3, readAll(imm.compactionIterator()).size());
+
+    imm.delete(0);
+  }
+
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    runConcurrentWrites(new InMemoryMap(newConfig(tempFolder.newFolder().getAbsolutePath())));
+  }
+
+  @Test
+  public void testConcurrentWritesLocalityGroups() throws Exception {
+    ConfigurationCopy config = newConfig(tempFolder.newFolder().getAbsolutePath());
+    config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1", LocalityGroupUtil.encodeColumnFamilies(toTextSet("cf1")));
+    config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg2", LocalityGroupUtil.encodeColumnFamilies(toTextSet("cf2")));
+    config.set(Property.TABLE_LOCALITY_GROUPS.getKey(), "lg1,lg2");
+
+    runConcurrentWrites(new InMemoryMap(config));
+  }
+
+  private void runFailedWrite(InMemoryMap imm) throws Exception {
+    mutate(imm, "r1", "foo:cq1", 3, "bar1");
+
+    Mutation failing = new Mutation("r2") {
+      @Override
+      public List<ColumnUpdate> getUpdates() {
+        final List<ColumnUpdate> updates = super.getUpdates();
+        // fails after the first update has been inserted
+        return new AbstractList<ColumnUpdate>() {
+          @Override
+          public ColumnUpdate get(int index) {
+            if (index > 0)
+              throw new IllegalArgumentException("bad update");
+            return updates.get(index);
+          }
+
+          @Override
+          public int size() {
+            return updates.size();
+          }
+        };
+      }
+    };
+    failing.put("foo", "cq1", 3, "bar2");
+    failing.put("foo", "cq2", 3, "bar3");
+
+    try {
+      imm.mutate(Collections.singletonList(failing));
+      fail("expected the write to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // the part of the failed mutation that was inserted should not be seen
+    MemoryIterator iter = imm.skvIterator(null);
+    iter.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+    testAndCallNext(iter, "r1", "foo:cq1", 3, "bar1");
+    assertFalse(iter.hasTop());
+    iter.close();
+
+    // making a later write visible would expose the failed one
+    try {
+      mutate(imm, "r3", "foo:cq1", 3, "bar4");
+      fail("expected the write to fail");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    imm.delete(0);
+  }
+
+  @Test
+  public void testFailedWrite() throws Exception {
+    runFailedWrite(newInMemoryMap(false, tempFolder.newFolder().getAbsolutePath()));
+  }
+
+  @Test
+  public void testFailedWriteSerialized() throws Exception {
+    ConfigurationCopy config = newConfig(tempFolder.newFolder().getAbsolutePath());
+    config.set(Property.TSERV_MEMORY_MAPS_CONCURRENT_WRITES, "false");
+    runFailedWrite(new InMemoryMap(config));
+  }
+
   @Test
   public void testLocalityGroups() throws Exception {
     ConfigurationCopy config = newConfig(tempFolder.newFolder().getAbsolutePath());
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class OffHeapMapTest {
+
+  private Key newKey(int r) {
+    return new Key(new Text(String.format("r%09d", r)));
+  }
+
+  private Key newKey(int r, int cf, int cq, int cv, int ts, boolean deleted) {
+    Key k = new Key(new Text(String.format("r%09d", r)), new Text(String.format("cf%09d", cf)), new Text(String.format("cq%09d", cq)), new Text(String.format(
+        "cv%09d", cv)), ts);
+
+    k.setDeleted(deleted);
+
+    return k;
+  }
+
+  private Value newValue(int v) {
+    return new Value(String.format("r%09d", v).getBytes(UTF_8));
+  }
+
+  private void verifyIterator(int start, int end, int valueOffset, Iterator<Entry<Key,Value>> iter) {
+    for (int i = start; i <= end; i++) {
+      assertTrue(iter.hasNext());
+      Entry<Key,Value> entry = iter.next();
+      assertEquals(newKey(i), entry.getKey());
+      assertEquals(newValue(i + valueOffset), entry.getValue());
+    }
+
+    assertFalse(iter.hasNext());
+  }
+
+  private void insertAndVerify(OffHeapMap ohm, int start, int end, int valueOffset) {
+    for (int i = start; i <= end; i++) {
+      ohm.put(newKey(i), newValue(i + valueOffset));
+    }
+
+    for (int i = start; i <= end; i++) {
+      Value v = ohm.get(newKey(i));
+      assertNotNull(v);
+      assertEquals(newValue(i + valueOffset), v);
+    }
+
+    assertNull(ohm.get(newKey(start - 1)));
+    assertNull(ohm.get(newKey(end + 1)));
+
+    verifyIterator(start, end, valueOffset, ohm.iterator());
+
+    for (int i = start; i <= end; i++) {
+      verifyIterator(i, end, valueOffset, ohm.iterator(newKey(i)));
+
+      // lookup nonexistant key that falls after existing key
+      verifyIterator(i + 1, end, valueOffset, ohm.iterator(newKey(i, 1, 1, 1, 1, false)));
+    }
+
+    assertEquals(end - start + 1, ohm.size());
+  }
+
+  @Test
+  public void testEmpty() {
+    OffHeapMap ohm = new OffHeapMap();
+    assertFalse(ohm.iterator().hasNext());
+    assertEquals(0, ohm.size());
+    assertEquals(0, ohm.getMemoryUsed());
+    ohm.delete();
+  }
+
+  @Test
+  public void testInsertAndReplace() {
+    OffHeapMap ohm = new OffHeapMap();
+    insertAndVerify(ohm, 1, 10, 0);
+    insertAndVerify(ohm, 1, 10, 1);
+    insertAndVerify(ohm, 1, 10, 2);
+    assertTrue(ohm.getMemoryUsed() > 0);
+    ohm.delete();
+  }
+
+  @Test
+  public void testSortOrder() {
+    OffHeapMap ohm = new OffHeapMap();
+    TreeMap<Key,Value> expected = new TreeMap<>();
+
+    Random rand = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      Key k = newKey(rand.nextInt(20), rand.nextInt(3), rand.nextInt(3), rand.nextInt(2), rand.nextInt(5), rand.nextBoolean());
+      Value v = newValue(i);
+      ohm.put(k, v);
+      expected.put(k, v);
+    }
+
+    assertEquals(expected.size(), ohm.size());
+
+    Iterator<Entry<Key,Value>> iter = ohm.iterator();
+    for (Entry<Key,Value> entry : expected.entrySet()) {
+      assertTrue(iter.hasNext());
+      Entry<Key,Value> actual = iter.next();
+      assertEquals(entry.getKey(), actual.getKey());
+      assertEquals(entry.getValue(), actual.getValue());
+    }
+    assertFalse(iter.hasNext());
+
+    ohm.delete();
+  }
+
+  @Test
+  public void testBinaryAndLargeValues() {
+    OffHeapMap ohm = new OffHeapMap();
+
+    byte emptyBytes[] = new byte[0];
+    byte bigValue[] = new byte[1 << 20];
+    Arrays.fill(bigValue, (byte) 0xff);
+
+    for (int i = 0; i < 256; i++) {
+      byte row[] = new byte[] {'r', (byte) (0xff & i)};
+      ohm.put(new Key(row, emptyBytes, emptyBytes, emptyBytes, 1), new Value(i % 64 == 0 ? bigValue : row));
+    }
+
+    Iterator<Entry<Key,Value>> iter = ohm.iterator();
+    for (int i = 0; i < 256; i++) {
+      byte row[] = new byte[] {'r', (byte) (0xff & i)};
+      assertTrue(iter.hasNext());
+      Entry<Key,Value> entry = iter.next();
+      assertEquals(new Key(row, emptyBytes, emptyBytes, emptyBytes, 1), entry.getKey());
+      assertEquals(new Value(i % 64 == 0 ? bigValue : row), entry.getValue());
+    }
+    assertFalse(iter.hasNext());
+
+    ohm.delete();
+  }
+
+  @Test
+  public void testMutationsKVCount() throws IOException {
+    OffHeapMap ohm = new OffHeapMap();
+
+    Mutation m1 = new Mutation("r1");
+    m1.put("cf", "cq", 5, "v1");
+    ohm.mutate(m1, 1);
+
+    Mutation m2 = new Mutation("r1");
+    m2.put("cf", "cq", 5, "v2");
+    m2.put("cf", "cq2", 5, "v3");
+    ohm.mutate(m2, 2);
+
+    SortedKeyValueIterator<Key,Value> iter = ohm.skvIterator();
+    iter.seek(new Range(), LocalityGroupUtil.EMPTY_CF_SET, false);
+
+    // the most recent write of the same key is returned first
+    assertTrue(iter.hasTop());
+    assertEquals(2, ((MemKey) iter.getTopKey()).getKVCount());
+    assertEquals(new Value("v2".getBytes(UTF_8)), iter.getTopValue());
+    iter.next();
+    assertTrue(iter.hasTop());
+    assertEquals(1, ((MemKey) iter.getTopKey()).getKVCount());
+    assertEquals(new Value("v1".getBytes(UTF_8)), iter.getTopValue());
+    iter.next();
+    assertTrue(iter.hasTop());
+    assertEquals(3, ((MemKey) iter.getTopKey()).getKVCount());
+    iter.next();
+    assertFalse(iter.hasTop());
+
+    SortedKeyValueIterator<Key,Value> dc = iter.deepCopy(null);
+    dc.seek(new Range(new Key("r1", "cf", "cq2"), true, null, true), LocalityGroupUtil.EMPTY_CF_SET, false);
+    assertTrue(dc.hasTop());
+    assertEquals(new Value("v3".getBytes(UTF_8)), dc.getTopValue());
+
+    ohm.delete();
+  }
+
+  @Test
+  public void testConcurrentIter() throws IOException {
+    OffHeapMap ohm = new OffHeapMap();
+
+    ohm.put(newKey(0), newValue(0));
+    ohm.put(newKey(1), newValue(1));
+    ohm.put(newKey(3), newValue(3));
+
+    SortedKeyValueIterator<Key,Value> iter = ohm.skvIterator();
+
+    // modify map after iter created
+    ohm.put(newKey(2), newValue(2));
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(iter.hasTop());
+      assertEquals(newKey(i), iter.getTopKey());
+      iter.next();
+    }
+
+    assertFalse(iter.hasTop());
+
+    ohm.delete();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUseAfterDelete() {
+    OffHeapMap ohm = new OffHeapMap();
+    ohm.put(newKey(0), newValue(0));
+    ohm.delete();
+    ohm.get(newKey(0));
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.data.thrift.TCondition;
+import org.apache.accumulo.core.data.thrift.TConditionalMutation;
+import org.apache.accumulo.tserver.RowLocks.RowLock;
+import org.apache.accumulo.tserver.data.ServerConditionalMutation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RowLocksTest {
+
+  private static final KeyExtent EXTENT = new KeyExtent(new Table.ID("1"), null, null);
+
+  private RowLocks rowLocks;
+  // runs another client, a row lock must be released by the thread that took it
+  private ExecutorService executor;
+
+  @Before
+  public void setup() {
+    rowLocks = new RowLocks();
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void teardown() {
+    executor.shutdownNow();
+  }
+
+  private static Map<KeyExtent,List<ServerConditionalMutation>> updates(String... rows) {
+    List<ServerConditionalMutation> scml = new ArrayList<>();
+    for (String row : rows) {
+      Mutation m = new Mutation(row);
+      m.put("cf", "cq", "v");
+      scml.add(new ServerConditionalMutation(new TConditionalMutation(Collections.<TCondition> emptyList(), m.toThrift(), 0)));
+    }
+    Map<KeyExtent,List<ServerConditionalMutation>> updates = new HashMap<>();
+    updates.put(EXTENT, scml);
+    return updates;
+  }
+
+  private static List<String> rows(List<ServerConditionalMutation> scml) {
+    List<String> rows = new ArrayList<>();
+    if (scml != null) {
+      for (ServerConditionalMutation scm : scml)
+        rows.add(new String(scm.getRow()));
+    }
+    return rows;
+  }
+
+  @Test
+  public void testContention() throws Exception {
+    List<RowLock> held = rowLocks.acquireRowlocks(updates("r1"), new HashMap<KeyExtent,List<ServerConditionalMutation>>());
+    assertEquals(1, held.size());
+
+    // a batch of several rows defers the rows another thread has locked instead of waiting for them
+    Map<KeyExtent,List<ServerConditionalMutation>> batch = updates("r1", "r2");
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<>();
+    List<RowLock> batchLocks = executor.submit(() -> rowLocks.acquireRowlocks(batch, deferred)).get();
+    assertEquals(1, batchLocks.size());
+    assertEquals(Collections.singletonList("r2"), rows(batch.get(EXTENT)));
+    assertEquals(Collections.singletonList("r1"), rows(deferred.get(EXTENT)));
+    executor.submit(() -> rowLocks.releaseRowLocks(batchLocks)).get();
+    assertEquals(1, rowLocks.size());
+
+    // a single row waits for the lock
+    Future<List<RowLock>> waiting = executor.submit(() -> rowLocks.acquireRowlocks(updates("r1"), new HashMap<KeyExtent,List<ServerConditionalMutation>>()));
+    Thread.sleep(100);
+    assertFalse(waiting.isDone());
+
+    rowLocks.releaseRowLocks(held);
+    List<RowLock> acquired = waiting.get(10, TimeUnit.SECONDS);
+    assertEquals(1, acquired.size());
+    executor.submit(() -> rowLocks.releaseRowLocks(acquired)).get();
+
+    assertEquals(0, rowLocks.size());
+  }
+
+  @Test
+  public void testReentry() throws Exception {
+    List<RowLock> outer = rowLocks.acquireRowlocks(updates("r1", "r2"), new HashMap<KeyExtent,List<ServerConditionalMutation>>());
+    assertEquals(2, outer.size());
+
+    // the thread holding a row's lock can lock it again
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<>();
+    List<RowLock> inner = rowLocks.acquireRowlocks(updates("r1", "r3"), deferred);
+    assertEquals(2, inner.size());
+    assertTrue(deferred.isEmpty());
+    assertTrue(inner.contains(outer.get(0)));
+
+    rowLocks.releaseRowLocks(inner);
+    // r1 is still held by the outer updates
+    assertEquals(2, rowLocks.size());
+    assertFalse(executor.submit(() -> outer.get(0).tryLock()).get());
+
+    rowLocks.releaseRowLocks(outer);
+    assertEquals(0, rowLocks.size());
+  }
+
+  @Test
+  public void testRelease() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      List<RowLock> locks = rowLocks.acquireRowlocks(updates("r1", "r2", "r3"), new HashMap<KeyExtent,List<ServerConditionalMutation>>());
+      assertEquals(3, locks.size());
+      assertEquals(3, rowLocks.size());
+      rowLocks.releaseRowLocks(locks);
+      assertEquals(0, rowLocks.size());
+    }
+
+    // rows that were deferred are removed from the table too
+    List<RowLock> held = rowLocks.acquireRowlocks(updates("r1"), new HashMap<KeyExtent,List<ServerConditionalMutation>>());
+    Map<KeyExtent,List<ServerConditionalMutation>> deferred = new HashMap<>();
+    List<RowLock> locks = executor.submit(() -> rowLocks.acquireRowlocks(updates("r1", "r2"), deferred)).get();
+    executor.submit(() -> rowLocks.releaseRowLocks(locks)).get();
+    assertEquals(1, rowLocks.size());
+    rowLocks.releaseRowLocks(held);
+    assertEquals(0, rowLocks.size());
+  }
+}
@@ -19,9 +19,23 @@ package org.apache.accumulo.tserver;
 import static org.easymock.EasyMock.createMock;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
 import org.apache.accumulo.server.conf.TableConfiguration;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.tserver.TabletServerResourceManager.MajorCompactionInput;
 import org.apache.accumulo.tserver.TabletServerResourceManager.TabletResourceManager;
+import org.apache.accumulo.tserver.compaction.CompactionPlan;
+import org.apache.accumulo.tserver.compaction.CompactionStrategy;
+import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
+import org.apache.accumulo.tserver.compaction.MajorCompactionRequest;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -44,4 +58,60 @@ public class TabletResourceManagerTest {
     assertEquals(extent, trm.getExtent());
     assertEquals(conf, trm.getTableConfiguration());
   }
+
+  @Test
+  public void testUserCompactionReadsAllFiles() {
+    SortedMap<FileRef,DataFileValue> files = new TreeMap<>();
+    files.put(new FileRef("hdfs://nn/accumulo/tables/1/t-1/F0.rf"), new DataFileValue(1000, 10));
+    files.put(new FileRef("hdfs://nn/accumulo/tables/1/t-1/F1.rf"), new DataFileValue(24, 1));
+    for (MajorCompactionReason reason : new MajorCompactionReason[] {MajorCompactionReason.USER, MajorCompactionReason.CHOP}) {
+      MajorCompactionInput input = trm.estimateMajorCompactionInput(files, reason, null);
+      assertEquals(1024, input.getSize());
+      assertEquals(2, input.getNumFiles());
+    }
+  }
+
+  /**
+   * Plans to compact only the files under 100 bytes, and refuses to plan before it has gathered information.
+   */
+  public static class GatheringStrategy extends CompactionStrategy {
+    private boolean gathered = false;
+
+    @Override
+    public boolean shouldCompact(MajorCompactionRequest request) {
+      return true;
+    }
+
+    @Override
+    public void gatherInformation(MajorCompactionRequest request) {
+      gathered = true;
+    }
+
+    @Override
+    public CompactionPlan getCompactionPlan(MajorCompactionRequest request) {
+      if (!gathered)
+        throw new IllegalStateException("planned before gathering information");
+      CompactionPlan plan = new CompactionPlan();
+      for (Entry<FileRef,DataFileValue> entry : request.getFiles().entrySet()) {
+        if (entry.getValue().getSize() < 100)
+          plan.inputFiles.add(entry.getKey());
+      }
+      return plan;
+    }
+  }
+
+  @Test
+  public void testStrategyGathersBeforePlanning() {
+    ConfigurationCopy tableConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    tableConf.set(Property.TABLE_COMPACTION_STRATEGY, GatheringStrategy.class.getName());
+    TabletResourceManager gatheringTrm = tsrm.new TabletResourceManager(extent, tableConf);
+
+    SortedMap<FileRef,DataFileValue> files = new TreeMap<>();
+    files.put(new FileRef("hdfs://nn/accumulo/tables/1/t-1/F0.rf"), new DataFileValue(1000, 10));
+    files.put(new FileRef("hdfs://nn/accumulo/tables/1/t-1/F1.rf"), new DataFileValue(24, 1));
+    files.put(new FileRef("hdfs://nn/accumulo/tables/1/t-1/F2.rf"), new DataFileValue(40, 1));
+    MajorCompactionInput input = gatheringTrm.estimateMajorCompactionInput(files, MajorCompactionReason.NORMAL, null);
+    assertEquals(64, input.getSize());
+    assertEquals(2, input.getNumFiles());
+  }
 }
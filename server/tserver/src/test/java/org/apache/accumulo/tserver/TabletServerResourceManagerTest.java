@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.server.fs.FileRef;
+import org.apache.accumulo.tserver.TabletServerResourceManager.MajorCompactionInput;
+import org.apache.accumulo.tserver.compaction.CompactionPlan;
+import org.junit.Test;
+
+public class TabletServerResourceManagerTest {
+
+  private static SortedMap<FileRef,DataFileValue> files(long... sizes) {
+    SortedMap<FileRef,DataFileValue> files = new TreeMap<>();
+    for (int i = 0; i < sizes.length; i++) {
+      files.put(new FileRef("hdfs://nn/accumulo/tables/1/t-1/F" + i + ".rf"), new DataFileValue(sizes[i], 10));
+    }
+    return files;
+  }
+
+  @Test
+  public void testPlannedInput() {
+    SortedMap<FileRef,DataFileValue> files = files(1000, 20, 30, 40);
+
+    CompactionPlan plan = new CompactionPlan();
+    for (FileRef file : files.keySet()) {
+      if (files.get(file).getSize() < 100)
+        plan.inputFiles.add(file);
+    }
+    MajorCompactionInput input = TabletServerResourceManager.getPlannedInput(plan, files);
+    assertEquals(90, input.getSize());
+    assertEquals(3, input.getNumFiles());
+
+    // no plan, or an empty one, reads the whole tablet
+    input = TabletServerResourceManager.getPlannedInput(null, files);
+    assertEquals(1090, input.getSize());
+    assertEquals(4, input.getNumFiles());
+    input = TabletServerResourceManager.getPlannedInput(new CompactionPlan(), files);
+    assertEquals(1090, input.getSize());
+    assertEquals(4, input.getNumFiles());
+  }
+
+  @Test
+  public void testLargeLane() {
+    SortedMap<FileRef,DataFileValue> files = files(1 << 30, 20, 30, 40);
+    CompactionPlan plan = new CompactionPlan();
+    for (FileRef file : files.keySet()) {
+      if (files.get(file).getSize() < 100)
+        plan.inputFiles.add(file);
+    }
+
+    long largeSize = 1 << 20;
+    // a small compaction of a large tablet stays in the regular lane
+    assertFalse(TabletServerResourceManager.isLargeMajorCompaction(TabletServerResourceManager.getPlannedInput(plan, files).getSize(), largeSize));
+    assertTrue(TabletServerResourceManager.isLargeMajorCompaction(TabletServerResourceManager.getPlannedInput(null, files).getSize(), largeSize));
+
+    assertTrue(TabletServerResourceManager.isLargeMajorCompaction(largeSize, largeSize));
+    assertFalse(TabletServerResourceManager.isLargeMajorCompaction(largeSize - 1, largeSize));
+    // a large size of 0 disables the large lane
+    assertFalse(TabletServerResourceManager.isLargeMajorCompaction(Long.MAX_VALUE, 0));
+  }
+}
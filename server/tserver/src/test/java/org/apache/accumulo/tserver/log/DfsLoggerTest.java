@@ -17,14 +17,20 @@
 package org.apache.accumulo.tserver.log;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.Durability;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.tserver.TabletMutations;
+import org.apache.accumulo.tserver.log.DfsLogger.LogWork;
 import org.junit.Test;
 
 public class DfsLoggerTest {
@@ -56,4 +62,84 @@ public class DfsLoggerTest {
     assertEquals(Durability.SYNC, DfsLogger.chooseDurabilityForGroupCommit(lst));
   }
 
+  private static LogWork newWork(int mutations, long bytes) {
+    return new LogWork(new CountDownLatch(1), Durability.SYNC, mutations, bytes);
+  }
+
+  @Test
+  public void testNoWaitWithoutMaxWait() {
+    LinkedBlockingQueue<LogWork> queue = new LinkedBlockingQueue<>();
+    queue.add(newWork(1, 10));
+    List<LogWork> work = new ArrayList<>();
+    work.add(newWork(1, 10));
+
+    assertEquals(0, DfsLogger.waitForMoreWork(queue, work, 0, 1000, 1000));
+    assertEquals(1, work.size());
+    assertEquals(1, queue.size());
+  }
+
+  @Test
+  public void testWaitCollectsQueuedWork() {
+    LinkedBlockingQueue<LogWork> queue = new LinkedBlockingQueue<>();
+    List<LogWork> work = new ArrayList<>();
+    work.add(newWork(1, 10));
+    queue.add(newWork(1, 10));
+    queue.add(newWork(1, 10));
+
+    // the thresholds are not reached, so this waits out the delay after taking what was queued
+    long waited = DfsLogger.waitForMoreWork(queue, work, TimeUnit.MILLISECONDS.toNanos(50), 1000, 1000);
+    assertEquals(3, work.size());
+    assertTrue(queue.isEmpty());
+    assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+  @Test
+  public void testWaitEndsAtThresholds() {
+    long longWait = TimeUnit.SECONDS.toNanos(60);
+
+    LinkedBlockingQueue<LogWork> queue = new LinkedBlockingQueue<>();
+    List<LogWork> work = new ArrayList<>();
+    work.add(newWork(1, 10));
+    queue.add(newWork(1, 100));
+    assertTrue(DfsLogger.waitForMoreWork(queue, work, longWait, 100, 1000) < longWait);
+    assertEquals(2, work.size());
+
+    work.clear();
+    work.add(newWork(5, 10));
+    queue.add(newWork(5, 10));
+    assertTrue(DfsLogger.waitForMoreWork(queue, work, longWait, 1000, 10) < longWait);
+    assertEquals(2, work.size());
+  }
+
+  @Test
+  public void testWaitEndsAtClose() {
+    long longWait = TimeUnit.SECONDS.toNanos(60);
+    LinkedBlockingQueue<LogWork> queue = new LinkedBlockingQueue<>();
+    List<LogWork> work = new ArrayList<>();
+    work.add(newWork(1, 10));
+    queue.add(DfsLogger.CLOSED_MARKER);
+
+    assertTrue(DfsLogger.waitForMoreWork(queue, work, longWait, 1000, 1000) < longWait);
+    assertEquals(2, work.size());
+    // the marker is not a write, so it does not make the next sync wait for other writers
+    assertEquals(1, DfsLogger.countWrites(work));
+  }
+
+  @Test
+  public void testWaitKeepsInterrupt() {
+    long longWait = TimeUnit.SECONDS.toNanos(60);
+    LinkedBlockingQueue<LogWork> queue = new LinkedBlockingQueue<>();
+    List<LogWork> work = new ArrayList<>();
+    work.add(newWork(1, 10));
+
+    Thread.currentThread().interrupt();
+    try {
+      assertTrue(DfsLogger.waitForMoreWork(queue, work, longWait, 1000, 1000) < longWait);
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
 }
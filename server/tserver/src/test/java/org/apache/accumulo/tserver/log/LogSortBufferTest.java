@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.accumulo.tserver.logger.LogEvents;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.junit.Test;
+
+public class LogSortBufferTest {
+
+  private static LogFileKey newKey(LogEvents event, int tid, long seq) {
+    LogFileKey key = new LogFileKey();
+    key.event = event;
+    key.tid = tid;
+    key.seq = seq;
+    return key;
+  }
+
+  private void runSortTest(int size, ForkJoinPool pool) {
+    Random rand = new Random(42);
+    LogEvents events[] = LogEvents.values();
+
+    LogSortBuffer buffer = new LogSortBuffer(4);
+    List<LogFileKey> expected = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      // small ranges so that there are many equal keys
+      LogFileKey key = newKey(events[rand.nextInt(events.length)], rand.nextInt(10) - 1, rand.nextInt(100) - 1);
+      buffer.add(key, new LogFileValue());
+      expected.add(key);
+    }
+
+    // Collections.sort is stable, so equal keys must come out in the same order
+    Collections.sort(expected);
+
+    int[] order = buffer.sort(pool);
+    assertEquals(size, order.length);
+    for (int i = 0; i < size; i++) {
+      assertSame(expected.get(i), buffer.getKey(order[i]));
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    assertEquals(0, new LogSortBuffer().sort(null).length);
+  }
+
+  @Test
+  public void testSort() {
+    runSortTest(1, null);
+    runSortTest(10, null);
+    runSortTest(1000, null);
+  }
+
+  @Test
+  public void testParallelSort() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      runSortTest(100000, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testValuesFollowKeys() {
+    LogSortBuffer buffer = new LogSortBuffer();
+    LogFileValue v1 = new LogFileValue();
+    LogFileValue v2 = new LogFileValue();
+    LogFileValue v3 = new LogFileValue();
+    buffer.add(newKey(LogEvents.MUTATION, 1, 5), v1);
+    buffer.add(newKey(LogEvents.DEFINE_TABLET, 1, 1), v2);
+    buffer.add(newKey(LogEvents.MUTATION, 0, 9), v3);
+
+    int[] order = buffer.sort(null);
+    assertSame(v2, buffer.getValue(order[0]));
+    assertSame(v3, buffer.getValue(order[1]));
+    assertSame(v1, buffer.getValue(order[2]));
+  }
+}
@@ -128,6 +128,35 @@ public class SortedLogRecoveryTest {
   }
 
   private static List<Mutation> recover(Map<String,KeyValue[]> logs, Set<String> files, KeyExtent extent) throws IOException {
+    // recovering with the index written by the log sorter must give the same result as scanning the logs
+    List<Mutation> scanned = recover(logs, files, extent, false, SortedLogRecovery.MAX_OPEN_READERS);
+    List<Mutation> indexed = recover(logs, files, extent, true, SortedLogRecovery.MAX_OPEN_READERS);
+    Assert.assertEquals(scanned, indexed);
+    // logs past the limit of open readers are opened again for playback
+    Assert.assertEquals(scanned, recover(logs, files, extent, false, 1));
+    Assert.assertEquals(scanned, recover(logs, files, extent, true, 1));
+    return indexed;
+  }
+
+  private static void writeLog(VolumeManager fs, String path, KeyValue[] entries, boolean writeIndex) throws IOException {
+    FileSystem ns = fs.getVolumeByPath(new Path(path)).getFileSystem();
+    @SuppressWarnings("deprecation")
+    Writer map = new MapFile.Writer(ns.getConf(), ns, path + "/log1", LogFileKey.class, LogFileValue.class);
+    RecoveryLogIndex index = new RecoveryLogIndex();
+    RecoveryLogIndex.PartBuilder partIndex = index.newPart("log1");
+    for (KeyValue lfe : entries) {
+      map.append(lfe.key, lfe.value);
+      partIndex.add(lfe.key);
+    }
+    map.close();
+    if (writeIndex) {
+      index.write(fs, new Path(path));
+    }
+    ns.create(SortedLogState.getFinishedMarkerPath(path)).close();
+  }
+
+  private static List<Mutation> recover(Map<String,KeyValue[]> logs, Set<String> files, KeyExtent extent, boolean writeIndex, int maxOpenReaders)
+      throws IOException {
     TemporaryFolder root = new TemporaryFolder(new File(System.getProperty("user.dir") + "/target"));
     root.create();
     final String workdir = root.getRoot().getAbsolutePath() + "/workdir";
@@ -138,18 +167,11 @@ public class SortedLogRecoveryTest {
     try {
       for (Entry<String,KeyValue[]> entry : logs.entrySet()) {
         String path = workdir + "/" + entry.getKey();
-        FileSystem ns = fs.getVolumeByPath(new Path(path)).getFileSystem();
-        @SuppressWarnings("deprecation")
-        Writer map = new MapFile.Writer(ns.getConf(), ns, path + "/log1", LogFileKey.class, LogFileValue.class);
-        for (KeyValue lfe : entry.getValue()) {
-          map.append(lfe.key, lfe.value);
-        }
-        map.close();
-        ns.create(SortedLogState.getFinishedMarkerPath(path)).close();
+        writeLog(fs, path, entry.getValue(), writeIndex);
         dirs.add(new Path(path));
       }
       // Recover
-      SortedLogRecovery recovery = new SortedLogRecovery(fs);
+      SortedLogRecovery recovery = new SortedLogRecovery(fs, SortedLogRecovery.newIndexCache(), maxOpenReaders);
       CaptureMutations capture = new CaptureMutations();
       recovery.recover(extent, dirs, files, capture);
       return capture.result;
@@ -266,6 +288,43 @@ public class SortedLogRecoveryTest {
     Assert.assertEquals(m2, mutations.get(1));
   }
 
+  @Test
+  public void testIndexOfResortedLog() throws IOException {
+    Mutation m1 = new ServerMutation(new Text("row1"));
+    m1.put(cf, cq, value);
+    Mutation m2 = new ServerMutation(new Text("row2"));
+    m2.put(cf, cq, value);
+    KeyValue entries[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"), createKeyValue(DEFINE_TABLET, 1, 1, extent), createKeyValue(MUTATION, 2, 1, m1),};
+    // the same log sorted again, where the tablet was given a different id
+    KeyValue resorted[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"), createKeyValue(DEFINE_TABLET, 1, 2, extent), createKeyValue(MUTATION, 2, 2, m2),};
+
+    TemporaryFolder root = new TemporaryFolder(new File(System.getProperty("user.dir") + "/target"));
+    root.create();
+    try {
+      String workdir = root.getRoot().getAbsolutePath() + "/workdir";
+      VolumeManager fs = VolumeManagerImpl.getLocal(workdir);
+      String path = workdir + "/log";
+      SortedLogRecovery recovery = new SortedLogRecovery(fs, SortedLogRecovery.newIndexCache());
+
+      writeLog(fs, path, entries, true);
+      CaptureMutations capture = new CaptureMutations();
+      recovery.recover(extent, Collections.singletonList(new Path(path)), Collections.<String> emptySet(), capture);
+      Assert.assertEquals(Collections.singletonList(m1), capture.result);
+
+      fs.deleteRecursively(new Path(path));
+      writeLog(fs, path, resorted, true);
+      // make sure the new index does not have the same modification time as the old one
+      Path indexPath = new Path(path, RecoveryLogIndex.INDEX_FILE);
+      fs.getVolumeByPath(indexPath).getFileSystem().setTimes(indexPath, System.currentTimeMillis() + 60 * 1000, -1);
+
+      capture = new CaptureMutations();
+      recovery.recover(extent, Collections.singletonList(new Path(path)), Collections.<String> emptySet(), capture);
+      Assert.assertEquals(Collections.singletonList(m2), capture.result);
+    } finally {
+      root.delete();
+    }
+  }
+
   @Test
   public void testEmpty() throws IOException {
     // Create a test log
@@ -307,6 +366,33 @@ public class SortedLogRecoveryTest {
     Assert.assertEquals(m, mutations.get(0));
   }
 
+  @Test
+  public void testTabletsInSeparateStreams() throws IOException {
+    // a tablet server writing to two logs at once, each tablet is only ever written to one of them
+    KeyExtent other = new KeyExtent(new Table.ID("other"), null, null);
+    Mutation ignored = new ServerMutation(new Text("ignored"));
+    ignored.put(cf, cq, value);
+    Mutation m = new ServerMutation(new Text("row1"));
+    m.put(cf, cq, value);
+    Mutation m2 = new ServerMutation(new Text("row2"));
+    m2.put(cf, cq, value);
+    KeyValue stream1[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"), createKeyValue(DEFINE_TABLET, 1, 1, extent), createKeyValue(MUTATION, 2, 1, m),};
+    KeyValue stream2[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "2"), createKeyValue(DEFINE_TABLET, 1, 1, other),
+        createKeyValue(MUTATION, 2, 1, ignored), createKeyValue(MUTATION, 3, 1, ignored),};
+    KeyValue stream1Next[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "3"), createKeyValue(DEFINE_TABLET, 1, 2, extent),
+        createKeyValue(MUTATION, 3, 2, m2),};
+    Map<String,KeyValue[]> logs = new TreeMap<>();
+    logs.put("entries1", stream1);
+    logs.put("entries2", stream2);
+    logs.put("entries3", stream1Next);
+    // Recover
+    List<Mutation> mutations = recover(logs, extent);
+    // Verify recovered data
+    Assert.assertEquals(2, mutations.size());
+    Assert.assertEquals(m, mutations.get(0));
+    Assert.assertEquals(m2, mutations.get(1));
+  }
+
   @Test
   public void testSkipSuccessfulCompaction() throws IOException {
     // Create a test log
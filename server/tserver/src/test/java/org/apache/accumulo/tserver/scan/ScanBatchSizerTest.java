@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.apache.accumulo.tserver.tablet.KVEntry;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+import org.junit.Test;
+
+public class ScanBatchSizerTest {
+
+  private static final ScanBatch FULL = new ScanBatch(new ArrayList<KVEntry>(), true);
+  private static final ScanBatch LAST = new ScanBatch(new ArrayList<KVEntry>(), false);
+
+  private double heapUsage = 0.5;
+  private long now = 1000;
+
+  private ScanBatchSizer newSizer() {
+    return new ScanBatchSizer(100, 800, 1000, null, () -> heapUsage);
+  }
+
+  // reads a batch that took readMillis, then has the client take it clientMillis after the previous one
+  private long readAndTake(ScanBatchSizer sizer, ScanBatch batch, long readMillis, long clientMillis) {
+    long batchMemory = sizer.getBatchMemory();
+    sizer.batchRead(batch, batchMemory, readMillis);
+    now += clientMillis;
+    sizer.batchTaken(0, now);
+    return sizer.getBatchMemory();
+  }
+
+  @Test
+  public void testGrowsForFastClient() {
+    ScanBatchSizer sizer = newSizer();
+    assertEquals(100, sizer.getBatchMemory());
+    assertEquals(100, readAndTake(sizer, FULL, 50, 0));
+    assertEquals(200, readAndTake(sizer, FULL, 50, 10));
+    assertEquals(400, readAndTake(sizer, FULL, 50, 10));
+    assertEquals(800, readAndTake(sizer, FULL, 50, 10));
+    assertEquals(800, readAndTake(sizer, FULL, 50, 10));
+  }
+
+  @Test
+  public void testShrinksForSlowClient() {
+    ScanBatchSizer sizer = newSizer();
+    readAndTake(sizer, FULL, 50, 0);
+    readAndTake(sizer, FULL, 50, 10);
+    assertEquals(400, readAndTake(sizer, FULL, 50, 10));
+
+    // a client taking about as long as the reads keeps the size
+    assertEquals(400, readAndTake(sizer, FULL, 50, 100));
+    assertEquals(200, readAndTake(sizer, FULL, 50, 1000));
+    assertEquals(100, readAndTake(sizer, FULL, 50, 1000));
+    assertEquals(100, readAndTake(sizer, FULL, 50, 1000));
+  }
+
+  @Test
+  public void testOnlyFullBatchesGrow() {
+    ScanBatchSizer sizer = newSizer();
+    readAndTake(sizer, FULL, 50, 0);
+    assertEquals(100, readAndTake(sizer, LAST, 50, 10));
+
+    // as many entries as the client asked for, so memory did not stop the batch
+    ScanBatch allEntries = new ScanBatch(Collections.nCopies(1000, (KVEntry) null), true);
+    assertEquals(100, readAndTake(sizer, allEntries, 50, 10));
+  }
+
+  @Test
+  public void testShrinksUnderHeapPressure() {
+    ScanBatchSizer sizer = newSizer();
+    readAndTake(sizer, FULL, 50, 0);
+    assertEquals(200, readAndTake(sizer, FULL, 50, 10));
+
+    heapUsage = 0.9;
+    assertEquals(100, sizer.getBatchMemory());
+    assertEquals(50, sizer.getBatchMemory());
+    assertEquals(25, sizer.getBatchMemory());
+    assertEquals(12, sizer.getBatchMemory());
+    assertEquals(12, sizer.getBatchMemory());
+
+    // does not grow while the heap is nearly full
+    assertEquals(12, readAndTake(sizer, FULL, 50, 10));
+
+    heapUsage = 0.5;
+    assertEquals(24, readAndTake(sizer, FULL, 50, 10));
+  }
+}
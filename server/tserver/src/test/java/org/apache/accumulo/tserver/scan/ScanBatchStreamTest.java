@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.tserver.TabletServer;
+import org.apache.accumulo.tserver.session.ScanSession;
+import org.apache.accumulo.tserver.tablet.KVEntry;
+import org.apache.accumulo.tserver.tablet.ScanBatch;
+import org.apache.accumulo.tserver.tablet.Tablet;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScanBatchStreamTest {
+
+  private static final long SCAN_ID = 42;
+
+  // what each read of the scan returns, a ScanBatch or an exception to throw
+  private final Queue<Object> reads = new ArrayDeque<>();
+  // reads submitted to the scan executor and not yet run
+  private final Queue<Runnable> queued = new ArrayDeque<>();
+  private final AtomicBoolean interruptFlag = new AtomicBoolean();
+  private TabletServer server;
+
+  @Before
+  public void setup() throws Exception {
+    ScanSession session = EasyMock.createNiceMock(ScanSession.class);
+    EasyMock.expect(session.readBatch()).andAnswer(() -> {
+      Object r = reads.remove();
+      if (r instanceof IOException)
+        throw (IOException) r;
+      return (ScanBatch) r;
+    }).anyTimes();
+
+    server = EasyMock.createNiceMock(TabletServer.class);
+    EasyMock.expect(server.getSession(SCAN_ID)).andReturn(session).anyTimes();
+    EasyMock.expect(server.getOnlineTablet(EasyMock.anyObject())).andReturn(EasyMock.createNiceMock(Tablet.class)).anyTimes();
+
+    EasyMock.replay(session, server);
+  }
+
+  private ScanBatchStream newStream(int maxBatches, long maxBytes) {
+    return newStream(maxBatches, () -> maxBytes);
+  }
+
+  private ScanBatchStream newStream(int maxBatches, LongSupplier maxBytes) {
+    return new ScanBatchStream(server, SCAN_ID, interruptFlag, queued::add, maxBatches, maxBytes);
+  }
+
+  // a batch with one entry of about 100 bytes
+  private static ScanBatch batch(int i, boolean more) {
+    Key k = new Key(String.format("r%04d", i));
+    return new ScanBatch(Collections.singletonList(new KVEntry(k, new Value(new byte[100 - k.getSize()]))), more);
+  }
+
+  private void runQueued() {
+    while (!queued.isEmpty())
+      queued.remove().run();
+  }
+
+  private static String firstRow(ScanBatch batch) {
+    return batch.getResults().get(0).getKey().getRow().toString();
+  }
+
+  @Test
+  public void testCredits() throws Exception {
+    for (int i = 0; i < 10; i++)
+      reads.add(batch(i, true));
+
+    ScanBatchStream stream = newStream(3, 1 << 20);
+    stream.start();
+    assertEquals(1, queued.size());
+
+    // reads continue until every credit is spent, then stop until the client takes something
+    runQueued();
+    assertEquals(7, reads.size());
+    assertTrue(queued.isEmpty());
+
+    ScanBatch b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(3, b.getResults().size());
+    assertTrue(b.isMore());
+    assertEquals("r0000", firstRow(b));
+
+    // taking three batches returns three credits
+    assertEquals(1, queued.size());
+    runQueued();
+    assertEquals(4, reads.size());
+
+    try {
+      stream.get(0, TimeUnit.MILLISECONDS);
+      b = stream.get(0, TimeUnit.MILLISECONDS);
+      fail("expected timeout, got " + b.getResults().size() + " entries");
+    } catch (TimeoutException e) {
+      // the first get took the three ready batches
+    }
+  }
+
+  @Test
+  public void testMergedBatchesBounded() throws Exception {
+    for (int i = 0; i < 5; i++)
+      reads.add(batch(i, true));
+
+    // room for two of the batches, the first is always returned
+    ScanBatchStream stream = newStream(5, 250);
+    stream.start();
+    runQueued();
+    assertEquals(0, reads.size());
+    assertTrue(queued.isEmpty());
+
+    ScanBatch b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(2, b.getResults().size());
+    assertEquals("r0000", firstRow(b));
+
+    // only the two batches taken returned their credits
+    reads.add(batch(5, true));
+    reads.add(batch(6, false));
+    assertEquals(1, queued.size());
+    runQueued();
+    assertTrue(reads.isEmpty());
+
+    b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(2, b.getResults().size());
+    assertEquals("r0002", firstRow(b));
+    b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(2, b.getResults().size());
+    assertEquals("r0004", firstRow(b));
+    b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(1, b.getResults().size());
+    assertEquals("r0006", firstRow(b));
+    assertFalse(b.isMore());
+  }
+
+  @Test
+  public void testMergedBatchesFollowBatchMemory() throws Exception {
+    for (int i = 0; i < 5; i++)
+      reads.add(batch(i, true));
+    reads.add(batch(5, false));
+
+    AtomicLong batchMemory = new AtomicLong(350);
+    ScanBatchStream stream = newStream(6, batchMemory::get);
+    stream.start();
+    runQueued();
+    assertTrue(reads.isEmpty());
+
+    ScanBatch b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(3, b.getResults().size());
+    assertEquals("r0000", firstRow(b));
+
+    // the sizer shrank the batches of the scan, so fewer ready batches are returned together
+    batchMemory.set(150);
+    b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(1, b.getResults().size());
+    assertEquals("r0003", firstRow(b));
+
+    batchMemory.set(1 << 20);
+    b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(2, b.getResults().size());
+    assertEquals("r0004", firstRow(b));
+    assertFalse(b.isMore());
+  }
+
+  @Test
+  public void testLastBatchEndsStream() throws Exception {
+    reads.add(batch(0, true));
+    reads.add(batch(1, false));
+    reads.add(batch(2, true));
+
+    ScanBatchStream stream = newStream(5, 1 << 20);
+    stream.start();
+    runQueued();
+    // nothing is read after the last batch, even with credits left
+    assertEquals(1, reads.size());
+
+    ScanBatch b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(2, b.getResults().size());
+    assertFalse(b.isMore());
+    assertTrue(queued.isEmpty());
+  }
+
+  @Test
+  public void testErrorEndsStream() throws Exception {
+    reads.add(batch(0, true));
+    reads.add(new IOException("read failed"));
+    reads.add(batch(2, true));
+
+    ScanBatchStream stream = newStream(5, 1 << 20);
+    stream.start();
+    runQueued();
+    assertEquals(1, reads.size());
+
+    // batches before the error are returned, the error is not merged into them
+    ScanBatch b = stream.get(0, TimeUnit.MILLISECONDS);
+    assertEquals(1, b.getResults().size());
+    assertTrue(queued.isEmpty());
+
+    try {
+      stream.get(0, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertTrue(queued.isEmpty());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    for (int i = 0; i < 3; i++)
+      reads.add(batch(i, true));
+
+    ScanBatchStream stream = newStream(2, 1 << 20);
+    stream.start();
+    queued.remove().run();
+
+    stream.cancel();
+    assertTrue(interruptFlag.get());
+
+    // the queued read does nothing once cancelled
+    runQueued();
+    assertEquals(2, reads.size());
+    assertEquals(ScanRunState.FINISHED, stream.getScanRunState());
+
+    try {
+      stream.get(0, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (CancellationException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.junit.Test;
+
+public class SimpleScanDispatcherTest {
+
+  private static final ScanInfo SINGLE = new ScanInfo(ScanInfo.Type.SINGLE, new Table.ID("1"), 0, 0, 0);
+  private static final ScanInfo MULTI = new ScanInfo(ScanInfo.Type.MULTI, new Table.ID("1"), 0, 0, 0);
+
+  private void runTest(Map<String,String> options, String expectedSingle, String expectedMulti) {
+    SimpleScanDispatcher dispatcher = new SimpleScanDispatcher();
+    dispatcher.init(options);
+    assertEquals(expectedSingle, dispatcher.dispatch(SINGLE));
+    assertEquals(expectedMulti, dispatcher.dispatch(MULTI));
+  }
+
+  @Test
+  public void testDefault() {
+    runTest(new HashMap<String,String>(), ScanDispatcher.DEFAULT_EXECUTOR, ScanDispatcher.DEFAULT_EXECUTOR);
+  }
+
+  @Test
+  public void testOptions() {
+    Map<String,String> options = new HashMap<>();
+    options.put("executor", "E1");
+    runTest(options, "E1", "E1");
+
+    options.put("multi_executor", "E2");
+    runTest(options, "E1", "E2");
+
+    options.put("single_executor", "E3");
+    runTest(options, "E3", "E2");
+
+    options.remove("executor");
+    runTest(options, "E3", "E2");
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.scan;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.impl.Table;
+import org.junit.Test;
+
+public class SimpleScanPrioritizerTest {
+
+  private static final Table.ID TABLE = new Table.ID("1");
+
+  @Test
+  public void testOrder() {
+    ScanInfo old = new ScanInfo(ScanInfo.Type.SINGLE, TABLE, 1000, 50, 0);
+    ScanInfo young = new ScanInfo(ScanInfo.Type.SINGLE, TABLE, 5000, 50, 0);
+    ScanInfo lookup = new ScanInfo(ScanInfo.Type.MULTI, TABLE, 6000, 0, 0);
+    ScanInfo important = new ScanInfo(ScanInfo.Type.SINGLE, TABLE, 7000, 100, 5);
+
+    List<ScanInfo> scans = new ArrayList<>();
+    Collections.addAll(scans, young, lookup, old, important);
+
+    Comparator<ScanInfo> comparator = new SimpleScanPrioritizer().createComparator(new HashMap<String,String>());
+    Collections.sort(scans, comparator);
+    assertEquals(important, scans.get(0));
+    assertEquals(lookup, scans.get(1));
+    assertEquals(old, scans.get(2));
+    assertEquals(young, scans.get(3));
+
+    Map<String,String> options = new HashMap<>();
+    options.put("ignore_batches", "true");
+    Collections.sort(scans, new SimpleScanPrioritizer().createComparator(options));
+    assertEquals(important, scans.get(0));
+    assertEquals(old, scans.get(1));
+    assertEquals(young, scans.get(2));
+    assertEquals(lookup, scans.get(3));
+  }
+}
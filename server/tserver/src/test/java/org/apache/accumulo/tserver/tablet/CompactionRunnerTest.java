@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.tablet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.accumulo.tserver.compaction.MajorCompactionReason;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class CompactionRunnerTest {
+
+  private static final int MAX_FILES = 15;
+
+  private static CompactionRunner runner(MajorCompactionReason reason, int numFiles, long inputSize, long queued) {
+    return runner(reason, numFiles, numFiles, inputSize, queued);
+  }
+
+  private static CompactionRunner runner(MajorCompactionReason reason, int inputFiles, int numFiles, long inputSize, long queued) {
+    Tablet tablet = EasyMock.createNiceMock(Tablet.class);
+    EasyMock.replay(tablet);
+    return new CompactionRunner(tablet, reason, inputSize, inputFiles, numFiles, MAX_FILES, queued);
+  }
+
+  private static List<CompactionRunner> sorted(CompactionRunner... runners) {
+    List<CompactionRunner> list = new ArrayList<>(Arrays.asList(runners));
+    Collections.shuffle(list);
+    Collections.sort(list);
+    return list;
+  }
+
+  @Test
+  public void testBenefitPerByte() {
+    long now = System.currentTimeMillis();
+    CompactionRunner small = runner(MajorCompactionReason.NORMAL, 4, 1000, now);
+    CompactionRunner large = runner(MajorCompactionReason.NORMAL, 10, 1000000, now);
+    CompactionRunner dense = runner(MajorCompactionReason.NORMAL, 8, 1000, now);
+
+    assertEquals(Arrays.asList(dense, small, large), sorted(small, large, dense));
+  }
+
+  @Test
+  public void testBenefitUsesPlannedFiles() {
+    long now = System.currentTimeMillis();
+    // a tablet with many files whose plan only merges two of them gains less than a tablet merging all of its files
+    CompactionRunner partial = runner(MajorCompactionReason.NORMAL, 2, 12, 1000, now);
+    CompactionRunner whole = runner(MajorCompactionReason.NORMAL, 6, 6, 1000, now);
+
+    assertEquals(Arrays.asList(whole, partial), sorted(partial, whole));
+  }
+
+  @Test
+  public void testReasonFirst() {
+    long now = System.currentTimeMillis();
+    CompactionRunner user = runner(MajorCompactionReason.USER, 2, 1000000, now);
+    CompactionRunner normal = runner(MajorCompactionReason.NORMAL, 8, 1000, now);
+    CompactionRunner idle = runner(MajorCompactionReason.IDLE, 8, 1000, now);
+
+    assertEquals(Arrays.asList(user, normal, idle), sorted(idle, normal, user));
+  }
+
+  @Test
+  public void testUserOldestFirst() {
+    long now = System.currentTimeMillis();
+    CompactionRunner older = runner(MajorCompactionReason.USER, 2, 1000000, now - 1000);
+    CompactionRunner newer = runner(MajorCompactionReason.USER, 8, 1000, now);
+
+    assertEquals(Arrays.asList(older, newer), sorted(newer, older));
+  }
+
+  @Test
+  public void testMaxFilesFirst() {
+    long now = System.currentTimeMillis();
+    CompactionRunner cheap = runner(MajorCompactionReason.NORMAL, 8, 1000, now);
+    CompactionRunner full = runner(MajorCompactionReason.NORMAL, MAX_FILES, 1L << 40, now);
+    CompactionRunner over = runner(MajorCompactionReason.NORMAL, MAX_FILES + 5, 1L << 41, now);
+    CompactionRunner expensive = runner(MajorCompactionReason.NORMAL, 2, 1L << 30, now - 1000);
+
+    assertEquals(Arrays.asList(over, full, cheap, expensive), sorted(cheap, full, over, expensive));
+  }
+
+  @Test
+  public void testOrderDoesNotChangeWhileQueued() throws Exception {
+    long now = System.currentTimeMillis();
+    CompactionRunner a = runner(MajorCompactionReason.NORMAL, 2, 1L << 30, now - 1000);
+    CompactionRunner b = runner(MajorCompactionReason.NORMAL, 10, 1000, now);
+
+    int cmp = a.compareTo(b);
+    assertTrue(cmp > 0);
+    Thread.sleep(5);
+    assertEquals(cmp, a.compareTo(b));
+    assertEquals(-cmp, b.compareTo(a));
+    assertFalse(a.equals(b));
+  }
+}
@@ -16,14 +16,21 @@
  */
 package org.apache.accumulo.test;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.harness.AccumuloClusterHarness;
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Iterables;
+
 public class BatchWriterIT extends AccumuloClusterHarness {
 
   @Override
@@ -46,4 +53,28 @@ public class BatchWriterIT extends AccumuloClusterHarness {
     writer.close();
   }
 
+  @Test
+  public void testFlushAsync() throws Exception {
+    String table = getUniqueNames(1)[0];
+    Connector c = getConnector();
+    c.tableOperations().create(table);
+    BatchWriter writer = c.createBatchWriter(table, new BatchWriterConfig());
+    for (int i = 0; i < 1000; i++) {
+      Mutation m = new Mutation(String.format("row%04d", i));
+      m.put("cf", "cq", new Value("value".getBytes()));
+      writer.addMutation(m);
+    }
+
+    CompletableFuture<Void> flushed = writer.flushAsync();
+    flushed.get();
+
+    try (Scanner scanner = c.createScanner(table, Authorizations.EMPTY)) {
+      Assert.assertEquals(1000, Iterables.size(scanner));
+    }
+
+    // nothing buffered, so the flush completes right away
+    Assert.assertTrue(writer.flushAsync().isDone());
+    writer.close();
+  }
+
 }
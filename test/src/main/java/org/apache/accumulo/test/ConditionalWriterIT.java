@@ -29,6 +29,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -36,6 +37,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -1188,6 +1190,49 @@ public class ConditionalWriterIT extends AccumuloClusterHarness {
     }
   }
 
+  @Test
+  public void testWriteAsync() throws Exception {
+    Connector conn = getConnector();
+    String tableName = getUniqueNames(1)[0];
+
+    conn.tableOperations().create(tableName);
+    conn.tableOperations().addSplits(tableName, nss("3", "6"));
+
+    try (ConditionalWriter cw = conn.createConditionalWriter(tableName, new ConditionalWriterConfig())) {
+      List<CompletableFuture<Result>> futures = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        ConditionalMutation cm = new ConditionalMutation(String.format("%04d", i), new Condition("tx", "seq"));
+        cm.put("tx", "seq", "1");
+        futures.add(cw.writeAsync(cm));
+      }
+
+      for (CompletableFuture<Result> future : futures) {
+        Assert.assertEquals(Status.ACCEPTED, future.get().getStatus());
+      }
+
+      // same mutations again should all be rejected now that the column exists
+      futures.clear();
+      for (int i = 0; i < 1000; i++) {
+        ConditionalMutation cm = new ConditionalMutation(String.format("%04d", i), new Condition("tx", "seq"));
+        cm.put("tx", "seq", "2");
+        futures.add(cw.writeAsync(cm));
+      }
+
+      for (CompletableFuture<Result> future : futures) {
+        Assert.assertEquals(Status.REJECTED, future.get().getStatus());
+      }
+    }
+
+    try (Scanner scanner = conn.createScanner(tableName, Authorizations.EMPTY)) {
+      int count = 0;
+      for (Entry<Key,Value> entry : scanner) {
+        Assert.assertEquals("1", entry.getValue().toString());
+        count++;
+      }
+      Assert.assertEquals(1000, count);
+    }
+  }
+
   private SortedSet<Text> nss(String... splits) {
     TreeSet<Text> ret = new TreeSet<>();
     for (String split : splits)
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.tserver.InMemoryMap;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Measures the rate at which multiple threads can write into a single {@link InMemoryMap}, with writes serialized and with concurrent writes enabled.
+ */
+public class InMemoryMapIngestPerformanceTest {
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+  private static final byte COL_PREFIX[] = new byte[] {'c'};
+
+  static InMemoryMap newInMemoryMap(String mapType, boolean concurrentWrites) throws Exception {
+    ConfigurationCopy config = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    config.set(Property.TSERV_MEMORY_MAPS_CONCURRENT_WRITES, "" + concurrentWrites);
+    config.set(Property.TSERV_MEMDUMP_DIR, System.getProperty("java.io.tmpdir"));
+
+    if (mapType.equals("DEFAULT")) {
+      config.set(Property.TSERV_NATIVEMAP_ENABLED, "false");
+    } else if (mapType.equals("NATIVE")) {
+      config.set(Property.TSERV_NATIVEMAP_ENABLED, "true");
+    } else if (mapType.equals("OFF_HEAP")) {
+      config.set(Property.TSERV_NATIVEMAP_ENABLED, "false");
+      config.set(Property.TSERV_OFFHEAPMAP_ENABLED, "true");
+    } else if (mapType.equals("LOCALITY_GROUP")) {
+      config.set(Property.TSERV_NATIVEMAP_ENABLED, "false");
+      Set<Text> families = new HashSet<>();
+      families.add(new Text("c0"));
+      config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1", LocalityGroupUtil.encodeColumnFamilies(families));
+      config.set(Property.TABLE_LOCALITY_GROUPS, "lg1");
+    } else {
+      throw new IllegalArgumentException(" map type must be DEFAULT, NATIVE, OFF_HEAP, or LOCALITY_GROUP");
+    }
+
+    return new InMemoryMap(config);
+  }
+
+  static double runPerformanceTest(String mapType, boolean concurrentWrites, int numThreads, final int numMutations, final int numCols) throws Exception {
+    final InMemoryMap imm = newInMemoryMap(mapType, concurrentWrites);
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+    long t1 = System.currentTimeMillis();
+
+    for (int t = 0; t < numThreads; t++) {
+      final int seed = t;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          Random rand = new Random(seed);
+          Value val = new Value("test".getBytes(UTF_8));
+          List<Mutation> batch = new ArrayList<>();
+          for (int i = 0; i < numMutations; i++) {
+            Mutation m = new Mutation(new Text(FastFormat.toZeroPaddedString(rand.nextInt(1000000000), 9, 10, ROW_PREFIX)));
+            for (int j = 0; j < numCols; j++) {
+              m.put(new Text(FastFormat.toZeroPaddedString(j % 2, 1, 10, COL_PREFIX)),
+                  new Text(FastFormat.toZeroPaddedString(rand.nextInt(1000000), 6, 10, COL_PREFIX)), val);
+            }
+            batch.add(m);
+            if (batch.size() == 10) {
+              imm.mutate(batch);
+              batch = new ArrayList<>();
+            }
+          }
+
+          if (batch.size() > 0)
+            imm.mutate(batch);
+        }
+      });
+    }
+
+    executor.shutdown();
+    while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {}
+
+    long t2 = System.currentTimeMillis();
+
+    imm.delete(0);
+
+    return (numThreads * (long) numMutations * numCols) / ((t2 - t1) / 1000.0);
+  }
+
+  public static void main(String[] args) throws Exception {
+
+    if (args.length != 4) {
+      throw new IllegalArgumentException("Usage : " + InMemoryMapIngestPerformanceTest.class.getName()
+          + " <map type> <threads> <mutations per thread> <columns>");
+    }
+
+    String mapType = args[0];
+    int threads = Integer.parseInt(args[1]);
+    int mutations = Integer.parseInt(args[2]);
+    int cols = Integer.parseInt(args[3]);
+
+    for (int i = 0; i < 3; i++) {
+      for (boolean concurrentWrites : new boolean[] {false, true}) {
+        double rate = runPerformanceTest(mapType, concurrentWrites, threads, mutations, cols);
+        System.out.printf("mapType:%15s   threads:%3d   concurrent writes:%6s   put rate:%,12.2f%n", mapType, threads, concurrentWrites, rate);
+      }
+    }
+  }
+
+}
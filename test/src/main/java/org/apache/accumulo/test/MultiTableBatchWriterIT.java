@@ -46,6 +46,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 
 public class MultiTableBatchWriterIT extends AccumuloClusterHarness {
@@ -131,6 +132,49 @@ public class MultiTableBatchWriterIT extends AccumuloClusterHarness {
     }
   }
 
+  @Test
+  public void testFlushAsync() throws Exception {
+    try {
+      final String[] names = getUniqueNames(2);
+      final String table1 = names[0], table2 = names[1];
+
+      TableOperations tops = connector.tableOperations();
+      tops.create(table1);
+      tops.create(table2);
+
+      BatchWriter bw1 = mtbw.getBatchWriter(table1);
+      BatchWriter bw2 = mtbw.getBatchWriter(table2);
+
+      Mutation m1 = new Mutation("foo");
+      m1.put("col1", "", "val1");
+      bw1.addMutation(m1);
+
+      Mutation m2 = new Mutation("bar");
+      m2.put("col1", "", "val2");
+      bw2.addMutation(m2);
+
+      // like flush, an individual table's writer can not flush the writer shared by all tables
+      try {
+        bw1.flushAsync();
+        Assert.fail("Expected flushAsync on an individual table to fail");
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+
+      mtbw.flushAsync().get();
+
+      Assert.assertEquals(1, Iterables.size(connector.createScanner(table1, Authorizations.EMPTY)));
+      Assert.assertEquals(1, Iterables.size(connector.createScanner(table2, Authorizations.EMPTY)));
+
+      // nothing buffered, so the flush completes right away
+      Assert.assertTrue(mtbw.flushAsync().isDone());
+    } finally {
+      if (null != mtbw) {
+        mtbw.close();
+      }
+    }
+  }
+
   @Test
   public void testTableRenameSameWriters() throws Exception {
 
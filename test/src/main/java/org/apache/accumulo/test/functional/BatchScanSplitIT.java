@@ -18,12 +18,17 @@ package org.apache.accumulo.test.functional;
 
 import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.BatchScanner;
@@ -127,4 +132,55 @@ public class BatchScanSplitIT extends AccumuloClusterHarness {
     log.info("splits : " + splits);
   }
 
+  @Test
+  public void testOrdered() throws Exception {
+    Connector c = getConnector();
+    String tableName = getUniqueNames(1)[0];
+    c.tableOperations().create(tableName);
+
+    int numRows = 1 << 14;
+
+    SortedSet<Text> splits = new TreeSet<>();
+    for (int i = 1; i < 16; i++) {
+      splits.add(new Text(String.format("%09x", i * numRows / 16)));
+    }
+    c.tableOperations().addSplits(tableName, splits);
+
+    BatchWriter bw = c.createBatchWriter(tableName, new BatchWriterConfig());
+    for (int i = 0; i < numRows; i++) {
+      Mutation m = new Mutation(new Text(String.format("%09x", i)));
+      m.put(new Text("cf1"), new Text("cq1"), new Value(String.format("%016x", numRows - i).getBytes(UTF_8)));
+      bw.addMutation(m);
+    }
+    bw.close();
+
+    // mix of single rows and ranges that span several tablets, given out of order
+    Random random = new Random(19011230);
+    TreeMap<Text,Value> expected = new TreeMap<>();
+    ArrayList<Range> ranges = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      int start = random.nextInt(numRows);
+      int end = Math.min(numRows - 1, start + (i % 10 == 0 ? random.nextInt(numRows / 4) : 0));
+      ranges.add(new Range(new Text(String.format("%09x", start)), new Text(String.format("%09x", end))));
+      for (int r = start; r <= end; r++) {
+        expected.put(new Text(String.format("%09x", r)), new Value(String.format("%016x", numRows - r).getBytes(UTF_8)));
+      }
+    }
+
+    TreeMap<Text,Value> found = new TreeMap<>();
+    try (BatchScanner bs = c.createBatchScanner(tableName, Authorizations.EMPTY, 4)) {
+      bs.setRanges(ranges);
+      bs.setOrdered(true);
+
+      Key last = null;
+      for (Entry<Key,Value> entry : bs) {
+        assertTrue(last == null || last.compareTo(entry.getKey()) < 0);
+        last = entry.getKey();
+        found.put(entry.getKey().getRow(), entry.getValue());
+      }
+    }
+
+    assertEquals(expected, found);
+  }
+
 }
@@ -17,24 +17,39 @@
 package org.apache.accumulo.test.functional;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.cli.ClientOpts.Password;
 import org.apache.accumulo.core.cli.ScannerOpts;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
 import org.apache.accumulo.core.client.ClientConfiguration;
 import org.apache.accumulo.core.client.ClientConfiguration.ClientProperty;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.admin.ActiveCompaction;
 import org.apache.accumulo.core.client.admin.InstanceOperations;
+import org.apache.accumulo.core.client.impl.Table;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
 import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.metadata.MetadataTable;
 import org.apache.accumulo.core.metadata.schema.MetadataSchema;
 import org.apache.accumulo.core.security.Authorizations;
@@ -176,6 +191,90 @@ public class CompactionIT extends AccumuloClusterHarness {
     }
   }
 
+  @Test
+  public void testSubRangeCompaction() throws Exception {
+    final Connector c = getConnector();
+    final String tableName = getUniqueNames(1)[0];
+    c.tableOperations().create(tableName);
+    c.tableOperations().setProperty(tableName, Property.TABLE_MAJC_RATIO.getKey(), "100");
+    c.tableOperations().setProperty(tableName, Property.TABLE_MAJC_SUBRANGES.getKey(), "4");
+    c.tableOperations().setProperty(tableName, Property.TABLE_MAJC_SUBRANGES_SIZE.getKey(), "1K");
+    // small blocks give the files enough index entries to find sub-ranges in
+    c.tableOperations().setProperty(tableName, Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE.getKey(), "1K");
+
+    final int rowsPerFlush = 2000, flushes = 3;
+    for (int f = 0; f < flushes; f++) {
+      BatchWriter bw = c.createBatchWriter(tableName, new BatchWriterConfig());
+      for (int i = 0; i < rowsPerFlush; i++) {
+        Mutation m = new Mutation(String.format("r%06d", i * flushes + f));
+        m.put("cf", "cq", "v" + f);
+        bw.addMutation(m);
+      }
+      bw.close();
+      c.tableOperations().flush(tableName, null, null, true);
+    }
+
+    // delete every tenth row in another file, so the deletes are dropped by the compaction
+    BatchWriter bw = c.createBatchWriter(tableName, new BatchWriterConfig());
+    for (int row = 0; row < rowsPerFlush * flushes; row += 10) {
+      Mutation m = new Mutation(String.format("r%06d", row));
+      m.putDelete("cf", "cq");
+      bw.addMutation(m);
+    }
+    bw.close();
+    c.tableOperations().flush(tableName, null, null, true);
+
+    // slow the compaction down so its parts can be seen running
+    final IteratorSetting slow = new IteratorSetting(30, SlowIterator.class);
+    SlowIterator.setSleepTime(slow, 2);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<?> compaction = executor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        c.tableOperations().compact(tableName, null, null, Collections.singletonList(slow), true, true);
+        return null;
+      }
+    });
+    executor.shutdown();
+
+    Set<String> partFiles = new HashSet<>();
+    int maxConcurrentParts = 0;
+    while (!compaction.isDone()) {
+      int concurrentParts = 0;
+      for (String tserver : c.instanceOperations().getTabletServers()) {
+        for (ActiveCompaction ac : c.instanceOperations().getActiveCompactions(tserver)) {
+          if (ac.getTable().equals(tableName) && ac.getOutputFile().contains("_p")) {
+            partFiles.add(ac.getOutputFile());
+            concurrentParts++;
+          }
+        }
+      }
+      maxConcurrentParts = Math.max(maxConcurrentParts, concurrentParts);
+      Thread.sleep(100);
+    }
+    compaction.get();
+
+    assertTrue("Expected sub-ranges to be compacted, saw " + partFiles, partFiles.size() > 1);
+    assertTrue("Expected sub-ranges to be compacted in parallel", maxConcurrentParts > 1);
+
+    Scanner s = c.createScanner(MetadataTable.NAME, Authorizations.EMPTY);
+    s.setRange(MetadataSchema.TabletsSection.getRange(new Table.ID(c.tableOperations().tableIdMap().get(tableName))));
+    s.fetchColumnFamily(MetadataSchema.TabletsSection.DataFileColumnFamily.NAME);
+    assertEquals(1, Iterators.size(s.iterator()));
+
+    int row = 0, count = 0;
+    for (Entry<Key,Value> entry : c.createScanner(tableName, Authorizations.EMPTY)) {
+      if (row % 10 == 0)
+        row++;
+      assertEquals(String.format("r%06d", row), entry.getKey().getRow().toString());
+      assertEquals("v" + (row % flushes), entry.getValue().toString());
+      row++;
+      count++;
+    }
+    assertEquals(rowsPerFlush * flushes * 9 / 10, count);
+  }
+
   private int countFiles(Connector c) throws Exception {
     Scanner s = c.createScanner(MetadataTable.NAME, Authorizations.EMPTY);
     s.fetchColumnFamily(new Text(MetadataSchema.TabletsSection.TabletColumnFamily.NAME));
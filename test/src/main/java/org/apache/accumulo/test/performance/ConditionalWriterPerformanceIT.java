@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeFalse;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Result;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.client.ConditionalWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.accumulo.minicluster.impl.MiniAccumuloConfigImpl;
+import org.apache.accumulo.test.categories.MiniClusterOnlyTests;
+import org.apache.accumulo.test.categories.PerformanceTests;
+import org.apache.accumulo.test.functional.ConfigurableMacBase;
+import org.apache.accumulo.test.mrit.IntegrationTestMapReduce;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Measures conditional update throughput on a single tablet server as the number of client threads grows. Each thread uses its own conditional writer, as in
+ * the multi threaded workloads of ConditionalWriterIT, so batches from different threads are processed concurrently on the server and compete for its row
+ * locks. Threads either update disjoint rows or share a small set of hot rows.
+ */
+@Category({MiniClusterOnlyTests.class, PerformanceTests.class})
+public class ConditionalWriterPerformanceIT extends ConfigurableMacBase {
+
+  private static final int BATCHES_PER_THREAD = 200;
+  private static final int ROWS_PER_BATCH = 10;
+  private static final int HOT_ROWS = 20;
+
+  @BeforeClass
+  static public void checkMR() {
+    assumeFalse(IntegrationTestMapReduce.isMapReduce());
+  }
+
+  @Override
+  protected void configure(MiniAccumuloConfigImpl cfg, Configuration hadoopCoreSite) {
+    cfg.setNumTservers(1);
+  }
+
+  @Override
+  protected int defaultTimeoutSeconds() {
+    return 10 * 60;
+  }
+
+  private static byte[] row(int r) {
+    return FastFormat.toZeroPaddedString(r, 8, 16, new byte[] {'r'});
+  }
+
+  /**
+   * Writes a new column to each row in every batch, conditioned on that column being absent. Every update is expected to be accepted, so all time spent is
+   * processing and row lock contention rather than retries.
+   */
+  private static long update(ConditionalWriter cw, int thread, boolean hotRows) {
+    long accepted = 0;
+    for (int b = 0; b < BATCHES_PER_THREAD; b++) {
+      List<ConditionalMutation> mutations = new ArrayList<>(ROWS_PER_BATCH);
+      for (int i = 0; i < ROWS_PER_BATCH; i++) {
+        int r = hotRows ? (b * ROWS_PER_BATCH + i) % HOT_ROWS : (thread * BATCHES_PER_THREAD + b) * ROWS_PER_BATCH + i;
+        String qual = String.format("t%03d_%06d", thread, b);
+        ConditionalMutation cm = new ConditionalMutation(row(r), new Condition("cf", qual));
+        cm.put("cf", qual, "1");
+        mutations.add(cm);
+      }
+
+      Iterator<Result> results = cw.write(mutations.iterator());
+      while (results.hasNext()) {
+        try {
+          assertEquals(Status.ACCEPTED, results.next().getStatus());
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+        accepted++;
+      }
+    }
+    return accepted;
+  }
+
+  private double run(Connector c, int numThreads, boolean hotRows) throws Exception {
+    String tableName = getUniqueNames(1)[0] + "_" + numThreads + (hotRows ? "_hot" : "");
+    c.tableOperations().create(tableName);
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<ConditionalWriter> writers = new ArrayList<>();
+    try {
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int t = 0; t < numThreads; t++) {
+        writers.add(c.createConditionalWriter(tableName, new ConditionalWriterConfig()));
+      }
+
+      long t1 = System.currentTimeMillis();
+      for (int t = 0; t < numThreads; t++) {
+        final int thread = t;
+        final ConditionalWriter cw = writers.get(t);
+        futures.add(executor.submit(() -> update(cw, thread, hotRows)));
+      }
+
+      long accepted = 0;
+      for (Future<Long> future : futures) {
+        accepted += future.get();
+      }
+      long t2 = System.currentTimeMillis();
+
+      assertEquals((long) numThreads * BATCHES_PER_THREAD * ROWS_PER_BATCH, accepted);
+      return accepted / ((t2 - t1) / 1000.0);
+    } finally {
+      executor.shutdownNow();
+      for (ConditionalWriter cw : writers) {
+        cw.close();
+      }
+      c.tableOperations().delete(tableName);
+    }
+  }
+
+  @Test
+  public void testContention() throws Exception {
+    Connector c = getConnector();
+
+    // warm up the server and client before measuring
+    run(c, 4, false);
+
+    for (boolean hotRows : new boolean[] {false, true}) {
+      for (int numThreads : new int[] {1, 4, 16, 32}) {
+        double rate = run(c, numThreads, hotRows);
+        log.info(String.format("threads:%3d   hot rows:%6s   conditional updates/sec:%,12.2f", numThreads, hotRows, rate));
+      }
+    }
+  }
+}